@@ -0,0 +1,114 @@
+package personal.cluster_management.agent;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.health.v1.HealthCheckResponse;
+import io.grpc.protobuf.services.HealthStatusManager;
+import personal.cluster_management.compression.MessageCompression;
+import personal.cluster_management.proto.BackendRegistration;
+import personal.cluster_management.proto.FrontEndMembershipServiceGrpc;
+import personal.cluster_management.proto.MembershipResponse;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the node agent.
+ *
+ * Settings are system properties:
+ * <ul>
+ *     <li>{@code agent.port}: port to serve on (default 50051).</li>
+ *     <li>{@code agent.slots}: jobs run at once (default: one per core).</li>
+ *     <li>{@code agent.queue}: jobs allowed to wait for a slot (default 1000).</li>
+ *     <li>{@code agent.logDir}: where job output is written (default: a directory under java.io.tmpdir).</li>
+ *     <li>{@code agent.logRetentionMinutes}: how long the output of a finished job is kept
+ *     (default 1440, one day).</li>
+ *     <li>{@code agent.frontend}: host:port of a frontend to register with (default: none).</li>
+ *     <li>{@code agent.address}: the host:port the frontend should use to reach this agent
+ *     (default: this host's name and the agent port).</li>
+ *     <li>{@code cluster.compression}, {@code cluster.compression.minBytes}: response compression,
+ *     see {@link MessageCompression}.</li>
+ * </ul>
+ */
+public class AgentMain {
+
+    private static final int DEFAULT_PORT = 50051;
+    private static final int DEFAULT_QUEUE = 1000;
+    private static final long DEFAULT_LOG_RETENTION_MINUTES = 24 * 60;
+    private static final long LOAD_SAMPLE_MILLIS = 2000;
+    private static final long SHUTDOWN_GRACE_MILLIS = 30_000;
+    private static final long REGISTRATION_TIMEOUT_SECONDS = 5;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = Integer.getInteger("agent.port", DEFAULT_PORT);
+        int slots = Integer.getInteger("agent.slots", Runtime.getRuntime().availableProcessors());
+        int queue = Integer.getInteger("agent.queue", DEFAULT_QUEUE);
+        Path logDir = Path.of(System.getProperty("agent.logDir", Path.of(System.getProperty("java.io.tmpdir"), "cluster-agent").toString()));
+        long logRetentionMinutes = Long.getLong("agent.logRetentionMinutes", DEFAULT_LOG_RETENTION_MINUTES);
+        InetAddress local = InetAddress.getLocalHost();
+        String address = System.getProperty("agent.address", local.getHostName() + ":" + port);
+        String frontend = System.getProperty("agent.frontend");
+
+        System.out.println("Starting Agent on port " + port + " with " + slots + " job slots...");
+
+        JobLauncher launcher = new JobLauncher(logDir);
+        JobExecutor executor = new JobExecutor(launcher, slots, queue);
+        launcher.start(TimeUnit.MINUTES.toMillis(logRetentionMinutes), executor::isActive);
+        NodeLoad load = new NodeLoad();
+        load.start(LOAD_SAMPLE_MILLIS);
+        HealthStatusManager health = new HealthStatusManager();
+        MessageCompression compression = MessageCompression.fromSystemProperties();
+
+        ServerBuilder<?> serverBuilder = ServerBuilder.forPort(port)
+                .addService(new AgentServiceImpl(local.getHostName(), local.getHostAddress(), launcher, executor, load))
+                .addService(health.getHealthService());
+        compression.configure(serverBuilder);
+        Server server = serverBuilder.build();
+        server.start();
+        health.setStatus("", HealthCheckResponse.ServingStatus.SERVING);
+        System.out.println("Agent started successfully. Job output goes to " + logDir);
+
+        if (frontend != null) {
+            register(frontend, address, true);
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            // Leave the pool first so the frontend stops sending work, then let running jobs finish
+            health.enterTerminalState();
+            if (frontend != null) register(frontend, address, false);
+            try {
+                executor.shutdown(SHUTDOWN_GRACE_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            load.shutdown();
+            launcher.shutdown();
+            server.shutdown();
+        }));
+
+        server.awaitTermination();
+    }
+
+    /**
+     * Registers with or deregisters from a frontend. Failures are logged, not fatal:
+     * the frontend may also be configured with this agent's address statically.
+     */
+    private static void register(String frontend, String address, boolean join) {
+        ManagedChannel channel = ManagedChannelBuilder.forTarget(frontend).usePlaintext().build();
+        try {
+            FrontEndMembershipServiceGrpc.FrontEndMembershipServiceBlockingStub stub = FrontEndMembershipServiceGrpc.newBlockingStub(channel)
+                    .withDeadlineAfter(REGISTRATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            BackendRegistration registration = BackendRegistration.newBuilder().setAddress(address).build();
+            MembershipResponse response = join ? stub.registerBackend(registration) : stub.deregisterBackend(registration);
+            System.out.println("Agent: " + response.getMessage() + " with frontend " + frontend);
+        } catch (RuntimeException e) {
+            System.err.println("Agent: Could not " + (join ? "register with" : "deregister from") + " frontend " + frontend + ": " + e.getMessage());
+        } finally {
+            channel.shutdownNow();
+        }
+    }
+}
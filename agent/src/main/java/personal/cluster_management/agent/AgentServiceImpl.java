@@ -0,0 +1,291 @@
+package personal.cluster_management.agent;
+
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import personal.cluster_management.proto.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Backend implementation of the job service, running on each cluster node.
+ * Jobs are run by a {@link JobExecutor}; tmux sessions are managed through {@link JobLauncher}.
+ */
+public class AgentServiceImpl extends DistributedJobServiceGrpc.DistributedJobServiceImplBase {
+
+    /** Time a killed job gets to exit after SIGTERM, unless the request says otherwise. */
+    public static final long DEFAULT_KILL_GRACE_MILLIS = 10_000;
+
+    // Re-reads the output of followed jobs that have nothing new yet
+    private static final ScheduledExecutorService LOG_POLLER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "agent-log-poller");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String hostName;
+    private final String ipAddress;
+    private final JobLauncher launcher;
+    private final JobExecutor executor;
+    private final NodeLoad load;
+
+    public AgentServiceImpl(String hostName, String ipAddress, JobLauncher launcher, JobExecutor executor, NodeLoad load) {
+        this.hostName = hostName;
+        this.ipAddress = ipAddress;
+        this.launcher = launcher;
+        this.executor = executor;
+        this.load = load;
+    }
+
+    @Override
+    public void submitJob(JobRequest request, StreamObserver<JobStatusResponse> responseObserver) {
+        System.out.println("Agent: Received Job Request " + request.getJobId());
+        if (request.getCommand().isBlank()) {
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription("Job " + request.getJobId() + " has no command").asRuntimeException());
+            return;
+        }
+        switch (executor.submit(request, responseObserver)) {
+            case DUPLICATE -> responseObserver.onError(Status.ALREADY_EXISTS
+                    .withDescription(duplicate(request.getJobId())).asRuntimeException());
+            case QUEUE_FULL -> responseObserver.onError(queueFull());
+            case ACCEPTED -> { }
+        }
+    }
+
+    @Override
+    public StreamObserver<JobBatch> submitJobs(StreamObserver<JobAck> responseObserver) {
+        return new BatchReceiver(responseObserver);
+    }
+
+    @Override
+    public void getStatus(ServerStatusRequest request, StreamObserver<ServerStatusResponse> responseObserver) {
+        NodeLoad.Sample sample = load.latest();
+        int running = executor.runningCount();
+        ServerInfo info = ServerInfo.newBuilder()
+                .setHostName(hostName)
+                .setIpAddress(ipAddress)
+                .setStatus(running > 0 ? ServerInfo.Availability.BUSY : ServerInfo.Availability.AVAILABLE)
+                .setCurrentCpuLoad(sample.cpuLoad())
+                .setCurrentGpuLoad(sample.gpuLoad())
+                .setTotalRamGb(sample.totalRamGb())
+                .setAvailableRamGb(sample.availableRamGb())
+                .setCpuCores(sample.cpuCores())
+                .setTotalGpuMemoryGb(sample.totalGpuMemoryGb())
+                .setAvailableGpuMemoryGb(sample.availableGpuMemoryGb())
+                .addAllRunningJobIds(executor.runningJobIds())
+                .setFreeSlots(Math.max(0, executor.getSlots() - running))
+                .setQueuedJobs(executor.queuedCount())
+                .build();
+        responseObserver.onNext(ServerStatusResponse.newBuilder().addServers(info).build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void createTmuxSession(TmuxCreateRequest request, StreamObserver<JobStatusResponse> responseObserver) {
+        String session = request.getSessionName();
+        try {
+            boolean created = launcher.createSession(session, new File(System.getProperty("user.dir")), request.getInitialCommand());
+            responseObserver.onNext(JobStatusResponse.newBuilder()
+                    .setJobId("tmux-" + session)
+                    .setStatus(JobStatusResponse.Status.RUNNING)
+                    .setMessage((created ? "Session created on " : "Session already exists on ") + hostName)
+                    .build());
+            responseObserver.onCompleted();
+        } catch (IOException e) {
+            responseObserver.onError(Status.INTERNAL.withDescription("Could not create tmux session " + session + ": " + e.getMessage()).asRuntimeException());
+        }
+    }
+
+    @Override
+    public void killTmuxSession(TmuxKillRequest request, StreamObserver<JobStatusResponse> responseObserver) {
+        String session = request.getSessionName();
+        try {
+            boolean killed = launcher.killSession(session);
+            responseObserver.onNext(JobStatusResponse.newBuilder()
+                    .setJobId(request.getJobId().isEmpty() ? "tmux-" + session : request.getJobId())
+                    .setStatus(killed ? JobStatusResponse.Status.KILLED_BY_USER : JobStatusResponse.Status.UNKNOWN)
+                    .setMessage(killed ? "Session " + session + " killed" : "No session " + session + " on " + hostName)
+                    .build());
+            responseObserver.onCompleted();
+        } catch (IOException e) {
+            responseObserver.onError(Status.INTERNAL.withDescription("Could not kill tmux session " + session + ": " + e.getMessage()).asRuntimeException());
+        }
+    }
+
+    @Override
+    public void killJob(JobKillRequest request, StreamObserver<JobStatusResponse> responseObserver) {
+        String jobId = request.getJobId();
+        long grace = request.getGracePeriodMs() > 0 ? request.getGracePeriodMs() : DEFAULT_KILL_GRACE_MILLIS;
+        executor.kill(jobId, grace).whenComplete((killed, error) -> {
+            if (error != null) {
+                responseObserver.onError(Status.INTERNAL.withDescription("Could not kill job " + jobId + ": " + error.getMessage()).asRuntimeException());
+                return;
+            }
+            responseObserver.onNext(JobStatusResponse.newBuilder()
+                    .setJobId(jobId)
+                    .setStatus(killed ? JobStatusResponse.Status.KILLED_BY_USER : JobStatusResponse.Status.UNKNOWN)
+                    .setMessage(killed ? "Job " + jobId + " killed" : "No job " + jobId + " on " + hostName)
+                    .build());
+            responseObserver.onCompleted();
+        });
+    }
+
+    @Override
+    public void stealJobs(StealRequest request, StreamObserver<StealResponse> responseObserver) {
+        long leaseMillis = request.getLeaseMs() > 0 ? request.getLeaseMs() : JobExecutor.DEFAULT_LEASE_MILLIS;
+        JobExecutor.Stolen stolen = executor.steal(Math.max(0, request.getMaxJobs()), leaseMillis);
+        if (!stolen.jobs().isEmpty()) {
+            System.out.println("Agent: Leased " + stolen.jobs().size() + " queued jobs to another node");
+        }
+        responseObserver.onNext(StealResponse.newBuilder().addAllJobs(stolen.jobs()).setLeaseId(stolen.leaseId()).build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void settleSteal(SettleStealRequest request, StreamObserver<SettleStealResponse> responseObserver) {
+        boolean settled = executor.settle(request.getLeaseId(), Set.copyOf(request.getMovedJobIdsList()), request.getMovedTo());
+        if (settled) {
+            System.out.println("Agent: Gave up " + request.getMovedJobIdsCount() + " leased jobs to " + request.getMovedTo());
+        }
+        responseObserver.onNext(SettleStealResponse.newBuilder().setSettled(settled).build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void streamJobLog(JobLogRequest request, StreamObserver<JobLogChunk> responseObserver) {
+        if (request.getOffset() < 0) {
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription("Offset must not be negative").asRuntimeException());
+            return;
+        }
+        new JobLogStream(request.getJobId(), launcher, request.getOffset(), request.getFollow(),
+                executor, (ServerCallStreamObserver<JobLogChunk>) responseObserver, LOG_POLLER).start();
+    }
+
+    private String duplicate(String jobId) {
+        return "Job " + jobId + " is already queued or running on " + hostName;
+    }
+
+    private RuntimeException queueFull() {
+        return Status.RESOURCE_EXHAUSTED
+                .withDescription("Job queue on " + hostName + " is full (" + executor.getSlots() + " running, " + executor.queuedCount() + " waiting)")
+                .asRuntimeException();
+    }
+
+    /**
+     * Status sink for jobs submitted in bulk, whose status is not streamed back.
+     */
+    /**
+     * Receives one SubmitJobs stream. When a batch asks for it, each job accepted from it is
+     * acknowledged a second time once it is done, and the stream only ends after the last one.
+     */
+    private final class BatchReceiver implements StreamObserver<JobBatch> {
+        private final StreamObserver<JobAck> responseObserver;
+
+        // Guarded by this, like every call on responseObserver
+        private int outstanding = 0; // Accepted jobs to report done
+        private boolean clientDone = false;
+        private boolean closed = false;
+
+        BatchReceiver(StreamObserver<JobAck> responseObserver) {
+            this.responseObserver = responseObserver;
+        }
+
+        @Override
+        public synchronized void onNext(JobBatch batch) {
+            for (JobRequest job : batch.getJobsList()) {
+                StreamObserver<JobStatusResponse> status = batch.getReportDone() ? new DoneReporter(job.getJobId()) : new StatusLogger();
+                // Nobody follows these jobs' status, so they may be moved to an idle node; session jobs may not
+                String refusal = null;
+                if (job.getCommand().isBlank()) {
+                    refusal = "Job has no command";
+                } else {
+                    switch (executor.submit(job, status, job.getTmuxSessionName().isEmpty())) {
+                        case DUPLICATE -> refusal = duplicate(job.getJobId());
+                        case QUEUE_FULL -> refusal = "Job queue is full";
+                        case ACCEPTED -> {
+                            if (batch.getReportDone()) outstanding++;
+                        }
+                    }
+                }
+                // Holding the lock keeps a quick job's done ack behind this one
+                send(JobAck.newBuilder()
+                        .setJobId(job.getJobId())
+                        .setAccepted(refusal == null)
+                        .setMessage(refusal == null ? hostName : refusal)
+                        .build());
+            }
+        }
+
+        @Override
+        public synchronized void onError(Throwable t) {
+            // Jobs already acknowledged keep running
+            closed = true;
+        }
+
+        @Override
+        public synchronized void onCompleted() {
+            clientDone = true;
+            maybeClose();
+        }
+
+        private synchronized void done(String jobId) {
+            outstanding--;
+            send(JobAck.newBuilder().setJobId(jobId).setAccepted(true).setDone(true).build());
+            maybeClose();
+        }
+
+        private void send(JobAck ack) {
+            if (closed) return;
+            try {
+                responseObserver.onNext(ack);
+            } catch (RuntimeException e) {
+                // The frontend went away
+                closed = true;
+            }
+        }
+
+        private void maybeClose() {
+            if (!clientDone || outstanding > 0 || closed) return;
+            closed = true;
+            responseObserver.onCompleted();
+        }
+
+        /**
+         * Logs a job's outcome and reports it done on the stream.
+         */
+        private final class DoneReporter extends StatusLogger {
+            private final String jobId;
+
+            DoneReporter(String jobId) {
+                this.jobId = jobId;
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                done(jobId);
+            }
+
+            @Override
+            public void onCompleted() {
+                done(jobId);
+            }
+        }
+    }
+
+    private static class StatusLogger implements StreamObserver<JobStatusResponse> {
+        @Override
+        public void onNext(JobStatusResponse value) {
+            if (value.getStatus() != JobStatusResponse.Status.RUNNING) {
+                System.out.println("Agent: Job " + value.getJobId() + " finished: " + value.getStatus() + " (" + value.getMessage() + ")");
+            }
+        }
+        @Override
+        public void onError(Throwable t) {}
+        @Override
+        public void onCompleted() {}
+    }
+}
@@ -0,0 +1,388 @@
+package personal.cluster_management.agent;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import personal.cluster_management.proto.JobRequest;
+import personal.cluster_management.proto.JobStatusResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs jobs on this node with bounded concurrency.
+ *
+ * At most {@code slots} jobs run at once, normally one per core. Up to {@code queueCapacity}
+ * more wait in a FIFO queue; beyond that, new jobs are refused so the frontend can place
+ * them elsewhere instead of piling them up here.
+ *
+ * Queued jobs that may move can be leased to another node by {@link #steal}. A leased job does
+ * not run here; once the lease is settled, or expires, it is either dropped or put back in the queue.
+ */
+public class JobExecutor {
+
+    /** How long stolen jobs are held for the thief when the steal does not say. */
+    public static final long DEFAULT_LEASE_MILLIS = 30_000;
+
+    /** Exit code used by the shell when the command does not exist. */
+    private static final int COMMAND_NOT_FOUND = 127;
+
+    /** How long jobs still running when the shutdown timeout runs out get after SIGTERM. */
+    private static final long SHUTDOWN_KILL_GRACE_MILLIS = 2_000;
+
+    /**
+     * Jobs leased by {@link #steal}.
+     * @param leaseId Names the lease in {@link #settle}; empty if no job was taken.
+     * @param jobs The jobs.
+     */
+    public record Stolen(String leaseId, List<JobRequest> jobs) {}
+
+    /**
+     * What {@link #submit} did with a job.
+     */
+    public enum Submission {
+        ACCEPTED,
+        /** A job with the same id is already queued, leased or running here. */
+        DUPLICATE,
+        QUEUE_FULL
+    }
+
+    private final JobLauncher launcher;
+    private final int slots;
+    private final ThreadPoolExecutor pool;
+
+    // Jobs whose process has been started and has not exited yet, by job id
+    private final Map<String, JobLauncher.Launched> running = new ConcurrentHashMap<>();
+
+    // Jobs accepted and not yet finished, queued or running
+    private final Set<String> active = ConcurrentHashMap.newKeySet();
+
+    // Jobs waiting for a slot, by job id
+    private final Map<String, QueuedJob> waiting = new ConcurrentHashMap<>();
+
+    // Jobs asked to be killed that have not finished yet, with their SIGTERM grace period in milliseconds
+    private final Map<String, Long> killRequested = new ConcurrentHashMap<>();
+
+    // Jobs taken out of the queue by steal() and not settled yet, by lease id
+    private final Map<String, List<QueuedJob>> leases = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService leaseTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "agent-steal-leases");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * A job in the pool's queue until a slot runs it.
+     */
+    private final class QueuedJob extends FutureTask<Void> {
+        final JobRequest request;
+        final StreamObserver<JobStatusResponse> responseObserver;
+        final boolean movable;
+
+        QueuedJob(JobRequest request, StreamObserver<JobStatusResponse> responseObserver, boolean movable) {
+            super(() -> {
+                String jobId = request.getJobId();
+                try {
+                    waiting.remove(jobId);
+                    JobExecutor.this.run(request, responseObserver);
+                } finally {
+                    killRequested.remove(jobId);
+                    active.remove(jobId);
+                }
+            }, null);
+            this.request = request;
+            this.responseObserver = responseObserver;
+            this.movable = movable;
+        }
+    }
+
+    /**
+     * @param launcher Starts the job processes.
+     * @param slots Maximum number of jobs running at once.
+     * @param queueCapacity Maximum number of jobs waiting for a slot.
+     */
+    public JobExecutor(JobLauncher launcher, int slots, int queueCapacity) {
+        this.launcher = launcher;
+        this.slots = slots;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(slots, slots, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "agent-job-" + threadCount.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Queues a job. Its status is streamed to the observer: RUNNING once the process starts,
+     * then one terminal status, after which the observer is completed.
+     * @param request The job.
+     * @param responseObserver Receives the job's status updates.
+     * @return Whether the job was accepted; a job that was not gets no status.
+     */
+    public Submission submit(JobRequest request, StreamObserver<JobStatusResponse> responseObserver) {
+        return submit(request, responseObserver, false);
+    }
+
+    /**
+     * Queues a job, like {@link #submit(JobRequest, StreamObserver)}.
+     * @param movable Whether the job may be handed to another node by {@link #steal} before it starts.
+     */
+    public Submission submit(JobRequest request, StreamObserver<JobStatusResponse> responseObserver, boolean movable) {
+        String jobId = request.getJobId();
+        // Status, logs and kills all go by job id, so two jobs may not share one
+        if (!active.add(jobId)) return Submission.DUPLICATE;
+        QueuedJob queued = new QueuedJob(request, responseObserver, movable);
+        waiting.put(jobId, queued);
+        try {
+            pool.execute(queued);
+        } catch (RejectedExecutionException e) {
+            waiting.remove(jobId);
+            active.remove(jobId);
+            return Submission.QUEUE_FULL;
+        }
+
+        // A job the client gave up on before it started is dropped; a started job keeps running
+        if (responseObserver instanceof ServerCallStreamObserver<JobStatusResponse> serverObserver) {
+            serverObserver.setOnCancelHandler(() -> {
+                if (dropQueued(queued)) {
+                    System.out.println("Agent: Dropped queued job " + jobId + ", client cancelled");
+                }
+            });
+        }
+        return Submission.ACCEPTED;
+    }
+
+    /**
+     * Takes a job out of the queue, unless a slot has already started it.
+     */
+    private boolean dropQueued(QueuedJob job) {
+        if (!pool.remove(job)) return false;
+        forget(job);
+        return true;
+    }
+
+    private void forget(QueuedJob job) {
+        String jobId = job.request.getJobId();
+        waiting.remove(jobId, job);
+        killRequested.remove(jobId);
+        active.remove(jobId);
+    }
+
+    /**
+     * Leases movable jobs that have not started, so an idle node can run them instead.
+     * The newest jobs go first; the oldest are the next to start here anyway. A leased job does
+     * not run here until {@link #settle} puts it back, or the lease expires, which does the same.
+     * A job that has started is never leased.
+     * @param maxJobs Maximum number of jobs to lease.
+     * @param leaseMillis How long to hold the jobs before putting them back in the queue.
+     * @return The jobs taken out of the queue and their lease.
+     */
+    public Stolen steal(int maxJobs, long leaseMillis) {
+        List<QueuedJob> taken = new ArrayList<>();
+        Object[] queued = pool.getQueue().toArray();
+        for (int i = queued.length - 1; i >= 0 && taken.size() < maxJobs; i--) {
+            if (queued[i] instanceof QueuedJob job && job.movable && pool.remove(job)) {
+                taken.add(job);
+            }
+        }
+        if (taken.isEmpty()) return new Stolen("", List.of());
+
+        String leaseId = UUID.randomUUID().toString();
+        leases.put(leaseId, taken);
+        leaseTimer.schedule(() -> {
+            if (settle(leaseId, Set.of(), "")) {
+                System.out.println("Agent: Steal lease " + leaseId + " expired, took back " + taken.size() + " jobs");
+            }
+        }, leaseMillis, TimeUnit.MILLISECONDS);
+        return new Stolen(leaseId, taken.stream().map(job -> job.request).toList());
+    }
+
+    /**
+     * Ends a lease taken by {@link #steal}. Moved jobs are forgotten here and reported MOVED to
+     * their status observer; the others go back to the end of the queue.
+     * A job killed while it was leased is reported killed instead of going back.
+     * @param leaseId The lease.
+     * @param moved The ids of the jobs another node has taken.
+     * @param movedTo The address of that node.
+     * @return false if there is no such lease, e.g. because it expired.
+     */
+    public boolean settle(String leaseId, Collection<String> moved, String movedTo) {
+        List<QueuedJob> jobs = leases.remove(leaseId);
+        if (jobs == null) return false;
+        for (QueuedJob job : jobs) {
+            String jobId = job.request.getJobId();
+            if (moved.contains(jobId)) {
+                forget(job);
+                send(job.responseObserver, status(jobId, JobStatusResponse.Status.MOVED, -1, "Moved to " + movedTo));
+            } else if (killRequested.containsKey(jobId)) {
+                forget(job);
+                send(job.responseObserver, status(jobId, JobStatusResponse.Status.KILLED_BY_USER, -1, "Killed before it started"));
+            } else {
+                try {
+                    pool.execute(job);
+                } catch (RejectedExecutionException e) {
+                    forget(job);
+                    send(job.responseObserver, status(jobId, JobStatusResponse.Status.EXECUTION_ERROR, -1, "Queue was full when the job came back from a steal"));
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Kills a job. A queued job is dropped. A running job's processes get SIGTERM, then
+     * SIGKILL if they have not exited after the grace period; its slot is free as soon as its
+     * command exits. The job's status stream then reports KILLED_BY_USER.
+     * @param jobId The job.
+     * @param graceMillis How long the job may take to exit after SIGTERM.
+     * @return Completes once the job's processes have exited, with false if there was no such job.
+     */
+    public CompletableFuture<Boolean> kill(String jobId, long graceMillis) {
+        if (!active.contains(jobId)) return CompletableFuture.completedFuture(false);
+        killRequested.put(jobId, graceMillis);
+
+        QueuedJob queued = waiting.get(jobId);
+        if (queued != null && dropQueued(queued)) {
+            send(queued.responseObserver, status(jobId, JobStatusResponse.Status.KILLED_BY_USER, -1, "Killed before it started"));
+            return CompletableFuture.completedFuture(true);
+        }
+
+        JobLauncher.Launched launched = running.get(jobId);
+        if (launched == null) {
+            // Starting or just finished: run() checks for the kill request itself
+            return CompletableFuture.completedFuture(true);
+        }
+        System.out.println("Agent: Killing job " + jobId);
+        return ProcessTree.terminate(launched.processTree(), graceMillis).thenApply(forced -> true);
+    }
+
+    private void run(JobRequest request, StreamObserver<JobStatusResponse> responseObserver) {
+        String jobId = request.getJobId();
+        JobLauncher.Launched launched;
+        try {
+            launched = launcher.launch(request);
+        } catch (IOException e) {
+            send(responseObserver, status(jobId, JobStatusResponse.Status.EXECUTION_ERROR, -1, e.getMessage()));
+            return;
+        }
+
+        running.put(jobId, launched);
+        System.out.println("Agent: Started job " + jobId);
+
+        // A kill that arrived while the job was being started found nothing to kill yet
+        Long grace = killRequested.get(jobId);
+        if (grace != null) ProcessTree.terminate(launched.processTree(), grace);
+
+        int exitCode;
+        try {
+            send(responseObserver, status(jobId, JobStatusResponse.Status.RUNNING, 0, "Running on " + Thread.currentThread().getName()), false);
+            exitCode = launched.awaitExit();
+        } catch (InterruptedException e) {
+            // Like a kill: the shell alone would leave what the command started running
+            ProcessTree.terminate(launched.processTree(), SHUTDOWN_KILL_GRACE_MILLIS).join();
+            Thread.currentThread().interrupt();
+            send(responseObserver, status(jobId, JobStatusResponse.Status.EXECUTION_ERROR, -1, "Agent shut down while the job was running"));
+            return;
+        } catch (IOException e) {
+            send(responseObserver, status(jobId, JobStatusResponse.Status.EXECUTION_ERROR, -1, "Could not read exit code: " + e.getMessage()));
+            return;
+        } finally {
+            // Forget the job before reporting it, so a status request never shows a finished job
+            running.remove(jobId, launched);
+        }
+
+        // A job that finished on its own before the kill landed reports its real outcome
+        if (exitCode != 0 && killRequested.containsKey(jobId)) {
+            send(responseObserver, status(jobId, JobStatusResponse.Status.KILLED_BY_USER, exitCode, "Killed, exit code " + exitCode));
+            return;
+        }
+        JobStatusResponse.Status status = exitCode == 0 ? JobStatusResponse.Status.COMPLETED_SUCCESS
+                : exitCode == COMMAND_NOT_FOUND ? JobStatusResponse.Status.EXECUTION_ERROR
+                : JobStatusResponse.Status.COMPLETED_FAILURE;
+        send(responseObserver, status(jobId, status, exitCode, "Exited with code " + exitCode));
+    }
+
+    private static JobStatusResponse status(String jobId, JobStatusResponse.Status status, int exitCode, String message) {
+        return JobStatusResponse.newBuilder()
+                .setJobId(jobId)
+                .setStatus(status)
+                .setExitCode(exitCode)
+                .setMessage(message)
+                .build();
+    }
+
+    private static void send(StreamObserver<JobStatusResponse> observer, JobStatusResponse response) {
+        send(observer, response, true);
+    }
+
+    /**
+     * Sends a status update. The client may have gone away in the meantime; the job's outcome
+     * does not depend on anyone listening.
+     */
+    private static void send(StreamObserver<JobStatusResponse> observer, JobStatusResponse response, boolean last) {
+        if (observer instanceof ServerCallStreamObserver<JobStatusResponse> serverObserver && serverObserver.isCancelled()) {
+            return;
+        }
+        try {
+            observer.onNext(response);
+            if (last) observer.onCompleted();
+        } catch (RuntimeException e) {
+            System.err.println("Agent: Could not send status of job " + response.getJobId() + ": " + e.getMessage());
+        }
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    /**
+     * @return The ids of the jobs whose process is running.
+     */
+    public List<String> runningJobIds() {
+        return new ArrayList<>(running.keySet());
+    }
+
+    /**
+     * @return true if the job is queued or running.
+     */
+    public boolean isActive(String jobId) {
+        return active.contains(jobId);
+    }
+
+    public int runningCount() {
+        return running.size();
+    }
+
+    public int queuedCount() {
+        return pool.getQueue().size();
+    }
+
+    /**
+     * Stops accepting jobs and waits for the running ones to finish.
+     * @param timeoutMillis How long to wait before killing them, with everything they started.
+     */
+    public void shutdown(long timeoutMillis) throws InterruptedException {
+        leaseTimer.shutdownNow();
+        pool.shutdown();
+        if (!pool.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+            pool.shutdownNow();
+            // Wait for the kills, which may need SIGKILL after the grace period
+            pool.awaitTermination(2 * SHUTDOWN_KILL_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package personal.cluster_management.agent;
+
+import personal.cluster_management.proto.JobRequest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Starts job commands on this node, either as plain child processes or inside a tmux session.
+ * Output of every job goes to a log file named after the job in the log directory.
+ *
+ * Logs outlive their jobs so clients can still read them, but not forever: once started, a
+ * sweep deletes the logs of finished jobs that were not written for the retention period and
+ * that no client is reading.
+ */
+public class JobLauncher {
+
+    private static final long TMUX_COMMAND_TIMEOUT_SECONDS = 10;
+    private static final long MAX_SWEEP_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final String LOG_SUFFIX = ".log";
+
+    private final Path logDir;
+
+    // Guarded by this
+    private final Map<String, Integer> readers = new HashMap<>(); // Job id to open log streams
+    private ScheduledExecutorService sweeper;
+
+    /**
+     * A started job.
+     * For tmux jobs the process is a {@code tmux wait-for} that ends with the command, the
+     * command's exit code is read from {@code exitCodeFile}, and {@code tmuxPane} is the shell
+     * running in the job's window.
+     */
+    public record Launched(Process process, Path exitCodeFile, ProcessHandle tmuxPane) {
+
+        /**
+         * @return The job's processes: its command and everything the command started.
+         */
+        public List<ProcessHandle> processTree() {
+            List<ProcessHandle> tree = new ArrayList<>();
+            if (tmuxPane == null) {
+                tree.add(process.toHandle());
+                process.descendants().forEach(tree::add);
+            } else {
+                // The pane's own shell is spared so it still records the exit code and wakes the waiter
+                tmuxPane.descendants().forEach(tree::add);
+            }
+            return tree;
+        }
+
+        /**
+         * Waits for the job to finish.
+         * @return The command's exit code.
+         */
+        public int awaitExit() throws InterruptedException, IOException {
+            int code = process.waitFor();
+            if (exitCodeFile == null) return code;
+            try {
+                return Integer.parseInt(Files.readString(exitCodeFile).trim());
+            } finally {
+                Files.deleteIfExists(exitCodeFile);
+            }
+        }
+    }
+
+    public JobLauncher(Path logDir) {
+        this.logDir = logDir;
+    }
+
+    /**
+     * @param jobId A job id.
+     * @return The file the job's output is written to.
+     */
+    public Path logFile(String jobId) {
+        return logDir.resolve(fileName(jobId) + LOG_SUFFIX);
+    }
+
+    /**
+     * Deletes old logs of finished jobs every so often, on a daemon thread.
+     * @param retentionMillis How long a log is kept after it was last written.
+     * @param active Tells whether a job is still queued or running; its log is kept.
+     */
+    public synchronized void start(long retentionMillis, Predicate<String> active) {
+        if (sweeper != null) return;
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "agent-log-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(1, Math.min(retentionMillis, MAX_SWEEP_INTERVAL_MILLIS));
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                int deleted = deleteLogs(retentionMillis, active);
+                if (deleted > 0) System.out.println("Agent: Deleted " + deleted + " old job logs");
+            } catch (IOException e) {
+                System.err.println("Agent: Could not delete old job logs: " + e.getMessage());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+
+    /**
+     * Keeps a job's log while a client reads it. Every call must be matched by {@link #closedLog}.
+     */
+    public synchronized void openedLog(String jobId) {
+        readers.merge(jobId, 1, Integer::sum);
+    }
+
+    public synchronized void closedLog(String jobId) {
+        readers.computeIfPresent(jobId, (id, n) -> n > 1 ? n - 1 : null);
+    }
+
+    /**
+     * Deletes the logs of finished jobs that were not written for a while and that nobody reads.
+     * @param olderThanMillis Minimum time since a log was last written.
+     * @param active Tells whether a job is still queued or running.
+     * @return The number of logs deleted.
+     */
+    public synchronized int deleteLogs(long olderThanMillis, Predicate<String> active) throws IOException {
+        if (!Files.isDirectory(logDir)) return 0;
+        long cutoff = System.currentTimeMillis() - olderThanMillis;
+        int deleted = 0;
+        try (DirectoryStream<Path> logs = Files.newDirectoryStream(logDir, "*" + LOG_SUFFIX)) {
+            for (Path log : logs) {
+                String name = log.getFileName().toString();
+                String jobId = jobId(name.substring(0, name.length() - LOG_SUFFIX.length()));
+                if (jobId == null || readers.containsKey(jobId) || active.test(jobId)) continue;
+                if (Files.getLastModifiedTime(log).toMillis() <= cutoff && Files.deleteIfExists(log)) deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Starts a job in its repository directory (or the agent's directory if none is given).
+     * @param request The job.
+     * @return The started job.
+     * @throws IOException If the command could not be started, e.g. the directory does not exist.
+     */
+    public Launched launch(JobRequest request) throws IOException {
+        File directory = directory(request.getRepositoryPath());
+        if (!directory.isDirectory()) {
+            throw new IOException("Repository path " + directory + " is not a directory");
+        }
+        Files.createDirectories(logDir);
+        Path log = logFile(request.getJobId());
+        synchronized (this) {
+            // Truncated under the lock, so a sweep sees a fresh log and does not delete it under the job
+            Files.write(log, new byte[0]);
+        }
+
+        if (request.getTmuxSessionName().isEmpty()) {
+            Process process = new ProcessBuilder("sh", "-c", request.getCommand())
+                    .directory(directory)
+                    .redirectErrorStream(true)
+                    .redirectOutput(log.toFile())
+                    .start();
+            return new Launched(process, null, null);
+        }
+        return launchInTmux(request.getTmuxSessionName(), directory, request.getCommand(), log);
+    }
+
+    /**
+     * Runs the command in a new window of the session, so users can attach and watch it.
+     * The window signals a tmux channel when the command ends; waiting on that channel stands
+     * in for waiting on the command itself.
+     */
+    private Launched launchInTmux(String session, File directory, String command, Path log) throws IOException {
+        createSession(session, directory, "");
+        String channel = "job-" + UUID.randomUUID();
+        Path exitCodeFile = logDir.resolve(channel + ".exit");
+
+        // Start the waiter first so the signal cannot be missed
+        Process waiter = new ProcessBuilder("tmux", "wait-for", channel).start();
+        String script = "sh -c " + quote(command) + " > " + quote(log.toString()) + " 2>&1; "
+                + "echo $? > " + quote(exitCodeFile.toString()) + "; tmux wait-for -S " + channel;
+        String panePid;
+        try {
+            panePid = tmuxOutput("new-window", "-d", "-P", "-F", "#{pane_pid}", "-t", session + ":", "-c", directory.getPath(), "sh", "-c", script);
+        } catch (IOException e) {
+            waiter.destroy();
+            throw e;
+        }
+        // Null if the window already closed; the job is then finished and there is nothing to kill
+        ProcessHandle pane = ProcessHandle.of(Long.parseLong(panePid.trim())).orElse(null);
+        return new Launched(waiter, exitCodeFile, pane);
+    }
+
+    /**
+     * Creates a detached tmux session unless one with that name already exists.
+     * @param session The session name.
+     * @param directory The session's working directory.
+     * @param initialCommand A command to type into the session, or an empty string.
+     * @return true if a new session was created.
+     */
+    public boolean createSession(String session, File directory, String initialCommand) throws IOException {
+        if (hasSession(session)) return false;
+        tmux("new-session", "-d", "-s", session, "-c", directory.getPath());
+        if (!initialCommand.isEmpty()) {
+            tmux("send-keys", "-t", session, initialCommand, "Enter");
+        }
+        return true;
+    }
+
+    /**
+     * Kills a tmux session and every window in it.
+     * @return false if there was no such session.
+     */
+    public boolean killSession(String session) throws IOException {
+        if (!hasSession(session)) return false;
+        tmux("kill-session", "-t", session);
+        return true;
+    }
+
+    private boolean hasSession(String session) throws IOException {
+        // "=" asks for an exact name match instead of a prefix match
+        return run(List.of("tmux", "has-session", "-t", "=" + session)) == 0;
+    }
+
+    private void tmux(String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("tmux");
+        command.addAll(List.of(args));
+        int code = run(command);
+        if (code != 0) {
+            throw new IOException("tmux " + args[0] + " failed with exit code " + code);
+        }
+    }
+
+    /**
+     * Runs a tmux command that prints a short answer.
+     * Not for commands that may start the tmux server, which would inherit the output pipe.
+     * @return What it printed.
+     */
+    private String tmuxOutput(String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("tmux");
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        int code = await(process, command);
+        if (code != 0) {
+            throw new IOException("tmux " + args[0] + " failed with exit code " + code);
+        }
+        return output;
+    }
+
+    private static int run(List<String> command) throws IOException {
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        return await(process, command);
+    }
+
+    private static int await(Process process, List<String> command) throws IOException {
+        try {
+            if (!process.waitFor(TMUX_COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IOException(String.join(" ", command) + " timed out");
+            }
+            return process.exitValue();
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running " + command.get(0), e);
+        }
+    }
+
+    File directory(String repositoryPath) {
+        return new File(repositoryPath.isEmpty() ? System.getProperty("user.dir") : repositoryPath);
+    }
+
+    private static String quote(String s) {
+        return "'" + s.replace("'", "'\\''") + "'";
+    }
+
+    /**
+     * @return The job id encoded as URL-safe base64: a valid file name, distinct for distinct ids.
+     */
+    private static String fileName(String jobId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(jobId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return The job id a log file name was made from, or null if it is not one of ours.
+     */
+    private static String jobId(String fileName) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(fileName), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
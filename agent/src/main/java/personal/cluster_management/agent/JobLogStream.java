@@ -0,0 +1,136 @@
+package personal.cluster_management.agent;
+
+import com.google.protobuf.UnsafeByteOperations;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import personal.cluster_management.proto.JobLogChunk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams one job's output file to one client.
+ *
+ * The file is only read while the client's stream is ready, so a slow reader leaves the
+ * unread output on disk instead of in memory. Each chunk is read straight into its own array,
+ * which the message then wraps without copying; the array is never reused because gRPC may
+ * serialize the message after {@code onNext} returns.
+ *
+ * When following a running job, reaching the end of the file schedules another read after a
+ * short delay. The stream completes once the job has finished and all of its output was sent.
+ */
+class JobLogStream {
+
+    static final int CHUNK_SIZE = 32 * 1024;
+    private static final long FOLLOW_POLL_MILLIS = 200;
+
+    private final String jobId;
+    private final Path file;
+    private final JobLauncher launcher;
+    private final boolean follow;
+    private final JobExecutor executor;
+    private final ServerCallStreamObserver<JobLogChunk> observer;
+    private final ScheduledExecutorService poller;
+
+    // Guarded by this
+    private FileChannel channel;
+    private long position;
+    private boolean pollScheduled = false;
+    private boolean done = false;
+
+    JobLogStream(String jobId, JobLauncher launcher, long offset, boolean follow, JobExecutor executor,
+                 ServerCallStreamObserver<JobLogChunk> observer, ScheduledExecutorService poller) {
+        this.jobId = jobId;
+        this.file = launcher.logFile(jobId);
+        this.launcher = launcher;
+        this.position = offset;
+        this.follow = follow;
+        this.executor = executor;
+        this.observer = observer;
+        this.poller = poller;
+    }
+
+    void start() {
+        // The log is not swept away while this stream reads it
+        launcher.openedLog(jobId);
+        observer.setOnReadyHandler(this::pump);
+        observer.setOnCancelHandler(this::close);
+        pump();
+    }
+
+    private synchronized void pump() {
+        if (done) return;
+        try {
+            while (observer.isReady()) {
+                // Check before reading: if the job had already finished, this read sees all of its output
+                boolean active = executor.isActive(jobId);
+
+                if (channel == null) {
+                    if (!Files.exists(file)) {
+                        if (active && follow) poll();
+                        else if (active) complete();
+                        else fail(Status.NOT_FOUND.withDescription("No output for job " + jobId));
+                        return;
+                    }
+                    channel = FileChannel.open(file, StandardOpenOption.READ);
+                }
+
+                byte[] buffer = new byte[CHUNK_SIZE];
+                int n = channel.read(ByteBuffer.wrap(buffer), position);
+                if (n <= 0) {
+                    if (active && follow) poll();
+                    else complete();
+                    return;
+                }
+                observer.onNext(JobLogChunk.newBuilder()
+                        .setJobId(jobId)
+                        .setOffset(position)
+                        .setData(UnsafeByteOperations.unsafeWrap(buffer, 0, n))
+                        .build());
+                position += n;
+            }
+        } catch (IOException e) {
+            fail(Status.INTERNAL.withDescription("Could not read output of job " + jobId + ": " + e.getMessage()));
+        }
+    }
+
+    private void poll() {
+        if (pollScheduled) return;
+        pollScheduled = true;
+        poller.schedule(() -> {
+            synchronized (this) {
+                pollScheduled = false;
+            }
+            pump();
+        }, FOLLOW_POLL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void complete() {
+        close();
+        observer.onCompleted();
+    }
+
+    private void fail(Status status) {
+        close();
+        observer.onError(status.asRuntimeException());
+    }
+
+    private synchronized void close() {
+        if (!done) launcher.closedLog(jobId);
+        done = true;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
+            channel = null;
+        }
+    }
+}
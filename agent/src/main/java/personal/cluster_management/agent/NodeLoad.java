@@ -0,0 +1,122 @@
+package personal.cluster_management.agent;
+
+import com.sun.management.OperatingSystemMXBean;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples this node's CPU, GPU and memory usage in the background.
+ * Readers get the latest sample without blocking, so status requests stay cheap.
+ * GPU load and memory are read from {@code nvidia-smi} when it is installed, and reported as 0 otherwise.
+ */
+public class NodeLoad {
+
+    private static final double GB = 1024.0 * 1024 * 1024;
+    private static final double MIB_PER_GB = 1024.0;
+    private static final long NVIDIA_SMI_TIMEOUT_SECONDS = 2;
+
+    /**
+     * One load sample. Loads are percentages; GPU memory is summed over all GPUs.
+     */
+    public record Sample(double cpuLoad, double gpuLoad, double totalRamGb, double availableRamGb,
+                         int cpuCores, double totalGpuMemoryGb, double availableGpuMemoryGb) {}
+
+    /**
+     * One reading of all GPUs.
+     */
+    private record GpuReading(double load, double totalMemoryGb, double availableMemoryGb) {
+        static final GpuReading NONE = new GpuReading(0, 0, 0);
+    }
+
+    private final OperatingSystemMXBean os = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+    private volatile Sample latest;
+    private volatile boolean gpuAvailable = true;
+    private ScheduledExecutorService scheduler;
+
+    public NodeLoad() {
+        this.latest = new Sample(0, 0, os.getTotalMemorySize() / GB, os.getFreeMemorySize() / GB,
+                Runtime.getRuntime().availableProcessors(), 0, 0);
+    }
+
+    /**
+     * Starts sampling on a daemon thread.
+     * @param intervalMillis Time between samples.
+     */
+    public synchronized void start(long intervalMillis) {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "agent-load-sampler");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::sample, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * @return The most recent sample.
+     */
+    public Sample latest() {
+        return latest;
+    }
+
+    void sample() {
+        // getCpuLoad() is negative until the JVM has two readings to compare
+        double cpu = Math.max(0, os.getCpuLoad()) * 100;
+        GpuReading gpu = gpuAvailable ? readGpus() : GpuReading.NONE;
+        latest = new Sample(cpu, gpu.load(), os.getTotalMemorySize() / GB, os.getFreeMemorySize() / GB,
+                Runtime.getRuntime().availableProcessors(), gpu.totalMemoryGb(), gpu.availableMemoryGb());
+    }
+
+    /**
+     * @return The mean utilisation and the total and free memory of all GPUs,
+     * or {@link GpuReading#NONE} if nvidia-smi is missing or fails.
+     */
+    private GpuReading readGpus() {
+        try {
+            Process process = new ProcessBuilder("nvidia-smi", "--query-gpu=utilization.gpu,memory.total,memory.free", "--format=csv,noheader,nounits")
+                    .redirectErrorStream(true)
+                    .start();
+            double load = 0;
+            double totalMib = 0;
+            double freeMib = 0;
+            int gpus = 0;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) continue;
+                    String[] fields = line.split(",");
+                    load += Double.parseDouble(fields[0].trim());
+                    totalMib += Double.parseDouble(fields[1].trim());
+                    freeMib += Double.parseDouble(fields[2].trim());
+                    gpus++;
+                }
+            }
+            if (!process.waitFor(NVIDIA_SMI_TIMEOUT_SECONDS, TimeUnit.SECONDS) || process.exitValue() != 0) {
+                process.destroyForcibly();
+                return GpuReading.NONE;
+            }
+            return gpus == 0 ? GpuReading.NONE : new GpuReading(load / gpus, totalMib / MIB_PER_GB, freeMib / MIB_PER_GB);
+        } catch (IOException | NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            // No usable nvidia-smi on this node; stop trying
+            gpuAvailable = false;
+            return GpuReading.NONE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return GpuReading.NONE;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package personal.cluster_management.agent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Terminates a group of processes, escalating from SIGTERM to SIGKILL.
+ */
+final class ProcessTree {
+
+    private ProcessTree() {}
+
+    /**
+     * Sends SIGTERM to the processes and, if any of them (or anything they started in the
+     * meantime) is still alive after the grace period, SIGKILL.
+     * @param processes The processes to terminate.
+     * @param graceMillis How long to wait for them to exit after SIGTERM.
+     * @return Completes once all of them have exited, with true if SIGKILL was needed.
+     */
+    static CompletableFuture<Boolean> terminate(List<ProcessHandle> processes, long graceMillis) {
+        processes.forEach(ProcessHandle::destroy);
+        return allExited(processes)
+                .thenApply(v -> false)
+                .completeOnTimeout(true, graceMillis, TimeUnit.MILLISECONDS)
+                .thenCompose(timedOut -> {
+                    if (!timedOut) return CompletableFuture.completedFuture(false);
+                    List<ProcessHandle> remaining = withDescendants(processes);
+                    remaining.forEach(ProcessHandle::destroyForcibly);
+                    return allExited(remaining).thenApply(v -> true);
+                });
+    }
+
+    private static List<ProcessHandle> withDescendants(List<ProcessHandle> processes) {
+        Set<ProcessHandle> all = new LinkedHashSet<>();
+        for (ProcessHandle process : processes) {
+            if (process.isAlive()) all.add(process);
+            process.descendants().forEach(all::add);
+        }
+        return new ArrayList<>(all);
+    }
+
+    private static CompletableFuture<Void> allExited(List<ProcessHandle> processes) {
+        return CompletableFuture.allOf(processes.stream().map(ProcessHandle::onExit).toArray(CompletableFuture[]::new));
+    }
+}
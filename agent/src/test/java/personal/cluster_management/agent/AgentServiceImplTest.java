@@ -0,0 +1,266 @@
+package personal.cluster_management.agent;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import personal.cluster_management.proto.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests the agent's gRPC surface through an in-process server.
+ */
+class AgentServiceImplTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Server server;
+    private ManagedChannel channel;
+    private JobExecutor executor;
+    private DistributedJobServiceGrpc.DistributedJobServiceBlockingStub blockingStub;
+    private DistributedJobServiceGrpc.DistributedJobServiceStub asyncStub;
+
+    private final String serverName = "in-process-agent";
+
+    @BeforeEach
+    void setUp() throws IOException {
+        JobLauncher launcher = new JobLauncher(tempDir.resolve("logs"));
+        executor = new JobExecutor(launcher, 2, 10);
+        server = InProcessServerBuilder.forName(serverName)
+                .addService(new AgentServiceImpl("node-1", "10.0.0.1", launcher, executor, new NodeLoad()))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(serverName).build();
+        blockingStub = DistributedJobServiceGrpc.newBlockingStub(channel);
+        asyncStub = DistributedJobServiceGrpc.newStub(channel);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        channel.shutdownNow();
+        server.shutdownNow();
+        executor.shutdown(1000);
+    }
+
+    private static boolean tmuxInstalled() {
+        try {
+            return new ProcessBuilder("tmux", "-V").start().waitFor() == 0;
+        } catch (IOException | InterruptedException e) {
+            return false;
+        }
+    }
+
+    @Test
+    void testSubmitJobStreamsStatusUntilCompletion() {
+        Iterator<JobStatusResponse> updates = blockingStub.submitJob(JobRequest.newBuilder()
+                .setJobId("job-1").setCommand("true").setRepositoryPath(tempDir.toString()).build());
+
+        List<JobStatusResponse> all = new ArrayList<>();
+        updates.forEachRemaining(all::add);
+
+        assertEquals(2, all.size());
+        assertEquals(JobStatusResponse.Status.RUNNING, all.get(0).getStatus());
+        assertEquals(JobStatusResponse.Status.COMPLETED_SUCCESS, all.get(1).getStatus());
+    }
+
+    @Test
+    void testGetStatusReportsRunningJobs() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        asyncStub.submitJob(JobRequest.newBuilder().setJobId("sleeper").setCommand("sleep 1").build(), new StreamObserver<>() {
+            @Override
+            public void onNext(JobStatusResponse value) { started.countDown(); }
+            @Override
+            public void onError(Throwable t) {}
+            @Override
+            public void onCompleted() {}
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        ServerInfo info = blockingStub.getStatus(ServerStatusRequest.getDefaultInstance()).getServers(0);
+
+        assertEquals("node-1", info.getHostName());
+        assertEquals(ServerInfo.Availability.BUSY, info.getStatus());
+        assertEquals(List.of("sleeper"), info.getRunningJobIdsList());
+        assertTrue(info.getTotalRamGb() > 0);
+    }
+
+    @Test
+    void testBulkSubmissionAcknowledgesEveryJob() throws InterruptedException {
+        List<JobAck> acks = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        StreamObserver<JobBatch> requests = asyncStub.submitJobs(new StreamObserver<>() {
+            @Override
+            public void onNext(JobAck value) { acks.add(value); }
+            @Override
+            public void onError(Throwable t) { done.countDown(); }
+            @Override
+            public void onCompleted() { done.countDown(); }
+        });
+        requests.onNext(JobBatch.newBuilder()
+                .addJobs(JobRequest.newBuilder().setJobId("a").setCommand("sleep 0.2"))
+                .addJobs(JobRequest.newBuilder().setJobId("b").setCommand("true"))
+                .addJobs(JobRequest.newBuilder().setJobId("empty"))
+                .addJobs(JobRequest.newBuilder().setJobId("a").setCommand("true"))
+                .build());
+        requests.onCompleted();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(4, acks.size());
+        assertTrue(acks.get(0).getAccepted());
+        assertTrue(acks.get(1).getAccepted());
+        assertFalse(acks.get(2).getAccepted());
+        // The first "a" is still running
+        assertFalse(acks.get(3).getAccepted());
+        assertTrue(acks.get(3).getMessage().contains("already queued or running"));
+    }
+
+    @Test
+    void testBulkSubmissionReportsJobsDoneWhenAsked() throws InterruptedException {
+        List<JobAck> acks = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        StreamObserver<JobBatch> requests = asyncStub.submitJobs(new StreamObserver<>() {
+            @Override
+            public void onNext(JobAck value) { acks.add(value); }
+            @Override
+            public void onError(Throwable t) { done.countDown(); }
+            @Override
+            public void onCompleted() { done.countDown(); }
+        });
+        requests.onNext(JobBatch.newBuilder()
+                .setReportDone(true)
+                .addJobs(JobRequest.newBuilder().setJobId("slow").setCommand("sleep 0.3"))
+                .addJobs(JobRequest.newBuilder().setJobId("empty"))
+                .build());
+        requests.onCompleted();
+
+        // The stream stays open until the accepted job is done, whose done ack follows its first one
+        assertFalse(done.await(100, TimeUnit.MILLISECONDS));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("slow", "empty", "slow"), acks.stream().map(JobAck::getJobId).toList());
+        assertFalse(acks.get(0).getDone());
+        assertFalse(acks.get(1).getAccepted());
+        assertTrue(acks.get(2).getDone());
+    }
+
+    @Test
+    void testJobInTmuxSessionReportsExitCode() {
+        assumeTrue(tmuxInstalled(), "tmux is not installed");
+        String session = "agent-test-" + ProcessHandle.current().pid();
+        try {
+            Iterator<JobStatusResponse> updates = blockingStub.submitJob(JobRequest.newBuilder()
+                    .setJobId("tmux-job").setCommand("exit 4").setTmuxSessionName(session)
+                    .setRepositoryPath(tempDir.toString()).build());
+
+            JobStatusResponse last = null;
+            while (updates.hasNext()) last = updates.next();
+
+            assertEquals(JobStatusResponse.Status.COMPLETED_FAILURE, last.getStatus());
+            assertEquals(4, last.getExitCode());
+        } finally {
+            blockingStub.killTmuxSession(TmuxKillRequest.newBuilder().setSessionName(session).build());
+        }
+    }
+
+    @Test
+    void testFollowedLogStreamsOutputUntilJobEnds() throws IOException {
+        Iterator<JobStatusResponse> updates = blockingStub.submitJob(JobRequest.newBuilder()
+                .setJobId("chatty").setCommand("echo hello; sleep 0.5; echo world >&2").build());
+        assertEquals(JobStatusResponse.Status.RUNNING, updates.next().getStatus());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long expectedOffset = 0;
+        Iterator<JobLogChunk> chunks = blockingStub.withDeadlineAfter(10, TimeUnit.SECONDS)
+                .streamJobLog(JobLogRequest.newBuilder().setJobId("chatty").setFollow(true).build());
+        while (chunks.hasNext()) {
+            JobLogChunk chunk = chunks.next();
+            assertEquals(expectedOffset, chunk.getOffset());
+            expectedOffset += chunk.getData().size();
+            chunk.getData().writeTo(output);
+        }
+
+        assertEquals("hello\nworld\n", output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testLogOfUnknownJobIsNotFound() {
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class,
+                () -> blockingStub.streamJobLog(JobLogRequest.newBuilder().setJobId("nope").build()).hasNext());
+        assertEquals(Status.Code.NOT_FOUND, e.getStatus().getCode());
+    }
+
+    @Test
+    void testSlowReaderHoldsBackTheLog() throws Exception {
+        int size = 64 * JobLogStream.CHUNK_SIZE;
+        blockingStub.submitJob(JobRequest.newBuilder().setJobId("big").setCommand("head -c " + size + " /dev/zero").build())
+                .forEachRemaining(status -> {});
+
+        AtomicLong received = new AtomicLong();
+        AtomicReference<ClientCallStreamObserver<JobLogRequest>> call = new AtomicReference<>();
+        CountDownLatch first = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        asyncStub.streamJobLog(JobLogRequest.newBuilder().setJobId("big").build(), new ClientResponseObserver<JobLogRequest, JobLogChunk>() {
+            @Override
+            public void beforeStart(ClientCallStreamObserver<JobLogRequest> requestStream) {
+                requestStream.disableAutoRequestWithInitial(1);
+                call.set(requestStream);
+            }
+            @Override
+            public void onNext(JobLogChunk value) {
+                received.addAndGet(value.getData().size());
+                first.countDown();
+            }
+            @Override
+            public void onError(Throwable t) { done.countDown(); }
+            @Override
+            public void onCompleted() { done.countDown(); }
+        });
+
+        // Having asked for one chunk, the reader gets one chunk and no more
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(JobLogStream.CHUNK_SIZE, received.get());
+
+        call.get().request(Integer.MAX_VALUE);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(size, received.get());
+    }
+
+    @Test
+    void testKillJobEndsItsStatusStream() {
+        Iterator<JobStatusResponse> updates = blockingStub.submitJob(JobRequest.newBuilder().setJobId("long").setCommand("sleep 30").build());
+        assertEquals(JobStatusResponse.Status.RUNNING, updates.next().getStatus());
+
+        JobStatusResponse reply = blockingStub.killJob(JobKillRequest.newBuilder().setJobId("long").build());
+        JobStatusResponse unknown = blockingStub.killJob(JobKillRequest.newBuilder().setJobId("no-such-job").build());
+
+        assertEquals(JobStatusResponse.Status.KILLED_BY_USER, reply.getStatus());
+        assertEquals(JobStatusResponse.Status.KILLED_BY_USER, updates.next().getStatus());
+        assertFalse(updates.hasNext());
+        assertEquals(JobStatusResponse.Status.UNKNOWN, unknown.getStatus());
+    }
+}
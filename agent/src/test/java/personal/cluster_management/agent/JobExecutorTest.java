@@ -0,0 +1,318 @@
+package personal.cluster_management.agent;
+
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import personal.cluster_management.proto.JobRequest;
+import personal.cluster_management.proto.JobStatusResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that jobs run as real processes, report their outcome, and respect the slot and queue bounds.
+ */
+class JobExecutorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private JobLauncher launcher;
+    private JobExecutor executor;
+
+    /**
+     * Collects the status updates of one job.
+     */
+    private static class StatusCollector implements StreamObserver<JobStatusResponse> {
+        final List<JobStatusResponse> updates = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        @Override
+        public void onNext(JobStatusResponse value) { updates.add(value); }
+        @Override
+        public void onError(Throwable t) { done.countDown(); }
+        @Override
+        public void onCompleted() { done.countDown(); }
+
+        JobStatusResponse last() {
+            return updates.get(updates.size() - 1);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        launcher = new JobLauncher(tempDir.resolve("logs"));
+        executor = new JobExecutor(launcher, 1, 1);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.shutdown(1000);
+    }
+
+    private JobRequest job(String id, String command) {
+        return JobRequest.newBuilder().setJobId(id).setCommand(command).setRepositoryPath(tempDir.toString()).build();
+    }
+
+    @Test
+    void testSuccessfulJobRunsInRepositoryAndLogsOutput() throws Exception {
+        StatusCollector collector = new StatusCollector();
+
+        assertEquals(JobExecutor.Submission.ACCEPTED, executor.submit(job("job-1", "pwd; echo hello"), collector));
+
+        assertTrue(collector.done.await(5, TimeUnit.SECONDS));
+        assertEquals(JobStatusResponse.Status.RUNNING, collector.updates.get(0).getStatus());
+        assertEquals(JobStatusResponse.Status.COMPLETED_SUCCESS, collector.last().getStatus());
+        String output = Files.readString(launcher.logFile("job-1"));
+        assertTrue(output.contains(tempDir.toRealPath().toString()));
+        assertTrue(output.contains("hello"));
+    }
+
+    @Test
+    void testJobsWhoseIdsLookAlikeGetTheirOwnLogs() throws Exception {
+        executor.shutdown(0);
+        executor = new JobExecutor(launcher, 2, 1);
+        StatusCollector slash = new StatusCollector();
+        StatusCollector underscore = new StatusCollector();
+
+        executor.submit(job("a/b", "sleep 0.2; echo slash"), slash);
+        executor.submit(job("a_b", "sleep 0.2; echo underscore"), underscore);
+
+        assertTrue(slash.done.await(5, TimeUnit.SECONDS));
+        assertTrue(underscore.done.await(5, TimeUnit.SECONDS));
+        assertNotEquals(launcher.logFile("a/b"), launcher.logFile("a_b"));
+        assertEquals("slash\n", Files.readString(launcher.logFile("a/b")));
+        assertEquals("underscore\n", Files.readString(launcher.logFile("a_b")));
+    }
+
+    @Test
+    void testOnlyLogsOfFinishedJobsThatNobodyReadsAreDeleted() throws Exception {
+        StatusCollector finished = new StatusCollector();
+        StatusCollector read = new StatusCollector();
+        StatusCollector running = new StatusCollector();
+        executor.submit(job("finished", "echo done"), finished);
+        assertTrue(finished.done.await(5, TimeUnit.SECONDS));
+        executor.submit(job("read", "echo done"), read);
+        assertTrue(read.done.await(5, TimeUnit.SECONDS));
+        executor.submit(job("running", "sleep 30"), running);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (running.updates.isEmpty() && System.nanoTime() < deadline) Thread.sleep(20);
+        Files.writeString(tempDir.resolve("logs").resolve("not a log of ours.log"), "kept");
+
+        launcher.openedLog("read");
+        // Nothing is old enough yet
+        assertEquals(0, launcher.deleteLogs(60_000, executor::isActive));
+        assertEquals(1, launcher.deleteLogs(0, executor::isActive));
+
+        assertFalse(Files.exists(launcher.logFile("finished")));
+        assertTrue(Files.exists(launcher.logFile("read")));
+        assertTrue(Files.exists(launcher.logFile("running")));
+        assertTrue(Files.exists(tempDir.resolve("logs").resolve("not a log of ours.log")));
+
+        launcher.closedLog("read");
+        assertEquals(1, launcher.deleteLogs(0, executor::isActive));
+        assertFalse(Files.exists(launcher.logFile("read")));
+        executor.kill("running", 1000).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testFailuresAreReportedWithExitCode() throws InterruptedException {
+        StatusCollector failed = new StatusCollector();
+        StatusCollector missing = new StatusCollector();
+
+        executor.submit(job("failed", "exit 3"), failed);
+        assertTrue(failed.done.await(5, TimeUnit.SECONDS));
+        executor.submit(job("missing", "no-such-command-for-agent-test"), missing);
+        assertTrue(missing.done.await(5, TimeUnit.SECONDS));
+
+        assertEquals(JobStatusResponse.Status.COMPLETED_FAILURE, failed.last().getStatus());
+        assertEquals(3, failed.last().getExitCode());
+        assertEquals(JobStatusResponse.Status.EXECUTION_ERROR, missing.last().getStatus());
+    }
+
+    @Test
+    void testMissingRepositoryIsAnExecutionError() throws InterruptedException {
+        StatusCollector collector = new StatusCollector();
+
+        executor.submit(job("job-1", "true").toBuilder().setRepositoryPath(tempDir.resolve("nope").toString()).build(), collector);
+
+        assertTrue(collector.done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, collector.updates.size());
+        assertEquals(JobStatusResponse.Status.EXECUTION_ERROR, collector.last().getStatus());
+    }
+
+    @Test
+    void testSlotsAndQueueAreBounded() throws InterruptedException {
+        StatusCollector running = new StatusCollector();
+        StatusCollector queued = new StatusCollector();
+
+        // One slot and one queue place: the third job is refused
+        assertEquals(JobExecutor.Submission.ACCEPTED, executor.submit(job("running", "sleep 0.5"), running));
+        assertEquals(JobExecutor.Submission.ACCEPTED, executor.submit(job("queued", "true"), queued));
+        assertEquals(JobExecutor.Submission.QUEUE_FULL, executor.submit(job("refused", "true"), new StatusCollector()));
+
+        assertTrue(running.done.await(5, TimeUnit.SECONDS));
+        assertTrue(queued.done.await(5, TimeUnit.SECONDS));
+        assertEquals(JobStatusResponse.Status.COMPLETED_SUCCESS, queued.last().getStatus());
+        assertEquals(0, executor.runningCount());
+    }
+
+    @Test
+    void testDuplicateJobIdIsRefused() throws InterruptedException {
+        StatusCollector first = new StatusCollector();
+        StatusCollector second = new StatusCollector();
+
+        assertEquals(JobExecutor.Submission.ACCEPTED, executor.submit(job("same", "sleep 0.2; echo first"), first));
+        assertEquals(JobExecutor.Submission.DUPLICATE, executor.submit(job("same", "echo second"), second));
+
+        // The refused job gets no status, and the first one runs as if it had never been sent
+        assertTrue(first.done.await(5, TimeUnit.SECONDS));
+        assertEquals(JobStatusResponse.Status.COMPLETED_SUCCESS, first.last().getStatus());
+        assertTrue(second.updates.isEmpty());
+        assertEquals(1, second.done.getCount());
+    }
+
+    /**
+     * Waits for a job to write the pid of the background process it started.
+     */
+    private ProcessHandle awaitChild(Path pidFile) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            if (Files.exists(pidFile)) {
+                String pid = Files.readString(pidFile).trim();
+                if (!pid.isEmpty()) return ProcessHandle.of(Long.parseLong(pid)).orElseThrow();
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Job did not start its child");
+    }
+
+    @Test
+    void testKillTerminatesProcessTreeAndFreesSlot() throws Exception {
+        StatusCollector killed = new StatusCollector();
+        StatusCollector next = new StatusCollector();
+        Path pidFile = tempDir.resolve("child.pid");
+
+        executor.submit(job("victim", "sleep 30 & echo $! > " + pidFile + "; wait"), killed);
+        executor.submit(job("next", "true"), next);
+        ProcessHandle child = awaitChild(pidFile);
+
+        assertTrue(executor.kill("victim", 5000).get(5, TimeUnit.SECONDS));
+
+        assertTrue(killed.done.await(5, TimeUnit.SECONDS));
+        assertEquals(JobStatusResponse.Status.KILLED_BY_USER, killed.last().getStatus());
+        assertFalse(child.isAlive());
+        assertTrue(next.done.await(5, TimeUnit.SECONDS));
+        assertEquals(JobStatusResponse.Status.COMPLETED_SUCCESS, next.last().getStatus());
+    }
+
+    @Test
+    void testShutdownTimeoutKillsProcessTree() throws Exception {
+        StatusCollector collector = new StatusCollector();
+        Path pidFile = tempDir.resolve("orphan.pid");
+
+        executor.submit(job("outlives", "sleep 30 & echo $! > " + pidFile + "; wait"), collector);
+        ProcessHandle child = awaitChild(pidFile);
+
+        executor.shutdown(100);
+
+        assertFalse(child.isAlive());
+        assertTrue(collector.done.await(5, TimeUnit.SECONDS));
+        assertEquals(JobStatusResponse.Status.EXECUTION_ERROR, collector.last().getStatus());
+    }
+
+    @Test
+    void testKillEscalatesToSigkillAfterGracePeriod() throws Exception {
+        StatusCollector collector = new StatusCollector();
+        Path pidFile = tempDir.resolve("stubborn.pid");
+
+        // The shell and its child both ignore SIGTERM
+        executor.submit(job("stubborn", "trap '' TERM; sleep 30 & echo $! > " + pidFile + "; wait"), collector);
+        ProcessHandle child = awaitChild(pidFile);
+
+        long start = System.nanoTime();
+        assertTrue(executor.kill("stubborn", 200).get(5, TimeUnit.SECONDS));
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 200);
+        assertFalse(child.isAlive());
+        assertTrue(collector.done.await(5, TimeUnit.SECONDS));
+        assertEquals(JobStatusResponse.Status.KILLED_BY_USER, collector.last().getStatus());
+    }
+
+    @Test
+    void testKillDropsQueuedJob() throws Exception {
+        StatusCollector running = new StatusCollector();
+        StatusCollector queued = new StatusCollector();
+        executor.submit(job("running", "sleep 30"), running);
+        executor.submit(job("queued", "true"), queued);
+
+        assertTrue(executor.kill("queued", 1000).get(1, TimeUnit.SECONDS));
+        assertFalse(executor.kill("never-submitted", 1000).get(1, TimeUnit.SECONDS));
+
+        assertTrue(queued.done.await(1, TimeUnit.SECONDS));
+        assertEquals(1, queued.updates.size());
+        assertEquals(JobStatusResponse.Status.KILLED_BY_USER, queued.last().getStatus());
+        assertEquals(0, executor.queuedCount());
+        executor.kill("running", 1000).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testStealTakesNewestMovableQueuedJobsOnly() throws Exception {
+        // One slot, room for everything else to wait
+        executor.shutdown(0);
+        executor = new JobExecutor(launcher, 1, 10);
+        StatusCollector running = new StatusCollector();
+        StatusCollector moved = new StatusCollector();
+        StatusCollector kept = new StatusCollector();
+        executor.submit(job("running", "sleep 0.5"), running, true);
+        executor.submit(job("old", "true"), moved, true);
+        executor.submit(job("pinned", "true"), new StatusCollector(), false);
+        executor.submit(job("new", "true"), kept, true);
+
+        JobExecutor.Stolen stolen = executor.steal(10, 60_000);
+
+        // The running job and the job that may not move stay; the rest are leased, newest first
+        assertEquals(List.of("new", "old"), stolen.jobs().stream().map(JobRequest::getJobId).toList());
+        assertEquals(1, executor.queuedCount());
+        assertTrue(executor.isActive("new"));
+
+        // Only "old" found a new node; "new" comes back and runs here
+        assertTrue(executor.settle(stolen.leaseId(), Set.of("old"), "node-2:50051"));
+        assertFalse(executor.settle(stolen.leaseId(), Set.of(), "node-2:50051"));
+        assertFalse(executor.isActive("old"));
+        // A moved job does not run here, and its submitter is told where it went
+        assertTrue(moved.done.await(1, TimeUnit.SECONDS));
+        assertEquals(1, moved.updates.size());
+        assertEquals(JobStatusResponse.Status.MOVED, moved.last().getStatus());
+        assertEquals("Moved to node-2:50051", moved.last().getMessage());
+        assertTrue(running.done.await(5, TimeUnit.SECONDS));
+        assertTrue(kept.done.await(5, TimeUnit.SECONDS));
+        assertEquals(JobStatusResponse.Status.COMPLETED_SUCCESS, kept.last().getStatus());
+    }
+
+    @Test
+    void testExpiredLeasePutsJobsBack() throws Exception {
+        executor.shutdown(0);
+        executor = new JobExecutor(launcher, 1, 10);
+        StatusCollector running = new StatusCollector();
+        StatusCollector leased = new StatusCollector();
+        executor.submit(job("running", "sleep 0.3"), running, true);
+        executor.submit(job("leased", "true"), leased, true);
+
+        // Nobody settles the lease, e.g. because the reply to the steal was lost
+        JobExecutor.Stolen stolen = executor.steal(10, 100);
+        assertEquals(1, stolen.jobs().size());
+
+        assertTrue(leased.done.await(5, TimeUnit.SECONDS));
+        assertEquals(JobStatusResponse.Status.COMPLETED_SUCCESS, leased.last().getStatus());
+        assertFalse(executor.settle(stolen.leaseId(), Set.of("leased"), "node-2:50051"));
+    }
+}
@@ -0,0 +1,320 @@
+package personal.cluster_management.benchmarks;
+
+import personal.cluster_management.frontend.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load generator for the monitor: simulates agents speaking the same socket protocol as Dash, to find how many
+ * one monitor can take. Each agent connects, sends "connect", then one CSV sample line at its rate, and "QUIT"
+ * when the run ends, all written with {@link PrintWriter#println} like {@code IO.sendData}.
+ *
+ * The protocol has no replies, so the swarm measures the monitor from the sending side. A line counts as
+ * ingested once its write returns; when the monitor falls behind, the socket buffers fill, writes block, and
+ * lines go out later than scheduled. That delay is the lag. Each agent keeps its own schedule rather than
+ * restarting it after a late line, so the lag of a saturated monitor keeps growing instead of hiding.
+ * Lines still sitting in socket buffers count as sent, and on loopback those buffers hold megabytes per
+ * agent: run long enough for them to fill before reading the saturation point off the lag.
+ *
+ * Settings are read from system properties, see {@link Settings#fromSystemProperties()}. Run manually:
+ * {@code java -cp benchmarks/target/benchmarks.jar -Dswarm.agents=200 personal.cluster_management.benchmarks.AgentSwarm}
+ */
+public class AgentSwarm {
+
+    public static final String HOST_PROPERTY = "swarm.host";
+    public static final String PORT_PROPERTY = "swarm.port";
+    public static final String AGENTS_PROPERTY = "swarm.agents";
+    public static final String RATE_PROPERTY = "swarm.rate";
+    public static final String ARRIVALS_PROPERTY = "swarm.arrivals";
+    public static final String VALUES_PROPERTY = "swarm.values";
+    public static final String GPULESS_PROPERTY = "swarm.gpuless";
+    public static final String RAMP_UP_PROPERTY = "swarm.rampUpSeconds";
+    public static final String DURATION_PROPERTY = "swarm.durationSeconds";
+    public static final String REPORT_PROPERTY = "swarm.reportSeconds";
+    public static final String SEED_PROPERTY = "swarm.seed";
+
+    public static final String DEFAULT_HOST = "localhost";
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_AGENTS = 10;
+    public static final double DEFAULT_RATE = 1;
+    public static final double DEFAULT_GPULESS = 0;
+    public static final int DEFAULT_RAMP_UP_SECONDS = 0;
+    public static final int DEFAULT_DURATION_SECONDS = 60;
+    public static final int DEFAULT_REPORT_SECONDS = 5;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 2500; // As DashService.connectSocket
+    private static final long STOP_GRACE_MILLIS = 2000; // For agents to send QUIT once the run ended
+
+    /**
+     * When an agent's samples are due.
+     */
+    public enum Arrivals {
+        /** Exactly 1/rate apart, like Dash's refresh loop. */
+        FIXED,
+        /** Exponentially distributed gaps with mean 1/rate, so agents bunch up now and then. */
+        POISSON;
+
+        long nextGapNanos(SplittableRandom random, double rate) {
+            double meanNanos = 1e9 / rate;
+            return this == FIXED ? (long) meanNanos : (long) (-Math.log(1 - random.nextDouble()) * meanNanos);
+        }
+    }
+
+    /**
+     * How sensor values change from one sample to the next.
+     */
+    public enum Values {
+        /** Every sample repeats the agent's first one. */
+        CONSTANT,
+        /** Every value is drawn anew across its sensor's range. */
+        UNIFORM,
+        /** Every value drifts from the previous one by a small Gaussian step, the way real sensors do. */
+        WALK
+    }
+
+    /**
+     * @param rate Samples per second per agent.
+     * @param gpuless Fraction of agents without GPU sensors, which send "null" for them like Dash does.
+     */
+    public record Settings(String host, int port, int agents, double rate, Arrivals arrivals, Values values,
+                           double gpuless, long rampUpMillis, long durationMillis, long reportMillis, long seed) {
+
+        public Settings {
+            if (agents < 1) throw new IllegalArgumentException("Need at least one agent");
+            if (!(rate > 0)) throw new IllegalArgumentException("Rate must be positive");
+            if (gpuless < 0 || gpuless > 1) throw new IllegalArgumentException("GPU-less fraction must be between 0 and 1");
+        }
+
+        /**
+         * @throws IllegalArgumentException If a property has a value that is not allowed.
+         */
+        public static Settings fromSystemProperties() {
+            return new Settings(
+                    System.getProperty(HOST_PROPERTY, DEFAULT_HOST),
+                    Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT),
+                    Integer.getInteger(AGENTS_PROPERTY, DEFAULT_AGENTS),
+                    Double.parseDouble(System.getProperty(RATE_PROPERTY, Double.toString(DEFAULT_RATE))),
+                    parse(Arrivals.class, System.getProperty(ARRIVALS_PROPERTY, "fixed")),
+                    parse(Values.class, System.getProperty(VALUES_PROPERTY, "walk")),
+                    Double.parseDouble(System.getProperty(GPULESS_PROPERTY, Double.toString(DEFAULT_GPULESS))),
+                    TimeUnit.SECONDS.toMillis(Integer.getInteger(RAMP_UP_PROPERTY, DEFAULT_RAMP_UP_SECONDS)),
+                    TimeUnit.SECONDS.toMillis(Integer.getInteger(DURATION_PROPERTY, DEFAULT_DURATION_SECONDS)),
+                    TimeUnit.SECONDS.toMillis(Integer.getInteger(REPORT_PROPERTY, DEFAULT_REPORT_SECONDS)),
+                    Long.getLong(SEED_PROPERTY, System.nanoTime()));
+        }
+
+        private static <E extends Enum<E>> E parse(Class<E> type, String value) {
+            try {
+                return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown " + type.getSimpleName().toLowerCase(Locale.ROOT) + " '" + value + "'");
+            }
+        }
+    }
+
+    /**
+     * Totals of a run.
+     * @param connectFailures Agents that could not connect.
+     * @param writeErrors Writes that failed, each ending its agent's connection.
+     * @param stalledAgents Agents still blocked in a write when the run ended, because the monitor stopped reading.
+     */
+    public record Report(int agents, long linesSent, double linesPerSecond,
+                         long lagP50Nanos, long lagP99Nanos, long lagP999Nanos, long maxLagNanos,
+                         int connectFailures, long writeErrors, int stalledAgents) {}
+
+    private final Settings settings;
+    private final AtomicInteger connected = new AtomicInteger();
+    private final AtomicInteger connectFailures = new AtomicInteger();
+    private final LongAdder linesSent = new LongAdder();
+    private final LongAdder writeErrors = new LongAdder();
+    private final Histogram lag = new Histogram(Histogram.LATENCY_BOUNDS_NANOS);
+    private final AtomicReference<Histogram> windowLag = new AtomicReference<>(new Histogram(Histogram.LATENCY_BOUNDS_NANOS));
+    private final AtomicLong maxLag = new AtomicLong();
+    private final Set<Socket> open = ConcurrentHashMap.newKeySet();
+    private volatile boolean stopping;
+
+    public AgentSwarm(Settings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Runs the swarm for the configured duration, printing a line per report interval.
+     * @param out Where progress lines go.
+     */
+    public Report run(PrintStream out) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(settings.durationMillis());
+        SplittableRandom seeds = new SplittableRandom(settings.seed());
+        List<Thread> agents = new ArrayList<>();
+        for (int i = 0; i < settings.agents(); i++) {
+            long startAt = start + TimeUnit.MILLISECONDS.toNanos(settings.rampUpMillis()) * i / settings.agents();
+            Agent agent = new Agent(seeds.split(), i < Math.round(settings.gpuless() * settings.agents()));
+            agents.add(Thread.ofVirtual().name("swarm-agent-" + i).start(() -> agent.run(startAt, end)));
+        }
+
+        long lastLines = 0;
+        long lastReport = start;
+        while (System.nanoTime() < end) {
+            long next = Math.min(end, lastReport + TimeUnit.MILLISECONDS.toNanos(settings.reportMillis()));
+            LockSupport.parkNanos(next - System.nanoTime());
+            long now = System.nanoTime();
+            long lines = linesSent.sum();
+            Histogram window = windowLag.getAndSet(new Histogram(Histogram.LATENCY_BOUNDS_NANOS));
+            out.printf("Swarm: %4ds  %d/%d connected  %,10.0f lines/s  lag p50 %s p99 %s  errors %d%n",
+                    TimeUnit.NANOSECONDS.toSeconds(now - start), connected.get(), settings.agents(),
+                    (lines - lastLines) / ((now - lastReport) / 1e9), millis(window.quantile(0.5)),
+                    millis(window.quantile(0.99)), connectFailures.get() + writeErrors.sum());
+            lastLines = lines;
+            lastReport = now;
+        }
+        // Agents blocked on a monitor that stopped reading never get to QUIT: cut them off
+        long grace = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(STOP_GRACE_MILLIS);
+        for (Thread agent : agents) agent.join(Duration.ofNanos(Math.max(1, grace - System.nanoTime())));
+        stopping = true;
+        int stalled = open.size();
+        for (Socket socket : open) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+        for (Thread agent : agents) agent.join();
+
+        long lines = linesSent.sum();
+        return new Report(settings.agents(), lines, lines / (settings.durationMillis() / 1e3),
+                lag.quantile(0.5), lag.quantile(0.99), lag.quantile(0.999), maxLag.get(),
+                connectFailures.get(), writeErrors.sum(), stalled);
+    }
+
+    private static String millis(long nanos) {
+        return nanos == Long.MAX_VALUE ? ">10s" : String.format("%.1fms", nanos / 1e6);
+    }
+
+    /**
+     * One simulated client: a socket, its schedule and the last values it sent.
+     */
+    private class Agent {
+        private final SplittableRandom random;
+        private final boolean gpuless;
+        private final double totalVram;
+        private final double totalRam;
+        private final double[] sample = new double[10]; // In the order of Dash's line
+
+        Agent(SplittableRandom random, boolean gpuless) {
+            this.random = random;
+            this.gpuless = gpuless;
+            this.totalVram = 1024 * (4 << random.nextInt(3)); // 4, 8 or 16GB, in MB like OpenHardwareMonitor
+            this.totalRam = 16 << random.nextInt(3);
+            for (int field = 0; field < sample.length; field++) sample[field] = uniform(field);
+        }
+
+        void run(long startAt, long end) {
+            LockSupport.parkNanos(startAt - System.nanoTime());
+            if (System.nanoTime() >= end) return; // Ramped up past the end of the run
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(settings.host(), settings.port()), CONNECT_TIMEOUT_MILLIS);
+                PrintWriter writer = new PrintWriter(socket.getOutputStream(), true);
+                connected.incrementAndGet();
+                open.add(socket);
+                try {
+                    if (!send(writer, "connect")) return;
+                    long due = System.nanoTime();
+                    while (true) {
+                        due += settings.arrivals().nextGapNanos(random, settings.rate());
+                        if (due >= end) break;
+                        LockSupport.parkNanos(due - System.nanoTime());
+                        if (!send(writer, nextLine())) return;
+                        linesSent.increment();
+                        long late = System.nanoTime() - due;
+                        lag.record(late);
+                        windowLag.get().record(late);
+                        maxLag.accumulateAndGet(late, Math::max);
+                    }
+                    send(writer, "QUIT");
+                } finally {
+                    open.remove(socket);
+                    connected.decrementAndGet();
+                }
+            } catch (IOException e) {
+                connectFailures.incrementAndGet();
+            }
+        }
+
+        /**
+         * @return False if the write failed; {@link PrintWriter} swallows the exception, as in IO.sendData.
+         */
+        private boolean send(PrintWriter writer, String line) {
+            writer.println(line);
+            if (!writer.checkError()) return true;
+            if (!stopping) writeErrors.increment();
+            return false;
+        }
+
+        String nextLine() {
+            for (int field = 0; field < sample.length; field++) {
+                sample[field] = switch (settings.values()) {
+                    case CONSTANT -> sample[field];
+                    case UNIFORM -> uniform(field);
+                    case WALK -> Math.min(max(field), Math.max(0, sample[field] + random.nextGaussian() * max(field) / 50));
+                };
+            }
+            sample[7] = totalVram;
+            sample[9] = totalRam - sample[8];
+            StringBuilder line = new StringBuilder(64);
+            for (int field = 0; field < sample.length; field++) {
+                if (field > 0) line.append(',');
+                boolean gpuField = field >= 3 && field <= 7;
+                if (gpuless && gpuField) line.append("null");
+                else line.append(Math.round(sample[field] * 100) / 100.0);
+            }
+            return line.toString();
+        }
+
+        private double uniform(int field) {
+            return random.nextDouble() * max(field);
+        }
+
+        /**
+         * Upper end of each field's range: load in %, temperature in C, fan in RPM, memory as OpenHardwareMonitor reports it.
+         */
+        private double max(int field) {
+            return switch (field) {
+                case 0, 3 -> 100;
+                case 1, 4 -> 95;
+                case 2, 5 -> 3000;
+                case 6, 7 -> totalVram;
+                default -> totalRam;
+            };
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Settings settings = Settings.fromSystemProperties();
+        System.out.printf("Swarm: %d agents at %s samples/s each (%s arrivals, %s values) against %s:%d for %ds%n",
+                settings.agents(), settings.rate(), settings.arrivals().name().toLowerCase(Locale.ROOT),
+                settings.values().name().toLowerCase(Locale.ROOT), settings.host(), settings.port(),
+                TimeUnit.MILLISECONDS.toSeconds(settings.durationMillis()));
+        Report report = new AgentSwarm(settings).run(System.out);
+        System.out.printf("Swarm: sent %,d lines, %,.0f lines/s; lag p50 %s p99 %s p999 %s max %s; "
+                        + "%d connect failures, %d write errors, %d agents stalled%n",
+                report.linesSent(), report.linesPerSecond(), millis(report.lagP50Nanos()), millis(report.lagP99Nanos()),
+                millis(report.lagP999Nanos()), millis(report.maxLagNanos()), report.connectFailures(), report.writeErrors(), report.stalledAgents());
+    }
+}
@@ -0,0 +1,221 @@
+package personal.cluster_management.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import personal.cluster_management.client.Dash;
+import personal.cluster_management.client.DashService;
+import personal.cluster_management.client.DashUI;
+import personal.cluster_management.client.IO;
+import personal.cluster_management.client.Sample;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The client's sampling step: parsing the sensor listing PowerShell prints for OpenHardwareMonitor,
+ * and picking the configured sensors out of it. Both are fed canned output, so no shell is started.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {FxPlatform.GLASS, FxPlatform.MONOCLE, FxPlatform.PRISM})
+public class DashBenchmark {
+
+    /**
+     * Sensors of a desktop with an 8-core CPU and one GPU, as {Name, SensorType, Value}.
+     */
+    private static final String[][] DESKTOP = {
+            {"CPU Total", "Load", "23.4375"},
+            {"CPU Core #1", "Load", "31.25"}, {"CPU Core #2", "Load", "18.75"},
+            {"CPU Core #3", "Load", "25"}, {"CPU Core #4", "Load", "12.5"},
+            {"CPU Core #5", "Load", "43.75"}, {"CPU Core #6", "Load", "6.25"},
+            {"CPU Core #7", "Load", "37.5"}, {"CPU Core #8", "Load", "12.5"},
+            {"CPU Package", "Temperature", "54"},
+            {"CPU Core #1", "Temperature", "52"}, {"CPU Core #2", "Temperature", "51"},
+            {"CPU Core #3", "Temperature", "55"}, {"CPU Core #4", "Temperature", "50"},
+            {"CPU Core #5", "Temperature", "53"}, {"CPU Core #6", "Temperature", "49"},
+            {"CPU Core #7", "Temperature", "56"}, {"CPU Core #8", "Temperature", "50"},
+            {"CPU Package", "Power", "41.2318"}, {"CPU Cores", "Power", "33.0145"},
+            {"Bus Speed", "Clock", "100.0008"}, {"CPU Core #1", "Clock", "4200.034"},
+            {"Fan #1", "Fan", "1180"}, {"Fan #2", "Fan", "940"},
+            {"GPU Core", "Load", "64"}, {"GPU Memory Controller", "Load", "21"},
+            {"GPU Video Engine", "Load", "0"}, {"GPU Memory", "Load", "37.5"},
+            {"GPU Core", "Temperature", "67"}, {"GPU", "Fan", "1650"},
+            {"GPU Core", "Clock", "1830"}, {"GPU Memory", "Clock", "7000.5"},
+            {"GPU Memory Total", "SmallData", "8192"}, {"GPU Memory Used", "SmallData", "3072"},
+            {"GPU Memory Free", "SmallData", "5120"},
+            {"Used Memory", "SmallData", "11.3"}, {"Available Memory", "SmallData", "20.6"},
+            {"Memory", "Load", "35.4"},
+    };
+
+    private static final String CONFIG = String.join("\n", "127.0.0.1", "8080",
+            "CPU Total", "GPU Core", "CPU Package", "GPU Core", "Fan #1", "GPU",
+            "GPU Memory Total", "GPU Memory Used", "Used Memory", "Available Memory", "1000");
+
+    /**
+     * Answers the service with the canned config file and sensor listing.
+     */
+    private static class CannedIO extends IO {
+        private final String listing;
+
+        CannedIO(String listing) {
+            this.listing = listing;
+        }
+
+        @Override
+        public String readFile(String path) {
+            return CONFIG;
+        }
+
+        @Override
+        public String getShellOutput(String cmd) {
+            return listing;
+        }
+
+        @Override
+        public Reader openShellOutput(String cmd) {
+            return new StringReader(listing);
+        }
+    }
+
+    /**
+     * The listing as PowerShell prints it: the WMI system properties, then the sensor's, then a blank line.
+     */
+    static String listing(int copies) {
+        StringBuilder out = new StringBuilder("\r\n");
+        for (int i = 0; i < copies; i++) {
+            for (String[] sensor : DESKTOP) {
+                out.append("\r\n")
+                        .append("__GENUS          : 2\r\n")
+                        .append("__CLASS          : Sensor\r\n")
+                        .append("__SUPERCLASS     : \r\n")
+                        .append("__DYNASTY        : \r\n")
+                        .append("__RELPATH        : \r\n")
+                        .append("__PROPERTY_COUNT : 3\r\n")
+                        .append("__DERIVATION     : {}\r\n")
+                        .append("__SERVER         : \r\n")
+                        .append("__NAMESPACE      : \r\n")
+                        .append("__PATH           : \r\n")
+                        .append("Name             : ").append(sensor[0]).append("\r\n")
+                        .append("SensorType       : ").append(sensor[1]).append("\r\n")
+                        .append("Value            : ").append(sensor[2]).append("\r\n")
+                        .append("PSComputerName   : \r\n");
+            }
+        }
+        return out.append("\r\n\r\n").toString();
+    }
+
+    /**
+     * The only listing the replaced split-based parser could read, the WMI system properties already stripped
+     * and each sensor's Name following the previous sensor's empty PSComputerName.
+     */
+    static String legacyListing(int copies) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < copies; i++) {
+            for (String[] sensor : DESKTOP) {
+                out.append("Name             : ").append(sensor[0]).append("\r\n")
+                        .append("SensorType       : ").append(sensor[1]).append("\r\n")
+                        .append("Value            : ").append(sensor[2]).append("\r\n")
+                        .append("PSComputerName   : ");
+            }
+        }
+        return out.append("\r\n").toString();
+    }
+
+    /**
+     * The split-based parser DashService used before its single-pass one, kept as the baseline to compare with.
+     */
+    static ArrayList<String[]> legacyParse(String shellOutput) {
+        String out = shellOutput.replace("\r\n\r\n__GENUS          : 2\r\n__CLASS          : Sensor\r\n__SUPERCLASS     : \r\n__DYNASTY        : \r\n__RELPATH        : \r\n__PROPERTY_COUNT : 3\r\n__DERIVATION     : {}\\r\n__SERVER         : \r\n__NAMESPACE      : \r\n__PATH           : \r\n", "");
+        ArrayList<String[]> returnable = new ArrayList<>();
+
+        String[] x = out.split("PSComputerName {3}:");
+
+        for (int i = 0; i < x.length - 1; i++) {
+            String[] cd = x[i].split("\r\n");
+            returnable.add(new String[]{
+                    cd[0].substring(cd[0].indexOf("Name             : ")).replace("Name             : ", ""),
+                    cd[1].substring(cd[1].indexOf("SensorType       : ")).replace("SensorType       : ", ""),
+                    cd[2].substring(cd[2].indexOf("Value            : ")).replace("Value            : ", "")
+            });
+        }
+        return returnable;
+    }
+
+    /**
+     * The service alone, for the parser. Needs no JavaFX.
+     */
+    @State(Scope.Benchmark)
+    public static class Parser {
+        /**
+         * How many times the desktop's sensors are listed, to see how parsing scales with the listing.
+         */
+        @Param({"1", "8"})
+        public int copies;
+
+        DashService service;
+        String legacyListing;
+
+        @Setup
+        public void setUp() throws Exception {
+            service = new DashService(new CannedIO(listing(copies)));
+            legacyListing = legacyListing(copies);
+            int parsed = service.getValuesFromWMI().size();
+            int legacyParsed = legacyParse(legacyListing).size();
+            if (parsed != DESKTOP.length * copies || legacyParsed != parsed) {
+                throw new IllegalStateException("Parsed " + parsed + " sensors, legacy parser " + legacyParsed);
+            }
+        }
+    }
+
+    /**
+     * A Dash controller over a real view, with the desktop's sensors configured.
+     */
+    @State(Scope.Benchmark)
+    public static class Controller {
+        Dash dash;
+
+        @Setup
+        public void setUp() throws Exception {
+            DashService service = new DashService(new CannedIO(listing(1)));
+            dash = FxPlatform.call(() -> {
+                DashUI view = new DashUI();
+                view.loadNodes();
+                return new Dash(null, null, view, service);
+            });
+            dash.initGPUCPURAM();
+            Sample sample = dash.getSample();
+            if (!"64".equals(sample.getGpuLoad()) || !"20.6".equals(sample.getAvailableRam())) {
+                throw new IllegalStateException("Configured sensors not found: " + sample);
+            }
+        }
+    }
+
+    @Benchmark
+    public ArrayList<String[]> getValuesFromWMI(Parser parser) throws Exception {
+        return parser.service.getValuesFromWMI();
+    }
+
+    @Benchmark
+    public ArrayList<String[]> legacyGetValuesFromWMI(Parser parser) {
+        return legacyParse(parser.legacyListing);
+    }
+
+    @Benchmark
+    public Sample initGPUCPURAM(Controller controller) throws Exception {
+        controller.dash.initGPUCPURAM();
+        return controller.dash.getSample();
+    }
+}
@@ -0,0 +1,131 @@
+package personal.cluster_management.benchmarks;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import personal.cluster_management.frontend.FrontEndImpl;
+import personal.cluster_management.proto.DistributedJobServiceGrpc;
+import personal.cluster_management.proto.JobRequest;
+import personal.cluster_management.proto.JobStatusResponse;
+import personal.cluster_management.proto.ServerInfo;
+import personal.cluster_management.proto.ServerStatusRequest;
+import personal.cluster_management.proto.ServerStatusResponse;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A caller's getStatus and submitJob round trips through the frontend to in-process backends that answer
+ * at once, so the numbers are the frontend's own cost per call: fan-out, merging and gRPC overhead.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FrontEndBenchmark {
+
+    @Param({"3", "30"})
+    public int backends;
+
+    private final List<Server> servers = new ArrayList<>();
+    private final List<ManagedChannel> channels = new ArrayList<>();
+    private final AtomicLong jobIds = new AtomicLong();
+    private FrontEndImpl frontend;
+    private DistributedJobServiceGrpc.DistributedJobServiceBlockingStub client;
+    private PrintStream out;
+
+    /**
+     * A backend that accepts jobs and reports its status at once.
+     */
+    private static class InstantBackendService extends DistributedJobServiceGrpc.DistributedJobServiceImplBase {
+        private final ServerStatusResponse status;
+
+        InstantBackendService(String hostName) {
+            status = ServerStatusResponse.newBuilder()
+                    .addServers(ServerInfo.newBuilder().setHostName(hostName).setStatus(ServerInfo.Availability.BUSY)
+                            .setCurrentCpuLoad(42).setCurrentGpuLoad(17).setTotalRamGb(64).setAvailableRamGb(23)
+                            .setFreeSlots(3).setCpuCores(16).addRunningJobIds("sweep-1").addRunningJobIds("sweep-2"))
+                    .build();
+        }
+
+        @Override
+        public void submitJob(JobRequest request, StreamObserver<JobStatusResponse> responseObserver) {
+            responseObserver.onNext(JobStatusResponse.newBuilder()
+                    .setJobId(request.getJobId())
+                    .setStatus(JobStatusResponse.Status.COMPLETED_SUCCESS)
+                    .build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void getStatus(ServerStatusRequest request, StreamObserver<ServerStatusResponse> responseObserver) {
+            responseObserver.onNext(status);
+            responseObserver.onCompleted();
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        // The frontend logs every call; keep that out of the measurement
+        out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        List<ManagedChannel> backendChannels = new ArrayList<>();
+        for (int i = 0; i < backends; i++) {
+            String name = "bench-backend-" + i;
+            servers.add(InProcessServerBuilder.forName(name).directExecutor()
+                    .addService(new InstantBackendService("node-" + i)).build().start());
+            backendChannels.add(InProcessChannelBuilder.forName(name).directExecutor().build());
+        }
+        channels.addAll(backendChannels);
+
+        frontend = new FrontEndImpl(backendChannels);
+        servers.add(InProcessServerBuilder.forName("bench-frontend").addService(frontend).build().start());
+        ManagedChannel frontendChannel = InProcessChannelBuilder.forName("bench-frontend").build();
+        channels.add(frontendChannel);
+        client = DistributedJobServiceGrpc.newBlockingStub(frontendChannel);
+
+        int reported = client.getStatus(ServerStatusRequest.getDefaultInstance()).getServersCount();
+        if (reported != backends) throw new IllegalStateException(reported + " of " + backends + " backends answered");
+    }
+
+    @TearDown
+    public void tearDown() {
+        frontend.shutdown();
+        channels.forEach(ManagedChannel::shutdownNow);
+        servers.forEach(Server::shutdownNow);
+        System.setOut(out);
+    }
+
+    @Benchmark
+    public ServerStatusResponse getStatus() {
+        return client.getStatus(ServerStatusRequest.getDefaultInstance());
+    }
+
+    @Benchmark
+    public void submitJob(Blackhole blackhole) {
+        JobRequest job = JobRequest.newBuilder().setJobId("job-" + jobIds.incrementAndGet()).setCommand("true").build();
+        client.submitJob(job).forEachRemaining(blackhole::consume);
+    }
+}
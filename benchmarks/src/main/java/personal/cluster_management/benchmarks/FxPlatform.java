@@ -0,0 +1,56 @@
+package personal.cluster_management.benchmarks;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the JavaFX toolkit for suites that build the Monitor or Dash views. Forks of those suites run
+ * with Monocle's headless platform and the software renderer, so no display is needed.
+ */
+final class FxPlatform {
+
+    // JVM arguments for the forks of those suites
+    static final String GLASS = "-Dglass.platform=Monocle";
+    static final String MONOCLE = "-Dmonocle.platform=Headless";
+    static final String PRISM = "-Dprism.order=sw";
+
+    private static boolean started;
+
+    private FxPlatform() {}
+
+    static synchronized void start() {
+        if (started) return;
+        CompletableFuture<Void> ready = new CompletableFuture<>();
+        Platform.startup(() -> ready.complete(null));
+        ready.join();
+        Platform.setImplicitExit(false);
+        started = true;
+    }
+
+    /**
+     * Runs the task on the JavaFX thread, where views must be built, and waits for its result.
+     */
+    static <T> T call(Callable<T> task) throws Exception {
+        start();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                result.complete(task.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result.get(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Waits until the JavaFX thread ran every update posted so far, so gauge updates left over from one
+     * iteration are not billed to the next.
+     */
+    static void drain() throws Exception {
+        call(() -> null);
+    }
+}
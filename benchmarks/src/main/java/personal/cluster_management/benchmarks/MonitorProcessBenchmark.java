@@ -0,0 +1,104 @@
+package personal.cluster_management.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import personal.cluster_management.server.IOInterface;
+import personal.cluster_management.server.Monitor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The monitor's cost per CSV line a client sends, on the socket thread. Gauge updates it posts run on the
+ * JavaFX thread and are not measured, but the lambdas posting them are, and show up in the allocation rate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {FxPlatform.GLASS, FxPlatform.MONOCLE, FxPlatform.PRISM})
+@State(Scope.Benchmark)
+public class MonitorProcessBenchmark {
+
+    /**
+     * Lines as Dash sends them: CPU load, temp and fan, GPU load, temp and fan, used and total VRAM,
+     * used and available RAM, with the values OpenHardwareMonitor reports.
+     */
+    private static final String[] LINES = {
+            "23.4375,54,1180,64,67,1650,3072,8192,11.3,20.6",
+            "31.25,55,1190,71,68,1660,3080,8192,11.4,20.5",
+            "18.75,53,1175,58,67,1640,3064,8192,11.3,20.6",
+            "43.75,57,1210,80,69,1700,3120,8192,11.6,20.3",
+    };
+
+    /**
+     * Lines from a client with no GPU sensors configured: Dash sends "null" for sensors it never found.
+     */
+    private static final String[] LINES_WITHOUT_GPU = {
+            "23.4375,54,1180,null,null,null,null,null,11.3,20.6",
+            "31.25,55,1190,null,null,null,null,null,11.4,20.5",
+    };
+
+    private Monitor monitor;
+    private int next;
+
+    /**
+     * Reads the default config and drops log lines.
+     */
+    private static class QuietIO implements IOInterface {
+        @Override
+        public void pln(String txt) {}
+
+        @Override
+        public String readFileRaw(String fileLocation) {
+            return "";
+        }
+
+        @Override
+        public void writeToFile(String content, String fileName) {}
+
+        @Override
+        public String readConsoleLine() {
+            return "";
+        }
+
+        @Override
+        public String[] readFileArranged(String fileLocation, String sep) {
+            return new String[]{"800", "600", "8080"};
+        }
+
+        @Override
+        public String getShellOutput(String cmd) {
+            return "";
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        monitor = FxPlatform.call(() -> new Monitor(new QuietIO()));
+    }
+
+    @TearDown(Level.Iteration)
+    public void drain() throws Exception {
+        FxPlatform.drain();
+    }
+
+    @Benchmark
+    public void processLine() {
+        monitor.process(LINES[next++ & 3]);
+    }
+
+    @Benchmark
+    public void processLineWithoutGpu() {
+        monitor.process(LINES_WITHOUT_GPU[next++ & 1]);
+    }
+}
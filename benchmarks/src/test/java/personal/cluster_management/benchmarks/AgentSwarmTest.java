@@ -0,0 +1,114 @@
+package personal.cluster_management.benchmarks;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that swarm agents speak the monitor's line protocol and that the swarm counts what it sent.
+ */
+class AgentSwarmTest {
+
+    private static final PrintStream QUIET = new PrintStream(OutputStream.nullOutputStream());
+
+    private final List<List<String>> connections = Collections.synchronizedList(new ArrayList<>());
+    private ServerSocket server;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (server != null) server.close();
+    }
+
+    /**
+     * Accepts any number of clients and records every line each one sends.
+     */
+    private int listen() throws IOException {
+        server = new ServerSocket(0);
+        Thread.ofVirtual().start(() -> {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    List<String> lines = Collections.synchronizedList(new ArrayList<>());
+                    connections.add(lines);
+                    Thread.ofVirtual().start(() -> {
+                        try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+                            for (String line; (line = in.readLine()) != null; ) lines.add(line);
+                        } catch (IOException ignored) {
+                        }
+                    });
+                } catch (IOException ignored) {
+                }
+            }
+        });
+        return server.getLocalPort();
+    }
+
+    private static AgentSwarm.Settings settings(int port, int agents, double gpuless) {
+        return new AgentSwarm.Settings("localhost", port, agents, 50, AgentSwarm.Arrivals.POISSON, AgentSwarm.Values.WALK,
+                gpuless, 0, 1000, 500, 42);
+    }
+
+    @Test
+    void testAgentsSpeakTheDashProtocol() throws Exception {
+        int port = listen();
+
+        AgentSwarm.Report report = new AgentSwarm(settings(port, 4, 0.5)).run(QUIET);
+        Thread.sleep(200); // Let the readers drain
+
+        assertEquals(4, connections.size());
+        long samples = 0;
+        int gpuless = 0;
+        for (List<String> lines : connections) {
+            assertEquals("connect", lines.get(0));
+            assertEquals("QUIT", lines.get(lines.size() - 1));
+            List<String> sampleLines = lines.subList(1, lines.size() - 1);
+            assertFalse(sampleLines.isEmpty());
+            samples += sampleLines.size();
+            if (sampleLines.get(0).contains("null")) gpuless++;
+            for (String line : sampleLines) {
+                String[] fields = line.split(",");
+                assertEquals(10, fields.length, line);
+                for (String field : fields) {
+                    if (!field.equals("null")) assertTrue(Double.parseDouble(field) >= 0, line);
+                }
+            }
+        }
+        assertEquals(2, gpuless);
+        assertEquals(samples, report.linesSent());
+        assertEquals(0, report.connectFailures());
+        assertEquals(0, report.writeErrors());
+        assertEquals(0, report.stalledAgents());
+        assertTrue(report.lagP50Nanos() > 0);
+    }
+
+    @Test
+    void testUnreachableMonitorCountsConnectFailures() throws Exception {
+        int port;
+        try (ServerSocket closed = new ServerSocket(0)) {
+            port = closed.getLocalPort();
+        }
+
+        AgentSwarm.Report report = new AgentSwarm(settings(port, 3, 0)).run(QUIET);
+
+        assertEquals(3, report.connectFailures());
+        assertEquals(0, report.linesSent());
+    }
+
+    @Test
+    void testInvalidSettingsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> settings(8080, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> settings(8080, 1, 2));
+    }
+}
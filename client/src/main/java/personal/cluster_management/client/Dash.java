@@ -10,6 +10,7 @@ import java.io.IOException;
 import java.net.Socket;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Controller class for the Dash.
@@ -23,8 +24,10 @@ public class Dash implements DashInterface {
     private final DashService service;
 
     // Application state
-    public HashMap<String, String> config = new HashMap<>(); // Made public for test assertion
-    private boolean isConnected = false;
+    // Sensor names and settings; replaced, never modified, so the background tasks can read it from any thread
+    public volatile HashMap<String, String> config = new HashMap<>(); // Made public for test assertion
+    private final AtomicReference<Sample> sample = new AtomicReference<>(Sample.EMPTY);
+    private volatile boolean isConnected = false;
 
     // References to other application parts
     private final Main mainApp;
@@ -136,7 +139,7 @@ public class Dash implements DashInterface {
     }
 
     /**
-     * Runs in a background thread to fetch WMI data and populate the config map.
+     * Runs in a background thread to take the first sample.
      */
     private void startWMIInitTask() {
         new Thread(new Task<Void>() {
@@ -162,8 +165,7 @@ public class Dash implements DashInterface {
                 while (true) {
                     try {
                         if (isConnected) {
-                            String data = config.get("CPU_LOAD") + "," + config.get("CPU_TEMP") + "," + config.get("CPU_FAN") + "," + config.get("GPU_LOAD") + "," + config.get("GPU_TEMP") + "," + config.get("GPU_FAN") + "," + config.get("USED_VRAM") + "," + config.get("TOTAL_VRAM") + "," + config.get("USED_RAM") + "," + config.get("AVAILABLE_RAM");
-                            service.sendData(data);
+                            service.sendData(sample.get().toLine());
                         }
                         initGPUCPURAM();
                         Thread.sleep(Integer.parseInt(view.dataRefreshIntervalTextField.getText()));
@@ -247,7 +249,8 @@ public class Dash implements DashInterface {
             // Save to file via service
             service.saveConfig(data);
 
-            // Update in-memory config map
+            // Publish a new in-memory config map for the background tasks
+            HashMap<String, String> config = new HashMap<>(this.config);
             config.put("SERVER_IP", data[0]);
             config.put("SERVER_PORT", data[1]);
             config.put("CPU_LOAD_NAME", data[2]);
@@ -261,6 +264,7 @@ public class Dash implements DashInterface {
             config.put("USED_RAM_NAME", data[10]);
             config.put("AVAILABLE_RAM_NAME", data[11]);
             config.put("REFRESH_INTERVAL", data[12]);
+            this.config = config;
 
             showInfoAlert("Config Saved", "Configuration saved successfully.");
         } else {
@@ -335,28 +339,39 @@ public class Dash implements DashInterface {
     }
 
     /**
-     * Fetches WMI values from the service and populates the in-memory config map.
+     * Fetches WMI values from the service and publishes them as the latest sample.
      * @throws Exception If service call fails.
      */
     public void initGPUCPURAM() throws Exception {
+        HashMap<String, String> config = this.config;
         ArrayList<String[]> values = service.getValuesFromWMI();
+        String cpuLoad = null, cpuTemp = null, cpuFan = null, gpuLoad = null, gpuTemp = null, gpuFan = null;
+        String totalVram = null, usedVram = null, usedRam = null, availableRam = null;
         for (String[] s : values) {
             if (s[1].equals("Load")) {
-                if (s[0].equals(config.get("CPU_LOAD_NAME"))) config.put("CPU_LOAD", s[2]);
-                if (s[0].equals(config.get("GPU_LOAD_NAME"))) config.put("GPU_LOAD", s[2]);
+                if (s[0].equals(config.get("CPU_LOAD_NAME"))) cpuLoad = s[2];
+                if (s[0].equals(config.get("GPU_LOAD_NAME"))) gpuLoad = s[2];
             } else if (s[1].equals("Temperature")) {
-                if (s[0].equals(config.get("CPU_TEMP_NAME"))) config.put("CPU_TEMP", s[2]);
-                if (s[0].equals(config.get("GPU_TEMP_NAME"))) config.put("GPU_TEMP", s[2]);
+                if (s[0].equals(config.get("CPU_TEMP_NAME"))) cpuTemp = s[2];
+                if (s[0].equals(config.get("GPU_TEMP_NAME"))) gpuTemp = s[2];
             } else if (s[1].equals("Fan")) {
-                if (s[0].equals(config.get("CPU_FAN_NAME"))) config.put("CPU_FAN", s[2]);
-                if (s[0].equals(config.get("GPU_FAN_NAME"))) config.put("GPU_FAN", s[2]);
+                if (s[0].equals(config.get("CPU_FAN_NAME"))) cpuFan = s[2];
+                if (s[0].equals(config.get("GPU_FAN_NAME"))) gpuFan = s[2];
             } else if (s[1].equals("SmallData")) {
-                if (s[0].equals(config.get("TOTAL_VRAM_NAME"))) config.put("TOTAL_VRAM", s[2]);
-                if (s[0].equals(config.get("USED_VRAM_NAME"))) config.put("USED_VRAM", s[2]);
-                if (s[0].equals(config.get("USED_RAM_NAME"))) config.put("USED_RAM", s[2]);
-                if (s[0].equals(config.get("AVAILABLE_RAM_NAME"))) config.put("AVAILABLE_RAM", s[2]);
+                if (s[0].equals(config.get("TOTAL_VRAM_NAME"))) totalVram = s[2];
+                if (s[0].equals(config.get("USED_VRAM_NAME"))) usedVram = s[2];
+                if (s[0].equals(config.get("USED_RAM_NAME"))) usedRam = s[2];
+                if (s[0].equals(config.get("AVAILABLE_RAM_NAME"))) availableRam = s[2];
             }
         }
+        sample.set(new Sample(cpuLoad, cpuTemp, cpuFan, gpuLoad, gpuTemp, gpuFan, usedVram, totalVram, usedRam, availableRam));
+    }
+
+    /**
+     * @return The latest sample of the configured sensors, {@link Sample#EMPTY} before the first.
+     */
+    public Sample getSample() {
+        return sample.get();
     }
 
     /**
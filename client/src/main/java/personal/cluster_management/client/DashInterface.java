@@ -26,11 +26,16 @@ public interface DashInterface {
     String validateConfig();
 
     /**
-     * Fetches WMI values from the service and populates the in-memory config map.
+     * Fetches WMI values from the service and publishes them as the latest sample.
      * @throws Exception If service call fails.
      */
     void initGPUCPURAM() throws Exception;
 
+    /**
+     * @return The latest sample of the configured sensors.
+     */
+    Sample getSample();
+
     /**
      * Shuts down any background tasks and cleans up resources.
      */
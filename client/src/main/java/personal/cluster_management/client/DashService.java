@@ -5,9 +5,11 @@ import com.sun.jna.platform.win32.WinReg;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 
 /**
@@ -73,24 +75,108 @@ public class DashService implements DashServiceInterface {
 
     /**
      * Queries WMI via PowerShell to get sensor values from OpenHardwareMonitor.
+     * The listing is parsed as PowerShell prints it, see {@link #parseSensors(Reader)}.
      * @return A list of String arrays, where each array contains [Name, SensorType, Value].
      * @throws Exception If the shell command fails or parsing errors occur.
      */
     public ArrayList<String[]> getValuesFromWMI() throws Exception {
-        String out = io.getShellOutput("powershell.exe get-wmiobject -namespace root\\\\OpenHardwareMonitor -query 'SELECT Value,Name,SensorType FROM Sensor'").replace("\r\n\r\n__GENUS          : 2\r\n__CLASS          : Sensor\r\n__SUPERCLASS     : \r\n__DYNASTY        : \r\n__RELPATH        : \r\n__PROPERTY_COUNT : 3\r\n__DERIVATION     : {}\\r\n__SERVER         : \r\n__NAMESPACE      : \r\n__PATH           : \r\n", "");
-        ArrayList<String[]> returnable = new ArrayList<>();
-
-        String[] x = out.split("PSComputerName {3}:");
-
-        for (int i = 0; i < x.length - 1; i++) {
-            String[] cd = x[i].split("\r\n");
-            returnable.add(new String[]{
-                    cd[0].substring(cd[0].indexOf("Name             : ")).replace("Name             : ", ""),
-                    cd[1].substring(cd[1].indexOf("SensorType       : ")).replace("SensorType       : ", ""),
-                    cd[2].substring(cd[2].indexOf("Value            : ")).replace("Value            : ", "")
-            });
+        try (Reader out = io.openShellOutput("powershell.exe get-wmiobject -namespace root\\\\OpenHardwareMonitor -query 'SELECT Value,Name,SensorType FROM Sensor'")) {
+            return parseSensors(out);
         }
-        return returnable;
+    }
+
+    /**
+     * Reads sensors out of the list PowerShell prints for WMI objects, in one pass over the stream.
+     * Every line is a "Key : value" pair, padded to any width; a blank line or PSComputerName ends a sensor,
+     * and the WMI system properties (__GENUS, __CLASS, ...) between sensors are skipped.
+     * Sensors missing a Name, SensorType or Value are dropped.
+     * @param in The listing, with \r\n or \n line endings.
+     * @return A list of String arrays, where each array contains [Name, SensorType, Value].
+     * @throws IOException If reading the listing fails.
+     */
+    static ArrayList<String[]> parseSensors(Reader in) throws IOException {
+        ArrayList<String[]> sensors = new ArrayList<>();
+        String[] sensor = new String[3];
+        char[] buffer = new char[4096];
+        int filled = 0; // Chars read into the buffer, from the start of the current line
+        int scanned = 0; // Chars already searched for the end of the current line
+        int n;
+        while ((n = in.read(buffer, filled, buffer.length - filled)) != -1) {
+            filled += n;
+            int lineStart = 0;
+            for (int i = scanned; i < filled; i++) {
+                if (buffer[i] == '\n') {
+                    parseSensorLine(buffer, lineStart, i, sensor, sensors);
+                    lineStart = i + 1;
+                }
+            }
+            // Keep the unfinished line, growing the buffer if it fills it
+            filled -= lineStart;
+            System.arraycopy(buffer, lineStart, buffer, 0, filled);
+            scanned = filled;
+            if (filled == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        parseSensorLine(buffer, 0, filled, sensor, sensors);
+        endSensor(sensor, sensors);
+        return sensors;
+    }
+
+    /**
+     * Fills the sensor's field named by one line of the listing, or ends the sensor.
+     */
+    private static void parseSensorLine(char[] line, int start, int end, String[] sensor, ArrayList<String[]> sensors) {
+        if (end > start && line[end - 1] == '\r') end--;
+        int colon = start;
+        while (colon < end && line[colon] != ':') colon++;
+        if (colon == end) {
+            // Blank lines separate sensors; anything else without a key is not ours
+            if (isBlank(line, start, end)) endSensor(sensor, sensors);
+            return;
+        }
+        int keyEnd = colon;
+        while (keyEnd > start && line[keyEnd - 1] == ' ') keyEnd--;
+        int field;
+        if (keyIs(line, start, keyEnd, "Name")) {
+            // A new sensor, even if the last one was not closed
+            if (sensor[0] != null) endSensor(sensor, sensors);
+            field = 0;
+        } else if (keyIs(line, start, keyEnd, "SensorType")) {
+            field = 1;
+        } else if (keyIs(line, start, keyEnd, "Value")) {
+            field = 2;
+        } else {
+            if (keyIs(line, start, keyEnd, "PSComputerName")) endSensor(sensor, sensors);
+            return;
+        }
+        int valueStart = colon + 1;
+        while (valueStart < end && line[valueStart] == ' ') valueStart++;
+        while (end > valueStart && line[end - 1] == ' ') end--;
+        sensor[field] = new String(line, valueStart, end - valueStart);
+    }
+
+    private static boolean keyIs(char[] line, int start, int end, String key) {
+        if (end - start != key.length()) return false;
+        for (int i = 0; i < key.length(); i++) {
+            if (line[start + i] != key.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isBlank(char[] line, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(line[i])) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Adds the sensor if it is complete and clears it for the next one.
+     */
+    private static void endSensor(String[] sensor, ArrayList<String[]> sensors) {
+        if (sensor[0] != null && sensor[1] != null && sensor[2] != null) {
+            sensors.add(sensor.clone());
+        }
+        Arrays.fill(sensor, null);
     }
 
     /**
@@ -28,17 +28,7 @@ public class IO implements IOInterface {
 
     @Override
     public String getShellOutput(String cmd) throws Exception {
-        // Determine the correct shell for the OS
-        String[] shellCmd;
-        if (System.getProperty("os.name").toLowerCase().contains("windows")) {
-            shellCmd = new String[]{"powershell.exe", "-Command", cmd};
-        } else {
-            shellCmd = new String[]{"bash", "-c", cmd};
-        }
-
-        ProcessBuilder pb = new ProcessBuilder(shellCmd);
-        pb.redirectErrorStream(true);
-        Process p = pb.start();
+        Process p = startShell(cmd);
 
         StringBuilder sb = new StringBuilder();
         // Use try-with-resources for reliable stream handling
@@ -55,6 +45,32 @@ public class IO implements IOInterface {
         return sb.toString();
     }
 
+    @Override
+    public Reader openShellOutput(String cmd) throws Exception {
+        Process p = startShell(cmd);
+        return new InputStreamReader(p.getInputStream()) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                p.destroy();
+            }
+        };
+    }
+
+    private Process startShell(String cmd) throws IOException {
+        // Determine the correct shell for the OS
+        String[] shellCmd;
+        if (System.getProperty("os.name").toLowerCase().contains("windows")) {
+            shellCmd = new String[]{"powershell.exe", "-Command", cmd};
+        } else {
+            shellCmd = new String[]{"bash", "-c", cmd};
+        }
+
+        ProcessBuilder pb = new ProcessBuilder(shellCmd);
+        pb.redirectErrorStream(true);
+        return pb.start();
+    }
+
     @Override
     public void setSocket(Socket s) {
         this.socket = s;
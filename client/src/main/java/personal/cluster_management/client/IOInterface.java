@@ -1,6 +1,7 @@
 package personal.cluster_management.client;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.net.Socket;
 
 /**
@@ -34,6 +35,15 @@ public interface IOInterface {
      */
     String getShellOutput(String cmd) throws Exception;
 
+    /**
+     * Executes a shell command and streams its standard output as it is printed.
+     * Closing the reader ends the command if it is still running.
+     * @param cmd The command to execute.
+     * @return A reader over the command's output.
+     * @throws Exception If the command cannot be started.
+     */
+    Reader openShellOutput(String cmd) throws Exception;
+
     /**
      * Stores the active socket connection.
      * @param s The socket to store.
@@ -0,0 +1,95 @@
+package personal.cluster_management.client;
+
+/**
+ * One reading of the configured sensors, taken together from a single WMI query.
+ * Immutable, so the update loop can send one while the next is being taken without any locking.
+ * A value is null when its sensor was not in the reading, e.g. on a machine without a GPU.
+ */
+public final class Sample {
+
+    /**
+     * The sample before the first reading: every sensor missing.
+     */
+    public static final Sample EMPTY = new Sample(null, null, null, null, null, null, null, null, null, null);
+
+    private final String cpuLoad;
+    private final String cpuTemp;
+    private final String cpuFan;
+    private final String gpuLoad;
+    private final String gpuTemp;
+    private final String gpuFan;
+    private final String usedVram;
+    private final String totalVram;
+    private final String usedRam;
+    private final String availableRam;
+    private final String line;
+
+    public Sample(String cpuLoad, String cpuTemp, String cpuFan, String gpuLoad, String gpuTemp, String gpuFan,
+                  String usedVram, String totalVram, String usedRam, String availableRam) {
+        this.cpuLoad = cpuLoad;
+        this.cpuTemp = cpuTemp;
+        this.cpuFan = cpuFan;
+        this.gpuLoad = gpuLoad;
+        this.gpuTemp = gpuTemp;
+        this.gpuFan = gpuFan;
+        this.usedVram = usedVram;
+        this.totalVram = totalVram;
+        this.usedRam = usedRam;
+        this.availableRam = availableRam;
+        // Built once here rather than on every send
+        this.line = String.join(",", cpuLoad, cpuTemp, cpuFan, gpuLoad, gpuTemp, gpuFan, usedVram, totalVram, usedRam, availableRam);
+    }
+
+    /**
+     * @return The line sent to the server for this sample: the ten values in the order the monitor reads them,
+     * comma-separated, with "null" for missing sensors.
+     */
+    public String toLine() {
+        return line;
+    }
+
+    public String getCpuLoad() {
+        return cpuLoad;
+    }
+
+    public String getCpuTemp() {
+        return cpuTemp;
+    }
+
+    public String getCpuFan() {
+        return cpuFan;
+    }
+
+    public String getGpuLoad() {
+        return gpuLoad;
+    }
+
+    public String getGpuTemp() {
+        return gpuTemp;
+    }
+
+    public String getGpuFan() {
+        return gpuFan;
+    }
+
+    public String getUsedVram() {
+        return usedVram;
+    }
+
+    public String getTotalVram() {
+        return totalVram;
+    }
+
+    public String getUsedRam() {
+        return usedRam;
+    }
+
+    public String getAvailableRam() {
+        return availableRam;
+    }
+
+    @Override
+    public String toString() {
+        return line;
+    }
+}
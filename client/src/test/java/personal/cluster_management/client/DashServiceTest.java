@@ -11,8 +11,13 @@ import org.mockito.MockedStatic;
 import org.mockito.MockitoAnnotations;
 
 import java.io.File;
+import java.io.FilterReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 
@@ -127,8 +132,8 @@ class DashServiceTest {
     @DisplayName("getValuesFromWMI() should correctly parse shell output")
     void testGetValuesFromWMIParsing() throws Exception {
         // Arrange
-        // This is a fake string mimicking the output of the PowerShell command
-        // *after* the .replace() method has run.
+        // This is a fake string mimicking the output of the PowerShell command,
+        // without the WMI system properties between sensors.
         String fakeShellOutput =
                 "Name             : CPU Load\r\n" +
                 "SensorType       : Load\r\n" +
@@ -145,7 +150,7 @@ class DashServiceTest {
                 "Value            : 8.2\r\n" +
                 "PSComputerName   : \r\n" +
                 "\r\n";
-        when(mockIo.getShellOutput(anyString())).thenReturn(fakeShellOutput);
+        when(mockIo.openShellOutput(anyString())).thenReturn(new StringReader(fakeShellOutput));
 
         // Act
         ArrayList<String[]> result = service.getValuesFromWMI();
@@ -158,11 +163,91 @@ class DashServiceTest {
         assertArrayEquals(new String[]{"RAM Used", "SmallData", "8.2"}, result.get(2));
     }
 
+    @Test
+    @DisplayName("getValuesFromWMI() should parse a recorded PowerShell listing and close it")
+    void testGetValuesFromWMIRecordedListing() throws Exception {
+        // Arrange
+        // The listing exactly as PowerShell prints it, with the WMI system properties before each sensor
+        Reader listing;
+        try (InputStream in = getClass().getResourceAsStream("wmi-sensors.txt")) {
+            listing = spy(new StringReader(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+        }
+        when(mockIo.openShellOutput(anyString())).thenReturn(listing);
+
+        // Act
+        ArrayList<String[]> result = service.getValuesFromWMI();
+
+        // Assert
+        assertEquals(6, result.size(), "Should parse six sensors");
+        assertArrayEquals(new String[]{"CPU Core #1", "Load", "18.75"}, result.get(0));
+        assertArrayEquals(new String[]{"CPU Package", "Temperature", "54"}, result.get(1));
+        assertArrayEquals(new String[]{"GPU Memory Used", "SmallData", "3072"}, result.get(4));
+        assertArrayEquals(new String[]{"Available Memory", "SmallData", "20.6015625"}, result.get(5));
+        verify(listing).close(); // Ends the PowerShell process
+    }
+
+    @Test
+    @DisplayName("getValuesFromWMI() should not depend on padding, line endings or separators")
+    void testGetValuesFromWMISpacing() throws Exception {
+        // Arrange
+        // Narrower padding, \n endings, no blank line or PSComputerName between sensors, and an unfinished sensor
+        String fakeShellOutput =
+                "Name : CPU Load\n" +
+                "SensorType : Load\n" +
+                "Value :   55.5  \n" +
+                "Name       : CPU Clock: Core #1\n" +
+                "SensorType : Clock\n" +
+                "Value      : 4200\n" +
+                "\n" +
+                "Name       : Fan #2\n" +
+                "SensorType : Fan\n";
+        when(mockIo.openShellOutput(anyString())).thenReturn(new StringReader(fakeShellOutput));
+
+        // Act
+        ArrayList<String[]> result = service.getValuesFromWMI();
+
+        // Assert
+        assertEquals(2, result.size(), "Should drop the sensor without a value");
+        assertArrayEquals(new String[]{"CPU Load", "Load", "55.5"}, result.get(0));
+        assertArrayEquals(new String[]{"CPU Clock: Core #1", "Clock", "4200"}, result.get(1));
+    }
+
+    @Test
+    @DisplayName("getValuesFromWMI() should parse a listing that arrives a few characters at a time")
+    void testGetValuesFromWMISlowStream() throws Exception {
+        // Arrange
+        // A name longer than the parser's buffer, read three characters at a time like a slow pipe
+        String longName = "Sensor ".repeat(1000);
+        String fakeShellOutput =
+                "Name             : CPU Load\r\n" +
+                "SensorType       : Load\r\n" +
+                "Value            : 55.5\r\n" +
+                "\r\n" +
+                "Name             : " + longName + "\r\n" +
+                "SensorType       : Data\r\n" +
+                "Value            : 1";
+        Reader slow = new FilterReader(new StringReader(fakeShellOutput)) {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                return super.read(cbuf, off, Math.min(len, 3));
+            }
+        };
+        when(mockIo.openShellOutput(anyString())).thenReturn(slow);
+
+        // Act
+        ArrayList<String[]> result = service.getValuesFromWMI();
+
+        // Assert
+        assertEquals(2, result.size(), "Should parse two sensors");
+        assertArrayEquals(new String[]{"CPU Load", "Load", "55.5"}, result.get(0));
+        assertArrayEquals(new String[]{longName.trim(), "Data", "1"}, result.get(1));
+    }
+
     @Test
     @DisplayName("getValuesFromWMI() should propagate shell exceptions")
     void testGetValuesFromWMIShellError() throws Exception {
         // Arrange
-        when(mockIo.getShellOutput(anyString())).thenThrow(new RuntimeException("PowerShell command failed"));
+        when(mockIo.openShellOutput(anyString())).thenThrow(new RuntimeException("PowerShell command failed"));
 
         // Act & Assert
         assertThrows(RuntimeException.class, () -> {
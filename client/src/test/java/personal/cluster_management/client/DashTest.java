@@ -159,7 +159,7 @@ class DashTest {
     }
 
     @Test
-    @DisplayName("initGPUCPURAM() should process WMI data from service and update config map")
+    @DisplayName("initGPUCPURAM() should publish WMI data from service as a new sample")
     void testInitGPUCPURAM() throws Exception {
         // Arrange
         // This is the *parsed* data we expect from the service
@@ -170,16 +170,21 @@ class DashTest {
         
         // Tell the mock service to return this fake data
         when(mockService.getValuesFromWMI()).thenReturn(fakeParsedData);
+        Sample before = dashController.getSample();
 
         // Act
         dashController.initGPUCPURAM();
 
         // Assert
-        // Check that the controller's internal config map was updated
-        assertEquals("55.5", dashController.config.get("CPU_LOAD"));
-        assertEquals("68", dashController.config.get("GPU_TEMP"));
-        assertEquals("8.2", dashController.config.get("USED_RAM"));
+        // Check that the controller published a new sample and left the old one untouched
+        Sample sample = dashController.getSample();
+        assertNotSame(before, sample);
+        assertSame(Sample.EMPTY, before);
+        assertEquals("55.5", sample.getCpuLoad());
+        assertEquals("68", sample.getGpuTemp());
+        assertEquals("8.2", sample.getUsedRam());
         // Check that other values are null (since they weren't in the fake data)
-        assertNull(dashController.config.get("GPU_LOAD"));
+        assertNull(sample.getGpuLoad());
+        assertEquals("55.5,null,null,null,68,null,null,null,8.2,null", sample.toLine());
     }
 }
\ No newline at end of file
@@ -7,6 +7,8 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
 import java.net.Socket;
 import java.nio.file.Path;
 
@@ -88,6 +90,17 @@ class IOTest {
         }
     }
 
+    @Test
+    void testOpenShellOutputStreamsOutput() throws Exception {
+        try (Reader reader = io.openShellOutput("echo streamed_test")) {
+            StringWriter output = new StringWriter();
+            reader.transferTo(output);
+
+            assertTrue(output.toString().contains("streamed_test"),
+                "Streamed output should contain the echoed message.");
+        }
+    }
+
     // --- SOCKET TESTS ---
 
     @Test
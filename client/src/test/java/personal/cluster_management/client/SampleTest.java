@@ -0,0 +1,26 @@
+package personal.cluster_management.client;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SampleTest {
+
+    @Test
+    @DisplayName("toLine() should list the values in the order the monitor reads them")
+    void testLineOrder() {
+        Sample sample = new Sample("55.5", "60", "1200", "64", "67", "1650", "3072", "8192", "11.3", "20.6");
+
+        assertEquals("55.5,60,1200,64,67,1650,3072,8192,11.3,20.6", sample.toLine());
+    }
+
+    @Test
+    @DisplayName("toLine() should send missing sensors as null")
+    void testMissingSensors() {
+        Sample gpuless = new Sample("55.5", "60", "1200", null, null, null, null, null, "11.3", "20.6");
+
+        assertEquals("55.5,60,1200,null,null,null,null,null,11.3,20.6", gpuless.toLine());
+        assertEquals("null,null,null,null,null,null,null,null,null,null", Sample.EMPTY.toLine());
+    }
+}
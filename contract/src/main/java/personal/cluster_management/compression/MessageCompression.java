@@ -0,0 +1,159 @@
+package personal.cluster_management.compression;
+
+import com.google.protobuf.MessageLite;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.Codec;
+import io.grpc.CompressorRegistry;
+import io.grpc.DecompressorRegistry;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingServerCall;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerBuilder;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Compresses large gRPC messages between frontends, backends and clients.
+ *
+ * Settings are system properties:
+ * <ul>
+ *     <li>{@code cluster.compression}: {@code identity} (no compression), {@code gzip} (default) or {@code zstd}.</li>
+ *     <li>{@code cluster.compression.minBytes}: messages smaller than this are sent uncompressed (default 1024),
+ *     since compressing a short message costs more CPU than the bytes it saves.</li>
+ * </ul>
+ *
+ * Both codecs are always accepted. A server compresses responses with the configured codec if the caller
+ * advertised it in {@code grpc-accept-encoding}, and falls back to gzip otherwise, so clients that only know
+ * gzip still get compressed status responses. Requests are compressed with the configured codec, which the
+ * server must know: use zstd only once every agent and frontend has this class.
+ */
+public final class MessageCompression implements ServerInterceptor, ClientInterceptor {
+
+    public static final String CODEC_PROPERTY = "cluster.compression";
+    public static final String MIN_BYTES_PROPERTY = "cluster.compression.minBytes";
+    public static final String DEFAULT_CODEC = "gzip";
+    public static final int DEFAULT_MIN_BYTES = 1024;
+
+    private static final Metadata.Key<String> ACCEPT_ENCODING =
+            Metadata.Key.of("grpc-accept-encoding", Metadata.ASCII_STRING_MARSHALLER);
+    private static final String GZIP = new Codec.Gzip().getMessageEncoding();
+
+    private final Codec codec; // null for identity
+    private final int minBytes;
+    private final CompressorRegistry compressors = CompressorRegistry.newEmptyInstance();
+    private final DecompressorRegistry decompressors;
+
+    /**
+     * @param codec {@code identity}, {@code gzip} or {@code zstd}, in any case.
+     * @param minBytes Size below which messages are sent uncompressed.
+     * @throws IllegalArgumentException If codec names no codec.
+     */
+    public MessageCompression(String codec, int minBytes) {
+        this.codec = switch (codec.trim().toLowerCase(Locale.ROOT)) {
+            case "identity", "none" -> null;
+            case "gzip" -> new Codec.Gzip();
+            case ZstdCodec.ENCODING -> new ZstdCodec();
+            default -> throw new IllegalArgumentException("Unknown compression '" + codec + "', expected identity, gzip or zstd");
+        };
+        this.minBytes = minBytes;
+        ZstdCodec zstd = new ZstdCodec();
+        compressors.register(Codec.Identity.NONE);
+        compressors.register(new Codec.Gzip());
+        compressors.register(zstd);
+        decompressors = DecompressorRegistry.getDefaultInstance().with(zstd, true);
+    }
+
+    /**
+     * @return Compression configured by the {@code cluster.compression*} system properties.
+     */
+    public static MessageCompression fromSystemProperties() {
+        return new MessageCompression(System.getProperty(CODEC_PROPERTY, DEFAULT_CODEC),
+                Integer.getInteger(MIN_BYTES_PROPERTY, DEFAULT_MIN_BYTES));
+    }
+
+    /**
+     * @return The message encoding of the configured codec, or null for identity.
+     */
+    public String getEncoding() {
+        return codec == null ? null : codec.getMessageEncoding();
+    }
+
+    public int getMinBytes() {
+        return minBytes;
+    }
+
+    /**
+     * Makes the server accept both codecs and compress large responses.
+     */
+    public void configure(ServerBuilder<?> builder) {
+        builder.compressorRegistry(compressors).decompressorRegistry(decompressors).intercept(this);
+    }
+
+    /**
+     * Makes the channel accept both codecs and compress large requests.
+     */
+    public void configure(ManagedChannelBuilder<?> builder) {
+        builder.compressorRegistry(compressors).decompressorRegistry(decompressors).intercept(this);
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        String encoding = negotiate(headers.get(ACCEPT_ENCODING));
+        if (encoding == null) return next.startCall(call, headers);
+        call.setCompression(encoding);
+        return next.startCall(new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+            @Override
+            public void sendMessage(RespT message) {
+                setMessageCompression(worthCompressing(message));
+                super.sendMessage(message);
+            }
+        }, headers);
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                               CallOptions callOptions, Channel next) {
+        if (codec == null) return next.newCall(method, callOptions);
+        return new ForwardingClientCall.SimpleForwardingClientCall<>(next.newCall(method, callOptions.withCompression(codec.getMessageEncoding()))) {
+            @Override
+            public void sendMessage(ReqT message) {
+                setMessageCompression(worthCompressing(message));
+                super.sendMessage(message);
+            }
+        };
+    }
+
+    /**
+     * @param acceptEncoding The caller's comma-separated accepted encodings, or null if it sent none.
+     * @return The encoding to compress responses with, or null to send them uncompressed.
+     */
+    String negotiate(String acceptEncoding) {
+        if (codec == null || acceptEncoding == null) return null;
+        Set<String> accepted = Arrays.stream(acceptEncoding.split(","))
+                .map(String::trim)
+                .collect(Collectors.toSet());
+        if (accepted.contains(codec.getMessageEncoding())) return codec.getMessageEncoding();
+        return accepted.contains(GZIP) ? GZIP : null;
+    }
+
+    private boolean worthCompressing(Object message) {
+        return !(message instanceof MessageLite lite) || lite.getSerializedSize() >= minBytes;
+    }
+
+    @Override
+    public String toString() {
+        return codec == null ? "identity" : codec.getMessageEncoding() + " (from " + minBytes + " bytes)";
+    }
+}
@@ -0,0 +1,48 @@
+package personal.cluster_management.compression;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import io.grpc.Codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Zstandard message compression for gRPC, under the message encoding "zstd".
+ *
+ * At level 1 it compresses status responses several times faster than gzip, to a similar size.
+ */
+public final class ZstdCodec implements Codec {
+
+    public static final String ENCODING = "zstd";
+    public static final int DEFAULT_LEVEL = 1;
+
+    private final int level;
+
+    /**
+     * @param level Zstandard compression level, from 1 (fastest) to 22.
+     */
+    public ZstdCodec(int level) {
+        this.level = level;
+    }
+
+    public ZstdCodec() {
+        this(DEFAULT_LEVEL);
+    }
+
+    @Override
+    public String getMessageEncoding() {
+        return ENCODING;
+    }
+
+    @Override
+    public OutputStream compress(OutputStream os) throws IOException {
+        return new ZstdOutputStream(os, level);
+    }
+
+    @Override
+    public InputStream decompress(InputStream is) throws IOException {
+        return new ZstdInputStream(is);
+    }
+}
@@ -0,0 +1,212 @@
+package personal.cluster_management.compression;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.Codec;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerStreamTracer;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import personal.cluster_management.proto.DistributedJobServiceGrpc;
+import personal.cluster_management.proto.ServerInfo;
+import personal.cluster_management.proto.ServerStatusRequest;
+import personal.cluster_management.proto.ServerStatusResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that large responses are compressed with a codec the caller accepts, and compares the codecs.
+ */
+class MessageCompressionTest {
+
+    private static final Metadata.Key<String> ENCODING = Metadata.Key.of("grpc-encoding", Metadata.ASCII_STRING_MARSHALLER);
+
+    private final AtomicLong wireBytes = new AtomicLong();
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+    private final AtomicReference<String> responseEncoding = new AtomicReference<>();
+    private final List<Server> servers = new ArrayList<>();
+    private final List<ManagedChannel> channels = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        channels.forEach(ManagedChannel::shutdownNow);
+        servers.forEach(Server::shutdownNow);
+    }
+
+    /**
+     * A status response listing the given number of busy servers, each running a few jobs.
+     */
+    static ServerStatusResponse status(int servers) {
+        ServerStatusResponse.Builder response = ServerStatusResponse.newBuilder();
+        for (int i = 0; i < servers; i++) {
+            ServerInfo.Builder server = ServerInfo.newBuilder()
+                    .setHostName("node-" + i + ".cluster.local").setIpAddress("10.0." + (i / 256) + "." + (i % 256))
+                    .setStatus(ServerInfo.Availability.BUSY).setCurrentCpuLoad(i % 100).setCurrentGpuLoad((i * 7) % 100)
+                    .setTotalRamGb(256).setAvailableRamGb(i % 256).setFreeSlots(i % 8).setCpuCores(64);
+            for (int j = 0; j < 4; j++) server.addRunningJobIds("sweep-" + i + "-" + j);
+            response.addServers(server);
+        }
+        return response.build();
+    }
+
+    /**
+     * Starts a server answering getStatus with the response, and returns a stub for it.
+     * @param clientCompression Configures the client channel, or null to leave gRPC's defaults.
+     */
+    private DistributedJobServiceGrpc.DistributedJobServiceBlockingStub serve(ServerStatusResponse response,
+                                                                              MessageCompression serverCompression,
+                                                                              MessageCompression clientCompression) throws IOException {
+        NettyServerBuilder serverBuilder = NettyServerBuilder.forPort(0)
+                .addService(new DistributedJobServiceGrpc.DistributedJobServiceImplBase() {
+                    @Override
+                    public void getStatus(ServerStatusRequest request, StreamObserver<ServerStatusResponse> responseObserver) {
+                        responseObserver.onNext(response);
+                        responseObserver.onCompleted();
+                    }
+                })
+                .addStreamTracerFactory(new ServerStreamTracer.Factory() {
+                    @Override
+                    public ServerStreamTracer newServerStreamTracer(String fullMethodName, Metadata headers) {
+                        return new ServerStreamTracer() {
+                            @Override
+                            public void outboundWireSize(long bytes) { wireBytes.addAndGet(bytes); }
+                            @Override
+                            public void outboundUncompressedSize(long bytes) { uncompressedBytes.addAndGet(bytes); }
+                        };
+                    }
+                });
+        serverCompression.configure(serverBuilder);
+        Server server = serverBuilder.build().start();
+        servers.add(server);
+
+        NettyChannelBuilder channelBuilder = NettyChannelBuilder.forAddress("localhost", server.getPort()).usePlaintext()
+                .intercept(new ClientInterceptor() {
+                    @Override
+                    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+                        return new ForwardingClientCall.SimpleForwardingClientCall<>(next.newCall(method, callOptions)) {
+                            @Override
+                            public void start(Listener<RespT> listener, Metadata headers) {
+                                super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(listener) {
+                                    @Override
+                                    public void onHeaders(Metadata headers) {
+                                        responseEncoding.set(headers.get(ENCODING));
+                                        super.onHeaders(headers);
+                                    }
+                                }, headers);
+                            }
+                        };
+                    }
+                });
+        if (clientCompression != null) clientCompression.configure(channelBuilder);
+        ManagedChannel channel = channelBuilder.build();
+        channels.add(channel);
+        return DistributedJobServiceGrpc.newBlockingStub(channel).withDeadlineAfter(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testLargeResponseIsCompressedWithTheConfiguredCodec() throws IOException {
+        ServerStatusResponse response = status(500);
+        MessageCompression zstd = new MessageCompression("zstd", 1024);
+
+        assertEquals(response, serve(response, zstd, zstd).getStatus(ServerStatusRequest.getDefaultInstance()));
+
+        assertEquals("zstd", responseEncoding.get());
+        assertEquals(response.getSerializedSize(), uncompressedBytes.get());
+        assertTrue(wireBytes.get() * 4 < uncompressedBytes.get(), "Sent " + wireBytes + " of " + uncompressedBytes + " bytes");
+    }
+
+    @Test
+    void testCallerWithoutZstdGetsGzip() throws IOException {
+        ServerStatusResponse response = status(500);
+
+        // A channel with gRPC's default registries only accepts gzip
+        assertEquals(response, serve(response, new MessageCompression("zstd", 1024), null).getStatus(ServerStatusRequest.getDefaultInstance()));
+
+        assertEquals("gzip", responseEncoding.get());
+        assertTrue(wireBytes.get() * 4 < uncompressedBytes.get(), "Sent " + wireBytes + " of " + uncompressedBytes + " bytes");
+    }
+
+    @Test
+    void testSmallResponseIsSentUncompressed() throws IOException {
+        ServerStatusResponse response = status(1);
+        MessageCompression gzip = new MessageCompression("gzip", 1024);
+
+        assertEquals(response, serve(response, gzip, gzip).getStatus(ServerStatusRequest.getDefaultInstance()));
+
+        assertEquals(uncompressedBytes.get(), wireBytes.get());
+    }
+
+    @Test
+    void testUnknownCodecIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new MessageCompression("brotli", 1024));
+        assertNull(new MessageCompression("identity", 1024).getEncoding());
+    }
+
+    /**
+     * Compressed size and CPU time of each codec on status responses of growing clusters. Prints a table;
+     * the assertions only check that compression pays off on a large cluster.
+     */
+    @Test
+    void testBenchmarkBytesVersusCpuPerCodec() throws IOException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        List<Codec> codecs = List.of(Codec.Identity.NONE, new Codec.Gzip(), new ZstdCodec());
+        System.out.printf("%-8s %8s %10s %10s %14s %14s%n", "codec", "servers", "bytes", "wire", "compress us", "decompress us");
+        for (int servers : new int[]{10, 100, 1000}) {
+            byte[] message = status(servers).toByteArray();
+            int rounds = Math.max(20, 20_000 / servers);
+            for (Codec codec : codecs) {
+                byte[] compressed = compress(codec, message);
+                for (int i = 0; i < rounds; i++) decompress(codec, compress(codec, message)); // Warm-up
+
+                long start = threads.getCurrentThreadCpuTime();
+                for (int i = 0; i < rounds; i++) compress(codec, message);
+                long compressNanos = (threads.getCurrentThreadCpuTime() - start) / rounds;
+                start = threads.getCurrentThreadCpuTime();
+                for (int i = 0; i < rounds; i++) decompress(codec, compressed);
+                long decompressNanos = (threads.getCurrentThreadCpuTime() - start) / rounds;
+
+                System.out.printf("%-8s %8d %10d %10d %14.1f %14.1f%n", codec.getMessageEncoding(), servers,
+                        message.length, compressed.length, compressNanos / 1000.0, decompressNanos / 1000.0);
+                assertArrayEquals(message, decompress(codec, compressed));
+                if (servers == 1000 && codec != Codec.Identity.NONE) assertTrue(compressed.length * 4 < message.length);
+            }
+        }
+    }
+
+    private static byte[] compress(Codec codec, byte[] message) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream compressing = codec.compress(out)) {
+            compressing.write(message);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decompress(Codec codec, byte[] compressed) throws IOException {
+        try (InputStream in = codec.decompress(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+}
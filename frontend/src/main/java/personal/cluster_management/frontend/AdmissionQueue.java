@@ -0,0 +1,141 @@
+package personal.cluster_management.frontend;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Queue of jobs waiting for backend capacity.
+ *
+ * Priority levels are served strictly in order. Within a level, users get a weighted
+ * fair share using start-time fair queuing: each user has a virtual finish time that
+ * advances by 1/weight per dispatched job, and the user with the smallest one goes next.
+ * A user who was idle re-enters at the level's current virtual time, so idle time
+ * cannot be banked to later starve others.
+ *
+ * Not thread-safe; callers must synchronise.
+ * @param <T> The queued item type.
+ */
+public class AdmissionQueue<T> {
+
+    private static final class UserQueue<T> {
+        final ArrayDeque<T> items = new ArrayDeque<>();
+        final double weight;
+        double finish;
+
+        UserQueue(double weight, double start) {
+            this.weight = weight;
+            this.finish = start;
+        }
+    }
+
+    private static final class Level<T> {
+        final Map<String, UserQueue<T>> users = new HashMap<>();
+        double virtualTime = 0;
+        int size = 0;
+    }
+
+    private final List<Level<T>> levels = new ArrayList<>();
+    private final Map<String, Double> userWeights;
+    private final double defaultWeight;
+    private int size = 0;
+
+    /**
+     * @param userWeights Share weight per user; users not listed get {@code defaultWeight}.
+     * @param defaultWeight Weight for unlisted users, must be positive.
+     */
+    public AdmissionQueue(Map<String, Double> userWeights, double defaultWeight) {
+        this.userWeights = Map.copyOf(userWeights);
+        this.defaultWeight = defaultWeight;
+        for (int i = 0; i < JobPriority.values().length; i++) {
+            levels.add(new Level<>());
+        }
+    }
+
+    public void offer(T item, String user, JobPriority priority) {
+        Level<T> level = levels.get(priority.ordinal());
+        UserQueue<T> queue = level.users.computeIfAbsent(user,
+                u -> new UserQueue<>(userWeights.getOrDefault(u, defaultWeight), level.virtualTime));
+        queue.items.addLast(item);
+        level.size++;
+        size++;
+    }
+
+    /**
+     * Removes the next item that may run, honouring priority and fair share.
+     * Items that cannot run right now (e.g. their backend is full) are skipped, not dropped.
+     * @param canRun Whether an item can be dispatched now.
+     * @return The item, or null if none can run.
+     */
+    public T poll(Predicate<T> canRun) {
+        for (Level<T> level : levels) {
+            if (level.size == 0) continue;
+
+            List<Map.Entry<String, UserQueue<T>>> order = new ArrayList<>(level.users.entrySet());
+            order.sort(Comparator.comparingDouble(e -> e.getValue().finish));
+
+            for (Map.Entry<String, UserQueue<T>> entry : order) {
+                UserQueue<T> queue = entry.getValue();
+                T head = queue.items.peekFirst();
+                if (head == null || !canRun.test(head)) continue;
+
+                queue.items.pollFirst();
+                level.virtualTime = Math.max(level.virtualTime, queue.finish);
+                queue.finish += 1.0 / queue.weight;
+                level.size--;
+                size--;
+                if (queue.items.isEmpty()) level.users.remove(entry.getKey());
+                return head;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes a specific item, e.g. when its caller cancels.
+     * @param item The item to remove.
+     * @return true if the item was queued.
+     */
+    public boolean remove(T item) {
+        return removeFirst(item::equals) != null;
+    }
+
+    /**
+     * Removes the first item that matches, e.g. a job looked up by id.
+     * @param match Selects the item to remove.
+     * @return The removed item, or null if none matched.
+     */
+    public T removeFirst(Predicate<T> match) {
+        for (Level<T> level : levels) {
+            Iterator<Map.Entry<String, UserQueue<T>>> it = level.users.entrySet().iterator();
+            while (it.hasNext()) {
+                UserQueue<T> queue = it.next().getValue();
+                Iterator<T> items = queue.items.iterator();
+                while (items.hasNext()) {
+                    T item = items.next();
+                    if (match.test(item)) {
+                        items.remove();
+                        level.size--;
+                        size--;
+                        if (queue.items.isEmpty()) it.remove();
+                        return item;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int size(JobPriority priority) {
+        return levels.get(priority.ordinal()).size;
+    }
+}
@@ -0,0 +1,300 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.ConnectivityState;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A single backend server as seen by the frontend.
+ * Tracks the result of active health probes, the passive call statistics used for
+ * outlier ejection, and the slow-start ramp applied after a backend comes back.
+ */
+public class Backend {
+
+    // Marker for "not ramping": the backend receives its full share of traffic.
+    private static final long NO_RAMP = Long.MIN_VALUE;
+
+    private final String address;
+    private final ManagedChannel channel;
+
+    // Active health checking (guarded by this)
+    private volatile boolean probeHealthy = true;
+    private int consecutiveProbeFailures = 0;
+    private int consecutiveProbeSuccesses = 0;
+
+    // Passive statistics for the current detection interval
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+
+    // Ejection and slow start
+    private volatile boolean ejected = false;
+    private volatile long ejectedUntilNanos = 0;
+    private volatile long rampStartNanos = NO_RAMP;
+    private int ejectionCount = 0;
+
+    // Jobs forwarded to this backend that have not finished yet
+    private final AtomicInteger runningJobs = new AtomicInteger();
+
+    // Set once the backend leaves the pool; it only finishes the work it already has
+    private volatile boolean retired = false;
+
+    // Resources as of the backend's last report, null until it first reports (guarded by this)
+    private Resources capacity;
+    private Resources reportedHeadroom;
+    // Requested by dispatched jobs the backend has not started, and by started jobs that have not finished
+    private Resources reserved = Resources.NONE;
+    private Resources started = Resources.NONE;
+
+    public Backend(String address, ManagedChannel channel) {
+        this.address = address;
+        this.channel = channel;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public ManagedChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * A backend is available when its last health probes passed, it is not currently
+     * ejected, and its channel is not known to be failing. None of these checks block.
+     * @param nowNanos The current time from the pool's clock.
+     * @return true if requests may be routed to this backend.
+     */
+    public boolean isAvailable(long nowNanos) {
+        if (retired || !probeHealthy) return false;
+        if (ejected && nowNanos - ejectedUntilNanos < 0) return false;
+        return channel.getState(false) != ConnectivityState.TRANSIENT_FAILURE;
+    }
+
+    /**
+     * @param nowNanos The current time from the pool's clock.
+     * @return true if this backend is serving out an ejection.
+     */
+    public boolean isEjected(long nowNanos) {
+        return ejected && nowNanos - ejectedUntilNanos < 0;
+    }
+
+    /**
+     * Computes the share of traffic this backend should receive.
+     * Ramps linearly from {@code minWeight} to 1 over the slow-start window after a recovery.
+     * @param nowNanos The current time from the pool's clock.
+     * @param slowStartNanos Length of the slow-start window.
+     * @param minWeight Weight given at the very start of the window.
+     * @return A weight in [minWeight, 1].
+     */
+    public double weight(long nowNanos, long slowStartNanos, double minWeight) {
+        long start = rampStartNanos;
+        if (start == NO_RAMP) return 1.0;
+        long elapsed = nowNanos - start;
+        if (elapsed >= slowStartNanos) {
+            rampStartNanos = NO_RAMP;
+            return 1.0;
+        }
+        if (elapsed <= 0) return minWeight;
+        return Math.max(minWeight, (double) elapsed / slowStartNanos);
+    }
+
+    /**
+     * Records the outcome of a call routed to this backend.
+     * @param failed true if the backend itself was at fault.
+     * @param latency Time until the first response or the terminal event, in nanoseconds.
+     */
+    public void recordResult(boolean failed, long latency) {
+        calls.increment();
+        latencyNanos.add(latency);
+        if (failed) failures.increment();
+    }
+
+    /**
+     * Decides whether an error status should count against the backend.
+     * Client-side mistakes (invalid arguments, cancellations) are not the backend's fault.
+     * @param code The gRPC status code of the failed call.
+     * @return true if the status indicates a faulty backend.
+     */
+    public static boolean isBackendFault(Status.Code code) {
+        return switch (code) {
+            case UNAVAILABLE, INTERNAL, UNKNOWN, DEADLINE_EXCEEDED, RESOURCE_EXHAUSTED, DATA_LOSS -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Applies the result of an active health probe.
+     * @param serving true if the backend reported SERVING.
+     * @param nowNanos The current time from the pool's clock.
+     * @param unhealthyThreshold Consecutive failures before the backend is marked down.
+     * @param healthyThreshold Consecutive successes before a down backend is marked up.
+     */
+    synchronized void onProbeResult(boolean serving, long nowNanos, int unhealthyThreshold, int healthyThreshold) {
+        if (serving) {
+            consecutiveProbeFailures = 0;
+            consecutiveProbeSuccesses++;
+            if (!probeHealthy && consecutiveProbeSuccesses >= healthyThreshold) {
+                probeHealthy = true;
+                rampStartNanos = nowNanos;
+            }
+        } else {
+            consecutiveProbeSuccesses = 0;
+            consecutiveProbeFailures++;
+            if (probeHealthy && consecutiveProbeFailures >= unhealthyThreshold) {
+                probeHealthy = false;
+            }
+        }
+    }
+
+    /**
+     * Ejects this backend. Each consecutive ejection lasts longer, up to a cap.
+     * Once the ejection expires the backend is reintroduced through slow start.
+     * @param nowNanos The current time from the pool's clock.
+     * @param baseEjectionNanos Ejection time for the first ejection.
+     * @param maxMultiplier Cap on the ejection time multiplier.
+     */
+    synchronized void eject(long nowNanos, long baseEjectionNanos, int maxMultiplier) {
+        ejectionCount = Math.min(ejectionCount + 1, maxMultiplier);
+        ejectedUntilNanos = nowNanos + baseEjectionNanos * ejectionCount;
+        rampStartNanos = ejectedUntilNanos;
+        ejected = true;
+    }
+
+    /**
+     * Called once per detection interval for backends that were not ejected.
+     * Clears an expired ejection and slowly forgets past ejections.
+     * @param nowNanos The current time from the pool's clock.
+     */
+    synchronized void onCleanInterval(long nowNanos) {
+        if (ejected && nowNanos - ejectedUntilNanos >= 0) {
+            ejected = false;
+        } else if (!ejected && ejectionCount > 0) {
+            ejectionCount--;
+        }
+    }
+
+    /**
+     * Starts a slow-start ramp, e.g. for a backend that has just joined the pool.
+     * @param nowNanos The current time from the pool's clock.
+     */
+    synchronized void startRamp(long nowNanos) {
+        rampStartNanos = nowNanos;
+    }
+
+    /**
+     * Marks the backend as having left the pool. It is never available again.
+     */
+    void retire() {
+        retired = true;
+    }
+
+    public boolean isRetired() {
+        return retired;
+    }
+
+    /**
+     * Returns and resets the statistics of the current detection interval.
+     * @return {calls, failures, total latency in nanoseconds}
+     */
+    long[] drainStats() {
+        return new long[]{calls.sumThenReset(), failures.sumThenReset(), latencyNanos.sumThenReset()};
+    }
+
+    /**
+     * @param maxJobs The number of job slots per backend.
+     * @return true if another job may be dispatched to this backend.
+     */
+    public boolean hasFreeSlot(int maxJobs) {
+        return runningJobs.get() < maxJobs;
+    }
+
+    /**
+     * Takes a job slot. Callers check {@link #hasFreeSlot(int)} first.
+     */
+    public void acquireSlot() {
+        runningJobs.incrementAndGet();
+    }
+
+    /**
+     * Returns a job slot once the job has finished or failed.
+     */
+    public void releaseSlot() {
+        runningJobs.decrementAndGet();
+    }
+
+    /**
+     * Applies a resource report from the backend.
+     * @param capacity Everything the backend has.
+     * @param available What the backend reported as unused.
+     */
+    synchronized void updateResources(Resources capacity, Resources available) {
+        this.capacity = capacity;
+        this.reportedHeadroom = available;
+    }
+
+    /**
+     * @return The backend's total resources, or null if it has not reported them yet.
+     */
+    public synchronized Resources getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return What is left for new jobs: the capacity less the larger of the measured usage and
+     * what the started jobs requested, less what dispatched jobs hold. A job that has not grown
+     * into its request yet still counts in full, and usage outside any job counts too.
+     * Null if the backend has not reported its resources yet.
+     */
+    public synchronized Resources headroom() {
+        if (reportedHeadroom == null) return null;
+        Resources used = capacity.minus(reportedHeadroom);
+        return capacity.minus(used.max(started)).minus(reserved);
+    }
+
+    /**
+     * Holds resources for a job dispatched to this backend.
+     */
+    public synchronized void reserve(Resources request) {
+        reserved = reserved.plus(request);
+    }
+
+    /**
+     * Called when the backend confirms the job has started. Its resources stay held until
+     * {@link #releaseStarted} is called.
+     */
+    public synchronized void confirmStarted(Resources request) {
+        reserved = reserved.minus(request);
+        started = started.plus(request);
+    }
+
+    /**
+     * Returns the resources of a started job once it has finished or been killed.
+     */
+    public synchronized void releaseStarted(Resources request) {
+        started = started.minus(request);
+    }
+
+    /**
+     * Returns the resources of a job that ended or failed before it started.
+     */
+    public synchronized void releaseReservation(Resources request) {
+        reserved = reserved.minus(request);
+    }
+
+    public int getRunningJobs() {
+        return runningJobs.get();
+    }
+
+    public boolean isProbeHealthy() {
+        return probeHealthy;
+    }
+
+    @Override
+    public String toString() {
+        return "Backend[" + address + "]";
+    }
+}
@@ -0,0 +1,50 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Observer that forwards a backend's responses to another observer while recording
+ * the outcome of the call on the backend, for passive outlier detection.
+ * Latency is measured to the first response, so long-running streams are not penalised.
+ * @param <T> The response type.
+ */
+public class BackendCallObserver<T> implements StreamObserver<T> {
+
+    private final Backend backend;
+    private final BackendPool pool;
+    private final StreamObserver<T> delegate;
+    private final long startNanos;
+    private boolean recorded = false;
+
+    public BackendCallObserver(Backend backend, BackendPool pool, StreamObserver<T> delegate) {
+        this.backend = backend;
+        this.pool = pool;
+        this.delegate = delegate;
+        this.startNanos = pool.now();
+    }
+
+    @Override
+    public void onNext(T value) {
+        record(false);
+        delegate.onNext(value);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        record(Backend.isBackendFault(Status.fromThrowable(t).getCode()));
+        delegate.onError(t);
+    }
+
+    @Override
+    public void onCompleted() {
+        record(false);
+        delegate.onCompleted();
+    }
+
+    private void record(boolean failed) {
+        if (recorded) return;
+        recorded = true;
+        backend.recordResult(failed, pool.now() - startNanos);
+    }
+}
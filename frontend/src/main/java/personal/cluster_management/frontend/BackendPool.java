@@ -0,0 +1,380 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.Status;
+import io.grpc.health.v1.HealthCheckRequest;
+import io.grpc.health.v1.HealthCheckResponse;
+import io.grpc.health.v1.HealthGrpc;
+import io.grpc.stub.StreamObserver;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Health-checked pool of backend servers.
+ *
+ * Backends are checked in two ways:
+ * - Actively, by periodically calling the standard gRPC health service on each backend.
+ * - Passively, by ejecting backends whose error rate or mean latency is an outlier
+ *   compared to the rest of the pool during a detection interval.
+ *
+ * Ejected backends come back after an ejection period and are ramped up through slow start.
+ * Routing only reads state that is already known, so it never waits on a dead backend.
+ *
+ * Backends can join and leave while the pool is routing. The member list is copy-on-write:
+ * readers take the current snapshot without locking, and a change publishes a new list.
+ * A departing backend gets no new work and its channel is shut down gracefully, so calls
+ * already running on it can finish.
+ */
+public class BackendPool {
+
+    /**
+     * Tuning knobs for health checking and outlier ejection.
+     */
+    public record Settings(
+            Duration probeInterval,
+            Duration probeTimeout,
+            int unhealthyThreshold,
+            int healthyThreshold,
+            Duration detectionInterval,
+            int minRequests,
+            double maxFailureRate,
+            double latencyOutlierFactor,
+            Duration minOutlierLatency,
+            Duration baseEjectionTime,
+            int maxEjectionMultiplier,
+            int maxEjectionPercent,
+            Duration slowStartWindow,
+            double slowStartMinWeight,
+            Duration drainTimeout) {
+
+        public static Settings defaults() {
+            return new Settings(
+                    Duration.ofSeconds(5), Duration.ofSeconds(1), 2, 1,
+                    Duration.ofSeconds(10), 5, 0.5, 3.0, Duration.ofMillis(50),
+                    Duration.ofSeconds(30), 10, 50,
+                    Duration.ofSeconds(30), 0.1,
+                    Duration.ofSeconds(60));
+        }
+    }
+
+    // Copy-on-write: replaced as a whole under the pool's lock, read without locking
+    private volatile List<Backend> backends;
+    private final List<Consumer<List<Backend>>> membershipListeners = new CopyOnWriteArrayList<>();
+    private final Settings settings;
+    private final LongSupplier clock;
+    private final AtomicInteger cursor = new AtomicInteger();
+    private ScheduledExecutorService scheduler;
+
+    public BackendPool(List<Backend> backends) {
+        this(backends, Settings.defaults(), System::nanoTime);
+    }
+
+    /**
+     * Constructor for dependency injection (useful for testing).
+     * @param backends The backends in the pool.
+     * @param settings Health checking and ejection settings.
+     * @param clock Source of monotonic time in nanoseconds.
+     */
+    public BackendPool(List<Backend> backends, Settings settings, LongSupplier clock) {
+        this.backends = List.copyOf(backends);
+        this.settings = settings;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts the periodic health probes and outlier detection on a daemon thread.
+     */
+    public synchronized void start() {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "backend-pool-health");
+            t.setDaemon(true);
+            return t;
+        });
+        long probeMillis = settings.probeInterval().toMillis();
+        long detectionMillis = settings.detectionInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::probeAll, 0, probeMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::detectOutliers, detectionMillis, detectionMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background health checking. Channels are left open.
+     */
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public long now() {
+        return clock.getAsLong();
+    }
+
+    public boolean isEmpty() {
+        return backends.isEmpty();
+    }
+
+    /**
+     * @return All backends, healthy or not. The list is an immutable snapshot.
+     */
+    public List<Backend> all() {
+        return backends;
+    }
+
+    /**
+     * @param address A backend address.
+     * @return The member with that address, or null.
+     */
+    public Backend find(String address) {
+        for (Backend b : backends) {
+            if (b.getAddress().equals(address)) return b;
+        }
+        return null;
+    }
+
+    /**
+     * Registers a listener called with the new member list after every membership change.
+     * Listeners run on the thread that changed the membership, one change at a time and in order.
+     */
+    public void addMembershipListener(Consumer<List<Backend>> listener) {
+        membershipListeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener added with {@link #addMembershipListener}.
+     */
+    public void removeMembershipListener(Consumer<List<Backend>> listener) {
+        membershipListeners.remove(listener);
+    }
+
+    /**
+     * Adds a backend to the pool. It starts receiving traffic at once, ramped up through slow start.
+     * @param backend The new backend.
+     * @return false if a backend with the same address is already a member.
+     */
+    public synchronized boolean add(Backend backend) {
+        if (find(backend.getAddress()) != null) return false;
+        backend.startRamp(now());
+        List<Backend> copy = new ArrayList<>(backends);
+        copy.add(backend);
+        backends = List.copyOf(copy);
+
+        System.out.println("Frontend: " + backend + " joined the pool");
+        notifyMembershipListeners();
+        return true;
+    }
+
+    /**
+     * Removes a backend from the pool and drains it.
+     * No new work is routed to it; calls already running on it may finish within the
+     * drain timeout, after which its channel is closed forcibly.
+     * @param address The backend's address.
+     * @return The removed backend, or null if no member has that address.
+     */
+    public synchronized Backend remove(String address) {
+        Backend removed = find(address);
+        if (removed == null) return null;
+        removed.retire();
+        List<Backend> copy = new ArrayList<>(backends);
+        copy.remove(removed);
+        backends = List.copyOf(copy);
+
+        System.out.println("Frontend: " + removed + " left the pool, draining " + removed.getRunningJobs() + " running jobs");
+        notifyMembershipListeners();
+        drain(removed);
+        return removed;
+    }
+
+    private void notifyMembershipListeners() {
+        for (Consumer<List<Backend>> listener : membershipListeners) {
+            listener.accept(backends);
+        }
+    }
+
+    private void drain(Backend backend) {
+        // shutdown() refuses new calls but lets running ones complete
+        backend.getChannel().shutdown();
+        Thread.ofVirtual().name("drain-" + backend.getAddress()).start(() -> {
+            try {
+                if (!backend.getChannel().awaitTermination(settings.drainTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                    System.err.println("Frontend: " + backend + " did not drain in time, cancelling its calls");
+                    backend.getChannel().shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                backend.getChannel().shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    /**
+     * @return The backends that requests may currently be routed to.
+     */
+    public List<Backend> available() {
+        List<Backend> backends = this.backends;
+        long now = now();
+        List<Backend> result = new ArrayList<>(backends.size());
+        for (Backend b : backends) {
+            if (b.isAvailable(now)) result.add(b);
+        }
+        return result;
+    }
+
+    /**
+     * @return true if at least one backend may currently receive requests.
+     */
+    public boolean hasAvailable() {
+        List<Backend> backends = this.backends;
+        long now = now();
+        for (Backend b : backends) {
+            if (b.isAvailable(now)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Picks the next backend in round-robin order, skipping unavailable ones.
+     * Backends in slow start are skipped with a probability proportional to how far
+     * they are from full weight.
+     * @return The chosen backend, or null if no backend is available.
+     */
+    public Backend pick() {
+        return pick(b -> true);
+    }
+
+    /**
+     * Like {@link #pick()}, but only considers backends that satisfy a condition.
+     * @param accept Condition the chosen backend must satisfy (e.g. has a free job slot).
+     * @return The chosen backend, or null if no available backend is accepted.
+     */
+    public Backend pick(Predicate<Backend> accept) {
+        List<Backend> backends = this.backends;
+        int size = backends.size();
+        if (size == 0) return null;
+
+        long now = now();
+        long slowStart = settings.slowStartWindow().toNanos();
+        int start = Math.floorMod(cursor.getAndIncrement(), size);
+        Backend fallback = null;
+
+        for (int i = 0; i < size; i++) {
+            Backend b = backends.get((start + i) % size);
+            if (!b.isAvailable(now) || !accept.test(b)) continue;
+
+            double weight = b.weight(now, slowStart, settings.slowStartMinWeight());
+            if (weight >= 1.0 || ThreadLocalRandom.current().nextDouble() < weight) {
+                return b;
+            }
+            if (fallback == null) fallback = b;
+        }
+        // Only ramping backends are left; use one rather than fail the request
+        return fallback;
+    }
+
+    /**
+     * Sends one health check to every backend. Results are applied asynchronously.
+     * Backends that do not host the health service are treated as healthy.
+     */
+    void probeAll() {
+        HealthCheckRequest request = HealthCheckRequest.getDefaultInstance();
+        for (Backend b : this.backends) {
+            HealthGrpc.newStub(b.getChannel())
+                    .withDeadlineAfter(settings.probeTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                    .check(request, new StreamObserver<HealthCheckResponse>() {
+                        @Override
+                        public void onNext(HealthCheckResponse value) {
+                            boolean serving = value.getStatus() == HealthCheckResponse.ServingStatus.SERVING;
+                            applyProbe(b, serving);
+                        }
+
+                        @Override
+                        public void onError(Throwable t) {
+                            boolean unimplemented = Status.fromThrowable(t).getCode() == Status.Code.UNIMPLEMENTED;
+                            applyProbe(b, unimplemented);
+                        }
+
+                        @Override
+                        public void onCompleted() {
+                        }
+                    });
+        }
+    }
+
+    private void applyProbe(Backend b, boolean serving) {
+        boolean wasHealthy = b.isProbeHealthy();
+        b.onProbeResult(serving, now(), settings.unhealthyThreshold(), settings.healthyThreshold());
+        if (wasHealthy != b.isProbeHealthy()) {
+            System.out.println("Frontend: " + b + " is now " + (serving ? "healthy" : "unhealthy"));
+        }
+    }
+
+    /**
+     * Runs one round of passive outlier detection over the statistics gathered since the last round.
+     * A backend is ejected if its failure rate exceeds the threshold, or if its mean latency is
+     * several times the pool median. No more than the configured percentage of the pool is ejected.
+     */
+    void detectOutliers() {
+        List<Backend> backends = this.backends;
+        long now = now();
+        int size = backends.size();
+        long[][] stats = new long[size][];
+        List<Double> meanLatencies = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            stats[i] = backends.get(i).drainStats();
+            if (stats[i][0] >= settings.minRequests()) {
+                meanLatencies.add((double) stats[i][2] / stats[i][0]);
+            }
+        }
+
+        double median = 0;
+        if (meanLatencies.size() >= 2) {
+            Collections.sort(meanLatencies);
+            median = meanLatencies.get(meanLatencies.size() / 2);
+        }
+
+        int ejectedCount = 0;
+        for (Backend b : backends) {
+            if (b.isEjected(now)) ejectedCount++;
+        }
+        int maxEjected = size * settings.maxEjectionPercent() / 100;
+        long minOutlier = settings.minOutlierLatency().toNanos();
+
+        for (int i = 0; i < size; i++) {
+            Backend b = backends.get(i);
+            long calls = stats[i][0];
+            boolean outlier = false;
+
+            if (!b.isEjected(now) && calls >= settings.minRequests()) {
+                double failureRate = (double) stats[i][1] / calls;
+                double meanLatency = (double) stats[i][2] / calls;
+                if (failureRate > settings.maxFailureRate()) {
+                    outlier = true;
+                } else if (median > 0 && meanLatency > minOutlier
+                        && meanLatency > median * settings.latencyOutlierFactor()) {
+                    outlier = true;
+                }
+            }
+
+            if (outlier && ejectedCount < maxEjected) {
+                b.eject(now, settings.baseEjectionTime().toNanos(), settings.maxEjectionMultiplier());
+                ejectedCount++;
+                System.out.println("Frontend: Ejected outlier " + b);
+            } else {
+                b.onCleanInterval(now);
+            }
+        }
+    }
+}
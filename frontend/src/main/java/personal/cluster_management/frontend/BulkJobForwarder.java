@@ -0,0 +1,324 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import personal.cluster_management.proto.DistributedJobServiceGrpc;
+import personal.cluster_management.proto.JobAck;
+import personal.cluster_management.proto.JobBatch;
+import personal.cluster_management.proto.JobRequest;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Handles one client's SubmitJobs stream.
+ *
+ * Jobs go through the {@link JobDispatcher} like unary submissions: they wait in its admission
+ * queue, then take a slot and their resources on the backend it places them on (the owner of
+ * their tmux session, if they name one). Jobs placed together are regrouped into one
+ * {@link JobBatch} per backend, which is sent over a single SubmitJobs stream to that backend.
+ * Backend acknowledgements are relayed back to the client. The backend also reports when each
+ * job is done, and only then are its slot and resources given back.
+ *
+ * The client stream is flow controlled: the next client batch is only requested once the last
+ * one has left the queue and every backend stream can take more, so busy or slow backends slow
+ * the client instead of filling the queue and the heap.
+ */
+public class BulkJobForwarder implements StreamObserver<JobBatch> {
+
+    public static final int MAX_BATCH_SIZE = 256;
+
+    private final BackendPool pool;
+    private final SessionRouter sessions;
+    private final JobDispatcher dispatcher;
+    private final String user;
+    private final JobPriority priority;
+    private final StreamObserver<JobAck> client;
+    private final ServerCallStreamObserver<JobAck> flowControlledClient;
+
+    // All state below is guarded by this
+    private final Map<Backend, Outbound> outbound = new LinkedHashMap<>();
+    private int queued = 0; // Jobs still in the dispatcher's queue
+    private int unacknowledged = 0; // Jobs queued or sent whose acknowledgement the client has not had
+    private boolean clientDone = false;
+    private boolean waitingForReady = false;
+    private boolean terminated = false;
+
+    /**
+     * One SubmitJobs stream to a backend.
+     */
+    private final class Outbound implements ClientResponseObserver<JobBatch, JobAck> {
+        final Backend backend;
+        final long startNanos = pool.now();
+        // Resources of the jobs sent but not acknowledged, then accepted but not done, by job id
+        final Map<String, ArrayDeque<Resources>> unacked = new HashMap<>();
+        final Map<String, ArrayDeque<Resources>> running = new HashMap<>();
+        JobBatch.Builder pending = JobBatch.newBuilder().setReportDone(true);
+        ClientCallStreamObserver<JobBatch> requestStream;
+        boolean firstAck = true;
+        boolean closed = false;
+        boolean finished = false;
+
+        Outbound(Backend backend) {
+            this.backend = backend;
+        }
+
+        @Override
+        public void beforeStart(ClientCallStreamObserver<JobBatch> requestStream) {
+            this.requestStream = requestStream;
+            requestStream.setOnReadyHandler(BulkJobForwarder.this::onBackendReady);
+        }
+
+        void add(JobRequest job, Resources resources) {
+            pending.addJobs(job);
+            unacked.computeIfAbsent(job.getJobId(), id -> new ArrayDeque<>(1)).add(resources);
+            if (pending.getJobsCount() >= MAX_BATCH_SIZE) flush();
+        }
+
+        void flush() {
+            if (pending.getJobsCount() == 0 || finished) return;
+            requestStream.onNext(pending.build());
+            pending = JobBatch.newBuilder().setReportDone(true);
+        }
+
+        void close() {
+            if (closed || finished) return;
+            closed = true;
+            flush();
+            requestStream.onCompleted();
+        }
+
+        @Override
+        public void onNext(JobAck ack) {
+            synchronized (BulkJobForwarder.this) {
+                if (firstAck) {
+                    firstAck = false;
+                    backend.recordResult(false, pool.now() - startNanos);
+                }
+                if (ack.getDone()) {
+                    Resources resources = take(running, ack.getJobId());
+                    if (resources != null) dispatcher.bulkFinished(backend, resources, true);
+                    return;
+                }
+                Resources resources = take(unacked, ack.getJobId());
+                if (resources == null) return;
+                if (ack.getAccepted()) {
+                    running.computeIfAbsent(ack.getJobId(), id -> new ArrayDeque<>(1)).add(resources);
+                    dispatcher.bulkAccepted(backend, resources);
+                    dispatcher.getLocations().record(ack.getJobId(), backend.getAddress());
+                } else {
+                    dispatcher.bulkFinished(backend, resources, false);
+                }
+                acknowledge(ack.getMessage().isEmpty() ? ack.toBuilder().setMessage(backend.getAddress()).build() : ack);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            synchronized (BulkJobForwarder.this) {
+                backend.recordResult(Backend.isBackendFault(Status.fromThrowable(t).getCode()), pool.now() - startNanos);
+                finish("Backend " + backend.getAddress() + " failed: " + t.getMessage());
+            }
+        }
+
+        @Override
+        public void onCompleted() {
+            synchronized (BulkJobForwarder.this) {
+                finish("Backend " + backend.getAddress() + " closed the stream without acknowledging the job");
+            }
+        }
+
+        private void finish(String reason) {
+            finished = true;
+            // Anything the backend did not acknowledge is reported as rejected
+            unacked.forEach((jobId, requests) -> requests.forEach(resources -> {
+                dispatcher.bulkFinished(backend, resources, false);
+                acknowledge(reject(jobId, reason));
+            }));
+            unacked.clear();
+            // Whether accepted jobs still run is unknown; their slots are freed so dispatching goes on
+            running.values().forEach(requests -> requests.forEach(resources -> dispatcher.bulkFinished(backend, resources, true)));
+            running.clear();
+            onBackendReady();
+        }
+    }
+
+    /**
+     * @param pool The backends to forward to.
+     * @param sessions Routes jobs that name a tmux session.
+     * @param dispatcher Queues the jobs and places them on backends.
+     * @param user The submitting user, for fair sharing of the queue.
+     * @param priority The priority of every job in the stream.
+     * @param client The client's acknowledgement stream.
+     */
+    public BulkJobForwarder(BackendPool pool, SessionRouter sessions, JobDispatcher dispatcher,
+                            String user, JobPriority priority, StreamObserver<JobAck> client) {
+        this.pool = pool;
+        this.sessions = sessions;
+        this.dispatcher = dispatcher;
+        this.user = user;
+        this.priority = priority;
+        this.client = client;
+
+        if (client instanceof ServerCallStreamObserver<JobAck> serverObserver) {
+            this.flowControlledClient = serverObserver;
+            serverObserver.disableAutoRequest();
+            serverObserver.request(1);
+        } else {
+            this.flowControlledClient = null;
+        }
+    }
+
+    @Override
+    public synchronized void onNext(JobBatch batch) {
+        if (terminated) return;
+        if (!pool.hasAvailable()) {
+            for (JobRequest job : batch.getJobsList()) {
+                sendAck(reject(job.getJobId(), "No backend servers available"));
+            }
+            requestMoreIfReady();
+            return;
+        }
+        for (JobRequest job : batch.getJobsList()) {
+            Backend pinned = null;
+            String sessionName = job.getTmuxSessionName();
+            if (!sessionName.isEmpty()) {
+                pinned = sessions.route(sessionName);
+                if (pinned == null || !pinned.isAvailable(pool.now())) {
+                    sendAck(reject(job.getJobId(), "No backend servers available"));
+                    continue;
+                }
+            }
+            Status admitted = dispatcher.queueBulk(job, user, priority, pinned, this);
+            if (!admitted.isOk()) {
+                sendAck(reject(job.getJobId(), admitted.getDescription()));
+                continue;
+            }
+            queued++;
+            unacknowledged++;
+        }
+
+        // Sends what fits now, one message per backend; the rest waits for slots
+        dispatcher.dispatchQueued();
+        requestMoreIfReady();
+    }
+
+    /**
+     * Called by the dispatcher when one of this stream's jobs got a slot on a backend. The job is
+     * sent on the next {@link #flush()}.
+     * @param job The job.
+     * @param backend The backend whose slot it holds.
+     * @param resources The resources reserved for it there.
+     */
+    synchronized void send(JobRequest job, Backend backend, Resources resources) {
+        queued--;
+        Outbound stream = terminated ? null : outbound.computeIfAbsent(backend, this::open);
+        if (stream == null || stream.finished || stream.closed) {
+            dispatcher.bulkFinished(backend, resources, false);
+            acknowledge(reject(job.getJobId(), "Backend " + backend.getAddress() + " is no longer accepting jobs"));
+        } else {
+            stream.add(job, resources);
+        }
+        if (queued == 0) requestMoreIfReady();
+    }
+
+    /**
+     * Called by the dispatcher when one of this stream's jobs left its queue without being sent.
+     */
+    synchronized void reject(JobRequest job, String reason) {
+        queued--;
+        acknowledge(reject(job.getJobId(), reason));
+        if (queued == 0) requestMoreIfReady();
+    }
+
+    /**
+     * Sends the jobs passed to {@link #send} since the last flush.
+     */
+    synchronized void flush() {
+        for (Outbound stream : outbound.values()) {
+            stream.flush();
+        }
+    }
+
+    private Outbound open(Backend backend) {
+        Outbound stream = new Outbound(backend);
+        // Not cancelled with the client's call: the backends still report the jobs done after it ends
+        Context.current().fork().run(() -> DistributedJobServiceGrpc.newStub(backend.getChannel()).submitJobs(stream));
+        return stream;
+    }
+
+    @Override
+    public synchronized void onError(Throwable t) {
+        // The client went away. Queued jobs are dropped; those already sent keep running.
+        terminated = true;
+        dispatcher.cancelBulk(this);
+        queued = 0;
+        for (Outbound stream : outbound.values()) {
+            stream.close();
+        }
+    }
+
+    @Override
+    public synchronized void onCompleted() {
+        clientDone = true;
+        maybeComplete();
+    }
+
+    private void requestMoreIfReady() {
+        if (flowControlledClient == null || clientDone || terminated) return;
+        if (queued > 0) {
+            waitingForReady = true;
+            return;
+        }
+        for (Outbound stream : outbound.values()) {
+            if (!stream.finished && !stream.requestStream.isReady()) {
+                waitingForReady = true;
+                return;
+            }
+        }
+        waitingForReady = false;
+        flowControlledClient.request(1);
+    }
+
+    private synchronized void onBackendReady() {
+        if (waitingForReady) requestMoreIfReady();
+    }
+
+    private void acknowledge(JobAck ack) {
+        unacknowledged--;
+        sendAck(ack);
+        maybeComplete();
+    }
+
+    private void maybeComplete() {
+        if (!clientDone || terminated || unacknowledged > 0) return;
+        terminated = true;
+        client.onCompleted();
+        // Every job was acknowledged; the backend streams end once they report the last ones done
+        for (Outbound stream : outbound.values()) {
+            stream.close();
+        }
+    }
+
+    private void sendAck(JobAck ack) {
+        if (!terminated) client.onNext(ack);
+    }
+
+    private static Resources take(Map<String, ArrayDeque<Resources>> byJob, String jobId) {
+        ArrayDeque<Resources> requests = byJob.get(jobId);
+        if (requests == null) return null;
+        Resources resources = requests.poll();
+        if (requests.isEmpty()) byJob.remove(jobId);
+        return resources;
+    }
+
+    private static JobAck reject(String jobId, String reason) {
+        return JobAck.newBuilder().setJobId(jobId).setAccepted(false).setMessage(reason).build();
+    }
+}
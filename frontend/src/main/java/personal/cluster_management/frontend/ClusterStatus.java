@@ -0,0 +1,104 @@
+package personal.cluster_management.frontend;
+
+import personal.cluster_management.proto.ServerInfo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The last status each backend reported, numbered with a generation that grows whenever any of it changes,
+ * so callers polling getStatus can ask only for what changed since the generation they last saw.
+ *
+ * A backend that did not answer keeps its last status. A backend that left the healthy pool is remembered
+ * as removed, for the last {@link #MAX_REMOVED} removals; callers that fell further behind get everything.
+ */
+public final class ClusterStatus {
+
+    public static final int MAX_REMOVED = 1024;
+
+    /**
+     * What changed after a generation.
+     * @param generation The current generation.
+     * @param complete True if servers lists every server, and the caller should replace its view with it
+     *                 rather than apply it as changes.
+     * @param servers The servers that changed, or every server if complete.
+     * @param removedHostNames Host names of servers that left since, if not complete.
+     */
+    public record Changes(long generation, boolean complete, List<ServerInfo> servers, List<String> removedHostNames) {
+        public boolean isEmpty() {
+            return !complete && servers.isEmpty() && removedHostNames.isEmpty();
+        }
+    }
+
+    private record Entry(List<ServerInfo> servers, long generation) {}
+
+    private final Map<String, Entry> entries = new HashMap<>(); // Backend address -> last status
+    private final LinkedHashMap<String, Entry> removed = new LinkedHashMap<>(); // Oldest removal first
+    private long generation;
+    private long horizon; // Changes at or before this generation may have been forgotten
+
+    /**
+     * Records the statuses backends just reported and forgets backends that are no longer available.
+     * @param available Addresses of every healthy backend, whether it was asked or not.
+     * @param replies Servers reported by each backend that answered, by address.
+     * @return The generation after the update.
+     */
+    public synchronized long update(Collection<String> available, Map<String, List<ServerInfo>> replies) {
+        long next = generation + 1;
+        boolean changed = false;
+        Set<String> healthy = new HashSet<>(available);
+        for (var it = entries.entrySet().iterator(); it.hasNext(); ) {
+            var entry = it.next();
+            if (healthy.contains(entry.getKey())) continue;
+            it.remove();
+            removed.remove(entry.getKey());
+            removed.put(entry.getKey(), new Entry(entry.getValue().servers(), next));
+            changed = true;
+        }
+        for (Map.Entry<String, List<ServerInfo>> reply : replies.entrySet()) {
+            Entry last = entries.get(reply.getKey());
+            if (last != null && last.servers().equals(reply.getValue())) continue;
+            entries.put(reply.getKey(), new Entry(List.copyOf(reply.getValue()), next));
+            removed.remove(reply.getKey());
+            changed = true;
+        }
+        while (removed.size() > MAX_REMOVED) {
+            var oldest = removed.entrySet().iterator();
+            horizon = Math.max(horizon, oldest.next().getValue().generation());
+            oldest.remove();
+        }
+        if (changed) generation = next;
+        return generation;
+    }
+
+    /**
+     * @param since A generation the caller saw, or 0 if it has seen none.
+     */
+    public synchronized Changes since(long since) {
+        // A generation from before the horizon, or from another frontend, cannot be diffed against
+        boolean complete = since == 0 || since < horizon || since > generation;
+        List<ServerInfo> servers = new ArrayList<>();
+        for (Entry entry : new TreeMap<>(entries).values()) {
+            if (complete || entry.generation() > since) servers.addAll(entry.servers());
+        }
+        List<String> removedHostNames = new ArrayList<>();
+        if (!complete) {
+            for (Entry entry : removed.values()) {
+                if (entry.generation() <= since) continue;
+                entry.servers().forEach(server -> removedHostNames.add(server.getHostName()));
+            }
+        }
+        return new Changes(generation, complete, servers, removedHostNames);
+    }
+
+    public synchronized long getGeneration() {
+        return generation;
+    }
+}
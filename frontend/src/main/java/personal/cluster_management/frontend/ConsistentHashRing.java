@@ -0,0 +1,107 @@
+package personal.cluster_management.frontend;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Immutable consistent-hash ring over a set of backends.
+ * Each backend is placed on the ring at several virtual points so keys spread evenly.
+ * When a backend joins or leaves, only the keys in its arcs move to another backend.
+ */
+public class ConsistentHashRing {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final long[] points;
+    private final Backend[] owners;
+    private final int memberCount;
+
+    public ConsistentHashRing(List<Backend> backends) {
+        this(backends, DEFAULT_VIRTUAL_NODES);
+    }
+
+    public ConsistentHashRing(List<Backend> backends, int virtualNodes) {
+        int n = backends.size() * virtualNodes;
+        long[][] entries = new long[n][];
+        int k = 0;
+        for (int b = 0; b < backends.size(); b++) {
+            String address = backends.get(b).getAddress();
+            for (int v = 0; v < virtualNodes; v++) {
+                entries[k++] = new long[]{hash(address + "#" + v), b};
+            }
+        }
+        Arrays.sort(entries, (x, y) -> Long.compareUnsigned(x[0], y[0]));
+
+        this.points = new long[n];
+        this.owners = new Backend[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = entries[i][0];
+            owners[i] = backends.get((int) entries[i][1]);
+        }
+        this.memberCount = backends.size();
+    }
+
+    public boolean isEmpty() {
+        return memberCount == 0;
+    }
+
+    /**
+     * Finds the backend that owns a key.
+     * @param key The key to place (e.g. a tmux session name).
+     * @return The owning backend, or null if the ring is empty.
+     */
+    public Backend locate(String key) {
+        return locate(key, b -> true);
+    }
+
+    /**
+     * Finds the first backend clockwise from a key that satisfies a condition.
+     * Used to skip unavailable backends without changing the ring.
+     * @param key The key to place.
+     * @param accept Condition the chosen backend must satisfy.
+     * @return The chosen backend, or null if none is accepted.
+     */
+    public Backend locate(String key, Predicate<Backend> accept) {
+        if (points.length == 0) return null;
+        int start = successor(hash(key));
+        Backend rejected = null;
+        for (int i = 0; i < points.length; i++) {
+            Backend candidate = owners[(start + i) % points.length];
+            // Consecutive points often share an owner; test each owner once per run
+            if (candidate == rejected) continue;
+            if (accept.test(candidate)) return candidate;
+            rejected = candidate;
+        }
+        return null;
+    }
+
+    private int successor(long h) {
+        int lo = 0, hi = points.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Long.compareUnsigned(points[mid], h) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo == points.length ? 0 : lo;
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes, followed by the MurmurHash3 finaliser
+     * to spread similar keys (e.g. "session-1", "session-2") across the ring.
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= (b & 0xff);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,60 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.ServerCallStreamObserver;
+
+/**
+ * Relays a backend's response stream to a client, one message at a time.
+ *
+ * The next message is only requested from the backend once the client can take it,
+ * so a slow client slows the backend down instead of filling the frontend's heap.
+ * @param <ReqT> The request type.
+ * @param <RespT> The streamed response type.
+ */
+public class FlowControlledRelay<ReqT, RespT> implements ClientResponseObserver<ReqT, RespT> {
+
+    private final ServerCallStreamObserver<RespT> client;
+    private ClientCallStreamObserver<ReqT> backend;
+
+    // Guarded by this: a backend message is owed once the client becomes ready
+    private boolean waitingForClient = false;
+
+    public FlowControlledRelay(ServerCallStreamObserver<RespT> client) {
+        this.client = client;
+    }
+
+    @Override
+    public void beforeStart(ClientCallStreamObserver<ReqT> requestStream) {
+        this.backend = requestStream;
+        requestStream.disableAutoRequestWithInitial(1);
+        client.setOnReadyHandler(this::onClientReady);
+        client.setOnCancelHandler(() -> requestStream.cancel("Client cancelled", null));
+    }
+
+    @Override
+    public void onNext(RespT value) {
+        client.onNext(value);
+        synchronized (this) {
+            if (client.isReady()) backend.request(1);
+            else waitingForClient = true;
+        }
+    }
+
+    private synchronized void onClientReady() {
+        if (waitingForClient && client.isReady()) {
+            waitingForClient = false;
+            backend.request(1);
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        client.onError(t);
+    }
+
+    @Override
+    public void onCompleted() {
+        client.onCompleted();
+    }
+}
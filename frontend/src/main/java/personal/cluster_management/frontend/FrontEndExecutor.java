@@ -0,0 +1,114 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.ServerBuilder;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The executor that runs the frontend's gRPC handlers and backend stub callbacks.
+ *
+ * The mode is read from the {@code frontend.executor} system property:
+ * <ul>
+ *     <li>{@code virtual} (default): one virtual thread per task, so handlers that block
+ *     (getStatus waits for every backend) cost no platform thread.</li>
+ *     <li>{@code fixed}: a fixed pool of platform threads, sized by {@code frontend.executor.threads}.</li>
+ *     <li>{@code direct}: no executor; callbacks run on the transport threads. Cheapest,
+ *     but a blocking handler stalls every call sharing that transport thread.</li>
+ * </ul>
+ */
+public final class FrontEndExecutor implements AutoCloseable {
+
+    public static final String MODE_PROPERTY = "frontend.executor";
+    public static final String THREADS_PROPERTY = "frontend.executor.threads";
+
+    public enum Mode {
+        VIRTUAL, FIXED, DIRECT;
+
+        /**
+         * @param value A mode name, in any case, or null for the default.
+         * @return The matching mode; {@link #VIRTUAL} if value is null or blank.
+         * @throws IllegalArgumentException If value names no mode.
+         */
+        public static Mode parse(String value) {
+            if (value == null || value.isBlank()) return VIRTUAL;
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown executor mode '" + value + "', expected virtual, fixed or direct");
+            }
+        }
+    }
+
+    private final Mode mode;
+    private final ExecutorService executor; // null in direct mode
+
+    /**
+     * @param mode The execution mode.
+     * @param threads Pool size in {@link Mode#FIXED} mode; ignored otherwise.
+     */
+    public FrontEndExecutor(Mode mode, int threads) {
+        this.mode = mode;
+        this.executor = switch (mode) {
+            case VIRTUAL -> Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("frontend-virtual-", 0).factory());
+            case FIXED -> Executors.newFixedThreadPool(threads, daemonThreads("frontend-worker-"));
+            case DIRECT -> null;
+        };
+    }
+
+    /**
+     * Reads the mode and pool size from the system properties.
+     * The fixed pool defaults to four threads per core, since getStatus blocks its thread.
+     */
+    public static FrontEndExecutor fromSystemProperties() {
+        Mode mode = Mode.parse(System.getProperty(MODE_PROPERTY));
+        int threads = Integer.getInteger(THREADS_PROPERTY, 4 * Runtime.getRuntime().availableProcessors());
+        return new FrontEndExecutor(mode, threads);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Makes the server run its handlers on this executor.
+     */
+    public void configure(ServerBuilder<?> builder) {
+        if (executor == null) builder.directExecutor();
+        else builder.executor(executor);
+    }
+
+    /**
+     * Makes a backend channel run its stub callbacks on this executor.
+     * In fixed mode callbacks run directly on the transport thread instead: getStatus handlers
+     * block pool threads until those callbacks arrive, so sharing the pool could starve it.
+     * The callbacks only relay responses and never block.
+     */
+    public void configure(ManagedChannelBuilder<?> builder) {
+        if (executor == null || mode == Mode.FIXED) builder.directExecutor();
+        else builder.executor(executor);
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) executor.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return mode.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + count.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
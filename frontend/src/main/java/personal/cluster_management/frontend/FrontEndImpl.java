@@ -2,31 +2,91 @@ package personal.cluster_management.frontend;
 
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
+import personal.cluster_management.compression.MessageCompression;
 import personal.cluster_management.proto.*;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Implementation of the Frontend Service.
  * Acts as a middle-man/load-balancer between Client and Backend Servers.
- *
- * ASSUMPTION: The DistributedJob.proto defines a service named 'DistributedJobService'.
+ * Backends are held in a health-checked {@link BackendPool}; unhealthy backends are skipped.
+ * Requests naming a tmux session are routed to the backend that owns it via {@link SessionRouter}.
+ * Jobs are admitted through a {@link JobDispatcher}, so busy backends are not oversubscribed.
+ * Requests about a job that was already sent are routed to its backend via {@link JobLocations}.
+ * When run as one of several {@link FrontEndReplica}s, only the leader accepts writes.
  */
 public class FrontEndImpl extends DistributedJobServiceGrpc.DistributedJobServiceImplBase {
 
-    private final List<ManagedChannel> backendChannels;
+    private static final long STATUS_TIMEOUT_SECONDS = 5;
+
+    private final BackendPool pool;
+    private final SessionRouter sessions;
+    private final JobDispatcher dispatcher;
+    private final ClusterStatus status = new ClusterStatus();
+    private volatile JobDeduplicator deduplicator;
+    private volatile FrontEndReplica replica;
 
     public FrontEndImpl(String[] backendAddresses) {
-        this.backendChannels = new ArrayList<>();
+        this(backendAddresses, null);
+    }
+
+    /**
+     * @param backendAddresses The backends to connect to.
+     * @param executor Runs backend stub callbacks, or null for gRPC's default executor.
+     */
+    public FrontEndImpl(String[] backendAddresses, FrontEndExecutor executor) {
+        this(backendAddresses, executor, null);
+    }
+
+    /**
+     * @param backendAddresses The backends to connect to.
+     * @param executor Runs backend stub callbacks, or null for gRPC's default executor.
+     * @param compression Compresses messages to and from the backends, or null for none.
+     */
+    public FrontEndImpl(String[] backendAddresses, FrontEndExecutor executor, MessageCompression compression) {
+        List<Backend> backends = new ArrayList<>();
         for (String address : backendAddresses) {
-            backendChannels.add(ManagedChannelBuilder.forTarget(address)
-                    .usePlaintext()
-                    .build());
+            backends.add(new Backend(address, connect(address, executor, compression)));
         }
+        this.pool = new BackendPool(backends);
+        this.pool.start();
+        this.sessions = new SessionRouter(pool);
+        this.sessions.start();
+        this.dispatcher = new JobDispatcher(pool);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Opens a plaintext channel to a backend.
+     * @param address The backend's host:port.
+     * @param executor Runs stub callbacks, or null for gRPC's default executor.
+     */
+    public static ManagedChannel connect(String address, FrontEndExecutor executor) {
+        return connect(address, executor, null);
+    }
+
+    /**
+     * Opens a plaintext channel to a backend.
+     * @param address The backend's host:port.
+     * @param executor Runs stub callbacks, or null for gRPC's default executor.
+     * @param compression Compresses large messages, or null for none.
+     */
+    public static ManagedChannel connect(String address, FrontEndExecutor executor, MessageCompression compression) {
+        ManagedChannelBuilder<?> channelBuilder = ManagedChannelBuilder.forTarget(address).usePlaintext();
+        if (executor != null) executor.configure(channelBuilder);
+        if (compression != null) compression.configure(channelBuilder);
+        return channelBuilder.build();
     }
 
     /**
@@ -34,60 +94,162 @@ public class FrontEndImpl extends DistributedJobServiceGrpc.DistributedJobServic
      * @param backendChannels List of pre-configured channels.
      */
     public FrontEndImpl(List<ManagedChannel> backendChannels) {
-        this.backendChannels = backendChannels;
+        List<Backend> backends = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (ManagedChannel channel : backendChannels) {
+            // Channels may share an authority (in-process channels are all "localhost")
+            String name = channel.authority();
+            if (!names.add(name)) {
+                name = name + "/" + backends.size();
+                names.add(name);
+            }
+            backends.add(new Backend(name, channel));
+        }
+        this.pool = new BackendPool(backends);
+        this.pool.start();
+        this.sessions = new SessionRouter(pool);
+        this.sessions.start();
+        this.dispatcher = new JobDispatcher(pool);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Constructor for dependency injection of a pre-configured pool.
+     * The caller is responsible for starting the pool's health checks.
+     * @param pool The backend pool to route requests to.
+     */
+    public FrontEndImpl(BackendPool pool) {
+        this(pool, new JobDispatcher(pool));
+    }
+
+    /**
+     * Constructor for dependency injection of a pre-configured pool and dispatcher.
+     * The dispatcher is started here and shut down with this frontend.
+     * @param pool The backend pool to route requests to.
+     * @param dispatcher The admission queue for submitted jobs, dispatching to the same pool.
+     */
+    public FrontEndImpl(BackendPool pool, JobDispatcher dispatcher) {
+        this.pool = pool;
+        this.sessions = new SessionRouter(pool);
+        this.sessions.start();
+        this.dispatcher = dispatcher;
+        this.dispatcher.start();
+    }
+
+    /**
+     * Turns on deduplication of identical submitted jobs.
+     * @param deduplicator The deduplicator, or null to turn deduplication off.
+     */
+    public void setDeduplicator(JobDeduplicator deduplicator) {
+        this.deduplicator = deduplicator;
+    }
+
+    /**
+     * Makes this frontend one replica of several; writes are then refused unless it is the leader.
+     * @param replica The replica, or null for a standalone frontend.
+     */
+    public void setReplica(FrontEndReplica replica) {
+        this.replica = replica;
+    }
+
+    /**
+     * Stops background health checking, session rebalancing and dispatching on membership changes.
+     */
+    public void shutdown() {
+        sessions.shutdown();
+        dispatcher.shutdown();
+        pool.shutdown();
     }
 
     @Override
     public void submitJob(JobRequest request, StreamObserver<JobStatusResponse> responseObserver) {
         System.out.println("Frontend: Received Job Request " + request.getJobId());
+        if (rejectIfFollower(responseObserver)) return;
 
-        // Strategy: Simple Round Robin or Random pick could be used here.
-        // For demonstration, we pick the first backend server available.
-        if (backendChannels.isEmpty()) {
-            responseObserver.onError(new RuntimeException("No backend servers available"));
+        if (!pool.hasAvailable()) {
+            responseObserver.onError(noBackendsAvailable());
             return;
         }
 
-        ManagedChannel channel = backendChannels.get(0); // Pick first for now
-        DistributedJobServiceGrpc.DistributedJobServiceStub stub = DistributedJobServiceGrpc.newStub(channel);
-
-        // Forward the request to the backend
-        stub.submitJob(request, new StreamObserver<JobStatusResponse>() {
-            @Override
-            public void onNext(JobStatusResponse value) {
-                responseObserver.onNext(value);
+        // Jobs in a tmux session must run where the session lives; others go to any free backend
+        String sessionName = request.getTmuxSessionName();
+        Backend pinned = null;
+        if (!sessionName.isEmpty()) {
+            pinned = sessions.route(sessionName);
+            if (pinned == null) {
+                responseObserver.onError(noBackendsAvailable());
+                return;
             }
-
-            @Override
-            public void onError(Throwable t) {
-                responseObserver.onError(t);
+            if (!pinned.isAvailable(pool.now())) {
+                responseObserver.onError(sessionOwnerUnavailable(sessionName, pinned));
+                return;
             }
+        }
 
-            @Override
-            public void onCompleted() {
-                responseObserver.onCompleted();
-            }
-        });
+        // Submitting user and priority come from the request metadata (see HeaderFrontEndInterceptor)
+        String user = HeaderFrontEndInterceptor.USER.get();
+        JobPriority priority = HeaderFrontEndInterceptor.PRIORITY.get();
+        Backend target = pinned;
+        JobDeduplicator dedup = deduplicator;
+        if (dedup != null) {
+            dedup.submit(request, user, responseObserver, (job, observer) -> dispatcher.submit(job, user, priority, target, observer));
+        } else {
+            dispatcher.submit(request, user, priority, pinned, responseObserver);
+        }
+    }
+
+    @Override
+    public StreamObserver<JobBatch> submitJobs(StreamObserver<JobAck> responseObserver) {
+        System.out.println("Frontend: Opened bulk job submission stream");
+        if (rejectIfFollower(responseObserver)) {
+            return new StreamObserver<>() {
+                @Override
+                public void onNext(JobBatch value) {}
+                @Override
+                public void onError(Throwable t) {}
+                @Override
+                public void onCompleted() {}
+            };
+        }
+
+        // Jobs share the dispatcher's queue and slots, then are regrouped into one stream per backend
+        return new BulkJobForwarder(pool, sessions, dispatcher,
+                HeaderFrontEndInterceptor.USER.get(), HeaderFrontEndInterceptor.PRIORITY.get(), responseObserver);
     }
 
     @Override
     public void getStatus(ServerStatusRequest request, StreamObserver<ServerStatusResponse> responseObserver) {
-        System.out.println("Frontend: Received Status Request. Broadcasting to " + backendChannels.size() + " backends.");
+        StatusQuery query;
+        try {
+            query = StatusQuery.of(request);
+        } catch (IllegalArgumentException e) {
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException());
+            return;
+        }
 
-        ResponseCollector<ServerStatusResponse> collector = new ResponseCollector<>();
-        CountDownLatch latch = new CountDownLatch(backendChannels.size());
+        // Unhealthy backends are skipped instead of being waited on, and only this page's backends are asked
+        StatusQuery.Page page = query.page(pool.available());
+        List<Backend> backends = page.backends();
+        System.out.println("Frontend: Received Status Request. Broadcasting to " + backends.size() + " backends.");
+
+        Map<Backend, ResponseCollector<ServerStatusResponse>> collectors = new LinkedHashMap<>();
+        CountDownLatch latch = new CountDownLatch(backends.size());
+
+        // Broadcast request to all healthy backends. They report every field: the frontend trims,
+        // so the status it remembers for conditional requests is complete.
+        for (Backend backend : backends) {
+            DistributedJobServiceGrpc.DistributedJobServiceStub stub = DistributedJobServiceGrpc.newStub(backend.getChannel())
+                    .withDeadlineAfter(STATUS_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            ResponseCollector<ServerStatusResponse> collector = new ResponseCollector<>();
+            collectors.put(backend, collector);
 
-        // Broadcast request to ALL backends
-        for (ManagedChannel channel : backendChannels) {
-            DistributedJobServiceGrpc.DistributedJobServiceStub stub = DistributedJobServiceGrpc.newStub(channel);
-            
             // Use our custom Observer to collect responses
-            stub.getStatus(request, new FrontEndObserver<>(collector, latch));
+            stub.getStatus(ServerStatusRequest.getDefaultInstance(), new BackendCallObserver<>(backend, pool, new FrontEndObserver<>(collector, latch)));
         }
 
         try {
             // Wait for all backends to reply (or timeout after 5 seconds)
-            boolean completed = latch.await(5, TimeUnit.SECONDS);
+            boolean completed = latch.await(STATUS_TIMEOUT_SECONDS, TimeUnit.SECONDS);
             if (!completed) {
                 System.err.println("Frontend: Timed out waiting for some backend statuses.");
             }
@@ -97,10 +259,30 @@ public class FrontEndImpl extends DistributedJobServiceGrpc.DistributedJobServic
             return;
         }
 
-        // Aggregate results
-        ServerStatusResponse.Builder aggregatedResponse = ServerStatusResponse.newBuilder();
-        for (ServerStatusResponse response : collector.getResponses()) {
-            aggregatedResponse.addAllServers(response.getServersList());
+        // Backends that did not answer keep their last status
+        Map<String, List<ServerInfo>> replies = new LinkedHashMap<>();
+        collectors.forEach((backend, collector) -> {
+            List<ServerStatusResponse> responses = collector.getResponses();
+            if (responses.isEmpty()) return;
+            List<ServerInfo> servers = new ArrayList<>();
+            responses.forEach(response -> servers.addAll(response.getServersList()));
+            replies.put(backend.getAddress(), servers);
+        });
+        long generation = status.update(pool.available().stream().map(Backend::getAddress).toList(), replies);
+
+        // Aggregate results, keeping only the fields the caller asked for
+        ServerStatusResponse.Builder aggregatedResponse = ServerStatusResponse.newBuilder()
+                .setNextPageToken(page.nextPageToken())
+                .setGeneration(generation);
+        if (request.getSinceGeneration() == 0) {
+            replies.values().forEach(servers -> servers.forEach(server -> aggregatedResponse.addServers(query.trim(server))));
+        } else {
+            ClusterStatus.Changes changes = status.since(request.getSinceGeneration());
+            aggregatedResponse.setGeneration(changes.generation())
+                    .setNotModified(changes.isEmpty())
+                    .setComplete(changes.complete())
+                    .addAllRemovedHostNames(changes.removedHostNames());
+            changes.servers().forEach(server -> aggregatedResponse.addServers(query.trim(server)));
         }
 
         responseObserver.onNext(aggregatedResponse.build());
@@ -110,23 +292,173 @@ public class FrontEndImpl extends DistributedJobServiceGrpc.DistributedJobServic
     // Helper for tmux creation
     @Override
     public void createTmuxSession(TmuxCreateRequest request, StreamObserver<JobStatusResponse> responseObserver) {
-        // Similar forwarding logic as submitJob
-        if (backendChannels.isEmpty()) {
-            responseObserver.onError(new RuntimeException("No backend servers available"));
+        if (rejectIfFollower(responseObserver)) return;
+        // Place the session on the ring and pin it, so follow-up requests find it
+        String sessionName = request.getSessionName();
+        Backend backend = sessions.route(sessionName);
+        if (backend == null) {
+            responseObserver.onError(noBackendsAvailable());
+            return;
+        }
+        if (!backend.isAvailable(pool.now())) {
+            responseObserver.onError(sessionOwnerUnavailable(sessionName, backend));
             return;
         }
         
-        // Forwarding to first backend as an example
-        DistributedJobServiceGrpc.DistributedJobServiceStub stub = DistributedJobServiceGrpc.newStub(backendChannels.get(0));
-        stub.createTmuxSession(request, new StreamObserver<JobStatusResponse>() {
+        DistributedJobServiceGrpc.DistributedJobServiceStub stub = DistributedJobServiceGrpc.newStub(backend.getChannel());
+        stub.createTmuxSession(request, new BackendCallObserver<>(backend, pool, new StreamObserver<JobStatusResponse>() {
             @Override
             public void onNext(JobStatusResponse value) {
                 responseObserver.onNext(value);
             }
             @Override
-            public void onError(Throwable t) { responseObserver.onError(t); }
+            public void onError(Throwable t) {
+                // The session was not created; let a retry place it again
+                sessions.forget(sessionName, backend);
+                responseObserver.onError(t);
+            }
             @Override
             public void onCompleted() { responseObserver.onCompleted(); }
-        });
+        }));
+    }
+
+    @Override
+    public void killTmuxSession(TmuxKillRequest request, StreamObserver<JobStatusResponse> responseObserver) {
+        if (rejectIfFollower(responseObserver)) return;
+        String sessionName = request.getSessionName();
+        Backend backend = sessions.owner(sessionName);
+        if (backend == null) {
+            responseObserver.onError(noBackendsAvailable());
+            return;
+        }
+        if (!backend.isAvailable(pool.now())) {
+            responseObserver.onError(sessionOwnerUnavailable(sessionName, backend));
+            return;
+        }
+
+        DistributedJobServiceGrpc.DistributedJobServiceStub stub = DistributedJobServiceGrpc.newStub(backend.getChannel());
+        stub.killTmuxSession(request, new BackendCallObserver<>(backend, pool, new StreamObserver<JobStatusResponse>() {
+            @Override
+            public void onNext(JobStatusResponse value) {
+                responseObserver.onNext(value);
+            }
+            @Override
+            public void onError(Throwable t) { responseObserver.onError(t); }
+            @Override
+            public void onCompleted() {
+                sessions.forget(sessionName, backend);
+                responseObserver.onCompleted();
+            }
+        }));
+    }
+
+    @Override
+    public void killJob(JobKillRequest request, StreamObserver<JobStatusResponse> responseObserver) {
+        if (rejectIfFollower(responseObserver)) return;
+        String jobId = request.getJobId();
+        String target = resolve(jobId);
+        // A job still waiting in the frontend never reached a backend
+        if (dispatcher.killQueued(target)) {
+            responseObserver.onNext(JobStatusResponse.newBuilder()
+                    .setJobId(jobId)
+                    .setStatus(JobStatusResponse.Status.KILLED_BY_USER)
+                    .setMessage("Job " + jobId + " removed from the queue")
+                    .build());
+            responseObserver.onCompleted();
+            return;
+        }
+
+        Backend backend = jobOwner(target, responseObserver);
+        if (backend == null) return;
+        if (!target.equals(jobId)) request = request.toBuilder().setJobId(target).build();
+        DistributedJobServiceGrpc.DistributedJobServiceStub stub = DistributedJobServiceGrpc.newStub(backend.getChannel());
+        stub.killJob(request, new BackendCallObserver<>(backend, pool, responseObserver));
+    }
+
+    @Override
+    public void streamJobLog(JobLogRequest request, StreamObserver<JobLogChunk> responseObserver) {
+        String target = resolve(request.getJobId());
+        Backend backend = jobOwner(target, responseObserver);
+        if (backend == null) return;
+        if (!target.equals(request.getJobId())) request = request.toBuilder().setJobId(target).build();
+
+        // Chunks are pulled from the backend only as fast as the client reads them
+        DistributedJobServiceGrpc.newStub(backend.getChannel())
+                .streamJobLog(request, new FlowControlledRelay<>((ServerCallStreamObserver<JobLogChunk>) responseObserver));
+    }
+
+    /**
+     * @return The job admission queue (exposed for metrics and tests).
+     */
+    public JobDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    /**
+     * @return The session routing table (exposed for tests).
+     */
+    public SessionRouter getSessionRouter() {
+        return sessions;
+    }
+
+    /**
+     * @return The backend pool (exposed for membership updates and tests).
+     */
+    public BackendPool getPool() {
+        return pool;
+    }
+
+    /**
+     * @return The id of the job that actually runs for the given one, which differs if it was deduplicated.
+     */
+    private String resolve(String jobId) {
+        JobDeduplicator dedup = deduplicator;
+        return dedup == null ? jobId : dedup.resolve(jobId);
+    }
+
+    /**
+     * Looks up the backend a job was sent to, reporting to the caller if there is none.
+     * @return The backend, or null after an error was sent.
+     */
+    private Backend jobOwner(String jobId, StreamObserver<?> responseObserver) {
+        String address = dispatcher.getLocations().find(jobId);
+        if (address == null) {
+            responseObserver.onError(Status.NOT_FOUND.withDescription("Unknown job " + jobId).asRuntimeException());
+            return null;
+        }
+        Backend backend = pool.find(address);
+        if (backend == null || !backend.isAvailable(pool.now())) {
+            responseObserver.onError(Status.UNAVAILABLE
+                    .withDescription("Backend " + address + " that ran job " + jobId + " is unavailable")
+                    .asRuntimeException());
+            return null;
+        }
+        return backend;
+    }
+
+    /**
+     * Refuses a write on a follower replica, pointing the caller at the leader.
+     * @return true if an error was sent.
+     */
+    private boolean rejectIfFollower(StreamObserver<?> responseObserver) {
+        FrontEndReplica r = replica;
+        if (r == null || r.isLeader()) return false;
+        String leader = r.getLeaderId();
+        responseObserver.onError(Status.UNAVAILABLE
+                .withDescription(leader == null
+                        ? "Frontend " + r.getId() + " is a follower and no leader is elected yet"
+                        : "Frontend " + r.getId() + " is a follower; send writes to the leader at " + leader)
+                .asRuntimeException());
+        return true;
+    }
+
+    private static RuntimeException noBackendsAvailable() {
+        return Status.UNAVAILABLE.withDescription("No backend servers available").asRuntimeException();
+    }
+
+    private static RuntimeException sessionOwnerUnavailable(String sessionName, Backend backend) {
+        return Status.UNAVAILABLE
+                .withDescription("Backend " + backend.getAddress() + " owning session " + sessionName + " is unavailable")
+                .asRuntimeException();
     }
 }
\ No newline at end of file
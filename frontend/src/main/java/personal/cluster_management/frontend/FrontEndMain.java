@@ -2,29 +2,91 @@ package personal.cluster_management.frontend;
 
 import io.grpc.Server;
 import io.grpc.ServerBuilder;
+import personal.cluster_management.compression.MessageCompression;
 
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
 
 public class FrontEndMain {
 
     private static final int PORT = 9090;
+    private static final int METRICS_PORT = 9464;
+    private static final String BACKENDS_PROPERTY = "frontend.backends";
+    private static final String DEFAULT_BACKENDS = "localhost:50051,localhost:50052";
 
     public static void main(String[] args) throws IOException, InterruptedException {
         System.out.println("Starting Frontend Server on port " + PORT + "...");
 
-        // In a real scenario, these addresses might come from a config file or service discovery
-        String[] backendServers = {
-            "localhost:50051",
-            "localhost:50052"
-        };
+        // Initial backends; more can join and leave at runtime through the membership service
+        String[] backendServers = Arrays.stream(System.getProperty(BACKENDS_PROPERTY, DEFAULT_BACKENDS).split(","))
+                .map(String::trim)
+                .filter(address -> !address.isEmpty())
+                .toArray(String[]::new);
 
-        Server server = ServerBuilder.forPort(PORT)
-                .intercept(new HeaderFrontEndInterceptor())
-                .addService(new FrontEndImpl(backendServers))
-                .build();
+        // Handlers and backend callbacks share one executor, chosen with -Dfrontend.executor
+        FrontEndExecutor executor = FrontEndExecutor.fromSystemProperties();
+        System.out.println("Using " + executor + " executor.");
+
+        // Large messages to backends and clients are compressed, chosen with -Dcluster.compression
+        MessageCompression compression = MessageCompression.fromSystemProperties();
+        System.out.println("Using " + compression + " compression.");
+
+        HeaderFrontEndInterceptor interceptor = new HeaderFrontEndInterceptor();
+        FrontEndImpl frontend = new FrontEndImpl(backendServers, executor, compression);
+
+        // Identical jobs run once when -Dfrontend.dedup=true
+        JobDeduplicator deduplicator = JobDeduplicator.fromSystemProperties();
+        frontend.setDeduplicator(deduplicator);
+        List<Consumer<StringBuilder>> metricSources = new ArrayList<>(List.of(interceptor::writeMetrics, frontend.getDispatcher()::writeMetrics));
+        if (deduplicator != null) {
+            System.out.println("Deduplicating identical jobs.");
+            metricSources.add(deduplicator::writeMetrics);
+        }
+
+        // Jobs with resource requests are placed using each backend's reported headroom
+        ResourceMonitor resources = new ResourceMonitor(frontend.getPool(), frontend.getDispatcher()::resourcesChanged);
+        resources.start(Long.getLong(ResourceMonitor.INTERVAL_PROPERTY, ResourceMonitor.DEFAULT_INTERVAL_MILLIS));
+
+        // With -Dfrontend.replica.peers, this frontend is one of several replicas and only the leader takes writes;
+        // each replica saves its Raft state under -Dfrontend.replica.dataDir
+        FrontEndReplica replica = FrontEndReplica.fromSystemProperties(frontend, executor);
+        if (replica != null) {
+            System.out.println("Replicating routing state as " + replica.getId() + ".");
+            frontend.setReplica(replica);
+        }
+
+        // Idle backends take queued jobs from busy ones; -Dfrontend.steal.intervalMillis=0 turns this off
+        long stealInterval = Long.getLong(WorkStealer.INTERVAL_PROPERTY, WorkStealer.DEFAULT_INTERVAL_MILLIS);
+        if (stealInterval > 0) {
+            WorkStealer stealer = new WorkStealer(frontend.getPool(), frontend.getDispatcher().getLocations());
+            if (replica != null) stealer.setEnabled(replica::isLeader);
+            stealer.start(stealInterval);
+            metricSources.add(stealer::writeMetrics);
+        }
+
+        ServerBuilder<?> serverBuilder = ServerBuilder.forPort(PORT)
+                .intercept(interceptor)
+                .addService(frontend)
+                .addService(new MembershipService(frontend.getPool(), address -> FrontEndImpl.connect(address, executor, compression)));
+        if (replica != null) serverBuilder.addService(replica.getRaft());
+        executor.configure(serverBuilder);
+        compression.configure(serverBuilder);
+        Server server = serverBuilder.build();
+
+        // Metrics are only served on loopback; scrape them from the same host
+        MetricsHttpServer metrics = new MetricsHttpServer(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), METRICS_PORT),
+                metricSources);
 
         server.start();
-        System.out.println("Frontend Server started successfully.");
+        metrics.start();
+        if (replica != null) replica.start();
+        System.out.println("Frontend Server started successfully. Metrics at http://localhost:" + METRICS_PORT + MetricsHttpServer.PATH);
         
         server.awaitTermination();
     }
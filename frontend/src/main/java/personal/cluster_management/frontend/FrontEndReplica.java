@@ -0,0 +1,189 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.ManagedChannel;
+import personal.cluster_management.proto.JobLocation;
+import personal.cluster_management.proto.SessionOwner;
+import personal.cluster_management.proto.StateChange;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a frontend as one of several replicas that share its routing state.
+ *
+ * The replicas elect a leader through a {@link RaftNode}. The leader takes every write: it
+ * dispatches jobs and places sessions, and each change to its {@link JobLocations} and
+ * {@link SessionRouter} is appended to the replicated log. Followers apply committed changes to
+ * their own copies and answer reads (status, job logs) from them; writes sent to a follower are
+ * refused with the leader's address. A leader that is deposed rebuilds its copies from the
+ * committed changes, dropping those it made but never got replicated. Jobs still waiting in
+ * the old leader's queue when it fails are lost with it; their clients see the call fail and
+ * resubmit.
+ *
+ * Replica ids are the addresses clients reach the replicas at, so a refused client knows where to go.
+ * Each replica keeps its term, vote and log in its own data directory and restarts from it under the same id.
+ */
+public class FrontEndReplica {
+
+    public static final String ID_PROPERTY = "frontend.replica.id";
+    public static final String PEERS_PROPERTY = "frontend.replica.peers";
+    public static final String DATA_DIR_PROPERTY = "frontend.replica.dataDir";
+
+    private final RaftNode raft;
+    private final BackendPool pool;
+    private final JobLocations locations;
+    private final SessionRouter sessions;
+
+    /**
+     * @param id This replica's address.
+     * @param peers Channels to the other replicas, by address.
+     * @param frontend The frontend whose state is replicated.
+     * @param storage Where this replica's term, vote and log are saved.
+     * @param settings Timing of elections and replication.
+     */
+    public FrontEndReplica(String id, Map<String, ManagedChannel> peers, FrontEndImpl frontend,
+                           RaftStorage storage, RaftNode.Settings settings) {
+        this.pool = frontend.getPool();
+        this.locations = frontend.getDispatcher().getLocations();
+        this.sessions = frontend.getSessionRouter();
+        this.raft = new RaftNode(id, peers, new RaftNode.StateMachine() {
+            @Override
+            public void apply(StateChange change) {
+                FrontEndReplica.this.apply(change);
+            }
+            @Override
+            public void reset() {
+                locations.clear();
+                sessions.clear();
+            }
+            @Override
+            public List<StateChange> snapshot() {
+                return FrontEndReplica.this.snapshot();
+            }
+        }, storage, settings);
+
+        locations.setListener((jobId, address) -> propose(StateChange.newBuilder()
+                .setJobLocation(JobLocation.newBuilder().setJobId(jobId).setBackendAddress(address))
+                .build()));
+        sessions.setListener(new SessionRouter.Listener() {
+            @Override
+            public void pinned(String sessionName, Backend owner) {
+                propose(StateChange.newBuilder().setSessionPinned(owner(sessionName, owner)).build());
+            }
+            @Override
+            public void forgotten(String sessionName, Backend owner) {
+                propose(StateChange.newBuilder().setSessionForgotten(owner(sessionName, owner)).build());
+            }
+        });
+    }
+
+    /**
+     * Reads {@value #ID_PROPERTY} (this replica's address), {@value #PEERS_PROPERTY}
+     * (a comma-separated list of the other replicas' addresses) and {@value #DATA_DIR_PROPERTY}
+     * (the directory this replica saves its state in).
+     * A replica does not start without a data directory: one that forgot its vote could vote twice in a term.
+     * @param frontend The frontend whose state is replicated.
+     * @param executor Runs stub callbacks, or null for gRPC's default executor.
+     * @return The replica, or null if no peers are configured.
+     */
+    public static FrontEndReplica fromSystemProperties(FrontEndImpl frontend, FrontEndExecutor executor) throws IOException {
+        String peerList = System.getProperty(PEERS_PROPERTY, "").trim();
+        if (peerList.isEmpty()) return null;
+        String id = System.getProperty(ID_PROPERTY);
+        if (id == null || id.isBlank()) {
+            throw new IllegalArgumentException(ID_PROPERTY + " must be set when " + PEERS_PROPERTY + " is");
+        }
+        String dataDir = System.getProperty(DATA_DIR_PROPERTY);
+        if (dataDir == null || dataDir.isBlank()) {
+            throw new IllegalArgumentException(DATA_DIR_PROPERTY + " must be set when " + PEERS_PROPERTY + " is");
+        }
+        RaftStorage storage = RaftStorage.open(Path.of(dataDir.trim()));
+        Map<String, ManagedChannel> peers = new LinkedHashMap<>();
+        Arrays.stream(peerList.split(","))
+                .map(String::trim)
+                .filter(address -> !address.isEmpty() && !address.equals(id))
+                .forEach(address -> peers.put(address, FrontEndImpl.connect(address, executor)));
+        return new FrontEndReplica(id.trim(), peers, frontend, storage, RaftNode.Settings.defaults());
+    }
+
+    public void start() {
+        raft.start();
+    }
+
+    public void shutdown() {
+        raft.shutdown();
+    }
+
+    /**
+     * @return The replication service to host alongside the frontend.
+     */
+    public RaftNode getRaft() {
+        return raft;
+    }
+
+    public boolean isLeader() {
+        return raft.isLeader();
+    }
+
+    /**
+     * @return The leader's address as far as this replica knows, or null during an election.
+     */
+    public String getLeaderId() {
+        return raft.getLeaderId();
+    }
+
+    public String getId() {
+        return raft.getId();
+    }
+
+    private void propose(StateChange change) {
+        // Followers only change their copy by applying the leader's log
+        if (!raft.isLeader()) return;
+        raft.propose(change).exceptionally(t -> {
+            System.err.println("Frontend: Change was not replicated: " + t.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Applies a change committed by another replica.
+     */
+    private void apply(StateChange change) {
+        switch (change.getChangeCase()) {
+            case JOB_LOCATION -> locations.apply(change.getJobLocation().getJobId(), change.getJobLocation().getBackendAddress());
+            case SESSION_PINNED -> {
+                Backend owner = pool.find(change.getSessionPinned().getBackendAddress());
+                // A backend this replica does not know; the ring places the session if it is asked about it
+                if (owner != null) sessions.applyPinned(change.getSessionPinned().getSessionName(), owner);
+            }
+            case SESSION_FORGOTTEN -> {
+                Backend owner = pool.find(change.getSessionForgotten().getBackendAddress());
+                if (owner != null) sessions.applyForgotten(change.getSessionForgotten().getSessionName(), owner);
+            }
+            default -> { }
+        }
+    }
+
+    /**
+     * @return The routing state as changes: job locations from the oldest, then pinned sessions.
+     */
+    private List<StateChange> snapshot() {
+        List<StateChange> state = new ArrayList<>();
+        locations.snapshot().forEach((jobId, address) -> state.add(StateChange.newBuilder()
+                .setJobLocation(JobLocation.newBuilder().setJobId(jobId).setBackendAddress(address))
+                .build()));
+        sessions.snapshot().forEach((sessionName, owner) -> state.add(StateChange.newBuilder()
+                .setSessionPinned(owner(sessionName, owner))
+                .build()));
+        return state;
+    }
+
+    private static SessionOwner owner(String sessionName, Backend owner) {
+        return SessionOwner.newBuilder().setSessionName(sessionName).setBackendAddress(owner.getAddress()).build();
+    }
+}
@@ -2,24 +2,145 @@ package personal.cluster_management.frontend;
 
 import io.grpc.*;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
- * Interceptor to log incoming requests or handle metadata headers.
+ * Interceptor that records per-method RPC metrics and handles metadata headers.
+ * The submitting user and job priority headers are copied into the call's {@link Context}
+ * so the service implementation can read them.
+ *
+ * For every method it keeps the number of calls in flight, a latency histogram and a
+ * counter per status code. All of them are {@link LongAdder}s, so concurrent calls only
+ * touch striped cells and the hot path takes no lock.
  */
 public class HeaderFrontEndInterceptor implements ServerInterceptor {
 
+    public static final Metadata.Key<String> USER_HEADER = Metadata.Key.of("x-user", Metadata.ASCII_STRING_MARSHALLER);
+    public static final Metadata.Key<String> PRIORITY_HEADER = Metadata.Key.of("x-job-priority", Metadata.ASCII_STRING_MARSHALLER);
+
+    public static final String ANONYMOUS_USER = "anonymous";
+
+    public static final Context.Key<String> USER = Context.keyWithDefault("x-user", ANONYMOUS_USER);
+    public static final Context.Key<JobPriority> PRIORITY = Context.keyWithDefault("x-job-priority", JobPriority.NORMAL);
+
+    /**
+     * Counters for one RPC method.
+     */
+    public static final class MethodMetrics {
+        private final LongAdder inFlight = new LongAdder();
+        private final Histogram latency = new Histogram(Histogram.LATENCY_BOUNDS_NANOS);
+        private final LongAdder[] completed = new LongAdder[Status.Code.values().length];
+
+        MethodMetrics() {
+            for (int i = 0; i < completed.length; i++) {
+                completed[i] = new LongAdder();
+            }
+        }
+
+        public long inFlight() {
+            return inFlight.sum();
+        }
+
+        public Histogram latency() {
+            return latency;
+        }
+
+        public long completed(Status.Code code) {
+            return completed[code.ordinal()].sum();
+        }
+    }
+
+    private final Map<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+
     @Override
     public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
             ServerCall<ReqT, RespT> call,
             Metadata headers,
             ServerCallHandler<ReqT, RespT> next) {
 
-        String methodName = call.getMethodDescriptor().getFullMethodName();
-        System.out.println("[Frontend Interceptor] Received call for: " + methodName);
+        MeteredCall<ReqT, RespT> metered = new MeteredCall<>(call, metricsFor(call.getMethodDescriptor().getFullMethodName()));
+
+        String user = headers.get(USER_HEADER);
+        Context context = Context.current()
+                .withValue(USER, user == null || user.isBlank() ? ANONYMOUS_USER : user)
+                .withValue(PRIORITY, JobPriority.parse(headers.get(PRIORITY_HEADER)));
+
+        ServerCall.Listener<ReqT> listener = Contexts.interceptCall(context, metered, headers, next);
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(listener) {
+            @Override
+            public void onCancel() {
+                // The server never closes a call the client cancelled
+                metered.finish(Status.Code.CANCELLED);
+                super.onCancel();
+            }
+        };
+    }
+
+    private MethodMetrics metricsFor(String methodName) {
+        MethodMetrics metrics = methods.get(methodName);
+        return metrics != null ? metrics : methods.computeIfAbsent(methodName, m -> new MethodMetrics());
+    }
+
+    /**
+     * @param methodName The full method name (e.g. {@code DistributedJobService/SubmitJob}).
+     * @return The method's metrics, or null if it has not been called yet.
+     */
+    public MethodMetrics metrics(String methodName) {
+        return methods.get(methodName);
+    }
+
+    /**
+     * Appends in-flight gauges, latency histograms and status counters in the Prometheus text format.
+     * @param out The buffer to append to.
+     */
+    public void writeMetrics(StringBuilder out) {
+        out.append("# TYPE frontend_rpc_in_flight gauge\n");
+        methods.forEach((method, m) ->
+                out.append("frontend_rpc_in_flight{method=\"").append(method).append("\"} ").append(m.inFlight()).append('\n'));
+
+        out.append("# TYPE frontend_rpc_latency_seconds histogram\n");
+        methods.forEach((method, m) ->
+                m.latency.writeTo(out, "frontend_rpc_latency_seconds", "method=\"" + method + "\""));
+
+        out.append("# TYPE frontend_rpc_completed_total counter\n");
+        methods.forEach((method, m) -> {
+            for (Status.Code code : Status.Code.values()) {
+                long n = m.completed(code);
+                if (n == 0) continue;
+                out.append("frontend_rpc_completed_total{method=\"").append(method)
+                        .append("\",code=\"").append(code.name()).append("\"} ").append(n).append('\n');
+            }
+        });
+    }
+
+    /**
+     * Records the call's outcome when the server closes it.
+     */
+    private static final class MeteredCall<ReqT, RespT> extends ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT> {
+        private final MethodMetrics metrics;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        MeteredCall(ServerCall<ReqT, RespT> delegate, MethodMetrics metrics) {
+            super(delegate);
+            this.metrics = metrics;
+            metrics.inFlight.increment();
+        }
 
-        // You can inspect headers here if needed (e.g., auth tokens)
-        // Metadata.Key<String> authKey = Metadata.Key.of("authorization", Metadata.ASCII_STRING_MARSHALLER);
-        // String token = headers.get(authKey);
+        @Override
+        public void close(Status status, Metadata trailers) {
+            finish(status.getCode());
+            super.close(status, trailers);
+        }
 
-        return next.startCall(call, headers);
+        void finish(Status.Code code) {
+            if (!finished.compareAndSet(false, true)) return;
+            metrics.inFlight.decrement();
+            metrics.latency.record(System.nanoTime() - startNanos);
+            metrics.completed[code.ordinal()].increment();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,108 @@
+package personal.cluster_management.frontend;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket histogram of durations.
+ * Every bucket is a {@link LongAdder}, so concurrent recorders update striped cells
+ * instead of contending on a lock or a single atomic.
+ */
+public class Histogram {
+
+    private static final long MS = 1_000_000L;
+
+    /** Bucket bounds suited to RPC latencies, from 0.5ms to 10s. */
+    public static final long[] LATENCY_BOUNDS_NANOS = {
+            MS / 2, MS, 2 * MS, 5 * MS, 10 * MS, 25 * MS, 50 * MS, 100 * MS,
+            250 * MS, 500 * MS, 1000 * MS, 2500 * MS, 5000 * MS, 10_000 * MS
+    };
+
+    /** Bucket bounds suited to queue wait times, from 10ms to 1h. */
+    public static final long[] WAIT_BOUNDS_NANOS = {
+            10 * MS, 50 * MS, 100 * MS, 500 * MS, 1000 * MS, 5000 * MS,
+            10_000 * MS, 30_000 * MS, 60_000 * MS, 300_000 * MS, 900_000 * MS, 3_600_000 * MS
+    };
+
+    private final long[] bounds;
+    private final LongAdder[] buckets;
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * @param upperBoundsNanos Inclusive upper bound of each bucket, ascending.
+     *                         One more bucket is added for larger values.
+     */
+    public Histogram(long[] upperBoundsNanos) {
+        this.bounds = upperBoundsNanos.clone();
+        this.buckets = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        buckets[bucketOf(nanos)].increment();
+        sum.add(nanos);
+    }
+
+    private int bucketOf(long nanos) {
+        // Linear scan: the bound arrays are short and mostly hit in the first few buckets
+        for (int i = 0; i < bounds.length; i++) {
+            if (nanos <= bounds[i]) return i;
+        }
+        return bounds.length;
+    }
+
+    public long count() {
+        long c = 0;
+        for (LongAdder b : buckets) c += b.sum();
+        return c;
+    }
+
+    public long sumNanos() {
+        return sum.sum();
+    }
+
+    /**
+     * Estimates a quantile from the bucket counts.
+     * @param q The quantile, between 0 and 1 (e.g. 0.99).
+     * @return The upper bound of the bucket holding the quantile, in nanoseconds,
+     *         Long.MAX_VALUE if it falls in the overflow bucket, or 0 if empty.
+     */
+    public long quantile(double q) {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) return 0;
+
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return i < bounds.length ? bounds[i] : Long.MAX_VALUE;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Appends the histogram in the Prometheus text format, with bounds in seconds.
+     * @param out The buffer to append to.
+     * @param name The metric name.
+     * @param labels Label pairs without braces (e.g. {@code method="x"}), or an empty string.
+     */
+    public void writeTo(StringBuilder out, String name, String labels) {
+        String sep = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += buckets[i].sum();
+            String le = i < bounds.length ? Double.toString(bounds[i] / 1e9) : "+Inf";
+            out.append(name).append("_bucket{").append(sep).append("le=\"").append(le).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        String braces = labels.isEmpty() ? "" : "{" + labels + "}";
+        out.append(name).append("_sum").append(braces).append(' ').append(sumNanos() / 1e9).append('\n');
+        out.append(name).append("_count").append(braces).append(' ').append(cumulative).append('\n');
+    }
+}
@@ -0,0 +1,286 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.Context;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import personal.cluster_management.proto.JobRequest;
+import personal.cluster_management.proto.JobStatusResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs identical jobs once.
+ *
+ * Jobs are identical when they come from the same user and their command, repository path and
+ * tmux session match; the job id does not count. Users never share a job: each one's run counts
+ * against their own share of the queue and may see things the others may not.
+ *
+ * A job identical to one still running attaches to it and gets its status updates instead of
+ * starting a duplicate. A job identical to one that completed successfully within the TTL gets
+ * the cached final status straight away. Failed jobs are not cached, so resubmitting them runs
+ * them again. Either way the job's id stays an alias of the shared job, see {@link #resolve},
+ * so that killing it or streaming its log acts on the job that actually ran.
+ *
+ * A shared job runs to completion even if the client that started it goes away, since others
+ * may be attached to it. Cached results are evicted least recently used first.
+ *
+ * Deduplication is off unless {@code frontend.dedup} is true; see {@link #fromSystemProperties()}.
+ */
+public class JobDeduplicator {
+
+    public static final String ENABLED_PROPERTY = "frontend.dedup";
+    public static final String TTL_PROPERTY = "frontend.dedup.ttlSeconds";
+    public static final String MAX_ENTRIES_PROPERTY = "frontend.dedup.maxEntries";
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    /**
+     * Starts a job for real.
+     */
+    @FunctionalInterface
+    public interface Dispatch {
+        void submit(JobRequest request, StreamObserver<JobStatusResponse> responseObserver);
+    }
+
+    private record Completed(JobStatusResponse result, String jobId, long completedNanos) {}
+
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    // Guarded by this
+    private final Map<String, SharedJob> running = new HashMap<>();
+    private final LinkedHashMap<String, Completed> completed;
+    private final Map<String, String> aliases = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > JobLocations.DEFAULT_CAPACITY;
+        }
+    };
+
+    // Metrics
+    private final LongAdder attached = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder started = new LongAdder();
+
+    public JobDeduplicator() {
+        this(DEFAULT_TTL, DEFAULT_MAX_ENTRIES, System::nanoTime);
+    }
+
+    /**
+     * @param ttl How long a successful result is served from the cache.
+     * @param maxEntries Maximum number of cached results.
+     * @param clock Time source in nanoseconds.
+     */
+    public JobDeduplicator(Duration ttl, int maxEntries, LongSupplier clock) {
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.completed = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Completed> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return A deduplicator configured from system properties, or null if deduplication is off.
+     */
+    public static JobDeduplicator fromSystemProperties() {
+        if (!Boolean.getBoolean(ENABLED_PROPERTY)) return null;
+        long ttlSeconds = Long.getLong(TTL_PROPERTY, DEFAULT_TTL.toSeconds());
+        int maxEntries = Integer.getInteger(MAX_ENTRIES_PROPERTY, DEFAULT_MAX_ENTRIES);
+        return new JobDeduplicator(Duration.ofSeconds(ttlSeconds), maxEntries, System::nanoTime);
+    }
+
+    /**
+     * @return The content key of a user's job: a SHA-256 of the user and everything but the job's id.
+     */
+    static String key(String user, JobRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String field : List.of(user, request.getCommand(), request.getRepositoryPath(), request.getTmuxSessionName())) {
+                byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+                // Length-prefixed so that ("ab", "c") and ("a", "bc") differ
+                digest.update(new byte[] {(byte) (bytes.length >>> 24), (byte) (bytes.length >>> 16), (byte) (bytes.length >>> 8), (byte) bytes.length});
+                digest.update(bytes);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Answers a job from the cache, attaches it to an identical running job, or dispatches it.
+     * @param request The job.
+     * @param user The submitting user; only their own jobs are shared with them.
+     * @param responseObserver Receives the job's status updates.
+     * @param dispatch Starts the job if no identical one is running or cached.
+     */
+    public void submit(JobRequest request, String user, StreamObserver<JobStatusResponse> responseObserver, Dispatch dispatch) {
+        String key = key(user, request);
+        SharedJob shared;
+        boolean first = false;
+        Completed cached;
+        synchronized (this) {
+            cached = completed.get(key);
+            if (cached != null && clock.getAsLong() - cached.completedNanos() > ttlNanos) {
+                completed.remove(key);
+                cached = null;
+            }
+            shared = running.get(key);
+            if (cached == null && shared == null) {
+                shared = new SharedJob(key, request.getJobId());
+                running.put(key, shared);
+                first = true;
+            }
+            if (shared != null) shared.attach(request.getJobId(), responseObserver);
+            String sharedJobId = cached != null ? cached.jobId() : shared.jobId;
+            if (!sharedJobId.equals(request.getJobId())) aliases.put(request.getJobId(), sharedJobId);
+        }
+
+        if (cached != null) {
+            cacheHits.increment();
+            responseObserver.onNext(rewrite(cached.result(), request.getJobId(), cached.jobId()));
+            responseObserver.onCompleted();
+        } else if (first) {
+            started.increment();
+            // Detached from this client's context: other clients may attach to the job
+            SharedJob job = shared;
+            Context.current().fork().run(() -> dispatch.submit(request, job));
+        } else {
+            attached.increment();
+            System.out.println("Frontend: Job " + request.getJobId() + " attached to identical job " + shared.jobId);
+        }
+    }
+
+    /**
+     * @return The id of the job that runs or ran on behalf of the given one: the shared job's id
+     *         if it was attached or answered from the cache, else the id itself.
+     */
+    public synchronized String resolve(String jobId) {
+        return aliases.getOrDefault(jobId, jobId);
+    }
+
+    /**
+     * Re-addresses a status of one job to another that shares it.
+     */
+    private static JobStatusResponse rewrite(JobStatusResponse response, String jobId, String sharedJobId) {
+        if (jobId.equals(sharedJobId)) return response;
+        return response.toBuilder()
+                .setJobId(jobId)
+                .setMessage("Same as job " + sharedJobId + ": " + response.getMessage())
+                .build();
+    }
+
+    private synchronized void finished(SharedJob job, JobStatusResponse last) {
+        running.remove(job.key, job);
+        if (last != null && last.getStatus() == JobStatusResponse.Status.COMPLETED_SUCCESS) {
+            completed.put(job.key, new Completed(last, job.jobId, clock.getAsLong()));
+        }
+    }
+
+    /**
+     * A running job and the clients waiting on it. Receives the job's status updates and
+     * relays them to every client.
+     */
+    private final class SharedJob implements StreamObserver<JobStatusResponse> {
+
+        private record Subscriber(String jobId, StreamObserver<JobStatusResponse> observer) {}
+
+        final String key;
+        final String jobId;
+
+        // Guarded by this
+        private final List<Subscriber> subscribers = new ArrayList<>();
+        private JobStatusResponse latest;
+
+        SharedJob(String key, String jobId) {
+            this.key = key;
+            this.jobId = jobId;
+        }
+
+        synchronized void attach(String subscriberJobId, StreamObserver<JobStatusResponse> observer) {
+            Subscriber subscriber = new Subscriber(subscriberJobId, observer);
+            subscribers.add(subscriber);
+            if (observer instanceof ServerCallStreamObserver<JobStatusResponse> serverObserver) {
+                serverObserver.setOnCancelHandler(() -> detach(subscriber));
+            }
+            // A late subscriber catches up with the job's current state
+            if (latest != null) observer.onNext(rewrite(latest, subscriberJobId, jobId));
+        }
+
+        private synchronized void detach(Subscriber subscriber) {
+            subscribers.remove(subscriber);
+        }
+
+        @Override
+        public synchronized void onNext(JobStatusResponse value) {
+            latest = value;
+            for (Subscriber s : subscribers) {
+                s.observer().onNext(rewrite(value, s.jobId(), jobId));
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            finished(this, null);
+            List<Subscriber> all = drain();
+            for (Subscriber s : all) {
+                s.observer().onError(t);
+            }
+        }
+
+        @Override
+        public void onCompleted() {
+            JobStatusResponse last;
+            synchronized (this) {
+                last = latest;
+            }
+            // Leave the running table first, so no client attaches after the final update
+            finished(this, last);
+            for (Subscriber s : drain()) {
+                s.observer().onCompleted();
+            }
+        }
+
+        private synchronized List<Subscriber> drain() {
+            List<Subscriber> all = new ArrayList<>(subscribers);
+            subscribers.clear();
+            return all;
+        }
+    }
+
+    public synchronized int cachedResults() {
+        return completed.size();
+    }
+
+    public synchronized int runningJobs() {
+        return running.size();
+    }
+
+    /**
+     * Appends deduplication metrics in the Prometheus text format.
+     */
+    public void writeMetrics(StringBuilder out) {
+        out.append("# TYPE frontend_dedup_jobs_started_total counter\n");
+        out.append("frontend_dedup_jobs_started_total ").append(started.sum()).append('\n');
+        out.append("# TYPE frontend_dedup_jobs_attached_total counter\n");
+        out.append("frontend_dedup_jobs_attached_total ").append(attached.sum()).append('\n');
+        out.append("# TYPE frontend_dedup_cache_hits_total counter\n");
+        out.append("frontend_dedup_cache_hits_total ").append(cacheHits.sum()).append('\n');
+        out.append("# TYPE frontend_dedup_cached_results gauge\n");
+        out.append("frontend_dedup_cached_results ").append(cachedResults()).append('\n');
+    }
+}
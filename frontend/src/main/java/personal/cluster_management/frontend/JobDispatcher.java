@@ -0,0 +1,455 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import personal.cluster_management.proto.DistributedJobServiceGrpc;
+import personal.cluster_management.proto.JobRequest;
+import personal.cluster_management.proto.JobStatusResponse;
+
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Admits submitted jobs to the backends without oversubscribing them.
+ *
+ * Each backend has a fixed number of job slots. A job is forwarded as soon as a slot is
+ * free; otherwise it waits in an {@link AdmissionQueue} ordered by priority and by weighted
+ * fair share between submitting users. Whenever a job finishes, its slot is handed to the
+ * next queued job.
+ *
+ * A job that requests resources also needs a backend with that much headroom, as last reported
+ * to the {@link ResourceMonitor}. Among the backends it fits on, it goes to the best fit: the
+ * one left with the smallest share of its capacity free, which keeps large holes open for large
+ * jobs. Its resources stay held on that backend until the job finishes, counted against the
+ * backend's measured usage once the backend confirms the job started.
+ * Backends that have not reported their resources yet are used only when no reported backend fits.
+ *
+ * Jobs from SubmitJobs streams share the same queue, slots and placement. Once placed, they are
+ * handed to their stream's {@link BulkJobForwarder}, which batches them per backend and tells
+ * the dispatcher when each one is acknowledged and done.
+ *
+ * Membership changes trigger dispatching from {@link #start()} until {@link #shutdown()}.
+ */
+public class JobDispatcher {
+
+    public static final int DEFAULT_SLOTS_PER_BACKEND = 8;
+    public static final int DEFAULT_MAX_QUEUED = 10_000;
+
+    /**
+     * A job waiting for a slot.
+     */
+    private static final class QueuedJob {
+        final JobRequest request;
+        final StreamObserver<JobStatusResponse> responseObserver; // Null for a bulk job
+        final BulkJobForwarder bulk; // The stream a bulk job came from, or null
+        final JobPriority priority;
+        final Backend pinned; // Owner of the job's tmux session, or null
+        final Resources resources;
+        final Context context;
+        final long enqueuedNanos;
+
+        QueuedJob(JobRequest request, StreamObserver<JobStatusResponse> responseObserver, BulkJobForwarder bulk,
+                  JobPriority priority, Backend pinned, Context context, long enqueuedNanos) {
+            this.request = request;
+            this.responseObserver = responseObserver;
+            this.bulk = bulk;
+            this.priority = priority;
+            this.pinned = pinned;
+            this.resources = request.hasResources() ? Resources.of(request.getResources()) : Resources.NONE;
+            this.context = context;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    private final BackendPool pool;
+    private final int slotsPerBackend;
+    private final int maxQueued;
+    private final AdmissionQueue<QueuedJob> queue;
+    private final JobLocations locations = new JobLocations();
+
+    // Serialises dispatching without holding a lock while forwarding (see drain())
+    private final AtomicInteger drainRequests = new AtomicInteger();
+    // A new backend brings free slots; a departed one strands the jobs pinned to it
+    private final Consumer<List<Backend>> membershipListener = members -> drain();
+
+    // Metrics
+    private final Map<JobPriority, Histogram> waitTimes = new EnumMap<>(JobPriority.class);
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public JobDispatcher(BackendPool pool) {
+        this(pool, DEFAULT_SLOTS_PER_BACKEND, DEFAULT_MAX_QUEUED, Map.of(), 1.0);
+    }
+
+    /**
+     * @param pool The backends to dispatch to.
+     * @param slotsPerBackend Maximum number of running jobs per backend.
+     * @param maxQueued Maximum number of waiting jobs before new ones are rejected.
+     * @param userWeights Fair-share weight per user.
+     * @param defaultWeight Fair-share weight for users not in {@code userWeights}.
+     */
+    public JobDispatcher(BackendPool pool, int slotsPerBackend, int maxQueued,
+                         Map<String, Double> userWeights, double defaultWeight) {
+        this.pool = pool;
+        this.slotsPerBackend = slotsPerBackend;
+        this.maxQueued = maxQueued;
+        this.queue = new AdmissionQueue<>(userWeights, defaultWeight);
+        for (JobPriority p : JobPriority.values()) {
+            waitTimes.put(p, new Histogram(Histogram.WAIT_BOUNDS_NANOS));
+        }
+    }
+
+    /**
+     * Starts dispatching queued jobs when backends join or leave the pool.
+     */
+    public void start() {
+        pool.addMembershipListener(membershipListener);
+    }
+
+    /**
+     * Stops following the pool's membership. Queued jobs are kept.
+     */
+    public void shutdown() {
+        pool.removeMembershipListener(membershipListener);
+    }
+
+    /**
+     * Queues a job and dispatches it as soon as capacity allows.
+     * @param request The job.
+     * @param user The submitting user.
+     * @param priority The job's priority.
+     * @param pinned The backend the job must run on, or null for any backend.
+     * @param responseObserver Receives the backend's status updates.
+     */
+    public void submit(JobRequest request, String user, JobPriority priority, Backend pinned,
+                       StreamObserver<JobStatusResponse> responseObserver) {
+        QueuedJob job = new QueuedJob(request, responseObserver, null, priority, pinned, Context.current(), pool.now());
+
+        // Drop the job from the queue if the client gives up while it waits
+        if (responseObserver instanceof ServerCallStreamObserver<JobStatusResponse> serverObserver) {
+            serverObserver.setOnCancelHandler(() -> {
+                synchronized (queue) {
+                    queue.remove(job);
+                }
+            });
+        }
+
+        Status admitted = admit(job, user, priority);
+        if (!admitted.isOk()) {
+            responseObserver.onError(admitted.asRuntimeException());
+            return;
+        }
+        drain();
+    }
+
+    /**
+     * Queues a job from a SubmitJobs stream. Once placed, it is handed to the forwarder, which
+     * holds its slot and resources until it calls {@link #bulkFinished}. Nothing is dispatched
+     * until {@link #dispatchQueued()}, so a whole client batch can be queued first.
+     * @param request The job.
+     * @param user The submitting user.
+     * @param priority The job's priority.
+     * @param pinned The backend the job must run on, or null for any backend.
+     * @param forwarder The stream the job came from.
+     * @return OK, or why the job was refused.
+     */
+    public Status queueBulk(JobRequest request, String user, JobPriority priority, Backend pinned, BulkJobForwarder forwarder) {
+        return admit(new QueuedJob(request, null, forwarder, priority, pinned, null, pool.now()), user, priority);
+    }
+
+    /**
+     * Dispatches queued jobs as far as capacity allows, e.g. after {@link #queueBulk}.
+     */
+    public void dispatchQueued() {
+        drain();
+    }
+
+    /**
+     * Drops the queued jobs of a SubmitJobs stream whose client went away.
+     */
+    public void cancelBulk(BulkJobForwarder forwarder) {
+        synchronized (queue) {
+            while (queue.removeFirst(j -> j.bulk == forwarder) != null) {
+                // Keep going until none is left
+            }
+        }
+    }
+
+    /**
+     * Called when a backend has accepted a bulk job onto its queue.
+     */
+    public void bulkAccepted(Backend backend, Resources resources) {
+        backend.confirmStarted(resources);
+    }
+
+    /**
+     * Frees the slot and resources of a bulk job, once its backend has rejected it or reported it done.
+     * @param accepted Whether the backend accepted the job before.
+     */
+    public void bulkFinished(Backend backend, Resources resources, boolean accepted) {
+        if (accepted) {
+            backend.releaseStarted(resources);
+        } else {
+            backend.releaseReservation(resources);
+        }
+        backend.releaseSlot();
+        drain();
+    }
+
+    private Status admit(QueuedJob job, String user, JobPriority priority) {
+        if (!job.resources.isNone() && !fitsAnywhere(job)) {
+            rejected.increment();
+            return Status.FAILED_PRECONDITION.withDescription("No backend has " + job.resources);
+        }
+        synchronized (queue) {
+            if (queue.size() >= maxQueued) {
+                rejected.increment();
+                return Status.RESOURCE_EXHAUSTED.withDescription("Job queue is full (" + maxQueued + " jobs waiting)");
+            }
+            queue.offer(job, user, priority);
+        }
+        return Status.OK;
+    }
+
+    /**
+     * Drops a job that is still waiting for a slot. Its caller is told the job was killed.
+     * @param jobId The job.
+     * @return false if the job is not waiting here (it may have been dispatched already).
+     */
+    public boolean killQueued(String jobId) {
+        QueuedJob job;
+        synchronized (queue) {
+            job = queue.removeFirst(j -> j.request.getJobId().equals(jobId));
+        }
+        if (job == null) return false;
+        if (job.bulk != null) {
+            job.bulk.reject(job.request, "Killed before it was dispatched");
+            return true;
+        }
+        job.responseObserver.onNext(JobStatusResponse.newBuilder()
+                .setJobId(jobId)
+                .setStatus(JobStatusResponse.Status.KILLED_BY_USER)
+                .setMessage("Killed before it was dispatched")
+                .build());
+        job.responseObserver.onCompleted();
+        return true;
+    }
+
+    /**
+     * Called when backends have reported new resource figures, so jobs waiting for room are reconsidered.
+     */
+    public void resourcesChanged() {
+        drain();
+    }
+
+    /**
+     * Hands free slots to queued jobs.
+     * Only one thread drains at a time; a thread that finds a drain in progress leaves
+     * a note so the draining thread makes another pass. Jobs are forwarded outside the
+     * queue lock, and completions (which call back into drain) never block.
+     */
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0) return;
+        int missed = 1;
+        while (true) {
+            Set<BulkJobForwarder> sent = null;
+            while (true) {
+                QueuedJob job;
+                Backend backend = null;
+                synchronized (queue) {
+                    Backend anyFree = pool.pick(b -> b.hasFreeSlot(slotsPerBackend));
+                    List<Backend> free = pool.available();
+                    free.removeIf(b -> !b.hasFreeSlot(slotsPerBackend));
+                    Backend[] placement = new Backend[1];
+                    job = queue.poll(j -> {
+                        if (j.pinned != null && j.pinned.isRetired()) {
+                            placement[0] = null;
+                            return true;
+                        }
+                        placement[0] = place(j, anyFree, free);
+                        return placement[0] != null;
+                    });
+                    if (job == null) break;
+                    backend = placement[0];
+                    if (backend != null) {
+                        backend.acquireSlot();
+                        backend.reserve(job.resources);
+                    }
+                }
+                if (backend == null) {
+                    // The backend owning the job's session left the pool while the job waited
+                    String reason = "Backend " + job.pinned.getAddress() + " left the cluster before the job started";
+                    if (job.bulk != null) {
+                        job.bulk.reject(job.request, reason);
+                    } else {
+                        job.responseObserver.onError(Status.UNAVAILABLE.withDescription(reason).asRuntimeException());
+                    }
+                    continue;
+                }
+                waitTimes.get(job.priority).record(pool.now() - job.enqueuedNanos);
+                if (job.bulk != null) {
+                    dispatched.increment();
+                    job.bulk.send(job.request, backend, job.resources);
+                    if (sent == null) sent = new HashSet<>();
+                    sent.add(job.bulk);
+                } else {
+                    forward(job, backend);
+                }
+            }
+            // One message per backend for the bulk jobs placed in this pass
+            if (sent != null) sent.forEach(BulkJobForwarder::flush);
+            missed = drainRequests.addAndGet(-missed);
+            if (missed == 0) return;
+        }
+    }
+
+    private boolean canRunOn(Backend backend) {
+        return backend.isAvailable(pool.now()) && backend.hasFreeSlot(slotsPerBackend);
+    }
+
+    /**
+     * Chooses the backend for a queued job.
+     * @param anyFree A backend with a free slot picked by the pool's balancing policy, or null.
+     * @param free All available backends with a free slot.
+     * @return The backend, or null if the job has to keep waiting.
+     */
+    private Backend place(QueuedJob job, Backend anyFree, List<Backend> free) {
+        if (job.pinned != null) {
+            return canRunOn(job.pinned) && fits(job.pinned, job.resources) ? job.pinned : null;
+        }
+        if (job.resources.isNone()) return anyFree;
+
+        Backend best = null;
+        Backend unreported = null;
+        double bestLeftover = Double.MAX_VALUE;
+        for (Backend backend : free) {
+            Resources headroom = backend.headroom();
+            if (headroom == null) {
+                if (unreported == null) unreported = backend;
+            } else if (headroom.fits(job.resources)) {
+                double leftover = headroom.minus(job.resources).leftoverShare(backend.getCapacity());
+                if (leftover < bestLeftover) {
+                    bestLeftover = leftover;
+                    best = backend;
+                }
+            }
+        }
+        return best != null ? best : unreported;
+    }
+
+    private static boolean fits(Backend backend, Resources request) {
+        Resources headroom = backend.headroom();
+        return headroom == null || headroom.fits(request);
+    }
+
+    /**
+     * @return false if the job is bigger than every backend that has reported its resources,
+     * so it could wait forever.
+     */
+    private boolean fitsAnywhere(QueuedJob job) {
+        List<Backend> candidates = job.pinned != null ? List.of(job.pinned) : pool.available();
+        if (candidates.isEmpty()) return true;
+        for (Backend backend : candidates) {
+            Resources capacity = backend.getCapacity();
+            if (capacity == null || capacity.fits(job.resources)) return true;
+        }
+        return false;
+    }
+
+    private void forward(QueuedJob job, Backend backend) {
+        dispatched.increment();
+        locations.record(job.request.getJobId(), backend.getAddress());
+        DistributedJobServiceGrpc.DistributedJobServiceStub stub = DistributedJobServiceGrpc.newStub(backend.getChannel());
+        StreamObserver<JobStatusResponse> responseObserver = job.responseObserver;
+        // Set until the backend's first status says whether the job started, then while it runs
+        AtomicBoolean reserved = new AtomicBoolean(true);
+        AtomicBoolean started = new AtomicBoolean(false);
+
+        // Run under the caller's context so a client cancellation also cancels the backend call
+        job.context.run(() -> stub.submitJob(job.request, new BackendCallObserver<>(backend, pool, new StreamObserver<JobStatusResponse>() {
+            @Override
+            public void onNext(JobStatusResponse value) {
+                if (reserved.compareAndSet(true, false)) {
+                    if (value.getStatus() == JobStatusResponse.Status.RUNNING) {
+                        started.set(true);
+                        backend.confirmStarted(job.resources);
+                    } else {
+                        backend.releaseReservation(job.resources);
+                    }
+                }
+                responseObserver.onNext(value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                finished(backend, job, reserved, started);
+                responseObserver.onError(t);
+            }
+
+            @Override
+            public void onCompleted() {
+                finished(backend, job, reserved, started);
+                responseObserver.onCompleted();
+            }
+        })));
+    }
+
+    private void finished(Backend backend, QueuedJob job, AtomicBoolean reserved, AtomicBoolean started) {
+        if (reserved.compareAndSet(true, false)) backend.releaseReservation(job.resources);
+        if (started.compareAndSet(true, false)) backend.releaseStarted(job.resources);
+        backend.releaseSlot();
+        drain();
+    }
+
+    /**
+     * @return Where dispatched jobs were sent.
+     */
+    public JobLocations getLocations() {
+        return locations;
+    }
+
+    public int queued() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    public int queued(JobPriority priority) {
+        synchronized (queue) {
+            return queue.size(priority);
+        }
+    }
+
+    public Histogram waitTime(JobPriority priority) {
+        return waitTimes.get(priority);
+    }
+
+    /**
+     * Appends queue depth, wait-time histograms and dispatch counters in the Prometheus text format.
+     * @param out The buffer to append to.
+     */
+    public void writeMetrics(StringBuilder out) {
+        out.append("# TYPE frontend_job_queue_depth gauge\n");
+        for (JobPriority p : JobPriority.values()) {
+            out.append("frontend_job_queue_depth{priority=\"").append(p.name().toLowerCase())
+                    .append("\"} ").append(queued(p)).append('\n');
+        }
+        out.append("# TYPE frontend_job_queue_wait_seconds histogram\n");
+        for (JobPriority p : JobPriority.values()) {
+            waitTimes.get(p).writeTo(out, "frontend_job_queue_wait_seconds", "priority=\"" + p.name().toLowerCase() + "\"");
+        }
+        out.append("# TYPE frontend_jobs_dispatched_total counter\n");
+        out.append("frontend_jobs_dispatched_total ").append(dispatched.sum()).append('\n');
+        out.append("# TYPE frontend_jobs_rejected_total counter\n");
+        out.append("frontend_jobs_rejected_total ").append(rejected.sum()).append('\n');
+    }
+}
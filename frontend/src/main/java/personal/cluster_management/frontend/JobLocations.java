@@ -0,0 +1,84 @@
+package personal.cluster_management.frontend;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Remembers which backend each job was sent to, so later requests about a job (such as
+ * streaming its output) reach the backend that ran it.
+ * Only the most recently dispatched jobs are kept; older ones are forgotten first.
+ */
+public class JobLocations {
+
+    public static final int DEFAULT_CAPACITY = 100_000;
+
+    private final Map<String, String> backendByJob;
+    private volatile BiConsumer<String, String> listener;
+
+    public JobLocations() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Maximum number of jobs remembered.
+     */
+    public JobLocations(int capacity) {
+        this.backendByJob = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @param listener Told about every {@link #record}, outside the lock (e.g. to replicate it), or null.
+     */
+    public void setListener(BiConsumer<String, String> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Records that a job was sent to a backend, replacing any earlier record for the same id.
+     */
+    public void record(String jobId, String backendAddress) {
+        apply(jobId, backendAddress);
+        BiConsumer<String, String> l = listener;
+        if (l != null) l.accept(jobId, backendAddress);
+    }
+
+    /**
+     * Records a job's backend without telling the listener, e.g. for a change replicated from another frontend.
+     */
+    public synchronized void apply(String jobId, String backendAddress) {
+        // Re-insert so a resubmitted id counts as recent
+        backendByJob.remove(jobId);
+        backendByJob.put(jobId, backendAddress);
+    }
+
+    /**
+     * @return A copy of every job's backend, from the least recently recorded job.
+     */
+    public synchronized Map<String, String> snapshot() {
+        return new LinkedHashMap<>(backendByJob);
+    }
+
+    /**
+     * Forgets every job, without telling the listener.
+     */
+    public synchronized void clear() {
+        backendByJob.clear();
+    }
+
+    /**
+     * @return The address of the backend the job was sent to, or null if unknown.
+     */
+    public synchronized String find(String jobId) {
+        return backendByJob.get(jobId);
+    }
+
+    public synchronized int size() {
+        return backendByJob.size();
+    }
+}
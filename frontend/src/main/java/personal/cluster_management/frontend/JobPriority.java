@@ -0,0 +1,25 @@
+package personal.cluster_management.frontend;
+
+/**
+ * Priority levels for queued jobs, highest first.
+ * Sent by clients in the {@code x-job-priority} metadata header.
+ */
+public enum JobPriority {
+    HIGH,
+    NORMAL,
+    LOW;
+
+    /**
+     * Parses a priority header value, by name ("high") or by level ("0").
+     * @param value The header value, may be null.
+     * @return The priority, or NORMAL if the value is missing or unknown.
+     */
+    public static JobPriority parse(String value) {
+        if (value == null || value.isBlank()) return NORMAL;
+        String v = value.trim();
+        for (JobPriority p : values()) {
+            if (p.name().equalsIgnoreCase(v) || String.valueOf(p.ordinal()).equals(v)) return p;
+        }
+        return NORMAL;
+    }
+}
@@ -0,0 +1,66 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.ManagedChannel;
+import io.grpc.stub.StreamObserver;
+import personal.cluster_management.proto.BackendRegistration;
+import personal.cluster_management.proto.FrontEndMembershipServiceGrpc;
+import personal.cluster_management.proto.MembershipResponse;
+
+import java.util.function.Function;
+
+/**
+ * Lets backends join and leave the frontend's {@link BackendPool} at runtime.
+ * Routing continues throughout; see {@link BackendPool#add} and {@link BackendPool#remove}.
+ */
+public class MembershipService extends FrontEndMembershipServiceGrpc.FrontEndMembershipServiceImplBase {
+
+    private final BackendPool pool;
+    private final Function<String, ManagedChannel> connector;
+
+    /**
+     * @param pool The pool to change.
+     * @param connector Opens a channel to a newly registered backend address.
+     */
+    public MembershipService(BackendPool pool, Function<String, ManagedChannel> connector) {
+        this.pool = pool;
+        this.connector = connector;
+    }
+
+    @Override
+    public void registerBackend(BackendRegistration request, StreamObserver<MembershipResponse> responseObserver) {
+        String address = request.getAddress().trim();
+        if (address.isEmpty()) {
+            responseObserver.onNext(response(false, "Backend address is empty"));
+            responseObserver.onCompleted();
+            return;
+        }
+
+        // Concurrent registrations of one address may both connect; the loser closes its channel
+        if (pool.find(address) == null) {
+            ManagedChannel channel = connector.apply(address);
+            if (!pool.add(new Backend(address, channel))) channel.shutdownNow();
+        }
+        responseObserver.onNext(response(true, "Registered " + address));
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void deregisterBackend(BackendRegistration request, StreamObserver<MembershipResponse> responseObserver) {
+        String address = request.getAddress().trim();
+        Backend removed = pool.remove(address);
+        responseObserver.onNext(removed == null
+                ? response(false, "Unknown backend " + address)
+                : response(true, "Deregistered " + address + ", draining " + removed.getRunningJobs() + " running jobs"));
+        responseObserver.onCompleted();
+    }
+
+    private MembershipResponse response(boolean accepted, String message) {
+        MembershipResponse.Builder response = MembershipResponse.newBuilder()
+                .setAccepted(accepted)
+                .setMessage(message);
+        for (Backend b : pool.all()) {
+            response.addMembers(b.getAddress());
+        }
+        return response.build();
+    }
+}
@@ -0,0 +1,64 @@
+package personal.cluster_management.frontend;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Serves the frontend's metrics in the Prometheus text format on {@code GET /metrics}.
+ * Each source appends its own metric families to the response.
+ */
+public class MetricsHttpServer {
+
+    public static final String PATH = "/metrics";
+
+    private final HttpServer server;
+    private final List<Consumer<StringBuilder>> sources;
+
+    /**
+     * @param address The address to listen on; usually loopback so only local scrapers can reach it.
+     * @param sources Writers of metric families, e.g. {@code interceptor::writeMetrics}.
+     */
+    public MetricsHttpServer(InetSocketAddress address, List<Consumer<StringBuilder>> sources) throws IOException {
+        this.sources = List.copyOf(sources);
+        this.server = HttpServer.create(address, 0);
+        server.createContext(PATH, this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            StringBuilder out = new StringBuilder();
+            for (Consumer<StringBuilder> source : sources) {
+                source.accept(out);
+            }
+            byte[] body = out.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,748 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import personal.cluster_management.proto.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One member of a group of frontend replicas that agree on a log of {@link StateChange}s, Raft style.
+ *
+ * Replicas start as followers. A follower that hears nothing from a leader for a randomised
+ * election timeout becomes a candidate and asks the others for their votes; a majority makes it
+ * leader for that term. Only the leader appends to the log. It sends new entries, or empty
+ * heartbeats, to every follower, and an entry is committed once a majority has stored it.
+ * Committed entries are applied to the {@link StateMachine}, in log order, on every replica.
+ * A leader applies its own changes as it makes them; if it loses leadership, its state machine
+ * is rebuilt from the committed entries alone, undoing its changes that never committed.
+ *
+ * The term, the vote and the log are saved to a {@link RaftStorage} before a replica answers a
+ * vote or an append, or counts its own entry towards a commit. A replica that restarts under the
+ * same id therefore never votes twice in a term, nor loses an entry it told the leader it had.
+ *
+ * Once enough entries have been applied, a replica replaces them with a snapshot of its state
+ * machine, so the log stays short however long the replica runs. A follower that needs entries
+ * the leader has discarded is sent the leader's snapshot instead, in chunks.
+ */
+public class RaftNode extends FrontEndReplicationServiceGrpc.FrontEndReplicationServiceImplBase {
+
+    public enum Role { FOLLOWER, CANDIDATE, LEADER }
+
+    /**
+     * The state the log describes. Called on a single thread, one change at a time.
+     */
+    public interface StateMachine {
+        /**
+         * Applies a committed change.
+         */
+        void apply(StateChange change);
+
+        /**
+         * Forgets all state, before it is rebuilt from a snapshot and the committed changes.
+         */
+        void reset();
+
+        /**
+         * @return The changes that rebuild the current state from nothing, in order.
+         */
+        List<StateChange> snapshot();
+    }
+
+    /**
+     * Timing of elections and replication.
+     * @param electionTimeoutMinMillis Shortest wait for a leader before standing for election.
+     * @param electionTimeoutMaxMillis Longest such wait; the actual wait is random in between.
+     * @param heartbeatMillis Time between the leader's appends to each follower.
+     * @param maxEntriesPerAppend Cap on the entries sent in one append, and on the changes in one snapshot chunk.
+     * @param snapshotThreshold Entries applied since the last snapshot before the log is compacted into a new one.
+     */
+    public record Settings(long electionTimeoutMinMillis, long electionTimeoutMaxMillis,
+                           long heartbeatMillis, int maxEntriesPerAppend, int snapshotThreshold) {
+        public static Settings defaults() {
+            return new Settings(300, 600, 100, 256, 10_000);
+        }
+    }
+
+    private final String id;
+    private final Map<String, FrontEndReplicationServiceGrpc.FrontEndReplicationServiceStub> peers = new HashMap<>();
+    private final StateMachine stateMachine;
+    private final RaftStorage storage;
+    private final Settings settings;
+    private final ScheduledExecutorService scheduler;
+
+    // Raft state (guarded by this)
+    private Role role = Role.FOLLOWER;
+    private long currentTerm;
+    private String votedFor;
+    private String leaderId;
+    private RaftSnapshot snapshot;
+    private final List<LogEntry> log; // Entry i is at index snapshot.getLastIndex() + i + 1
+    private long commitIndex;
+    private long lastApplied;
+    private final Map<String, Long> nextIndex = new HashMap<>();
+    private final Map<String, Long> matchIndex = new HashMap<>();
+    private final Set<Long> ledTerms = new HashSet<>();
+    private final TreeMap<Long, CompletableFuture<Void>> pending = new TreeMap<>();
+    private final Set<String> installing = new HashSet<>();
+    private List<StateChange> restore; // Set when the state machine is to be rebuilt from a snapshot
+    private RaftSnapshot.Builder receiving;
+    private int votes;
+    private ScheduledFuture<?> electionTimer;
+    private ScheduledFuture<?> heartbeat;
+    private boolean stopped = false;
+
+    /**
+     * @param id This replica's id, unique in the group.
+     * @param peers Channels to the other replicas, by id.
+     * @param stateMachine Receives every committed change this replica did not make itself as leader.
+     * @param storage Where the term, vote and log are saved. The node starts from what it holds and closes it on shutdown.
+     * @param settings Timing of elections and replication.
+     */
+    public RaftNode(String id, Map<String, ManagedChannel> peers, StateMachine stateMachine,
+                    RaftStorage storage, Settings settings) {
+        this.id = id;
+        peers.forEach((peerId, channel) -> this.peers.put(peerId, FrontEndReplicationServiceGrpc.newStub(channel)));
+        this.stateMachine = stateMachine;
+        this.storage = storage;
+        this.settings = settings;
+        this.currentTerm = storage.getTerm();
+        this.votedFor = storage.getVotedFor();
+        this.snapshot = storage.getSnapshot();
+        this.log = new ArrayList<>(storage.getEntries());
+        // Everything in the snapshot was committed
+        this.commitIndex = snapshot.getLastIndex();
+        this.lastApplied = snapshot.getLastIndex();
+        if (lastApplied > 0) restore = snapshot.getStateList();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "raft-" + id);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Starts the election timer. A replica without peers elects itself when it first fires.
+     */
+    public synchronized void start() {
+        if (restore != null) applyLater();
+        resetElectionTimer();
+    }
+
+    public synchronized void shutdown() {
+        stopped = true;
+        role = Role.FOLLOWER;
+        failPending("Replica " + id + " shut down");
+        scheduler.shutdownNow();
+        try {
+            storage.close();
+        } catch (IOException e) {
+            System.err.println("Frontend: Replica " + id + " could not close its storage: " + e.getMessage());
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public synchronized Role getRole() {
+        return role;
+    }
+
+    public synchronized boolean isLeader() {
+        return role == Role.LEADER;
+    }
+
+    /**
+     * @return The id of the current leader as far as this replica knows, or null during an election.
+     */
+    public synchronized String getLeaderId() {
+        return leaderId;
+    }
+
+    public synchronized long getTerm() {
+        return currentTerm;
+    }
+
+    public synchronized long getCommitIndex() {
+        return commitIndex;
+    }
+
+    /**
+     * @return The index of the last entry replaced by a snapshot, or 0 if there is none.
+     */
+    public synchronized long getSnapshotIndex() {
+        return snapshot.getLastIndex();
+    }
+
+    /**
+     * Appends a change to the log. Only the leader accepts changes; it is expected to have
+     * applied the change to its own state already. Should the change not commit while this
+     * replica leads, the state is rebuilt without it.
+     * @return Completes once the change is committed. Fails with UNAVAILABLE if this replica is
+     * not the leader, or loses leadership before the change commits (it may still commit later).
+     */
+    public synchronized CompletableFuture<Void> propose(StateChange change) {
+        if (role != Role.LEADER) {
+            return CompletableFuture.failedFuture(Status.UNAVAILABLE
+                    .withDescription("Replica " + id + " is not the leader")
+                    .asRuntimeException());
+        }
+        LogEntry entry = LogEntry.newBuilder().setTerm(currentTerm).setChange(change).build();
+        try {
+            storage.append(List.of(entry));
+        } catch (UncheckedIOException e) {
+            return CompletableFuture.failedFuture(Status.UNAVAILABLE
+                    .withDescription("Replica " + id + " could not save the change")
+                    .withCause(e)
+                    .asRuntimeException());
+        }
+        log.add(entry);
+        CompletableFuture<Void> committed = new CompletableFuture<>();
+        pending.put(lastIndex(), committed);
+        if (peers.isEmpty()) {
+            advanceCommitIndex();
+        } else {
+            for (String peer : peers.keySet()) sendAppend(peer);
+        }
+        return committed;
+    }
+
+    // ----------------------------------------------------------
+    // Elections
+    // ----------------------------------------------------------
+
+    private void resetElectionTimer() {
+        if (stopped) return;
+        if (electionTimer != null) electionTimer.cancel(false);
+        long timeout = ThreadLocalRandom.current().nextLong(settings.electionTimeoutMinMillis(), settings.electionTimeoutMaxMillis() + 1);
+        electionTimer = scheduler.schedule(this::startElection, timeout, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void startElection() {
+        if (stopped || role == Role.LEADER) return;
+        try {
+            saveState(currentTerm + 1, id);
+        } catch (UncheckedIOException e) {
+            System.err.println("Frontend: Replica " + id + " cannot stand for election: " + e.getMessage());
+            resetElectionTimer();
+            return;
+        }
+        role = Role.CANDIDATE;
+        leaderId = null;
+        votes = 1;
+        resetElectionTimer();
+        if (hasMajority(votes)) {
+            becomeLeader();
+            return;
+        }
+
+        long term = currentTerm;
+        VoteRequest request = VoteRequest.newBuilder()
+                .setTerm(term)
+                .setCandidateId(id)
+                .setLastLogIndex(lastIndex())
+                .setLastLogTerm(termAt(lastIndex()))
+                .build();
+        for (FrontEndReplicationServiceGrpc.FrontEndReplicationServiceStub stub : peers.values()) {
+            stub.withDeadlineAfter(settings.electionTimeoutMinMillis(), TimeUnit.MILLISECONDS)
+                    .requestVote(request, new StreamObserver<>() {
+                        @Override
+                        public void onNext(VoteResponse response) {
+                            onVote(term, response);
+                        }
+                        @Override
+                        public void onError(Throwable t) {}
+                        @Override
+                        public void onCompleted() {}
+                    });
+        }
+    }
+
+    private synchronized void onVote(long term, VoteResponse response) {
+        if (response.getTerm() > currentTerm) {
+            stepDown(response.getTerm());
+            return;
+        }
+        if (role != Role.CANDIDATE || currentTerm != term || !response.getVoteGranted()) return;
+        votes++;
+        if (hasMajority(votes)) becomeLeader();
+    }
+
+    private void becomeLeader() {
+        // Entries from earlier terms only commit along with one from this term
+        LogEntry noOp = LogEntry.newBuilder().setTerm(currentTerm).setChange(StateChange.getDefaultInstance()).build();
+        storage.append(List.of(noOp));
+        log.add(noOp);
+
+        role = Role.LEADER;
+        leaderId = id;
+        ledTerms.add(currentTerm);
+        installing.clear();
+        if (electionTimer != null) electionTimer.cancel(false);
+        for (String peer : peers.keySet()) {
+            nextIndex.put(peer, lastIndex() + 1);
+            matchIndex.put(peer, 0L);
+        }
+        System.out.println("Frontend: Replica " + id + " is the leader for term " + currentTerm);
+
+        if (peers.isEmpty()) advanceCommitIndex();
+        heartbeat = scheduler.scheduleAtFixedRate(this::broadcastAppend, 0, settings.heartbeatMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void stepDown(long term) {
+        boolean wasLeader = role == Role.LEADER;
+        // A vote already cast in this term stands
+        if (term > currentTerm) saveState(term, null);
+        role = Role.FOLLOWER;
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+            heartbeat = null;
+        }
+        if (wasLeader) {
+            failPending("Replica " + id + " lost leadership in term " + term);
+            // Its state may hold changes that never committed; replay the committed ones instead
+            restore = snapshot.getStateList();
+            lastApplied = snapshot.getLastIndex();
+            ledTerms.clear();
+            applyLater();
+        }
+        resetElectionTimer();
+    }
+
+    @Override
+    public void requestVote(VoteRequest request, StreamObserver<VoteResponse> responseObserver) {
+        VoteResponse response;
+        try {
+            response = vote(request);
+        } catch (UncheckedIOException e) {
+            // Better no answer than one this replica may forget
+            responseObserver.onError(unsaved(e));
+            return;
+        }
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    private synchronized VoteResponse vote(VoteRequest request) {
+        if (request.getTerm() > currentTerm) stepDown(request.getTerm());
+            // Only vote for candidates whose log is at least as up to date as ours
+        boolean upToDate = request.getLastLogTerm() > termAt(lastIndex())
+                || (request.getLastLogTerm() == termAt(lastIndex()) && request.getLastLogIndex() >= lastIndex());
+        boolean grant = request.getTerm() == currentTerm
+                && (votedFor == null || votedFor.equals(request.getCandidateId()))
+                && upToDate;
+        if (grant) {
+            if (votedFor == null) saveState(currentTerm, request.getCandidateId());
+            resetElectionTimer();
+        }
+        return VoteResponse.newBuilder().setTerm(currentTerm).setVoteGranted(grant).build();
+    }
+
+    // ----------------------------------------------------------
+    // Replication
+    // ----------------------------------------------------------
+
+    private synchronized void broadcastAppend() {
+        if (role != Role.LEADER) return;
+        for (String peer : peers.keySet()) sendAppend(peer);
+    }
+
+    private void sendAppend(String peer) {
+        // The follower is sent the rest of the snapshot first
+        if (installing.contains(peer)) return;
+        long next = nextIndex.get(peer);
+        if (next <= snapshot.getLastIndex()) {
+            sendSnapshot(peer, 0);
+            return;
+        }
+        long prevIndex = next - 1;
+        int from = (int) (prevIndex - snapshot.getLastIndex());
+        int to = (int) Math.min(log.size(), from + (long) settings.maxEntriesPerAppend());
+        AppendEntriesRequest request = AppendEntriesRequest.newBuilder()
+                .setTerm(currentTerm)
+                .setLeaderId(id)
+                .setPrevLogIndex(prevIndex)
+                .setPrevLogTerm(termAt(prevIndex))
+                .addAllEntries(log.subList(from, to))
+                .setLeaderCommit(commitIndex)
+                .build();
+        long term = currentTerm;
+        peers.get(peer).withDeadlineAfter(settings.electionTimeoutMinMillis(), TimeUnit.MILLISECONDS)
+                .appendEntries(request, new StreamObserver<>() {
+                    @Override
+                    public void onNext(AppendEntriesResponse response) {
+                        onAppendResponse(peer, term, request, response);
+                    }
+                    @Override
+                    public void onError(Throwable t) {
+                        // The next heartbeat retries
+                    }
+                    @Override
+                    public void onCompleted() {}
+                });
+    }
+
+    private synchronized void onAppendResponse(String peer, long term, AppendEntriesRequest request, AppendEntriesResponse response) {
+        if (response.getTerm() > currentTerm) {
+            stepDown(response.getTerm());
+            return;
+        }
+        if (role != Role.LEADER || currentTerm != term) return;
+
+        if (response.getSuccess()) {
+            long matched = request.getPrevLogIndex() + request.getEntriesCount();
+            if (matched > matchIndex.get(peer)) {
+                matchIndex.put(peer, matched);
+                nextIndex.put(peer, matched + 1);
+                advanceCommitIndex();
+            }
+            if (nextIndex.get(peer) <= lastIndex()) sendAppend(peer);
+        } else {
+            // Back up to where the follower's log may agree with ours and try again
+            long next = Math.max(1, Math.min(nextIndex.get(peer) - 1, response.getMatchIndex() + 1));
+            nextIndex.put(peer, next);
+            sendAppend(peer);
+        }
+    }
+
+    private void advanceCommitIndex() {
+        for (long n = lastIndex(); n > commitIndex; n--) {
+            // Only entries from the current term are committed by counting replicas
+            if (termAt(n) != currentTerm) break;
+            int replicas = 1;
+            for (long match : matchIndex.values()) {
+                if (match >= n) replicas++;
+            }
+            if (hasMajority(replicas)) {
+                commitIndex = n;
+                applyLater();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void appendEntries(AppendEntriesRequest request, StreamObserver<AppendEntriesResponse> responseObserver) {
+        AppendEntriesResponse response;
+        try {
+            synchronized (this) {
+                response = append(request);
+            }
+        } catch (UncheckedIOException e) {
+            responseObserver.onError(unsaved(e));
+            return;
+        }
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    private AppendEntriesResponse append(AppendEntriesRequest request) {
+        AppendEntriesResponse.Builder response = AppendEntriesResponse.newBuilder();
+        if (request.getTerm() < currentTerm) {
+            return response.setTerm(currentTerm).setSuccess(false).setMatchIndex(lastIndex()).build();
+        }
+        if (request.getTerm() > currentTerm || role != Role.FOLLOWER) stepDown(request.getTerm());
+        leaderId = request.getLeaderId();
+        resetElectionTimer();
+        response.setTerm(currentTerm);
+
+        long prevIndex = request.getPrevLogIndex();
+        List<LogEntry> entries = request.getEntriesList();
+        if (prevIndex < snapshot.getLastIndex()) {
+            // Entries up to the snapshot were committed, so they match the leader's; skip them
+            int covered = (int) Math.min(entries.size(), snapshot.getLastIndex() - prevIndex);
+            entries = entries.subList(covered, entries.size());
+            prevIndex += covered;
+            if (prevIndex < snapshot.getLastIndex()) {
+                return response.setSuccess(true).setMatchIndex(prevIndex).build();
+            }
+        }
+        if (prevIndex > lastIndex()) {
+            return response.setSuccess(false).setMatchIndex(lastIndex()).build();
+        }
+        if (termAt(prevIndex) != request.getPrevLogTerm()) {
+            return response.setSuccess(false).setMatchIndex(prevIndex - 1).build();
+        }
+
+        long index = prevIndex;
+        long conflict = 0;
+        List<LogEntry> added = new ArrayList<>();
+        for (LogEntry entry : entries) {
+            index++;
+            if (conflict == 0 && index <= lastIndex()) {
+                if (termAt(index) == entry.getTerm()) continue;
+                // A conflicting suffix was never committed; drop it
+                conflict = index;
+            }
+            added.add(entry);
+        }
+        if (conflict != 0) storage.truncate(conflict);
+        storage.append(added);
+        if (conflict != 0) log.subList(position(conflict), log.size()).clear();
+        log.addAll(added);
+
+        long newCommit = Math.min(request.getLeaderCommit(), index);
+        if (newCommit > commitIndex) {
+            commitIndex = newCommit;
+            applyLater();
+        }
+        return response.setSuccess(true).setMatchIndex(index).build();
+    }
+
+    private void applyLater() {
+        if (!stopped) scheduler.execute(this::applyCommitted);
+    }
+
+    /**
+     * Applies newly committed entries to the state machine, after a reset if it is being rebuilt.
+     * Runs on the scheduler thread, so entries are applied one at a time and in order, without holding the lock.
+     */
+    private void applyCommitted() {
+        List<LogEntry> entries = new ArrayList<>();
+        List<CompletableFuture<Void>> committed = new ArrayList<>();
+        List<StateChange> state;
+        synchronized (this) {
+            state = restore;
+            restore = null;
+            while (lastApplied < commitIndex) {
+                lastApplied++;
+                LogEntry entry = log.get(position(lastApplied));
+                // The leader that made a change applied it when it did
+                if (!ledTerms.contains(entry.getTerm())) entries.add(entry);
+                CompletableFuture<Void> future = pending.remove(lastApplied);
+                if (future != null) committed.add(future);
+            }
+        }
+        if (state != null) {
+            stateMachine.reset();
+            state.forEach(this::applyChange);
+        }
+        for (LogEntry entry : entries) {
+            if (entry.getChange().getChangeCase() == StateChange.ChangeCase.CHANGE_NOT_SET) continue;
+            applyChange(entry.getChange());
+        }
+        committed.forEach(future -> future.complete(null));
+        compact();
+    }
+
+    private void applyChange(StateChange change) {
+        try {
+            stateMachine.apply(change);
+        } catch (RuntimeException e) {
+            System.err.println("Frontend: Replica " + id + " could not apply a change: " + e.getMessage());
+        }
+    }
+
+    // ----------------------------------------------------------
+    // Snapshots
+    // ----------------------------------------------------------
+
+    /**
+     * Replaces the applied entries with a snapshot of the state machine once there are enough of them.
+     * Runs on the scheduler thread after applying, so a follower's state machine holds exactly the applied entries.
+     */
+    private void compact() {
+        long index;
+        long term;
+        synchronized (this) {
+            if (stopped || restore != null || lastApplied - snapshot.getLastIndex() < settings.snapshotThreshold()) return;
+            // A leader's state machine also holds the changes it has not committed yet; wait until there are none
+            if (role == Role.LEADER && lastApplied < lastIndex()) return;
+            index = lastApplied;
+            term = termAt(index);
+        }
+        // Changes are upserts and removals, so one the leader makes meanwhile is harmless in the
+        // snapshot: its entry, applied after the snapshot, sets the same again
+        List<StateChange> state = stateMachine.snapshot();
+        synchronized (this) {
+            // Rebuilt or sent a newer snapshot in the meantime
+            if (stopped || restore != null || snapshot.getLastIndex() >= index) return;
+            RaftSnapshot compacted = RaftSnapshot.newBuilder().setLastIndex(index).setLastTerm(term).addAllState(state).build();
+            try {
+                storage.saveSnapshot(compacted);
+            } catch (UncheckedIOException e) {
+                System.err.println("Frontend: Replica " + id + " could not save a snapshot: " + e.getMessage());
+                return;
+            }
+            log.subList(0, position(index) + 1).clear();
+            snapshot = compacted;
+        }
+    }
+
+    private void sendSnapshot(String peer, int offset) {
+        installing.add(peer);
+        RaftSnapshot sent = snapshot;
+        int to = Math.min(sent.getStateCount(), offset + settings.maxEntriesPerAppend());
+        InstallSnapshotRequest request = InstallSnapshotRequest.newBuilder()
+                .setTerm(currentTerm)
+                .setLeaderId(id)
+                .setLastIndex(sent.getLastIndex())
+                .setLastTerm(sent.getLastTerm())
+                .setOffset(offset)
+                .addAllState(sent.getStateList().subList(offset, to))
+                .setDone(to == sent.getStateCount())
+                .build();
+        long term = currentTerm;
+        peers.get(peer).withDeadlineAfter(settings.electionTimeoutMinMillis(), TimeUnit.MILLISECONDS)
+                .installSnapshot(request, new StreamObserver<>() {
+                    @Override
+                    public void onNext(InstallSnapshotResponse response) {
+                        onSnapshotResponse(peer, term, request, response);
+                    }
+                    @Override
+                    public void onError(Throwable t) {
+                        // The next heartbeat starts over
+                        synchronized (RaftNode.this) {
+                            installing.remove(peer);
+                        }
+                    }
+                    @Override
+                    public void onCompleted() {}
+                });
+    }
+
+    private synchronized void onSnapshotResponse(String peer, long term, InstallSnapshotRequest request, InstallSnapshotResponse response) {
+        if (response.getTerm() > currentTerm) {
+            stepDown(response.getTerm());
+            return;
+        }
+        if (role != Role.LEADER || currentTerm != term) return;
+
+        if (!response.getSuccess() || request.getLastIndex() != snapshot.getLastIndex()) {
+            // The follower lost track, or this replica has compacted again since
+            sendSnapshot(peer, 0);
+        } else if (!request.getDone()) {
+            sendSnapshot(peer, request.getOffset() + request.getStateCount());
+        } else {
+            installing.remove(peer);
+            if (request.getLastIndex() > matchIndex.get(peer)) {
+                matchIndex.put(peer, request.getLastIndex());
+                nextIndex.put(peer, request.getLastIndex() + 1);
+                advanceCommitIndex();
+            }
+            if (nextIndex.get(peer) <= lastIndex()) sendAppend(peer);
+        }
+    }
+
+    @Override
+    public void installSnapshot(InstallSnapshotRequest request, StreamObserver<InstallSnapshotResponse> responseObserver) {
+        InstallSnapshotResponse response;
+        try {
+            synchronized (this) {
+                response = receive(request);
+            }
+        } catch (UncheckedIOException e) {
+            responseObserver.onError(unsaved(e));
+            return;
+        }
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    private InstallSnapshotResponse receive(InstallSnapshotRequest request) {
+        InstallSnapshotResponse.Builder response = InstallSnapshotResponse.newBuilder();
+        if (request.getTerm() < currentTerm) {
+            return response.setTerm(currentTerm).setSuccess(false).build();
+        }
+        if (request.getTerm() > currentTerm || role != Role.FOLLOWER) stepDown(request.getTerm());
+        leaderId = request.getLeaderId();
+        resetElectionTimer();
+        response.setTerm(currentTerm);
+
+        if (request.getOffset() == 0) {
+            receiving = RaftSnapshot.newBuilder().setLastIndex(request.getLastIndex()).setLastTerm(request.getLastTerm());
+        } else if (receiving == null || receiving.getLastIndex() != request.getLastIndex()
+                || receiving.getStateCount() != request.getOffset()) {
+            // A chunk went missing
+            receiving = null;
+            return response.setSuccess(false).build();
+        }
+        receiving.addAllState(request.getStateList());
+        if (request.getDone()) {
+            RaftSnapshot received = receiving.build();
+            receiving = null;
+            install(received);
+        }
+        return response.setSuccess(true).build();
+    }
+
+    /**
+     * Replaces this replica's log with a snapshot from the leader, keeping any entries after it.
+     */
+    private void install(RaftSnapshot received) {
+        long index = received.getLastIndex();
+        if (index <= snapshot.getLastIndex()) return;
+        boolean keep = index <= lastIndex() && termAt(index) == received.getLastTerm();
+        // Otherwise the log disagrees with the leader's committed entries, so none of it was committed
+        if (!keep) storage.truncate(snapshot.getLastIndex() + 1);
+        storage.saveSnapshot(received);
+        if (keep) {
+            log.subList(0, position(index) + 1).clear();
+        } else {
+            log.clear();
+        }
+        snapshot = received;
+        if (lastApplied < index) {
+            restore = received.getStateList();
+            lastApplied = index;
+            commitIndex = Math.max(commitIndex, index);
+            applyLater();
+        }
+    }
+
+    /**
+     * Saves a new term and vote, then adopts them.
+     */
+    private void saveState(long term, String vote) {
+        storage.saveState(term, vote);
+        currentTerm = term;
+        votedFor = vote;
+    }
+
+    private StatusRuntimeException unsaved(UncheckedIOException e) {
+        System.err.println("Frontend: Replica " + id + " could not save its state: " + e.getMessage());
+        return Status.UNAVAILABLE.withDescription("Replica " + id + " could not save its state").asRuntimeException();
+    }
+
+    private void failPending(String reason) {
+        RuntimeException error = Status.UNAVAILABLE.withDescription(reason).asRuntimeException();
+        pending.values().forEach(future -> future.completeExceptionally(error));
+        pending.clear();
+    }
+
+    private long lastIndex() {
+        return snapshot.getLastIndex() + log.size();
+    }
+
+    private long termAt(long index) {
+        return index == snapshot.getLastIndex() ? snapshot.getLastTerm() : log.get(position(index)).getTerm();
+    }
+
+    /**
+     * @return Where the entry at an index is in the log kept in memory.
+     */
+    private int position(long index) {
+        return (int) (index - snapshot.getLastIndex() - 1);
+    }
+
+    private boolean hasMajority(int count) {
+        return count * 2 > peers.size() + 1;
+    }
+}
@@ -0,0 +1,289 @@
+package personal.cluster_management.frontend;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import personal.cluster_management.proto.LogEntry;
+import personal.cluster_management.proto.RaftSnapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a {@link RaftNode}'s term, vote, snapshot and log on disk, so a replica that restarts
+ * under the same id still knows whom it voted for and which entries it told the leader it had stored.
+ *
+ * The term and vote are one small file, replaced atomically, and so is the snapshot. The log is
+ * an append-only file of length-delimited {@link LogEntry}s after a header holding the index just
+ * before its first entry. Every write is forced to disk before it returns, and the node only
+ * answers a request once its writes have returned. An entry torn by a crash while it was appended
+ * was never acknowledged; it is dropped when the log is opened again.
+ *
+ * Saving a snapshot rewrites the log without the entries the snapshot covers, which keeps the
+ * log file as short as the node's log in memory.
+ *
+ * Not thread safe; the node calls it under its own lock. Writes throw {@link UncheckedIOException}
+ * and leave the memory of the node unchanged, since it only updates itself once they succeed.
+ */
+public class RaftStorage implements Closeable {
+
+    private static final String STATE_FILE = "state";
+    private static final String SNAPSHOT_FILE = "snapshot";
+    private static final String LOG_FILE = "log";
+    private static final int HEADER_BYTES = Long.BYTES;
+
+    private final Path dir;
+    private FileChannel logChannel;
+    private long base; // Index just before the first entry in the log file
+    private final List<Long> offsets = new ArrayList<>(); // Where each entry starts in the log file
+    private List<LogEntry> loaded;
+    private long end;
+    private long term;
+    private String votedFor;
+    private RaftSnapshot snapshot = RaftSnapshot.getDefaultInstance();
+
+    private RaftStorage(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+        readState();
+        Path snapshotFile = dir.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshotFile)) snapshot = RaftSnapshot.parseFrom(Files.readAllBytes(snapshotFile));
+        this.logChannel = openLog();
+        this.loaded = readLog();
+        if (snapshot.getLastIndex() > base) {
+            // A crash between saving a snapshot and rewriting the log
+            rewriteLog(snapshot.getLastIndex());
+            loaded = loaded.subList((int) Math.min(loaded.size(), snapshot.getLastIndex() - base), loaded.size());
+        }
+    }
+
+    /**
+     * Opens the storage in a directory, creating it if needed, and reads what an earlier run left there.
+     * @param dir The directory; one per replica.
+     */
+    public static RaftStorage open(Path dir) throws IOException {
+        return new RaftStorage(dir);
+    }
+
+    /**
+     * @return The latest term saved, or 0 for a new replica.
+     */
+    public long getTerm() {
+        return term;
+    }
+
+    /**
+     * @return The candidate voted for in {@link #getTerm()}, or null if none.
+     */
+    public String getVotedFor() {
+        return votedFor;
+    }
+
+    /**
+     * @return The latest snapshot saved; its last index is 0 if there is none.
+     */
+    public RaftSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return The log after the snapshot as it was when the storage was opened. Entry i is at
+     * the snapshot's last index + i + 1.
+     */
+    public List<LogEntry> getEntries() {
+        return List.copyOf(loaded);
+    }
+
+    /**
+     * Saves the term and the vote cast in it.
+     * @param votedFor The candidate voted for, or null if none.
+     */
+    public void saveState(long term, String votedFor) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(term);
+            out.writeBoolean(votedFor != null);
+            if (votedFor != null) out.writeUTF(votedFor);
+            replace(STATE_FILE, bytes.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not save the Raft term to " + dir, e);
+        }
+        this.term = term;
+        this.votedFor = votedFor;
+    }
+
+    /**
+     * Appends entries to the end of the log.
+     */
+    public void append(List<LogEntry> entries) {
+        if (entries.isEmpty()) return;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        List<Long> starts = new ArrayList<>(entries.size());
+        try {
+            for (LogEntry entry : entries) {
+                starts.add(end + bytes.size());
+                entry.writeDelimitedTo(bytes);
+            }
+            write(logChannel, ByteBuffer.wrap(bytes.toByteArray()), end);
+            logChannel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to the Raft log in " + dir, e);
+        }
+        offsets.addAll(starts);
+        end += bytes.size();
+    }
+
+    /**
+     * Drops the entry at an index and every entry after it.
+     * @param index The first index dropped; indices start at 1.
+     */
+    public void truncate(long index) {
+        int position = (int) Math.max(0, index - base - 1);
+        if (position >= offsets.size()) return;
+        long newEnd = offsets.get(position);
+        try {
+            logChannel.truncate(newEnd);
+            logChannel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not truncate the Raft log in " + dir, e);
+        }
+        offsets.subList(position, offsets.size()).clear();
+        end = newEnd;
+    }
+
+    /**
+     * Saves a snapshot, then drops the entries it covers from the log. Entries after it are kept.
+     */
+    public void saveSnapshot(RaftSnapshot snapshot) {
+        try {
+            replace(SNAPSHOT_FILE, snapshot.toByteArray());
+            rewriteLog(snapshot.getLastIndex());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not save a Raft snapshot to " + dir, e);
+        }
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public void close() throws IOException {
+        logChannel.close();
+    }
+
+    private void readState() throws IOException {
+        Path file = dir.resolve(STATE_FILE);
+        if (!Files.exists(file)) return;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+            term = in.readLong();
+            votedFor = in.readBoolean() ? in.readUTF() : null;
+        }
+    }
+
+    private FileChannel openLog() throws IOException {
+        FileChannel channel = FileChannel.open(dir.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_BYTES) {
+            // A new log, or one whose creation was cut short
+            channel.truncate(0);
+            write(channel, ByteBuffer.allocate(HEADER_BYTES).putLong(0, 0), 0);
+            channel.force(false);
+        }
+        return channel;
+    }
+
+    private List<LogEntry> readLog() throws IOException {
+        byte[] data = Files.readAllBytes(dir.resolve(LOG_FILE));
+        base = ByteBuffer.wrap(data).getLong(0);
+        ByteArrayInputStream in = new ByteArrayInputStream(data, HEADER_BYTES, data.length - HEADER_BYTES);
+        List<LogEntry> entries = new ArrayList<>();
+        while (true) {
+            long start = data.length - in.available();
+            LogEntry entry;
+            try {
+                entry = LogEntry.parseDelimitedFrom(in);
+            } catch (InvalidProtocolBufferException e) {
+                entry = null;
+            }
+            if (entry == null) {
+                end = start;
+                break;
+            }
+            offsets.add(start);
+            entries.add(entry);
+        }
+        if (end < data.length) {
+            // The tail of an append that never finished
+            logChannel.truncate(end);
+            logChannel.force(false);
+        }
+        return entries;
+    }
+
+    /**
+     * Replaces the log file with one that starts after an index, keeping the entries beyond it.
+     */
+    private void rewriteLog(long newBase) throws IOException {
+        int dropped = (int) Math.min(offsets.size(), Math.max(0, newBase - base));
+        long from = dropped < offsets.size() ? offsets.get(dropped) : end;
+        ByteBuffer kept = ByteBuffer.allocate((int) (end - from));
+        while (kept.hasRemaining()) {
+            if (logChannel.read(kept, from + kept.position()) < 0) throw new IOException("The Raft log in " + dir + " ended early");
+        }
+        kept.flip();
+
+        Path tmp = dir.resolve(LOG_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel, ByteBuffer.allocate(HEADER_BYTES).putLong(0, newBase), 0);
+            write(channel, kept, HEADER_BYTES);
+            channel.force(false);
+        }
+        logChannel.close();
+        move(tmp, LOG_FILE);
+        logChannel = FileChannel.open(dir.resolve(LOG_FILE), StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long shift = from - HEADER_BYTES;
+        List<Long> remaining = new ArrayList<>(offsets.subList(dropped, offsets.size()));
+        offsets.clear();
+        remaining.forEach(offset -> offsets.add(offset - shift));
+        end -= shift;
+        base = newBase;
+    }
+
+    /**
+     * Replaces a file with new contents, so a crash leaves either the old file or the new one.
+     */
+    private void replace(String name, byte[] contents) throws IOException {
+        Path tmp = dir.resolve(name + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel, ByteBuffer.wrap(contents), 0);
+            channel.force(false);
+        }
+        move(tmp, name);
+    }
+
+    private void move(Path tmp, String name) throws IOException {
+        Files.move(tmp, dir.resolve(name), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // Makes the rename itself durable
+        try (FileChannel directory = FileChannel.open(dir, StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // Not every platform can open a directory; the rename is still atomic there
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) position += channel.write(buffer, position);
+    }
+}
@@ -0,0 +1,81 @@
+package personal.cluster_management.frontend;
+
+import personal.cluster_management.proto.DistributedJobServiceGrpc;
+import personal.cluster_management.proto.ServerInfo;
+import personal.cluster_management.proto.ServerStatusRequest;
+import personal.cluster_management.proto.ServerStatusResponse;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps each backend's resource capacity and headroom up to date for the {@link JobDispatcher}.
+ * Every round asks each available backend for its status and records its cores, RAM and GPU
+ * memory. Jobs waiting for room are reconsidered after every round.
+ */
+public class ResourceMonitor {
+
+    public static final String INTERVAL_PROPERTY = "frontend.resources.intervalMillis";
+    public static final long DEFAULT_INTERVAL_MILLIS = 2000;
+    private static final long RPC_TIMEOUT_SECONDS = 5;
+
+    private final BackendPool pool;
+    private final Runnable onUpdate;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param pool The backends to watch.
+     * @param onUpdate Called after every round, e.g. to dispatch jobs that now fit.
+     */
+    public ResourceMonitor(BackendPool pool, Runnable onUpdate) {
+        this.pool = pool;
+        this.onUpdate = onUpdate;
+    }
+
+    /**
+     * Starts polling on a daemon thread. The first round runs immediately.
+     * @param intervalMillis Time between rounds.
+     */
+    public synchronized void start(long intervalMillis) {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "resource-monitor");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                System.err.println("Frontend: Resource refresh failed: " + e.getMessage());
+            }
+        }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Runs one round of polling.
+     */
+    public void refresh() {
+        for (Backend backend : pool.available()) {
+            try {
+                ServerStatusResponse status = DistributedJobServiceGrpc.newBlockingStub(backend.getChannel())
+                        .withDeadlineAfter(RPC_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                        .getStatus(ServerStatusRequest.getDefaultInstance());
+                if (status.getServersCount() == 0) continue;
+                ServerInfo info = status.getServers(0);
+                backend.updateResources(Resources.total(info), Resources.available(info));
+            } catch (RuntimeException e) {
+                // Health checks deal with unreachable backends; keep the last known figures
+            }
+        }
+        onUpdate.run();
+    }
+}
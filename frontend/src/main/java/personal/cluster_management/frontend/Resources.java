@@ -0,0 +1,75 @@
+package personal.cluster_management.frontend;
+
+import personal.cluster_management.proto.ResourceRequest;
+import personal.cluster_management.proto.ServerInfo;
+
+/**
+ * An amount of CPU, RAM and GPU memory, either requested by a job or offered by a backend.
+ */
+public record Resources(double cpuCores, double ramGb, double gpuMemoryGb) {
+
+    public static final Resources NONE = new Resources(0, 0, 0);
+
+    public static Resources of(ResourceRequest request) {
+        return new Resources(request.getCpuCores(), request.getRamGb(), request.getGpuMemoryGb());
+    }
+
+    /**
+     * @return Everything the backend has, busy or not.
+     */
+    public static Resources total(ServerInfo info) {
+        return new Resources(info.getCpuCores(), info.getTotalRamGb(), info.getTotalGpuMemoryGb());
+    }
+
+    /**
+     * @return What the backend reported as unused. Idle CPU is the core count scaled by the idle percentage.
+     */
+    public static Resources available(ServerInfo info) {
+        double idleCores = info.getCpuCores() * Math.max(0, 100 - info.getCurrentCpuLoad()) / 100;
+        return new Resources(idleCores, info.getAvailableRamGb(), info.getAvailableGpuMemoryGb());
+    }
+
+    public boolean isNone() {
+        return cpuCores <= 0 && ramGb <= 0 && gpuMemoryGb <= 0;
+    }
+
+    public Resources plus(Resources other) {
+        return new Resources(cpuCores + other.cpuCores, ramGb + other.ramGb, gpuMemoryGb + other.gpuMemoryGb);
+    }
+
+    public Resources minus(Resources other) {
+        return new Resources(cpuCores - other.cpuCores, ramGb - other.ramGb, gpuMemoryGb - other.gpuMemoryGb);
+    }
+
+    /**
+     * @return The larger of this amount and the other, resource by resource.
+     */
+    public Resources max(Resources other) {
+        return new Resources(Math.max(cpuCores, other.cpuCores), Math.max(ramGb, other.ramGb), Math.max(gpuMemoryGb, other.gpuMemoryGb));
+    }
+
+    /**
+     * @return true if every resource in the request is within this amount.
+     */
+    public boolean fits(Resources request) {
+        return request.cpuCores <= cpuCores && request.ramGb <= ramGb && request.gpuMemoryGb <= gpuMemoryGb;
+    }
+
+    /**
+     * The best-fit score of this amount left over on a backend: the sum of the fractions of its
+     * capacity that would stay free. Lower is a tighter fit. Resources the backend lacks are skipped.
+     * @param capacity The backend's total resources.
+     */
+    public double leftoverShare(Resources capacity) {
+        double share = 0;
+        if (capacity.cpuCores > 0) share += cpuCores / capacity.cpuCores;
+        if (capacity.ramGb > 0) share += ramGb / capacity.ramGb;
+        if (capacity.gpuMemoryGb > 0) share += gpuMemoryGb / capacity.gpuMemoryGb;
+        return share;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.1f cores, %.1f GB RAM, %.1f GB GPU memory", cpuCores, ramGb, gpuMemoryGb);
+    }
+}
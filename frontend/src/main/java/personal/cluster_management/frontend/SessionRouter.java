@@ -0,0 +1,173 @@
+package personal.cluster_management.frontend;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Remembers which backend owns each tmux session.
+ *
+ * New sessions are placed with a consistent-hash ring, so placement is stable and a
+ * membership change only moves the sessions owned by the backends that changed.
+ * Once placed, a session is pinned in a hash map; follow-up requests
+ * (kills, jobs naming the session) are routed with a single map lookup.
+ * The ring follows the pool's membership from {@link #start()} until {@link #shutdown()}.
+ */
+public class SessionRouter {
+
+    /**
+     * Told about sessions being pinned and forgotten, e.g. to replicate the changes.
+     * Moves made by {@link #rebalance} are not reported; every frontend makes them itself.
+     */
+    public interface Listener {
+        void pinned(String sessionName, Backend owner);
+        void forgotten(String sessionName, Backend owner);
+    }
+
+    private final Map<String, Backend> sessions = new ConcurrentHashMap<>();
+    private final BackendPool pool;
+    private volatile ConsistentHashRing ring;
+    private volatile Listener listener;
+    private final Consumer<List<Backend>> membershipListener = this::rebalance;
+
+    public SessionRouter(BackendPool pool) {
+        this.pool = pool;
+        this.ring = new ConsistentHashRing(pool.all());
+    }
+
+    /**
+     * Starts following the pool's membership. Call it before the pool changes: the ring is built
+     * from the members the pool had when this router was constructed.
+     */
+    public void start() {
+        pool.addMembershipListener(membershipListener);
+    }
+
+    /**
+     * Stops following the pool's membership. Pinned sessions are kept.
+     */
+    public void shutdown() {
+        pool.removeMembershipListener(membershipListener);
+    }
+
+    /**
+     * @param listener Told about pinned and forgotten sessions, or null.
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Looks up the backend that owns a session.
+     * @param sessionName The tmux session name.
+     * @return The owning backend, or null if the session is unknown.
+     */
+    public Backend lookup(String sessionName) {
+        return sessions.get(sessionName);
+    }
+
+    /**
+     * Finds the backend a session should be on without pinning it.
+     * Falls back to the ring owner for sessions this frontend has not seen, e.g. after a restart.
+     * @param sessionName The tmux session name.
+     * @return The owning backend, or null if the ring is empty.
+     */
+    public Backend owner(String sessionName) {
+        Backend owner = sessions.get(sessionName);
+        return owner != null ? owner : ring.locate(sessionName);
+    }
+
+    /**
+     * Returns the backend that owns a session, placing the session if it is unknown.
+     * New sessions go to the first available backend clockwise from the session's hash.
+     * @param sessionName The tmux session name.
+     * @return The owning backend, or null if no backend is available.
+     */
+    public Backend route(String sessionName) {
+        Backend owner = sessions.get(sessionName);
+        if (owner != null) return owner;
+
+        long now = pool.now();
+        Backend placed = ring.locate(sessionName, b -> b.isAvailable(now));
+        if (placed == null) return null;
+
+        // Another request may have placed the session concurrently; keep the first
+        Backend existing = sessions.putIfAbsent(sessionName, placed);
+        if (existing != null) return existing;
+        Listener l = listener;
+        if (l != null) l.pinned(sessionName, placed);
+        return placed;
+    }
+
+    /**
+     * Forgets a session, but only if it is still owned by the given backend.
+     * @param sessionName The tmux session name.
+     * @param owner The backend the session was routed to.
+     */
+    public void forget(String sessionName, Backend owner) {
+        if (!sessions.remove(sessionName, owner)) return;
+        Listener l = listener;
+        if (l != null) l.forgotten(sessionName, owner);
+    }
+
+    /**
+     * Pins a session without telling the listener, e.g. for a change replicated from another frontend.
+     */
+    public void applyPinned(String sessionName, Backend owner) {
+        sessions.put(sessionName, owner);
+    }
+
+    /**
+     * Forgets a session without telling the listener, but only if it is still owned by the given backend.
+     */
+    public void applyForgotten(String sessionName, Backend owner) {
+        sessions.remove(sessionName, owner);
+    }
+
+    /**
+     * @return A copy of the pinned sessions and their owners.
+     */
+    public Map<String, Backend> snapshot() {
+        return Map.copyOf(sessions);
+    }
+
+    /**
+     * Forgets every pinned session without telling the listener. Unknown sessions are placed by the ring again.
+     */
+    public void clear() {
+        sessions.clear();
+    }
+
+    /**
+     * Rebuilds the ring for a new set of backends.
+     * Sessions on backends that are still members stay where they are. Sessions on
+     * departed backends move to their new ring owner, where the next job naming them
+     * will create them again.
+     * @param members The current backends.
+     */
+    public void rebalance(List<Backend> members) {
+        ConsistentHashRing newRing = new ConsistentHashRing(members);
+        Set<Backend> alive = new HashSet<>(members);
+        this.ring = newRing;
+
+        for (Map.Entry<String, Backend> entry : sessions.entrySet()) {
+            if (alive.contains(entry.getValue())) continue;
+            Backend moved = newRing.locate(entry.getKey());
+            if (moved == null) {
+                sessions.remove(entry.getKey(), entry.getValue());
+            } else {
+                sessions.replace(entry.getKey(), entry.getValue(), moved);
+            }
+        }
+    }
+
+    /**
+     * @return The number of sessions currently pinned to a backend.
+     */
+    public int size() {
+        return sessions.size();
+    }
+}
@@ -0,0 +1,94 @@
+package personal.cluster_management.frontend;
+
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import personal.cluster_management.proto.ServerInfo;
+import personal.cluster_management.proto.ServerStatusRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * What a getStatus caller asked for: which {@link ServerInfo} fields, and which page of backends.
+ *
+ * Pages walk the backends in address order, and only the backends of the requested page are asked
+ * for their status. The page token is the last address of the previous page rather than an offset,
+ * so backends joining or leaving between pages do not shift the others onto the wrong page.
+ */
+public final class StatusQuery {
+
+    /**
+     * The backends to ask for one page, and the token for the page after it ("" on the last page).
+     */
+    public record Page(List<Backend> backends, String nextPageToken) {}
+
+    private final List<FieldDescriptor> fields; // null for every field
+    private final int pageSize; // 0 for every backend
+    private final String after; // null on the first page
+
+    private StatusQuery(List<FieldDescriptor> fields, int pageSize, String after) {
+        this.fields = fields;
+        this.pageSize = pageSize;
+        this.after = after;
+    }
+
+    /**
+     * @throws IllegalArgumentException If the field mask names a field {@link ServerInfo} does not have,
+     * the page size is negative, the page token was not issued by a frontend, or a request for changes
+     * since a generation is paged.
+     */
+    public static StatusQuery of(ServerStatusRequest request) {
+        List<FieldDescriptor> fields = null;
+        if (request.hasFieldMask() && request.getFieldMask().getPathsCount() > 0) {
+            fields = new ArrayList<>();
+            for (String path : request.getFieldMask().getPathsList()) {
+                FieldDescriptor field = ServerInfo.getDescriptor().findFieldByName(path);
+                if (field == null) throw new IllegalArgumentException("ServerInfo has no field '" + path + "'");
+                fields.add(field);
+            }
+        }
+        if (request.getPageSize() < 0) throw new IllegalArgumentException("Page size must not be negative");
+        if (request.getSinceGeneration() != 0 && (request.getPageSize() != 0 || !request.getPageToken().isEmpty())) {
+            throw new IllegalArgumentException("Requests for changes since a generation cannot be paged");
+        }
+        String after = null;
+        if (!request.getPageToken().isEmpty()) {
+            try {
+                after = new String(Base64.getUrlDecoder().decode(request.getPageToken()), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid page token");
+            }
+        }
+        return new StatusQuery(fields, request.getPageSize(), after);
+    }
+
+    /**
+     * @param backends The backends to page through, in any order.
+     */
+    public Page page(List<Backend> backends) {
+        List<Backend> remaining = backends.stream()
+                .filter(backend -> after == null || backend.getAddress().compareTo(after) > 0)
+                .sorted(Comparator.comparing(Backend::getAddress))
+                .toList();
+        if (pageSize == 0 || remaining.size() <= pageSize) return new Page(remaining, "");
+        List<Backend> page = remaining.subList(0, pageSize);
+        String last = page.get(page.size() - 1).getAddress();
+        return new Page(page, Base64.getUrlEncoder().withoutPadding().encodeToString(last.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @return The server with only the requested fields set, so the others are never serialized.
+     */
+    public ServerInfo trim(ServerInfo server) {
+        if (fields == null) return server;
+        ServerInfo.Builder trimmed = ServerInfo.newBuilder();
+        for (FieldDescriptor field : fields) {
+            if (field.isRepeated() ? server.getRepeatedFieldCount(field) > 0 : server.hasField(field)) {
+                trimmed.setField(field, server.getField(field));
+            }
+        }
+        return trimmed.build();
+    }
+}
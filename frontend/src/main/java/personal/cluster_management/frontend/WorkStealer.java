@@ -0,0 +1,340 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import personal.cluster_management.proto.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Moves jobs that have not started yet from backends with long queues to idle backends.
+ *
+ * Each round, every available backend is asked for its status, in which it advertises its
+ * free slots and queued jobs; a backend with free slots and an empty queue is idle. Each idle
+ * backend steals from the backend with the longest queue, taking at most its free slots and
+ * half of the victim's queue, so the two do not trade places.
+ *
+ * Stealing is two-phase. The victim leases the jobs: it takes them out of its queue but keeps
+ * them, and will not run them while the lease holds. Each job is then offered to the thief with
+ * its own SubmitJob call, and the lease is settled: the jobs the thief accepted are dropped by
+ * the victim, which reports them MOVED to their submitters with the thief's address; the rest
+ * go back in its queue. If the steal reply or the settlement is lost, the lease expires and the
+ * victim takes every job back, so no job is lost with a reply.
+ *
+ * The thief accepts a job by starting it, or by refusing it as ALREADY_EXISTS because an earlier
+ * offer of it is still queued there. An offer the thief has not answered is repeated a few times;
+ * if it never answers, the offer is cancelled, which drops the job if it reached the thief's
+ * queue, and the job goes back to the victim. Only a settlement lost after the thief accepted a
+ * job, or a thief that ran a job without ever answering, can make the job run on both backends.
+ * The thief's status stream for each moved job stays open until the job finishes, and its
+ * outcome is logged here.
+ */
+public class WorkStealer {
+
+    public static final String INTERVAL_PROPERTY = "frontend.steal.intervalMillis";
+    public static final long DEFAULT_INTERVAL_MILLIS = 1000;
+    private static final long RPC_TIMEOUT_SECONDS = 5;
+    private static final int OFFER_ATTEMPTS = 3;
+    // Covers the steal, every offer to the thief and the settlement, each bounded by the timeout above
+    private static final long LEASE_MILLIS = TimeUnit.SECONDS.toMillis((OFFER_ATTEMPTS + 3) * RPC_TIMEOUT_SECONDS);
+
+    /**
+     * A backend's advertised load, updated as the round moves jobs around.
+     */
+    private static final class Load {
+        final Backend backend;
+        final int freeSlots;
+        int queued;
+
+        Load(Backend backend, int freeSlots, int queued) {
+            this.backend = backend;
+            this.freeSlots = freeSlots;
+            this.queued = queued;
+        }
+    }
+
+    /**
+     * One offer of a stolen job to the thief, over a SubmitJob call, and the status stream that
+     * follows if the thief takes it.
+     */
+    private static final class Offer implements StreamObserver<JobStatusResponse> {
+        final JobRequest job;
+        final Backend thief;
+        final Context.CancellableContext call = Context.current().withCancellation();
+        final CountDownLatch answered = new CountDownLatch(1);
+        volatile boolean accepted;
+
+        private Offer(JobRequest job, Backend thief) {
+            this.job = job;
+            this.thief = thief;
+        }
+
+        static Offer send(JobRequest job, Backend thief) {
+            Offer offer = new Offer(job, thief);
+            // No deadline: the stream lasts as long as the job, and the thief drops a queued job whose caller goes away
+            offer.call.run(() -> DistributedJobServiceGrpc.newStub(thief.getChannel()).submitJob(job, offer));
+            return offer;
+        }
+
+        void cancel() {
+            call.cancel(null);
+        }
+
+        @Override
+        public void onNext(JobStatusResponse status) {
+            if (answered.getCount() > 0) {
+                accepted = true;
+                answered.countDown();
+            }
+            if (status.getStatus() != JobStatusResponse.Status.RUNNING) {
+                System.out.println("Frontend: Stolen job " + job.getJobId() + " finished on " + thief.getAddress()
+                        + ": " + status.getStatus() + " (" + status.getMessage() + ")");
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (answered.getCount() > 0) {
+                // An earlier offer of the same job is still queued on the thief
+                accepted = Status.fromThrowable(t).getCode() == Status.Code.ALREADY_EXISTS;
+                answered.countDown();
+            } else if (Status.fromThrowable(t).getCode() != Status.Code.CANCELLED) {
+                System.err.println("Frontend: Lost the status of stolen job " + job.getJobId() + " on " + thief.getAddress() + ": " + t.getMessage());
+            }
+        }
+
+        @Override
+        public void onCompleted() {
+            if (answered.getCount() > 0) {
+                // Ended without a status, e.g. moved on again; it is no longer the victim's either way
+                accepted = true;
+                answered.countDown();
+            }
+        }
+    }
+
+    private final BackendPool pool;
+    private final JobLocations locations;
+    private final long offerTimeoutMillis;
+    private ScheduledExecutorService scheduler;
+    private volatile BooleanSupplier enabled = () -> true;
+
+    // Metrics
+    private final LongAdder rounds = new LongAdder();
+    private final LongAdder moved = new LongAdder();
+    private final LongAdder returned = new LongAdder();
+    private final LongAdder unanswered = new LongAdder();
+
+    /**
+     * @param pool The backends to balance.
+     * @param locations Updated with the new backend of every moved job.
+     */
+    public WorkStealer(BackendPool pool, JobLocations locations) {
+        this(pool, locations, TimeUnit.SECONDS.toMillis(RPC_TIMEOUT_SECONDS));
+    }
+
+    /**
+     * @param offerTimeoutMillis How long the thief has to answer each offer of a job.
+     */
+    WorkStealer(BackendPool pool, JobLocations locations, long offerTimeoutMillis) {
+        this.pool = pool;
+        this.locations = locations;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+    }
+
+    /**
+     * @param enabled Checked before every scheduled round; rounds are skipped while it is false,
+     * e.g. on a frontend replica that is not the leader.
+     */
+    public void setEnabled(BooleanSupplier enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Starts stealing rounds on a daemon thread.
+     * @param intervalMillis Time between rounds.
+     */
+    public synchronized void start(long intervalMillis) {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "work-stealer");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                if (enabled.getAsBoolean()) rebalance();
+            } catch (RuntimeException e) {
+                System.err.println("Frontend: Work stealing round failed: " + e.getMessage());
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Runs one round of stealing.
+     * @return The number of jobs moved to another backend.
+     */
+    public int rebalance() {
+        rounds.increment();
+        List<Load> loads = new ArrayList<>();
+        for (Backend backend : pool.available()) {
+            try {
+                ServerStatusResponse status = DistributedJobServiceGrpc.newBlockingStub(backend.getChannel())
+                        .withDeadlineAfter(RPC_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                        .getStatus(ServerStatusRequest.getDefaultInstance());
+                if (status.getServersCount() == 0) continue;
+                ServerInfo info = status.getServers(0);
+                loads.add(new Load(backend, info.getFreeSlots(), info.getQueuedJobs()));
+            } catch (RuntimeException e) {
+                // Health checks deal with unreachable backends; this round just skips them
+            }
+        }
+
+        PriorityQueue<Load> victims = new PriorityQueue<>(Comparator.comparingInt((Load l) -> l.queued).reversed());
+        for (Load load : loads) {
+            if (load.queued > 0) victims.add(load);
+        }
+
+        int movedThisRound = 0;
+        for (Load thief : loads) {
+            if (thief.queued > 0 || thief.freeSlots == 0) continue;
+            Load victim = victims.poll();
+            if (victim == null) break;
+
+            int wanted = Math.min(thief.freeSlots, (victim.queued + 1) / 2);
+            StealResponse lease = steal(victim.backend, wanted);
+            List<JobRequest> jobs = lease.getJobsList();
+            victim.queued -= jobs.size();
+            if (victim.queued > 0) victims.add(victim);
+            if (jobs.isEmpty()) continue;
+
+            List<String> taken = place(thief.backend, jobs);
+            movedThisRound += taken.size();
+            if (settle(victim.backend, lease.getLeaseId(), taken, thief.backend)) returned.add(jobs.size() - taken.size());
+        }
+
+        if (movedThisRound > 0) {
+            moved.add(movedThisRound);
+            System.out.println("Frontend: Moved " + movedThisRound + " queued jobs to idle backends");
+        }
+        return movedThisRound;
+    }
+
+    private StealResponse steal(Backend victim, int maxJobs) {
+        try {
+            return DistributedJobServiceGrpc.newBlockingStub(victim.getChannel())
+                    .withDeadlineAfter(RPC_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .stealJobs(StealRequest.newBuilder().setMaxJobs(maxJobs).setLeaseMs(LEASE_MILLIS).build());
+        } catch (RuntimeException e) {
+            // Jobs the victim leased, if any, go back in its queue when the lease expires
+            System.err.println("Frontend: Could not steal jobs from " + victim.getAddress() + ": " + e.getMessage());
+            return StealResponse.getDefaultInstance();
+        }
+    }
+
+    /**
+     * Tells the victim which leased jobs moved; it takes back the others.
+     * @return false if the victim did not settle the lease, e.g. because it expired.
+     */
+    private boolean settle(Backend victim, String leaseId, List<String> moved, Backend thief) {
+        try {
+            boolean settled = DistributedJobServiceGrpc.newBlockingStub(victim.getChannel())
+                    .withDeadlineAfter(RPC_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .settleSteal(SettleStealRequest.newBuilder()
+                            .setLeaseId(leaseId)
+                            .addAllMovedJobIds(moved)
+                            .setMovedTo(thief.getAddress())
+                            .build())
+                    .getSettled();
+            if (!settled) System.err.println("Frontend: Steal lease on " + victim.getAddress() + " expired before it was settled");
+            return settled;
+        } catch (RuntimeException e) {
+            System.err.println("Frontend: Could not settle steal lease on " + victim.getAddress() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Offers jobs to the thief, repeating the offers it has not answered.
+     * @return The ids of the jobs the thief took.
+     */
+    private List<String> place(Backend thief, List<JobRequest> jobs) {
+        List<Offer> pending = new ArrayList<>();
+        for (JobRequest job : jobs) pending.add(Offer.send(job, thief));
+        List<Offer> silent = new ArrayList<>();
+        List<String> taken = new ArrayList<>();
+        for (int attempt = 1; !pending.isEmpty(); attempt++) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeoutMillis);
+            List<Offer> again = new ArrayList<>();
+            for (Offer offer : pending) {
+                if (!await(offer, deadline)) {
+                    silent.add(offer);
+                    if (attempt < OFFER_ATTEMPTS) again.add(Offer.send(offer.job, thief));
+                } else if (offer.accepted) {
+                    taken.add(offer.job.getJobId());
+                    locations.record(offer.job.getJobId(), thief.getAddress());
+                }
+            }
+            pending = again;
+        }
+
+        // Unanswered offers of a job that goes back are cancelled, so a copy stuck in the thief's queue is dropped
+        Set<String> givenBack = new HashSet<>();
+        for (Offer offer : silent) {
+            if (taken.contains(offer.job.getJobId())) continue;
+            offer.cancel();
+            if (givenBack.add(offer.job.getJobId())) {
+                unanswered.increment();
+                System.err.println("Frontend: Backend " + thief.getAddress() + " did not answer offers of stolen job "
+                        + offer.job.getJobId() + ", giving it back");
+            }
+        }
+        return taken;
+    }
+
+    private static boolean await(Offer offer, long deadlineNanos) {
+        try {
+            return offer.answered.await(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public long movedJobs() {
+        return moved.sum();
+    }
+
+    /**
+     * Appends work stealing metrics in the Prometheus text format.
+     */
+    public void writeMetrics(StringBuilder out) {
+        out.append("# TYPE frontend_work_steal_rounds_total counter\n");
+        out.append("frontend_work_steal_rounds_total ").append(rounds.sum()).append('\n');
+        out.append("# TYPE frontend_work_steal_moved_total counter\n");
+        out.append("frontend_work_steal_moved_total ").append(moved.sum()).append('\n');
+        out.append("# TYPE frontend_work_steal_returned_total counter\n");
+        out.append("frontend_work_steal_returned_total ").append(returned.sum()).append('\n');
+        out.append("# TYPE frontend_work_steal_unanswered_total counter\n");
+        out.append("frontend_work_steal_unanswered_total ").append(unanswered.sum()).append('\n');
+    }
+}
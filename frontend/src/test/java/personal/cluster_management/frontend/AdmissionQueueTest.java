@@ -0,0 +1,83 @@
+package personal.cluster_management.frontend;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for priority ordering and weighted fair share in the admission queue.
+ */
+class AdmissionQueueTest {
+
+    @Test
+    void testHigherPriorityIsServedFirst() {
+        AdmissionQueue<String> queue = new AdmissionQueue<>(Map.of(), 1.0);
+        queue.offer("low", "alice", JobPriority.LOW);
+        queue.offer("normal", "alice", JobPriority.NORMAL);
+        queue.offer("high", "bob", JobPriority.HIGH);
+
+        assertEquals("high", queue.poll(j -> true));
+        assertEquals("normal", queue.poll(j -> true));
+        assertEquals("low", queue.poll(j -> true));
+        assertNull(queue.poll(j -> true));
+    }
+
+    @Test
+    void testUsersShareEquallyByDefault() {
+        AdmissionQueue<String> queue = new AdmissionQueue<>(Map.of(), 1.0);
+        // Alice floods the queue before Bob submits anything
+        for (int i = 0; i < 10; i++) queue.offer("alice-" + i, "alice", JobPriority.NORMAL);
+        for (int i = 0; i < 3; i++) queue.offer("bob-" + i, "bob", JobPriority.NORMAL);
+
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < 6; i++) order.add(queue.poll(j -> true));
+
+        // Bob is not stuck behind Alice's backlog
+        assertEquals(3, order.stream().filter(s -> s.startsWith("bob")).count());
+        assertEquals(List.of("alice-0", "alice-1", "alice-2"), order.stream().filter(s -> s.startsWith("alice")).toList());
+    }
+
+    @Test
+    void testWeightsControlShare() {
+        AdmissionQueue<String> queue = new AdmissionQueue<>(Map.of("alice", 2.0), 1.0);
+        for (int i = 0; i < 30; i++) {
+            queue.offer("alice", "alice", JobPriority.NORMAL);
+            queue.offer("bob", "bob", JobPriority.NORMAL);
+        }
+
+        int alice = 0;
+        for (int i = 0; i < 30; i++) {
+            if (queue.poll(j -> true).equals("alice")) alice++;
+        }
+
+        assertEquals(20, alice, 1);
+    }
+
+    @Test
+    void testItemsThatCannotRunAreSkippedNotDropped() {
+        AdmissionQueue<String> queue = new AdmissionQueue<>(Map.of(), 1.0);
+        queue.offer("pinned", "alice", JobPriority.HIGH);
+        queue.offer("free", "bob", JobPriority.NORMAL);
+
+        assertEquals("free", queue.poll(j -> !j.equals("pinned")));
+        assertEquals(1, queue.size());
+        assertEquals("pinned", queue.poll(j -> true));
+    }
+
+    @Test
+    void testRemove() {
+        AdmissionQueue<String> queue = new AdmissionQueue<>(Map.of(), 1.0);
+        queue.offer("a", "alice", JobPriority.NORMAL);
+        queue.offer("b", "alice", JobPriority.NORMAL);
+
+        assertTrue(queue.remove("a"));
+        assertFalse(queue.remove("a"));
+        assertEquals(1, queue.size(JobPriority.NORMAL));
+        assertEquals("b", queue.poll(j -> true));
+        assertEquals(0, queue.size());
+    }
+}
@@ -0,0 +1,255 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.health.v1.HealthCheckResponse;
+import io.grpc.protobuf.services.HealthStatusManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the health-checked backend pool.
+ * Time is driven by a fake clock so ejection and slow start can be tested without sleeping.
+ */
+class BackendPoolTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private Server healthServer;
+    private Server plainServer;
+    private HealthStatusManager health;
+    private ManagedChannel channel1;
+    private ManagedChannel channel2;
+    private ManagedChannel channel3;
+    private Backend backend1;
+    private Backend backend2;
+    private Backend backend3;
+    private final AtomicLong clock = new AtomicLong(1000 * SECOND);
+
+    private final String healthServerName = "in-process-health";
+    private final String plainServerName = "in-process-plain";
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Only backend1 hosts the health service; the others answer UNIMPLEMENTED
+        health = new HealthStatusManager();
+        healthServer = InProcessServerBuilder.forName(healthServerName)
+                .addService(health.getHealthService())
+                .directExecutor()
+                .build()
+                .start();
+        plainServer = InProcessServerBuilder.forName(plainServerName)
+                .directExecutor()
+                .build()
+                .start();
+
+        channel1 = InProcessChannelBuilder.forName(healthServerName).directExecutor().build();
+        channel2 = InProcessChannelBuilder.forName(plainServerName).directExecutor().build();
+        channel3 = InProcessChannelBuilder.forName(plainServerName).directExecutor().build();
+        backend1 = new Backend("backend-1", channel1);
+        backend2 = new Backend("backend-2", channel2);
+        backend3 = new Backend("backend-3", channel3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel1.shutdownNow();
+        channel2.shutdownNow();
+        channel3.shutdownNow();
+        healthServer.shutdownNow();
+        plainServer.shutdownNow();
+    }
+
+    private BackendPool newPool(List<Backend> backends) {
+        return new BackendPool(backends, BackendPool.Settings.defaults(), clock::get);
+    }
+
+    @Test
+    void testPickRoundRobinsOverHealthyBackends() {
+        BackendPool pool = newPool(List.of(backend1, backend2));
+
+        assertSame(backend1, pool.pick());
+        assertSame(backend2, pool.pick());
+        assertSame(backend1, pool.pick());
+    }
+
+    @Test
+    void testPickReturnsNullForEmptyPool() {
+        BackendPool pool = newPool(List.of());
+
+        assertTrue(pool.isEmpty());
+        assertNull(pool.pick());
+    }
+
+    @Test
+    void testFailedProbesMarkBackendDownAndSuccessRestoresIt() {
+        BackendPool pool = newPool(List.of(backend1, backend2));
+        health.setStatus("", HealthCheckResponse.ServingStatus.NOT_SERVING);
+
+        // Two consecutive failed probes are needed to mark a backend down
+        pool.probeAll();
+        assertTrue(backend1.isProbeHealthy());
+        pool.probeAll();
+        assertFalse(backend1.isProbeHealthy());
+
+        // Routing skips it immediately, without any call being attempted
+        assertEquals(List.of(backend2), pool.available());
+        for (int i = 0; i < 4; i++) {
+            assertSame(backend2, pool.pick());
+        }
+
+        health.setStatus("", HealthCheckResponse.ServingStatus.SERVING);
+        pool.probeAll();
+        assertTrue(backend1.isProbeHealthy());
+        assertEquals(2, pool.available().size());
+    }
+
+    @Test
+    void testBackendWithoutHealthServiceIsTreatedAsHealthy() {
+        BackendPool pool = newPool(List.of(backend2));
+
+        pool.probeAll();
+        pool.probeAll();
+
+        assertTrue(backend2.isProbeHealthy());
+    }
+
+    @Test
+    void testHighErrorRateEjectsBackend() {
+        BackendPool pool = newPool(List.of(backend1, backend2));
+
+        for (int i = 0; i < 10; i++) {
+            backend1.recordResult(false, 1_000_000);
+            backend2.recordResult(true, 1_000_000);
+        }
+        pool.detectOutliers();
+
+        assertFalse(backend1.isEjected(clock.get()));
+        assertTrue(backend2.isEjected(clock.get()));
+        assertEquals(List.of(backend1), pool.available());
+    }
+
+    @Test
+    void testLatencyOutlierIsEjected() {
+        BackendPool pool = newPool(List.of(backend1, backend2, backend3));
+
+        for (int i = 0; i < 10; i++) {
+            backend1.recordResult(false, 10_000_000);
+            backend2.recordResult(false, 12_000_000);
+            backend3.recordResult(false, 500_000_000);
+        }
+        pool.detectOutliers();
+
+        assertTrue(backend3.isEjected(clock.get()));
+        assertEquals(2, pool.available().size());
+    }
+
+    @Test
+    void testEjectionIsCappedByMaxEjectionPercent() {
+        BackendPool pool = newPool(List.of(backend1, backend2));
+
+        for (int i = 0; i < 10; i++) {
+            backend1.recordResult(true, 1_000_000);
+            backend2.recordResult(true, 1_000_000);
+        }
+        pool.detectOutliers();
+
+        // At most 50% of a two-backend pool may be ejected
+        assertEquals(1, pool.available().size());
+    }
+
+    @Test
+    void testEjectedBackendReturnsWithSlowStart() {
+        BackendPool.Settings settings = BackendPool.Settings.defaults();
+        BackendPool pool = newPool(List.of(backend1, backend2));
+
+        for (int i = 0; i < 10; i++) {
+            backend1.recordResult(false, 1_000_000);
+            backend2.recordResult(true, 1_000_000);
+        }
+        pool.detectOutliers();
+        assertTrue(backend2.isEjected(clock.get()));
+
+        // After the base ejection time the backend is back, but at reduced weight
+        clock.addAndGet(settings.baseEjectionTime().toNanos());
+        assertTrue(backend2.isAvailable(clock.get()));
+        long window = settings.slowStartWindow().toNanos();
+        assertEquals(settings.slowStartMinWeight(), backend2.weight(clock.get(), window, settings.slowStartMinWeight()), 1e-9);
+
+        clock.addAndGet(window / 2);
+        assertEquals(0.5, backend2.weight(clock.get(), window, settings.slowStartMinWeight()), 1e-9);
+
+        clock.addAndGet(window / 2);
+        assertEquals(1.0, backend2.weight(clock.get(), window, settings.slowStartMinWeight()), 1e-9);
+    }
+
+    @Test
+    void testRepeatedEjectionsLastLonger() {
+        BackendPool.Settings settings = BackendPool.Settings.defaults();
+        long base = settings.baseEjectionTime().toNanos();
+        BackendPool pool = newPool(List.of(backend1, backend2));
+
+        for (int round = 1; round <= 2; round++) {
+            for (int i = 0; i < 10; i++) {
+                backend1.recordResult(false, 1_000_000);
+                backend2.recordResult(true, 1_000_000);
+            }
+            pool.detectOutliers();
+            clock.addAndGet(base);
+            if (round == 1) assertFalse(backend2.isEjected(clock.get()));
+        }
+
+        // The second ejection lasts twice as long as the first
+        assertTrue(backend2.isEjected(clock.get()));
+        clock.addAndGet(base);
+        assertFalse(backend2.isEjected(clock.get()));
+    }
+
+    @Test
+    void testAddedBackendJoinsRoutingAfterSlowStart() {
+        BackendPool.Settings settings = BackendPool.Settings.defaults();
+        BackendPool pool = newPool(List.of(backend1));
+        List<List<Backend>> changes = new ArrayList<>();
+        pool.addMembershipListener(changes::add);
+
+        assertTrue(pool.add(backend2));
+        assertFalse(pool.add(new Backend("backend-2", channel3)));
+
+        assertEquals(List.of(List.of(backend1, backend2)), changes);
+        assertSame(backend2, pool.find("backend-2"));
+        assertEquals(settings.slowStartMinWeight(),
+                backend2.weight(clock.get(), settings.slowStartWindow().toNanos(), settings.slowStartMinWeight()), 1e-9);
+
+        clock.addAndGet(settings.slowStartWindow().toNanos());
+        assertSame(backend1, pool.pick());
+        assertSame(backend2, pool.pick());
+    }
+
+    @Test
+    void testRemovedBackendGetsNoTrafficAndIsDrained() {
+        BackendPool pool = newPool(List.of(backend1, backend2));
+        List<List<Backend>> changes = new ArrayList<>();
+        pool.addMembershipListener(changes::add);
+
+        assertSame(backend2, pool.remove("backend-2"));
+        assertNull(pool.remove("backend-2"));
+
+        assertEquals(List.of(List.of(backend1)), changes);
+        assertTrue(backend2.isRetired());
+        assertFalse(backend2.isAvailable(clock.get()));
+        assertTrue(channel2.isShutdown());
+        for (int i = 0; i < 4; i++) {
+            assertSame(backend1, pool.pick());
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import personal.cluster_management.proto.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the SubmitJobs bulk stream, going through a real in-process frontend server
+ * so that flow control is exercised.
+ */
+class BulkJobForwarderTest {
+
+    private final List<Server> servers = new ArrayList<>();
+    private final List<ManagedChannel> channels = new ArrayList<>();
+    private final Map<String, AtomicInteger> batchesReceived = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> jobsReceived = new ConcurrentHashMap<>();
+    private FrontEndImpl frontend;
+    private DistributedJobServiceGrpc.DistributedJobServiceStub client;
+
+    /**
+     * A backend that acknowledges every job it receives. Its jobs are done at once, unless it
+     * holds them until {@link #release()}.
+     */
+    private class AckingBackendService extends DistributedJobServiceGrpc.DistributedJobServiceImplBase {
+        private final String serverId;
+        private final List<String> held = new ArrayList<>();
+        private boolean holding;
+        private StreamObserver<JobAck> stream;
+        private boolean streamDone;
+
+        AckingBackendService(String serverId) {
+            this(serverId, false);
+        }
+
+        AckingBackendService(String serverId, boolean holding) {
+            this.serverId = serverId;
+            this.holding = holding;
+            batchesReceived.put(serverId, new AtomicInteger());
+            jobsReceived.put(serverId, new AtomicInteger());
+        }
+
+        /**
+         * Reports the held jobs done, and from then on every job as soon as it arrives.
+         */
+        synchronized void release() {
+            holding = false;
+            held.forEach(jobId -> stream.onNext(done(jobId)));
+            held.clear();
+            if (streamDone) stream.onCompleted();
+        }
+
+        private JobAck done(String jobId) {
+            return JobAck.newBuilder().setJobId(jobId).setAccepted(true).setDone(true).build();
+        }
+
+        @Override
+        public StreamObserver<JobBatch> submitJobs(StreamObserver<JobAck> responseObserver) {
+            synchronized (this) {
+                stream = responseObserver;
+            }
+            return new StreamObserver<>() {
+                @Override
+                public void onNext(JobBatch batch) {
+                    synchronized (AckingBackendService.this) {
+                        batchesReceived.get(serverId).incrementAndGet();
+                        for (JobRequest job : batch.getJobsList()) {
+                            jobsReceived.get(serverId).incrementAndGet();
+                            responseObserver.onNext(JobAck.newBuilder().setJobId(job.getJobId()).setAccepted(true).setMessage(serverId).build());
+                            if (!batch.getReportDone()) continue;
+                            if (holding) {
+                                held.add(job.getJobId());
+                            } else {
+                                responseObserver.onNext(done(job.getJobId()));
+                            }
+                        }
+                    }
+                }
+                @Override
+                public void onError(Throwable t) {}
+                @Override
+                public void onCompleted() {
+                    synchronized (AckingBackendService.this) {
+                        streamDone = true;
+                        if (held.isEmpty()) responseObserver.onCompleted();
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * A backend whose bulk stream fails immediately.
+     */
+    private static class FailingBackendService extends DistributedJobServiceGrpc.DistributedJobServiceImplBase {
+        @Override
+        public StreamObserver<JobBatch> submitJobs(StreamObserver<JobAck> responseObserver) {
+            responseObserver.onError(Status.UNAVAILABLE.withDescription("Simulated Unavailable").asRuntimeException());
+            return new StreamObserver<>() {
+                @Override
+                public void onNext(JobBatch batch) {}
+                @Override
+                public void onError(Throwable t) {}
+                @Override
+                public void onCompleted() {}
+            };
+        }
+    }
+
+    /**
+     * Collects acknowledgements until the stream ends.
+     */
+    private static class AckCollector implements StreamObserver<JobAck> {
+        final List<JobAck> acks = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        @Override
+        public void onNext(JobAck value) { acks.add(value); }
+        @Override
+        public void onError(Throwable t) { done.countDown(); }
+        @Override
+        public void onCompleted() { done.countDown(); }
+    }
+
+    private ManagedChannel startBackend(String name, DistributedJobServiceGrpc.DistributedJobServiceImplBase service) throws IOException {
+        servers.add(InProcessServerBuilder.forName(name).addService(service).build().start());
+        ManagedChannel channel = InProcessChannelBuilder.forName(name).build();
+        channels.add(channel);
+        return channel;
+    }
+
+    private void startFrontend(List<ManagedChannel> backendChannels) throws IOException {
+        frontend = new FrontEndImpl(backendChannels);
+        servers.add(InProcessServerBuilder.forName("in-process-bulk-frontend").addService(frontend).build().start());
+        ManagedChannel channel = InProcessChannelBuilder.forName("in-process-bulk-frontend").build();
+        channels.add(channel);
+        client = DistributedJobServiceGrpc.newStub(channel);
+    }
+
+    @BeforeEach
+    void setUp() {
+        batchesReceived.clear();
+        jobsReceived.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (frontend != null) frontend.shutdown();
+        channels.forEach(ManagedChannel::shutdownNow);
+        servers.forEach(Server::shutdownNow);
+    }
+
+    @Test
+    void testAllJobsAreAcknowledgedAndBatchedPerBackend() throws Exception {
+        startFrontend(List.of(
+                startBackend("in-process-bulk-1", new AckingBackendService("Backend-1")),
+                startBackend("in-process-bulk-2", new AckingBackendService("Backend-2"))));
+
+        AckCollector collector = new AckCollector();
+        StreamObserver<JobBatch> requests = client.submitJobs(collector);
+        for (int b = 0; b < 10; b++) {
+            JobBatch.Builder batch = JobBatch.newBuilder();
+            for (int i = 0; i < 100; i++) {
+                batch.addJobs(JobRequest.newBuilder().setJobId("job-" + (b * 100 + i)).setCommand("true"));
+            }
+            requests.onNext(batch.build());
+        }
+        requests.onCompleted();
+
+        assertTrue(collector.done.await(5, TimeUnit.SECONDS));
+        assertEquals(1000, collector.acks.size());
+        assertTrue(collector.acks.stream().allMatch(JobAck::getAccepted));
+
+        // Both backends take jobs, several to a message
+        assertEquals(1000, jobsReceived.get("Backend-1").get() + jobsReceived.get("Backend-2").get());
+        assertTrue(jobsReceived.get("Backend-1").get() > 0);
+        assertTrue(jobsReceived.get("Backend-2").get() > 0);
+        assertTrue(batchesReceived.get("Backend-1").get() + batchesReceived.get("Backend-2").get() < 1000);
+    }
+
+    @Test
+    void testJobsWaitForFreeSlots() throws Exception {
+        AckingBackendService backend1 = new AckingBackendService("Backend-1", true);
+        AckingBackendService backend2 = new AckingBackendService("Backend-2", true);
+        startFrontend(List.of(startBackend("in-process-bulk-1", backend1), startBackend("in-process-bulk-2", backend2)));
+
+        AckCollector collector = new AckCollector();
+        StreamObserver<JobBatch> requests = client.submitJobs(collector);
+        JobBatch.Builder batch = JobBatch.newBuilder();
+        for (int i = 0; i < 40; i++) {
+            batch.addJobs(JobRequest.newBuilder().setJobId("job-" + i).setCommand("true"));
+        }
+        requests.onNext(batch.build());
+        requests.onCompleted();
+
+        // Each backend gets as many jobs as it has slots, then nothing until one is done
+        int slots = JobDispatcher.DEFAULT_SLOTS_PER_BACKEND;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (collector.acks.size() < 2 * slots && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        assertEquals(slots, jobsReceived.get("Backend-1").get());
+        assertEquals(slots, jobsReceived.get("Backend-2").get());
+        assertEquals(2 * slots, collector.acks.size());
+        assertEquals(40 - 2 * slots, frontend.getDispatcher().queued());
+
+        backend1.release();
+        backend2.release();
+        assertTrue(collector.done.await(5, TimeUnit.SECONDS));
+        assertEquals(40, collector.acks.size());
+        assertTrue(collector.acks.stream().allMatch(JobAck::getAccepted));
+    }
+
+    @Test
+    void testJobsInTmuxSessionGoToSessionOwner() throws Exception {
+        ManagedChannel channel1 = startBackend("in-process-bulk-1", new AckingBackendService("Backend-1"));
+        ManagedChannel channel2 = startBackend("in-process-bulk-2", new AckingBackendService("Backend-2"));
+        startFrontend(List.of(channel1, channel2));
+        Backend owner = frontend.getSessionRouter().route("sweep");
+        String ownerId = owner.getChannel() == channel1 ? "Backend-1" : "Backend-2";
+
+        AckCollector collector = new AckCollector();
+        StreamObserver<JobBatch> requests = client.submitJobs(collector);
+        JobBatch.Builder batch = JobBatch.newBuilder();
+        for (int i = 0; i < 20; i++) {
+            batch.addJobs(JobRequest.newBuilder().setJobId("job-" + i).setTmuxSessionName("sweep"));
+        }
+        requests.onNext(batch.build());
+        requests.onCompleted();
+
+        assertTrue(collector.done.await(5, TimeUnit.SECONDS));
+        assertEquals(20, collector.acks.size());
+        assertTrue(collector.acks.stream().allMatch(a -> a.getMessage().equals(ownerId)));
+    }
+
+    @Test
+    void testFailingBackendRejectsItsJobs() throws Exception {
+        startFrontend(List.of(startBackend("in-process-bulk-failing", new FailingBackendService())));
+
+        AckCollector collector = new AckCollector();
+        StreamObserver<JobBatch> requests = client.submitJobs(collector);
+        requests.onNext(JobBatch.newBuilder()
+                .addJobs(JobRequest.newBuilder().setJobId("doomed-1"))
+                .addJobs(JobRequest.newBuilder().setJobId("doomed-2"))
+                .build());
+        requests.onCompleted();
+
+        assertTrue(collector.done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, collector.acks.size());
+        assertTrue(collector.acks.stream().noneMatch(JobAck::getAccepted));
+    }
+}
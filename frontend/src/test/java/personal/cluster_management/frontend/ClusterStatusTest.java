@@ -0,0 +1,69 @@
+package personal.cluster_management.frontend;
+
+import org.junit.jupiter.api.Test;
+import personal.cluster_management.proto.ServerInfo;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that cluster status generations report exactly what changed.
+ */
+class ClusterStatusTest {
+
+    private static ServerInfo server(String hostName, double cpuLoad) {
+        return ServerInfo.newBuilder().setHostName(hostName).setCurrentCpuLoad(cpuLoad).build();
+    }
+
+    @Test
+    void testUnchangedReplyKeepsTheGeneration() {
+        ClusterStatus status = new ClusterStatus();
+        long first = status.update(List.of("a", "b"), Map.of("a", List.of(server("a", 10)), "b", List.of(server("b", 20))));
+        long second = status.update(List.of("a", "b"), Map.of("a", List.of(server("a", 10)), "b", List.of(server("b", 20))));
+
+        assertEquals(first, second);
+        assertTrue(status.since(first).isEmpty());
+    }
+
+    @Test
+    void testOnlyChangedServersAreReported() {
+        ClusterStatus status = new ClusterStatus();
+        long seen = status.update(List.of("a", "b"), Map.of("a", List.of(server("a", 10)), "b", List.of(server("b", 20))));
+
+        // b did not answer this time, so it keeps its last status
+        long now = status.update(List.of("a", "b"), Map.of("a", List.of(server("a", 50))));
+        ClusterStatus.Changes changes = status.since(seen);
+
+        assertTrue(now > seen);
+        assertEquals(now, changes.generation());
+        assertFalse(changes.complete());
+        assertEquals(List.of(server("a", 50)), changes.servers());
+        assertTrue(changes.removedHostNames().isEmpty());
+    }
+
+    @Test
+    void testBackendsLeavingAreReportedAsRemoved() {
+        ClusterStatus status = new ClusterStatus();
+        long seen = status.update(List.of("a", "b"), Map.of("a", List.of(server("a", 10)), "b", List.of(server("b", 20))));
+
+        status.update(List.of("a"), Map.of("a", List.of(server("a", 10))));
+        ClusterStatus.Changes changes = status.since(seen);
+
+        assertTrue(changes.servers().isEmpty());
+        assertEquals(List.of("b"), changes.removedHostNames());
+    }
+
+    @Test
+    void testUnknownGenerationGetsEverything() {
+        ClusterStatus status = new ClusterStatus();
+        long seen = status.update(List.of("a"), Map.of("a", List.of(server("a", 10))));
+
+        // A generation from another frontend, or from before this one restarted
+        ClusterStatus.Changes changes = status.since(seen + 100);
+
+        assertTrue(changes.complete());
+        assertEquals(List.of(server("a", 10)), changes.servers());
+    }
+}
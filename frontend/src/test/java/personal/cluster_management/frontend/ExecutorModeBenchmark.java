@@ -0,0 +1,161 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import personal.cluster_management.proto.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares throughput and p99 latency of the frontend executor modes under concurrent
+ * getStatus and submitJob load. Run manually. The backends are in-process fakes that answer
+ * getStatus after a short delay, so getStatus holds a frontend thread the way it would
+ * against real backends.
+ */
+public class ExecutorModeBenchmark {
+
+    private static final int BACKENDS = 3;
+    private static final int CLIENT_THREADS = 64;
+    private static final long STATUS_DELAY_MILLIS = 2;
+    private static final long WARMUP_MILLIS = 2_000;
+    private static final long MEASURE_MILLIS = 5_000;
+    private static final int INITIAL_SAMPLES = 1024; // Per client thread
+
+    private static final ScheduledExecutorService DELAYS = Executors.newScheduledThreadPool(2);
+
+    /**
+     * A backend that accepts jobs at once and answers status requests after a delay,
+     * without holding a thread while it waits.
+     */
+    private static class DelayedBackendService extends DistributedJobServiceGrpc.DistributedJobServiceImplBase {
+        private final String serverId;
+
+        DelayedBackendService(String serverId) {
+            this.serverId = serverId;
+        }
+
+        @Override
+        public void submitJob(JobRequest request, StreamObserver<JobStatusResponse> responseObserver) {
+            responseObserver.onNext(JobStatusResponse.newBuilder()
+                    .setJobId(request.getJobId())
+                    .setStatus(JobStatusResponse.Status.RUNNING)
+                    .build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void getStatus(ServerStatusRequest request, StreamObserver<ServerStatusResponse> responseObserver) {
+            DELAYS.schedule(() -> {
+                responseObserver.onNext(ServerStatusResponse.newBuilder()
+                        .addServers(ServerInfo.newBuilder().setHostName(serverId).setStatus(ServerInfo.Availability.AVAILABLE))
+                        .build());
+                responseObserver.onCompleted();
+            }, STATUS_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private record Result(long calls, double callsPerSecond, long p99Micros) {}
+
+    private static Result run(FrontEndExecutor.Mode mode) throws Exception {
+        List<Server> servers = new ArrayList<>();
+        List<ManagedChannel> channels = new ArrayList<>();
+        FrontEndExecutor executor = new FrontEndExecutor(mode, 4 * Runtime.getRuntime().availableProcessors());
+
+        List<ManagedChannel> backendChannels = new ArrayList<>();
+        for (int i = 0; i < BACKENDS; i++) {
+            String name = "executor-bench-backend-" + i;
+            servers.add(InProcessServerBuilder.forName(name).addService(new DelayedBackendService(name)).build().start());
+            InProcessChannelBuilder channelBuilder = InProcessChannelBuilder.forName(name);
+            executor.configure(channelBuilder);
+            backendChannels.add(channelBuilder.build());
+        }
+        channels.addAll(backendChannels);
+
+        FrontEndImpl frontend = new FrontEndImpl(backendChannels);
+        InProcessServerBuilder serverBuilder = InProcessServerBuilder.forName("executor-bench-frontend");
+        serverBuilder.addService(frontend);
+        executor.configure(serverBuilder);
+        servers.add(serverBuilder.build().start());
+        ManagedChannel clientChannel = InProcessChannelBuilder.forName("executor-bench-frontend").build();
+        channels.add(clientChannel);
+        DistributedJobServiceGrpc.DistributedJobServiceBlockingStub client = DistributedJobServiceGrpc.newBlockingStub(clientChannel);
+
+        // Each client thread alternates getStatus and submitJob until the deadline
+        long start = System.nanoTime();
+        long warmupEnd = start + TimeUnit.MILLISECONDS.toNanos(WARMUP_MILLIS);
+        long end = warmupEnd + TimeUnit.MILLISECONDS.toNanos(MEASURE_MILLIS);
+        // Exact samples, not histogram buckets, so modes a fraction of a millisecond apart still differ.
+        // Each thread's buffer starts small and doubles, since how many calls fit in the run depends on the mode.
+        long[][] latencies = new long[CLIENT_THREADS][];
+        long[] counts = new long[CLIENT_THREADS];
+        CountDownLatch done = new CountDownLatch(CLIENT_THREADS);
+        for (int t = 0; t < CLIENT_THREADS; t++) {
+            int thread = t;
+            Thread.ofPlatform().daemon().start(() -> {
+                long[] samples = new long[INITIAL_SAMPLES];
+                int n = 0;
+                try {
+                    for (int i = 0; ; i++) {
+                        long callStart = System.nanoTime();
+                        if (callStart >= end) break;
+                        if (i % 2 == 0) {
+                            client.getStatus(ServerStatusRequest.getDefaultInstance());
+                        } else {
+                            client.submitJob(JobRequest.newBuilder().setJobId("job-" + thread + "-" + i).build()).forEachRemaining(r -> {});
+                        }
+                        if (callStart >= warmupEnd) {
+                            if (n == samples.length) samples = Arrays.copyOf(samples, 2 * n);
+                            samples[n++] = System.nanoTime() - callStart;
+                        }
+                    }
+                } finally {
+                    latencies[thread] = samples;
+                    counts[thread] = n;
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+
+        long total = Arrays.stream(counts).sum();
+        long[] all = new long[(int) total];
+        int pos = 0;
+        for (int t = 0; t < CLIENT_THREADS; t++) {
+            System.arraycopy(latencies[t], 0, all, pos, (int) counts[t]);
+            pos += (int) counts[t];
+        }
+        Arrays.sort(all);
+        long p99 = all.length == 0 ? 0 : all[(int) Math.min(all.length - 1, Math.ceil(0.99 * all.length) - 1)];
+
+        frontend.shutdown();
+        channels.forEach(ManagedChannel::shutdownNow);
+        servers.forEach(Server::shutdownNow);
+        executor.close();
+        return new Result(total, total / (MEASURE_MILLIS / 1000.0), TimeUnit.NANOSECONDS.toMicros(p99));
+    }
+
+    public static void main(String[] args) throws Exception {
+        // The frontend logs every call; keep that out of the measurement
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        out.println(CLIENT_THREADS + " client threads, " + BACKENDS + " backends, getStatus delay " + STATUS_DELAY_MILLIS + "ms");
+        for (FrontEndExecutor.Mode mode : FrontEndExecutor.Mode.values()) {
+            Result result = run(mode);
+            out.printf("%-8s %,10.0f calls/s   p99 %,8d us   (%d calls)%n",
+                    mode.name().toLowerCase(), result.callsPerSecond(), result.p99Micros(), result.calls());
+        }
+        DELAYS.shutdownNow();
+    }
+}
@@ -0,0 +1,217 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import personal.cluster_management.proto.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * A cluster of in-process fake backends that answer getStatus and submitJob after a sampled delay,
+ * fail some calls, and never answer others, so the frontend can be measured against realistic tail latency.
+ * Delays are scheduled rather than slept, so hundreds of backends need no thread each.
+ *
+ * Close the cluster when done; hung calls are released when their callers cancel them or the cluster closes.
+ */
+public class FakeCluster implements AutoCloseable {
+
+    private static final AtomicInteger CLUSTERS = new AtomicInteger();
+
+    /**
+     * A distribution of response delays.
+     */
+    @FunctionalInterface
+    public interface Latency {
+        long sampleNanos(SplittableRandom random);
+
+        static Latency none() {
+            return random -> 0;
+        }
+
+        static Latency fixed(Duration delay) {
+            return random -> delay.toNanos();
+        }
+
+        static Latency uniform(Duration min, Duration max) {
+            return random -> random.nextLong(min.toNanos(), max.toNanos() + 1);
+        }
+
+        static Latency exponential(Duration mean) {
+            return random -> (long) (-Math.log(1 - random.nextDouble()) * mean.toNanos());
+        }
+
+        /**
+         * A long right tail: half the delays are under the median, a few are many times it.
+         * @param sigma Spread of the logarithm of the delay; 1 puts p99 at about ten times the median.
+         */
+        static Latency logNormal(Duration median, double sigma) {
+            return random -> (long) (median.toNanos() * Math.exp(sigma * random.nextGaussian()));
+        }
+
+        /**
+         * Usually fast, sometimes slow: a GC pause, a cold cache, a busy disk.
+         */
+        static Latency bimodal(Latency fast, Latency slow, double slowFraction) {
+            return random -> random.nextDouble() < slowFraction ? slow.sampleNanos(random) : fast.sampleNanos(random);
+        }
+    }
+
+    /**
+     * How one backend behaves. A call hangs with probability hangRate, otherwise fails with probability
+     * errorRate after its delay, otherwise succeeds after its delay.
+     * @param error The status failed calls end with.
+     */
+    public record Faults(Latency latency, double errorRate, Status error, double hangRate) {
+
+        public Faults {
+            if (errorRate < 0 || errorRate > 1 || hangRate < 0 || hangRate > 1) {
+                throw new IllegalArgumentException("Rates must be between 0 and 1");
+            }
+        }
+
+        public static Faults healthy(Latency latency) {
+            return new Faults(latency, 0, Status.UNAVAILABLE, 0);
+        }
+
+        public Faults withErrors(double rate) {
+            return new Faults(latency, rate, error, hangRate);
+        }
+
+        public Faults withHangs(double rate) {
+            return new Faults(latency, errorRate, error, rate);
+        }
+    }
+
+    /**
+     * A backend that answers after its fault profile's delay, or not at all.
+     */
+    public static class FakeBackend extends DistributedJobServiceGrpc.DistributedJobServiceImplBase {
+        private final String hostName;
+        private final Faults faults;
+        private final ScheduledExecutorService timer;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder hangs = new LongAdder();
+
+        FakeBackend(String hostName, Faults faults, ScheduledExecutorService timer) {
+            this.hostName = hostName;
+            this.faults = faults;
+            this.timer = timer;
+        }
+
+        @Override
+        public void getStatus(ServerStatusRequest request, StreamObserver<ServerStatusResponse> responseObserver) {
+            answer(responseObserver, ServerStatusResponse.newBuilder()
+                    .addServers(ServerInfo.newBuilder().setHostName(hostName).setStatus(ServerInfo.Availability.AVAILABLE)
+                            .setCurrentCpuLoad(ThreadLocalRandom.current().nextInt(100)).setFreeSlots(4).setCpuCores(16))
+                    .build());
+        }
+
+        @Override
+        public void submitJob(JobRequest request, StreamObserver<JobStatusResponse> responseObserver) {
+            answer(responseObserver, JobStatusResponse.newBuilder()
+                    .setJobId(request.getJobId())
+                    .setStatus(JobStatusResponse.Status.RUNNING)
+                    .setMessage("Running on " + hostName)
+                    .build());
+        }
+
+        private <T> void answer(StreamObserver<T> responseObserver, T response) {
+            calls.increment();
+            SplittableRandom random = new SplittableRandom(ThreadLocalRandom.current().nextLong());
+            if (random.nextDouble() < faults.hangRate()) {
+                // Never answered: the call stays open until the caller gives up
+                hangs.increment();
+                return;
+            }
+            boolean fail = random.nextDouble() < faults.errorRate();
+            long delay = faults.latency().sampleNanos(random);
+            Runnable reply = () -> {
+                if (((ServerCallStreamObserver<T>) responseObserver).isCancelled()) return;
+                if (fail) {
+                    errors.increment();
+                    responseObserver.onError(faults.error().withDescription("Injected by " + hostName).asRuntimeException());
+                } else {
+                    responseObserver.onNext(response);
+                    responseObserver.onCompleted();
+                }
+            };
+            if (delay <= 0) reply.run();
+            else timer.schedule(reply, delay, TimeUnit.NANOSECONDS);
+        }
+
+        public String getHostName() {
+            return hostName;
+        }
+
+        public long calls() {
+            return calls.sum();
+        }
+
+        public long errors() {
+            return errors.sum();
+        }
+
+        public long hangs() {
+            return hangs.sum();
+        }
+    }
+
+    private final ScheduledExecutorService timer = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "fake-cluster-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<FakeBackend> backends = new ArrayList<>();
+    private final List<Server> servers = new ArrayList<>();
+    private final List<ManagedChannel> channels = new ArrayList<>();
+
+    /**
+     * Starts the backends, each on its own in-process server.
+     * @param faults The fault profile of each backend, by index.
+     */
+    public FakeCluster(int size, IntFunction<Faults> faults) throws IOException {
+        String prefix = "fake-cluster-" + CLUSTERS.incrementAndGet() + "-";
+        for (int i = 0; i < size; i++) {
+            FakeBackend backend = new FakeBackend("fake-" + i, faults.apply(i), timer);
+            String name = prefix + i;
+            backends.add(backend);
+            servers.add(InProcessServerBuilder.forName(name).directExecutor().addService(backend).build().start());
+            channels.add(InProcessChannelBuilder.forName(name).directExecutor().build());
+        }
+    }
+
+    /**
+     * A channel to each backend, in index order, for {@link FrontEndImpl#FrontEndImpl(List)}.
+     */
+    public List<ManagedChannel> channels() {
+        return channels;
+    }
+
+    public List<FakeBackend> backends() {
+        return backends;
+    }
+
+    @Override
+    public void close() {
+        channels.forEach(ManagedChannel::shutdownNow);
+        servers.forEach(Server::shutdownNow);
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,162 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import personal.cluster_management.proto.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Measures frontend p50/p99/p999 latency of getStatus and submitJob against a {@link FakeCluster} of
+ * hundreds of backends, under one fault scenario after another. Run manually; pass scenario names to run
+ * only those. getStatus asks every backend, so its latency is the slowest backend's: watch how a small
+ * fraction of slow or hung backends sets its tail.
+ */
+public class FakeClusterBenchmark {
+
+    private static final int BACKENDS = 200;
+    private static final int CLIENT_THREADS = 16;
+    private static final long WARMUP_MILLIS = 2_000;
+    private static final long MEASURE_MILLIS = 10_000;
+    private static final long CALL_DEADLINE_SECONDS = 10;
+    private static final int MAX_SAMPLES = 1 << 18; // Per thread and method
+
+    private record Scenario(String name, IntFunction<FakeCluster.Faults> faults) {}
+
+    private static final FakeCluster.Latency FAST = FakeCluster.Latency.exponential(Duration.ofMillis(1));
+
+    private static final List<Scenario> SCENARIOS = List.of(
+            new Scenario("healthy", i -> FakeCluster.Faults.healthy(FAST)),
+            // Every backend has a long tail of its own
+            new Scenario("heavy-tail", i -> FakeCluster.Faults.healthy(FakeCluster.Latency.logNormal(Duration.ofMillis(1), 1))),
+            // One backend in fifty is slow on every call
+            new Scenario("stragglers", i -> FakeCluster.Faults.healthy(i % 50 == 0
+                    ? FakeCluster.Latency.uniform(Duration.ofMillis(50), Duration.ofMillis(150)) : FAST)),
+            // One call in a hundred pauses for 100ms, on any backend
+            new Scenario("pauses", i -> FakeCluster.Faults.healthy(FakeCluster.Latency.bimodal(FAST,
+                    FakeCluster.Latency.fixed(Duration.ofMillis(100)), 0.01))),
+            new Scenario("flaky", i -> FakeCluster.Faults.healthy(FAST).withErrors(0.05)),
+            // One call in a thousand is never answered
+            new Scenario("hangs", i -> FakeCluster.Faults.healthy(FAST).withHangs(0.001))
+    );
+
+    /**
+     * Latencies of the calls to one method, and how many failed.
+     */
+    private static class Samples {
+        final long[][] perThread = new long[CLIENT_THREADS][MAX_SAMPLES];
+        final int[] counts = new int[CLIENT_THREADS];
+        final AtomicLong errors = new AtomicLong();
+
+        void record(int thread, long nanos) {
+            if (counts[thread] < MAX_SAMPLES) perThread[thread][counts[thread]++] = nanos;
+        }
+
+        long[] sorted() {
+            long[] all = new long[Arrays.stream(counts).sum()];
+            int pos = 0;
+            for (int t = 0; t < CLIENT_THREADS; t++) {
+                System.arraycopy(perThread[t], 0, all, pos, counts[t]);
+                pos += counts[t];
+            }
+            Arrays.sort(all);
+            return all;
+        }
+    }
+
+    private static double percentileMillis(long[] sorted, double q) {
+        if (sorted.length == 0) return 0;
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(q * sorted.length) - 1)] / 1e6;
+    }
+
+    private static void run(Scenario scenario, PrintStream out) throws Exception {
+        try (FakeCluster cluster = new FakeCluster(BACKENDS, scenario.faults())) {
+            FrontEndImpl frontend = new FrontEndImpl(cluster.channels());
+            String name = "fake-cluster-bench-" + scenario.name();
+            Server server = InProcessServerBuilder.forName(name).addService(frontend).build().start();
+            ManagedChannel channel = InProcessChannelBuilder.forName(name).build();
+            DistributedJobServiceGrpc.DistributedJobServiceBlockingStub client = DistributedJobServiceGrpc.newBlockingStub(channel);
+
+            Samples status = new Samples();
+            Samples submit = new Samples();
+            long start = System.nanoTime();
+            long warmupEnd = start + TimeUnit.MILLISECONDS.toNanos(WARMUP_MILLIS);
+            long end = warmupEnd + TimeUnit.MILLISECONDS.toNanos(MEASURE_MILLIS);
+            CountDownLatch done = new CountDownLatch(CLIENT_THREADS);
+            AtomicLong jobIds = new AtomicLong();
+            for (int t = 0; t < CLIENT_THREADS; t++) {
+                int thread = t;
+                Thread.ofVirtual().start(() -> {
+                    try {
+                        for (int i = 0; ; i++) {
+                            long callStart = System.nanoTime();
+                            if (callStart >= end) break;
+                            boolean isStatus = i % 2 == 0;
+                            boolean failed = false;
+                            try {
+                                var stub = client.withDeadlineAfter(CALL_DEADLINE_SECONDS, TimeUnit.SECONDS);
+                                if (isStatus) {
+                                    stub.getStatus(ServerStatusRequest.getDefaultInstance());
+                                } else {
+                                    stub.submitJob(JobRequest.newBuilder().setJobId("job-" + jobIds.incrementAndGet()).setCommand("true").build())
+                                            .forEachRemaining(r -> {});
+                                }
+                            } catch (StatusRuntimeException e) {
+                                failed = true;
+                            }
+                            if (callStart < warmupEnd) continue;
+                            Samples samples = isStatus ? status : submit;
+                            if (failed) samples.errors.incrementAndGet();
+                            else samples.record(thread, System.nanoTime() - callStart);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+
+            for (String method : new String[]{"getStatus", "submitJob"}) {
+                Samples samples = method.equals("getStatus") ? status : submit;
+                long[] sorted = samples.sorted();
+                out.printf("%-11s %-10s %8d %7d %9.1f %9.1f %9.1f%n", scenario.name(), method, sorted.length, samples.errors.get(),
+                        percentileMillis(sorted, 0.5), percentileMillis(sorted, 0.99), percentileMillis(sorted, 0.999));
+            }
+            long injectedErrors = cluster.backends().stream().mapToLong(FakeCluster.FakeBackend::errors).sum();
+            long injectedHangs = cluster.backends().stream().mapToLong(FakeCluster.FakeBackend::hangs).sum();
+            if (injectedErrors + injectedHangs > 0) {
+                out.printf("%-11s (backends failed %d calls and hung %d)%n", "", injectedErrors, injectedHangs);
+            }
+
+            frontend.shutdown();
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        // The frontend logs every call; keep that out of the measurement
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+
+        Set<String> only = Set.of(args);
+        out.println(BACKENDS + " backends, " + CLIENT_THREADS + " client threads, " + MEASURE_MILLIS / 1000 + "s per scenario");
+        out.printf("%-11s %-10s %8s %7s %9s %9s %9s%n", "scenario", "method", "calls", "errors", "p50 ms", "p99 ms", "p999 ms");
+        for (Scenario scenario : SCENARIOS) {
+            if (only.isEmpty() || only.contains(scenario.name())) run(scenario, out);
+        }
+    }
+}
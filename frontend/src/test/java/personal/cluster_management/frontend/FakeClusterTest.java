@@ -0,0 +1,84 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import personal.cluster_management.proto.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that fake backends inject the delays, errors and hangs they are configured with.
+ */
+class FakeClusterTest {
+
+    private FakeCluster cluster;
+
+    @AfterEach
+    void tearDown() {
+        if (cluster != null) cluster.close();
+    }
+
+    private DistributedJobServiceGrpc.DistributedJobServiceBlockingStub stub(int backend) {
+        return DistributedJobServiceGrpc.newBlockingStub(cluster.channels().get(backend)).withDeadlineAfter(2, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testAnswersAfterTheSampledDelay() throws IOException {
+        cluster = new FakeCluster(1, i -> FakeCluster.Faults.healthy(FakeCluster.Latency.fixed(Duration.ofMillis(50))));
+
+        long start = System.nanoTime();
+        ServerStatusResponse response = stub(0).getStatus(ServerStatusRequest.getDefaultInstance());
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals("fake-0", response.getServers(0).getHostName());
+    }
+
+    @Test
+    void testFailsAndHangsAsConfigured() throws IOException {
+        cluster = new FakeCluster(2, i -> i == 0
+                ? FakeCluster.Faults.healthy(FakeCluster.Latency.none()).withErrors(1)
+                : FakeCluster.Faults.healthy(FakeCluster.Latency.none()).withHangs(1));
+        JobRequest job = JobRequest.newBuilder().setJobId("job-1").build();
+
+        StatusRuntimeException failed = assertThrows(StatusRuntimeException.class, () -> stub(0).submitJob(job).forEachRemaining(r -> {}));
+        assertEquals(Status.Code.UNAVAILABLE, failed.getStatus().getCode());
+
+        StatusRuntimeException hung = assertThrows(StatusRuntimeException.class, () -> DistributedJobServiceGrpc
+                .newBlockingStub(cluster.channels().get(1)).withDeadlineAfter(200, TimeUnit.MILLISECONDS)
+                .getStatus(ServerStatusRequest.getDefaultInstance()));
+        assertEquals(Status.Code.DEADLINE_EXCEEDED, hung.getStatus().getCode());
+
+        assertEquals(1, cluster.backends().get(0).errors());
+        assertEquals(1, cluster.backends().get(1).hangs());
+    }
+
+    @Test
+    void testFrontendReportsTheBackendsThatAnswer() throws IOException {
+        // Half the backends fail every call
+        cluster = new FakeCluster(10, i -> FakeCluster.Faults.healthy(FakeCluster.Latency.exponential(Duration.ofMillis(1)))
+                .withErrors(i < 5 ? 1 : 0));
+        FrontEndImpl frontend = new FrontEndImpl(cluster.channels());
+        try {
+            ServerStatusResponse[] response = new ServerStatusResponse[1];
+            frontend.getStatus(ServerStatusRequest.getDefaultInstance(), new io.grpc.stub.StreamObserver<>() {
+                @Override
+                public void onNext(ServerStatusResponse value) { response[0] = value; }
+                @Override
+                public void onError(Throwable t) { fail(t); }
+                @Override
+                public void onCompleted() {}
+            });
+
+            assertEquals(5, response[0].getServersCount());
+            assertTrue(response[0].getServersList().stream().allMatch(server -> server.getHostName().compareTo("fake-5") >= 0));
+        } finally {
+            frontend.shutdown();
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package personal.cluster_management.frontend;
 
+import com.google.protobuf.ByteString;
+import com.google.protobuf.FieldMask;
 import io.grpc.ManagedChannel;
 import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
 import io.grpc.inprocess.InProcessChannelBuilder;
 import io.grpc.inprocess.InProcessServerBuilder;
 import io.grpc.stub.StreamObserver;
@@ -10,8 +14,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import personal.cluster_management.proto.*;
 
+
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -49,6 +55,27 @@ class FrontEndImplTest {
                     .setStatus(JobStatusResponse.Status.RUNNING)
                     .setMessage("Processed by " + serverId)
                     .build());
+            // A long job stays open, so that others can attach to it
+            if (!request.getCommand().startsWith("sleep")) responseObserver.onCompleted();
+        }
+
+        @Override
+        public void killJob(JobKillRequest request, StreamObserver<JobStatusResponse> responseObserver) {
+            responseObserver.onNext(JobStatusResponse.newBuilder()
+                    .setJobId(request.getJobId())
+                    .setStatus(JobStatusResponse.Status.KILLED_BY_USER)
+                    .setMessage("Killed by " + serverId)
+                    .build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void createTmuxSession(TmuxCreateRequest request, StreamObserver<JobStatusResponse> responseObserver) {
+            responseObserver.onNext(JobStatusResponse.newBuilder()
+                    .setJobId("tmux-" + request.getSessionName())
+                    .setStatus(JobStatusResponse.Status.RUNNING)
+                    .setMessage("Session created on " + serverId)
+                    .build());
             responseObserver.onCompleted();
         }
 
@@ -64,6 +91,18 @@ class FrontEndImplTest {
                     .build());
             responseObserver.onCompleted();
         }
+
+        @Override
+        public void streamJobLog(JobLogRequest request, StreamObserver<JobLogChunk> responseObserver) {
+            // One line per chunk, naming this server
+            for (int i = 0; i < 3; i++) {
+                responseObserver.onNext(JobLogChunk.newBuilder()
+                        .setJobId(request.getJobId())
+                        .setData(ByteString.copyFromUtf8(serverId + " line " + i + "\n"))
+                        .build());
+            }
+            responseObserver.onCompleted();
+        }
     }
 
     @BeforeEach
@@ -165,6 +204,76 @@ class FrontEndImplTest {
         assertTrue(hostNames.contains("Backend-2"));
     }
 
+    /**
+     * Calls getStatus on the frontend and returns its response, or throws its error.
+     */
+    private ServerStatusResponse getStatus(ServerStatusRequest request) throws Throwable {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<ServerStatusResponse> responseRef = new AtomicReference<>();
+        AtomicReference<Throwable> errorRef = new AtomicReference<>();
+        frontend.getStatus(request, new StreamObserver<ServerStatusResponse>() {
+            @Override
+            public void onNext(ServerStatusResponse value) { responseRef.set(value); }
+            @Override
+            public void onError(Throwable t) {
+                errorRef.set(t);
+                latch.countDown();
+            }
+            @Override
+            public void onCompleted() { latch.countDown(); }
+        });
+        assertTrue(latch.await(2, TimeUnit.SECONDS), "Call should complete within timeout");
+        if (errorRef.get() != null) throw errorRef.get();
+        return responseRef.get();
+    }
+
+    @Test
+    void testGetStatusReturnsOnlyMaskedFields() throws Throwable {
+        ServerStatusResponse response = getStatus(ServerStatusRequest.newBuilder()
+                .setFieldMask(FieldMask.newBuilder().addPaths("host_name"))
+                .build());
+
+        assertEquals(2, response.getServersCount());
+        for (ServerInfo server : response.getServersList()) {
+            assertFalse(server.getHostName().isEmpty());
+            assertEquals(ServerInfo.Availability.UNKNOWN, server.getStatus(), "Fields outside the mask are cleared");
+        }
+    }
+
+    @Test
+    void testGetStatusPagesThroughBackends() throws Throwable {
+        ServerStatusResponse first = getStatus(ServerStatusRequest.newBuilder().setPageSize(1).build());
+        ServerStatusResponse second = getStatus(ServerStatusRequest.newBuilder()
+                .setPageSize(1).setPageToken(first.getNextPageToken()).build());
+
+        assertEquals(1, first.getServersCount());
+        assertFalse(first.getNextPageToken().isEmpty());
+        assertEquals(1, second.getServersCount());
+        assertTrue(second.getNextPageToken().isEmpty(), "The second page is the last");
+        assertNotEquals(first.getServers(0).getHostName(), second.getServers(0).getHostName());
+    }
+
+    @Test
+    void testGetStatusSinceUnchangedGenerationIsNotModified() throws Throwable {
+        ServerStatusResponse full = getStatus(ServerStatusRequest.getDefaultInstance());
+        ServerStatusResponse again = getStatus(ServerStatusRequest.newBuilder().setSinceGeneration(full.getGeneration()).build());
+
+        assertTrue(full.getGeneration() > 0);
+        assertTrue(again.getNotModified());
+        assertEquals(0, again.getServersCount());
+        assertEquals(full.getGeneration(), again.getGeneration());
+    }
+
+    @Test
+    void testGetStatusRejectsUnknownMaskPath() {
+        ServerStatusRequest request = ServerStatusRequest.newBuilder()
+                .setFieldMask(FieldMask.newBuilder().addPaths("uptime"))
+                .build();
+
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () -> getStatus(request));
+        assertEquals(Status.Code.INVALID_ARGUMENT, e.getStatus().getCode());
+    }
+
     @Test
     void testSubmitJobNoBackendsAvailableReturnsError() throws InterruptedException {
         // Arrange: Create a frontend with NO channels
@@ -192,4 +301,121 @@ class FrontEndImplTest {
         assertNotNull(errorRef.get());
         assertTrue(errorRef.get().getMessage().contains("No backend servers available"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testJobsInTmuxSessionFollowTheSession() throws InterruptedException {
+        // Arrange: create a session and remember where it was placed
+        CountDownLatch createLatch = new CountDownLatch(1);
+        AtomicReference<JobStatusResponse> createRef = new AtomicReference<>();
+        frontend.createTmuxSession(TmuxCreateRequest.newBuilder().setSessionName("sweep").build(),
+                new StreamObserver<JobStatusResponse>() {
+                    @Override
+                    public void onNext(JobStatusResponse value) { createRef.set(value); }
+                    @Override
+                    public void onError(Throwable t) { createLatch.countDown(); }
+                    @Override
+                    public void onCompleted() { createLatch.countDown(); }
+                });
+        assertTrue(createLatch.await(2, TimeUnit.SECONDS));
+        assertNotNull(createRef.get());
+        String owner = createRef.get().getMessage().replace("Session created on ", "");
+
+        // Act: submit several jobs naming the session; round robin must not apply to them
+        for (int i = 0; i < 4; i++) {
+            CountDownLatch latch = new CountDownLatch(1);
+            AtomicReference<JobStatusResponse> responseRef = new AtomicReference<>();
+            JobRequest request = JobRequest.newBuilder().setJobId("job-" + i).setTmuxSessionName("sweep").build();
+            frontend.submitJob(request, new StreamObserver<JobStatusResponse>() {
+                @Override
+                public void onNext(JobStatusResponse value) { responseRef.set(value); }
+                @Override
+                public void onError(Throwable t) { latch.countDown(); }
+                @Override
+                public void onCompleted() { latch.countDown(); }
+            });
+
+            // Assert
+            assertTrue(latch.await(2, TimeUnit.SECONDS));
+            assertEquals("Processed by " + owner, responseRef.get().getMessage());
+        }
+    }
+
+    @Test
+    void testJobLogIsStreamedFromTheBackendThatRanTheJob() throws Exception {
+        // Arrange: run a job and note where it went
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<JobStatusResponse> responseRef = new AtomicReference<>();
+        frontend.submitJob(JobRequest.newBuilder().setJobId("job-log").build(), new StreamObserver<JobStatusResponse>() {
+            @Override
+            public void onNext(JobStatusResponse value) { responseRef.set(value); }
+            @Override
+            public void onError(Throwable t) { latch.countDown(); }
+            @Override
+            public void onCompleted() { latch.countDown(); }
+        });
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        String owner = responseRef.get().getMessage().replace("Processed by ", "");
+
+        Server frontendServer = InProcessServerBuilder.forName("in-process-frontend").addService(frontend).build().start();
+        ManagedChannel frontendChannel = InProcessChannelBuilder.forName("in-process-frontend").build();
+        try {
+            DistributedJobServiceGrpc.DistributedJobServiceBlockingStub stub = DistributedJobServiceGrpc.newBlockingStub(frontendChannel);
+
+            // Act
+            StringBuilder output = new StringBuilder();
+            Iterator<JobLogChunk> chunks = stub.streamJobLog(JobLogRequest.newBuilder().setJobId("job-log").build());
+            chunks.forEachRemaining(chunk -> output.append(chunk.getData().toStringUtf8()));
+
+            // Assert
+            assertEquals(owner + " line 0\n" + owner + " line 1\n" + owner + " line 2\n", output.toString());
+            StatusRuntimeException e = assertThrows(StatusRuntimeException.class,
+                    () -> stub.streamJobLog(JobLogRequest.newBuilder().setJobId("never-submitted").build()).hasNext());
+            assertEquals(Status.Code.NOT_FOUND, e.getStatus().getCode());
+        } finally {
+            frontendChannel.shutdownNow();
+            frontendServer.shutdownNow();
+        }
+    }
+
+    @Test
+    void testKillAndLogOfAttachedJobActOnTheSharedJob() throws Exception {
+        frontend.setDeduplicator(new JobDeduplicator());
+        List<AtomicReference<JobStatusResponse>> replies = new ArrayList<>();
+        for (String jobId : List.of("job-shared", "job-attached")) {
+            CountDownLatch running = new CountDownLatch(1);
+            AtomicReference<JobStatusResponse> responseRef = new AtomicReference<>();
+            frontend.submitJob(JobRequest.newBuilder().setJobId(jobId).setCommand("sleep 60").build(), new StreamObserver<JobStatusResponse>() {
+                @Override
+                public void onNext(JobStatusResponse value) { responseRef.set(value); running.countDown(); }
+                @Override
+                public void onError(Throwable t) {}
+                @Override
+                public void onCompleted() {}
+            });
+            assertTrue(running.await(2, TimeUnit.SECONDS));
+            replies.add(responseRef);
+        }
+        assertEquals("job-attached", replies.get(1).get().getJobId());
+        String owner = replies.get(0).get().getMessage().replace("Processed by ", "");
+
+        Server frontendServer = InProcessServerBuilder.forName("in-process-frontend").addService(frontend).build().start();
+        ManagedChannel frontendChannel = InProcessChannelBuilder.forName("in-process-frontend").build();
+        try {
+            DistributedJobServiceGrpc.DistributedJobServiceBlockingStub stub = DistributedJobServiceGrpc.newBlockingStub(frontendChannel);
+
+            // Act: the attached job has no backend of its own
+            Iterator<JobLogChunk> chunks = stub.streamJobLog(JobLogRequest.newBuilder().setJobId("job-attached").build());
+            JobStatusResponse killed = stub.killJob(JobKillRequest.newBuilder().setJobId("job-attached").build());
+
+            // Assert: both reach the backend that runs the shared job, under its id
+            JobLogChunk chunk = chunks.next();
+            assertEquals("job-shared", chunk.getJobId());
+            assertTrue(chunk.getData().toStringUtf8().startsWith(owner));
+            assertEquals("job-shared", killed.getJobId());
+            assertEquals("Killed by " + owner, killed.getMessage());
+        } finally {
+            frontendChannel.shutdownNow();
+            frontendServer.shutdownNow();
+        }
+    }
+}
@@ -117,7 +117,7 @@ class FrontEndIntegrationTest {
     void testCreateTmuxSessionForwardsSuccessfully() throws InterruptedException {
         // Arrange
         TmuxCreateRequest request = TmuxCreateRequest.newBuilder()
-                .setSessionName("demo-session")
+                .setSessionName("dev-session")
                 .setInitialCommand("top")
                 .build();
         
@@ -125,7 +125,7 @@ class FrontEndIntegrationTest {
         AtomicReference<JobStatusResponse> responseRef = new AtomicReference<>();
 
         // Act
-        // Frontend picks the first channel (healthyChannel) by default logic (index 0)
+        // The session is placed by consistent hashing; "dev-session" lands on the healthy backend
         frontend.createTmuxSession(request, new StreamObserver<JobStatusResponse>() {
             @Override
             public void onNext(JobStatusResponse value) {
@@ -140,7 +140,7 @@ class FrontEndIntegrationTest {
         // Assert
         assertTrue(latch.await(2, TimeUnit.SECONDS));
         assertNotNull(responseRef.get());
-        assertEquals("tmux-demo-session", responseRef.get().getJobId());
+        assertEquals("tmux-dev-session", responseRef.get().getJobId());
         assertTrue(responseRef.get().getMessage().contains("Healthy Backend"));
     }
 
@@ -0,0 +1,121 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import personal.cluster_management.proto.JobRequest;
+import personal.cluster_management.proto.JobStatusResponse;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that two frontend replicas share job and session routing and that only the leader takes writes.
+ */
+class FrontEndReplicaTest {
+
+    private static final RaftNode.Settings FAST = new RaftNode.Settings(100, 200, 20, 64, 1000);
+
+    private final List<FrontEndReplica> replicas = new ArrayList<>();
+    private final List<FrontEndImpl> frontends = new ArrayList<>();
+    private final List<Server> servers = new ArrayList<>();
+    private final List<ManagedChannel> channels = new ArrayList<>();
+
+    @TempDir
+    Path dataDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        List<String> ids = List.of("frontend-a", "frontend-b");
+        for (String id : ids) {
+            String peer = ids.get(1 - ids.indexOf(id));
+            ManagedChannel backendChannel = InProcessChannelBuilder.forName("unused-backend").build();
+            ManagedChannel peerChannel = InProcessChannelBuilder.forName(peer).build();
+            channels.add(backendChannel);
+            channels.add(peerChannel);
+
+            // Both replicas know the same backend under the same address
+            FrontEndImpl frontend = new FrontEndImpl(new BackendPool(List.of(new Backend("backend-1", backendChannel))));
+            FrontEndReplica replica = new FrontEndReplica(id, Map.of(peer, peerChannel), frontend,
+                    RaftStorage.open(dataDir.resolve(id)), FAST);
+            frontend.setReplica(replica);
+            servers.add(InProcessServerBuilder.forName(id).addService(replica.getRaft()).build().start());
+            frontends.add(frontend);
+            replicas.add(replica);
+        }
+        replicas.forEach(FrontEndReplica::start);
+    }
+
+    @AfterEach
+    void tearDown() {
+        replicas.forEach(FrontEndReplica::shutdown);
+        channels.forEach(ManagedChannel::shutdownNow);
+        servers.forEach(Server::shutdownNow);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for the replicas");
+            Thread.sleep(10);
+        }
+    }
+
+    private int awaitLeader() throws InterruptedException {
+        await(() -> replicas.stream().filter(FrontEndReplica::isLeader).count() == 1
+                && replicas.stream().allMatch(r -> r.getLeaderId() != null));
+        return replicas.get(0).isLeader() ? 0 : 1;
+    }
+
+    @Test
+    void testFollowerServesRoutingStateWrittenOnLeader() throws InterruptedException {
+        int leader = awaitLeader();
+        FrontEndImpl leaderFrontend = frontends.get(leader);
+        FrontEndImpl follower = frontends.get(1 - leader);
+
+        leaderFrontend.getDispatcher().getLocations().record("job-1", "backend-1");
+        Backend owner = leaderFrontend.getSessionRouter().route("training");
+
+        await(() -> "backend-1".equals(follower.getDispatcher().getLocations().find("job-1")));
+        await(() -> follower.getSessionRouter().lookup("training") != null);
+        assertEquals(owner.getAddress(), follower.getSessionRouter().lookup("training").getAddress());
+
+        leaderFrontend.getSessionRouter().forget("training", owner);
+        await(() -> follower.getSessionRouter().lookup("training") == null);
+    }
+
+    @Test
+    void testFollowerRefusesJobsAndNamesTheLeader() throws InterruptedException {
+        int leader = awaitLeader();
+        List<Throwable> errors = new ArrayList<>();
+
+        frontends.get(1 - leader).submitJob(JobRequest.newBuilder().setJobId("job-1").setCommand("true").build(),
+                new StreamObserver<>() {
+                    @Override
+                    public void onNext(JobStatusResponse value) {}
+                    @Override
+                    public void onError(Throwable t) { errors.add(t); }
+                    @Override
+                    public void onCompleted() {}
+                });
+
+        assertEquals(1, errors.size());
+        Status status = Status.fromThrowable(errors.get(0));
+        assertEquals(Status.Code.UNAVAILABLE, status.getCode());
+        assertTrue(status.getDescription().contains(replicas.get(leader).getId()));
+    }
+}
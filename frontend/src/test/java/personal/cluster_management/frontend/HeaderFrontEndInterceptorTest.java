@@ -0,0 +1,148 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.MetadataUtils;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import personal.cluster_management.proto.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the interceptor counts calls per method and status, and passes headers on
+ * to the service through the call's Context.
+ */
+class HeaderFrontEndInterceptorTest {
+
+    private Server server;
+    private ManagedChannel channel;
+    private HeaderFrontEndInterceptor interceptor;
+    private DistributedJobServiceGrpc.DistributedJobServiceStub stub;
+
+    private final String serverName = "in-process-interceptor";
+    private final String submitJob = DistributedJobServiceGrpc.getSubmitJobMethod().getFullMethodName();
+
+    /**
+     * A service that answers with the caller's user and priority, and fails jobs named "fail".
+     */
+    private static class EchoService extends DistributedJobServiceGrpc.DistributedJobServiceImplBase {
+        @Override
+        public void submitJob(JobRequest request, StreamObserver<JobStatusResponse> responseObserver) {
+            if (request.getJobId().equals("fail")) {
+                responseObserver.onError(Status.UNAVAILABLE.withDescription("Simulated Unavailable").asRuntimeException());
+                return;
+            }
+            responseObserver.onNext(JobStatusResponse.newBuilder()
+                    .setJobId(request.getJobId())
+                    .setMessage(HeaderFrontEndInterceptor.USER.get() + "/" + HeaderFrontEndInterceptor.PRIORITY.get())
+                    .build());
+            responseObserver.onCompleted();
+        }
+    }
+
+    /**
+     * Client-side observer that keeps the last response.
+     */
+    private static class LastResponse implements StreamObserver<JobStatusResponse> {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile JobStatusResponse value;
+        @Override
+        public void onNext(JobStatusResponse value) { this.value = value; }
+        @Override
+        public void onError(Throwable t) { done.countDown(); }
+        @Override
+        public void onCompleted() { done.countDown(); }
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        interceptor = new HeaderFrontEndInterceptor();
+        server = InProcessServerBuilder.forName(serverName)
+                .addService(ServerInterceptors.intercept(new EchoService(), interceptor))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(serverName).build();
+        stub = DistributedJobServiceGrpc.newStub(channel);
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    private LastResponse submit(DistributedJobServiceGrpc.DistributedJobServiceStub stub, String jobId) throws InterruptedException {
+        LastResponse observer = new LastResponse();
+        stub.submitJob(JobRequest.newBuilder().setJobId(jobId).build(), observer);
+        assertTrue(observer.done.await(2, TimeUnit.SECONDS));
+        return observer;
+    }
+
+    @Test
+    void testCallsAreCountedPerStatus() throws InterruptedException {
+        submit(stub, "ok-1");
+        submit(stub, "ok-2");
+        submit(stub, "fail");
+
+        HeaderFrontEndInterceptor.MethodMetrics metrics = interceptor.metrics(submitJob);
+        assertEquals(2, metrics.completed(Status.Code.OK));
+        assertEquals(1, metrics.completed(Status.Code.UNAVAILABLE));
+        assertEquals(3, metrics.latency().count());
+        assertEquals(0, metrics.inFlight());
+    }
+
+    @Test
+    void testHeadersReachTheService() throws InterruptedException {
+        Metadata headers = new Metadata();
+        headers.put(HeaderFrontEndInterceptor.USER_HEADER, "alice");
+        headers.put(HeaderFrontEndInterceptor.PRIORITY_HEADER, "high");
+
+        LastResponse withHeaders = submit(stub.withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers)), "job");
+        LastResponse without = submit(stub, "job");
+
+        assertEquals("alice/HIGH", withHeaders.value.getMessage());
+        assertEquals("anonymous/NORMAL", without.value.getMessage());
+    }
+
+    @Test
+    void testMetricsCanBeScraped() throws Exception {
+        submit(stub, "ok");
+        submit(stub, "fail");
+
+        MetricsHttpServer metricsServer = new MetricsHttpServer(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), List.of(interceptor::writeMetrics));
+        metricsServer.start();
+        try {
+            HttpResponse<String> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + metricsServer.getPort() + MetricsHttpServer.PATH)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode());
+            assertTrue(response.body().contains("frontend_rpc_completed_total{method=\"" + submitJob + "\",code=\"OK\"} 1"));
+            assertTrue(response.body().contains("frontend_rpc_completed_total{method=\"" + submitJob + "\",code=\"UNAVAILABLE\"} 1"));
+            assertTrue(response.body().contains("frontend_rpc_latency_seconds_count{method=\"" + submitJob + "\"} 2"));
+            assertTrue(response.body().contains("frontend_rpc_in_flight{method=\"" + submitJob + "\"} 0"));
+        } finally {
+            metricsServer.stop();
+        }
+    }
+}
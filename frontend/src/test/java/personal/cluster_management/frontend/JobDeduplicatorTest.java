@@ -0,0 +1,158 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import personal.cluster_management.proto.JobRequest;
+import personal.cluster_management.proto.JobStatusResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that identical jobs share one run and that successful results are cached with a TTL and LRU bound.
+ */
+class JobDeduplicatorTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private JobDeduplicator dedup;
+
+    // The observers of jobs that were really dispatched, in order
+    private final List<StreamObserver<JobStatusResponse>> dispatched = new ArrayList<>();
+
+    /**
+     * Client-side observer that records everything it receives.
+     */
+    private static class Recorder implements StreamObserver<JobStatusResponse> {
+        final List<JobStatusResponse> updates = new ArrayList<>();
+        boolean completed = false;
+        @Override
+        public void onNext(JobStatusResponse value) { updates.add(value); }
+        @Override
+        public void onError(Throwable t) {}
+        @Override
+        public void onCompleted() { completed = true; }
+
+        JobStatusResponse last() {
+            return updates.get(updates.size() - 1);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        dedup = new JobDeduplicator(Duration.ofSeconds(60), 2, clock::get);
+    }
+
+    private Recorder submit(String jobId, String command) {
+        return submit(jobId, command, "alice");
+    }
+
+    private Recorder submit(String jobId, String command, String user) {
+        Recorder recorder = new Recorder();
+        dedup.submit(JobRequest.newBuilder().setJobId(jobId).setCommand(command).setRepositoryPath("/repo").build(),
+                user, recorder, (request, observer) -> dispatched.add(observer));
+        return recorder;
+    }
+
+    private void finish(StreamObserver<JobStatusResponse> job, JobStatusResponse.Status status) {
+        job.onNext(JobStatusResponse.newBuilder().setJobId("ignored").setStatus(status).setMessage("done").build());
+        job.onCompleted();
+    }
+
+    @Test
+    void testIdenticalRunningJobIsAttachedNotDuplicated() {
+        Recorder first = submit("job-1", "python train.py");
+        dispatched.get(0).onNext(JobStatusResponse.newBuilder().setJobId("job-1").setStatus(JobStatusResponse.Status.RUNNING).build());
+        Recorder second = submit("job-2", "python train.py");
+
+        assertEquals(1, dispatched.size());
+        // The late client catches up with the current state, under its own job id
+        assertEquals(JobStatusResponse.Status.RUNNING, second.last().getStatus());
+        assertEquals("job-2", second.last().getJobId());
+        // Kill and log requests for the attached job go to the one that runs
+        assertEquals("job-1", dedup.resolve("job-2"));
+        assertEquals("job-1", dedup.resolve("job-1"));
+
+        finish(dispatched.get(0), JobStatusResponse.Status.COMPLETED_SUCCESS);
+
+        assertTrue(first.completed);
+        assertTrue(second.completed);
+        assertEquals(JobStatusResponse.Status.COMPLETED_SUCCESS, second.last().getStatus());
+        assertEquals("job-2", second.last().getJobId());
+        assertEquals(0, dedup.runningJobs());
+    }
+
+    @Test
+    void testSuccessfulResultIsCachedUntilTtlExpires() {
+        submit("job-1", "make");
+        finish(dispatched.get(0), JobStatusResponse.Status.COMPLETED_SUCCESS);
+
+        Recorder cached = submit("job-2", "make");
+        assertEquals(1, dispatched.size());
+        assertTrue(cached.completed);
+        assertEquals(JobStatusResponse.Status.COMPLETED_SUCCESS, cached.last().getStatus());
+        assertEquals("job-2", cached.last().getJobId());
+        assertEquals("job-1", dedup.resolve("job-2"));
+
+        clock.addAndGet(Duration.ofSeconds(61).toNanos());
+        submit("job-3", "make");
+        assertEquals(2, dispatched.size());
+    }
+
+    @Test
+    void testFailuresAreNotCached() {
+        submit("job-1", "flaky");
+        finish(dispatched.get(0), JobStatusResponse.Status.COMPLETED_FAILURE);
+
+        submit("job-2", "flaky");
+
+        assertEquals(2, dispatched.size());
+    }
+
+    @Test
+    void testLeastRecentlyUsedResultIsEvicted() {
+        for (String command : List.of("a", "b")) {
+            submit("job-" + command, command);
+            finish(dispatched.get(dispatched.size() - 1), JobStatusResponse.Status.COMPLETED_SUCCESS);
+        }
+        submit("again-a", "a"); // Cache hit; "b" is now least recently used
+
+        submit("job-c", "c");
+        finish(dispatched.get(2), JobStatusResponse.Status.COMPLETED_SUCCESS);
+
+        assertEquals(2, dedup.cachedResults());
+        submit("again-a-2", "a");
+        assertEquals(3, dispatched.size(), "a is still cached");
+        submit("again-b", "b");
+        assertEquals(4, dispatched.size(), "b was evicted");
+    }
+
+    @Test
+    void testUsersDoNotShareJobs() {
+        submit("job-1", "make", "alice");
+        finish(dispatched.get(0), JobStatusResponse.Status.COMPLETED_SUCCESS);
+        submit("job-2", "sleep 60", "alice");
+
+        Recorder other = submit("job-3", "make", "bob");
+        submit("job-4", "sleep 60", "bob");
+
+        // Neither alice's cached result nor her running job is handed to bob
+        assertEquals(4, dispatched.size());
+        assertFalse(other.completed);
+    }
+
+    @Test
+    void testKeyIgnoresJobIdButNotRepositoryOrUser() {
+        JobRequest job = JobRequest.newBuilder().setJobId("1").setCommand("make").setRepositoryPath("/a").build();
+
+        assertEquals(JobDeduplicator.key("alice", job), JobDeduplicator.key("alice", job.toBuilder().setJobId("2").build()));
+        assertNotEquals(JobDeduplicator.key("alice", job), JobDeduplicator.key("alice", job.toBuilder().setRepositoryPath("/b").build()));
+        assertNotEquals(JobDeduplicator.key("alice", job), JobDeduplicator.key("bob", job));
+        assertNotEquals(JobDeduplicator.key("alice", job.toBuilder().setCommand("ab").setRepositoryPath("c").build()),
+                JobDeduplicator.key("alice", job.toBuilder().setCommand("a").setRepositoryPath("bc").build()));
+    }
+}
@@ -0,0 +1,189 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import personal.cluster_management.proto.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the dispatcher never oversubscribes a backend and admits queued jobs
+ * in priority order as slots free up.
+ */
+class JobDispatcherTest {
+
+    private Server backendServer;
+    private ManagedChannel channel;
+    private HoldingBackendService service;
+    private BackendPool pool;
+    private JobDispatcher dispatcher;
+
+    private final String serverName = "in-process-dispatcher";
+
+    /**
+     * A backend that keeps every job running until the test finishes it.
+     */
+    private static class HoldingBackendService extends DistributedJobServiceGrpc.DistributedJobServiceImplBase {
+        final List<String> started = new CopyOnWriteArrayList<>();
+        final List<StreamObserver<JobStatusResponse>> running = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void submitJob(JobRequest request, StreamObserver<JobStatusResponse> responseObserver) {
+            started.add(request.getJobId());
+            running.add(responseObserver);
+        }
+
+        void finishOldest() {
+            StreamObserver<JobStatusResponse> observer = running.remove(0);
+            observer.onNext(JobStatusResponse.newBuilder().setStatus(JobStatusResponse.Status.COMPLETED_SUCCESS).build());
+            observer.onCompleted();
+        }
+    }
+
+    /**
+     * Client-side observer that counts down when the job reaches a terminal state.
+     */
+    private static class DoneObserver implements StreamObserver<JobStatusResponse> {
+        final CountDownLatch done = new CountDownLatch(1);
+        @Override
+        public void onNext(JobStatusResponse value) {}
+        @Override
+        public void onError(Throwable t) { done.countDown(); }
+        @Override
+        public void onCompleted() { done.countDown(); }
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        service = new HoldingBackendService();
+        backendServer = InProcessServerBuilder.forName(serverName)
+                .addService(service)
+                .directExecutor()
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(serverName).directExecutor().build();
+        pool = new BackendPool(List.of(new Backend("backend-1", channel)));
+
+        // A single slot makes every further job wait in the queue
+        dispatcher = new JobDispatcher(pool, 1, 2, Map.of(), 1.0);
+        dispatcher.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+        channel.shutdownNow();
+        backendServer.shutdownNow();
+    }
+
+    private DoneObserver submit(String jobId, String user, JobPriority priority) {
+        DoneObserver observer = new DoneObserver();
+        dispatcher.submit(JobRequest.newBuilder().setJobId(jobId).build(), user, priority, null, observer);
+        return observer;
+    }
+
+    @Test
+    void testJobsWaitForFreeSlotAndRunInPriorityOrder() throws InterruptedException {
+        DoneObserver first = submit("first", "alice", JobPriority.NORMAL);
+        submit("low", "alice", JobPriority.LOW);
+        submit("high", "bob", JobPriority.HIGH);
+
+        // Only one job may run at a time
+        assertEquals(List.of("first"), service.started);
+        assertEquals(2, dispatcher.queued());
+        assertEquals(1, dispatcher.queued(JobPriority.HIGH));
+
+        service.finishOldest();
+        assertTrue(first.done.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of("first", "high"), service.started);
+
+        service.finishOldest();
+        assertEquals(List.of("first", "high", "low"), service.started);
+        assertEquals(0, dispatcher.queued());
+        assertEquals(3, dispatcher.waitTime(JobPriority.NORMAL).count()
+                + dispatcher.waitTime(JobPriority.HIGH).count()
+                + dispatcher.waitTime(JobPriority.LOW).count());
+    }
+
+    @Test
+    void testFullQueueRejectsJobs() throws InterruptedException {
+        submit("running", "alice", JobPriority.NORMAL);
+        submit("queued-1", "alice", JobPriority.NORMAL);
+        submit("queued-2", "alice", JobPriority.NORMAL);
+
+        DoneObserver rejected = submit("rejected", "alice", JobPriority.NORMAL);
+
+        assertTrue(rejected.done.await(2, TimeUnit.SECONDS));
+        assertEquals(2, dispatcher.queued());
+    }
+
+    @Test
+    void testMetricsReportDepthAndWaitTimes() {
+        submit("running", "alice", JobPriority.NORMAL);
+        submit("queued", "alice", JobPriority.LOW);
+
+        StringBuilder out = new StringBuilder();
+        dispatcher.writeMetrics(out);
+
+        String text = out.toString();
+        assertTrue(text.contains("frontend_job_queue_depth{priority=\"low\"} 1"));
+        assertTrue(text.contains("frontend_job_queue_wait_seconds_count{priority=\"normal\"} 1"));
+        assertTrue(text.contains("frontend_jobs_dispatched_total 1"));
+    }
+
+    @Test
+    void testQueuedJobFailsWhenItsBackendLeaves() throws InterruptedException {
+        Backend backend = pool.all().get(0);
+        submit("running", "alice", JobPriority.NORMAL);
+        DoneObserver pinned = new DoneObserver();
+        dispatcher.submit(JobRequest.newBuilder().setJobId("pinned").build(), "alice", JobPriority.NORMAL, backend, pinned);
+        assertEquals(1, dispatcher.queued());
+
+        pool.remove(backend.getAddress());
+
+        assertTrue(pinned.done.await(2, TimeUnit.SECONDS));
+        assertEquals(0, dispatcher.queued());
+        assertEquals(List.of("running"), service.started);
+    }
+
+    @Test
+    void testShutDownDispatcherNoLongerFollowsPoolMembership() {
+        Backend backend = pool.all().get(0);
+        submit("running", "alice", JobPriority.NORMAL);
+        DoneObserver pinned = new DoneObserver();
+        dispatcher.submit(JobRequest.newBuilder().setJobId("pinned").build(), "alice", JobPriority.NORMAL, backend, pinned);
+
+        dispatcher.shutdown();
+        pool.remove(backend.getAddress());
+
+        assertEquals(1, pinned.done.getCount());
+        assertEquals(1, dispatcher.queued());
+    }
+
+    @Test
+    void testKilledQueuedJobNeverReachesBackend() throws InterruptedException {
+        submit("first", "alice", JobPriority.NORMAL);
+        DoneObserver queued = submit("queued", "alice", JobPriority.NORMAL);
+
+        assertTrue(dispatcher.killQueued("queued"));
+        assertFalse(dispatcher.killQueued("first"), "A dispatched job is the backend's to kill");
+
+        assertTrue(queued.done.await(1, TimeUnit.SECONDS));
+        assertEquals(0, dispatcher.queued());
+        service.finishOldest();
+        assertEquals(List.of("first"), service.started);
+    }
+}
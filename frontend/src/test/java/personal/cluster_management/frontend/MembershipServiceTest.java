@@ -0,0 +1,126 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import personal.cluster_management.proto.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that backends can join and leave a running frontend through the membership service.
+ * Backend addresses are in-process server names.
+ */
+class MembershipServiceTest {
+
+    private final List<Server> servers = new ArrayList<>();
+    private final List<ManagedChannel> channels = new ArrayList<>();
+    private FrontEndImpl frontend;
+    private DistributedJobServiceGrpc.DistributedJobServiceBlockingStub jobs;
+    private FrontEndMembershipServiceGrpc.FrontEndMembershipServiceBlockingStub membership;
+
+    private final String frontendName = "in-process-membership-frontend";
+    private final String backendName = "in-process-member-1";
+
+    /**
+     * A backend that reports which server ran the job.
+     */
+    private static class NamedBackendService extends DistributedJobServiceGrpc.DistributedJobServiceImplBase {
+        private final String serverId;
+
+        NamedBackendService(String serverId) {
+            this.serverId = serverId;
+        }
+
+        @Override
+        public void submitJob(JobRequest request, StreamObserver<JobStatusResponse> responseObserver) {
+            responseObserver.onNext(JobStatusResponse.newBuilder()
+                    .setJobId(request.getJobId())
+                    .setStatus(JobStatusResponse.Status.RUNNING)
+                    .setMessage("Processed by " + serverId)
+                    .build());
+            responseObserver.onCompleted();
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        servers.add(InProcessServerBuilder.forName(backendName)
+                .addService(new NamedBackendService(backendName))
+                .build()
+                .start());
+
+        // The frontend starts without any backend
+        frontend = new FrontEndImpl(List.of());
+        servers.add(InProcessServerBuilder.forName(frontendName)
+                .addService(frontend)
+                .addService(new MembershipService(frontend.getPool(), address -> {
+                    ManagedChannel channel = InProcessChannelBuilder.forName(address).build();
+                    channels.add(channel);
+                    return channel;
+                }))
+                .build()
+                .start());
+
+        ManagedChannel channel = InProcessChannelBuilder.forName(frontendName).build();
+        channels.add(channel);
+        jobs = DistributedJobServiceGrpc.newBlockingStub(channel);
+        membership = FrontEndMembershipServiceGrpc.newBlockingStub(channel);
+    }
+
+    @AfterEach
+    void tearDown() {
+        frontend.shutdown();
+        channels.forEach(ManagedChannel::shutdownNow);
+        servers.forEach(Server::shutdownNow);
+    }
+
+    private BackendRegistration registration(String address) {
+        return BackendRegistration.newBuilder().setAddress(address).build();
+    }
+
+    @Test
+    void testRegisteredBackendReceivesJobs() {
+        MembershipResponse response = membership.registerBackend(registration(backendName));
+
+        assertTrue(response.getAccepted());
+        assertEquals(List.of(backendName), response.getMembersList());
+
+        JobStatusResponse status = jobs.submitJob(JobRequest.newBuilder().setJobId("job-1").build()).next();
+        assertEquals("Processed by " + backendName, status.getMessage());
+
+        // Registering again changes nothing
+        assertTrue(membership.registerBackend(registration(backendName)).getAccepted());
+        assertEquals(1, frontend.getPool().all().size());
+    }
+
+    @Test
+    void testDeregisteredBackendLeavesThePool() {
+        membership.registerBackend(registration(backendName));
+        Backend backend = frontend.getPool().find(backendName);
+
+        MembershipResponse response = membership.deregisterBackend(registration(backendName));
+
+        assertTrue(response.getAccepted());
+        assertEquals(0, response.getMembersCount());
+        assertTrue(backend.isRetired());
+        assertFalse(membership.deregisterBackend(registration(backendName)).getAccepted());
+    }
+
+    @Test
+    void testEmptyAddressIsRefused() {
+        MembershipResponse response = membership.registerBackend(registration("  "));
+
+        assertFalse(response.getAccepted());
+        assertTrue(frontend.getPool().isEmpty());
+    }
+}
@@ -0,0 +1,261 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import personal.cluster_management.proto.JobLocation;
+import personal.cluster_management.proto.StateChange;
+import personal.cluster_management.proto.VoteRequest;
+import personal.cluster_management.proto.VoteResponse;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests leader election, log replication, snapshots and restarts between three in-process replicas.
+ */
+class RaftNodeTest {
+
+    // Small appends, snapshot chunks and snapshots, so a few changes exercise them
+    private static final RaftNode.Settings FAST = new RaftNode.Settings(100, 200, 20, 8, 16);
+    private static final List<String> IDS = List.of("replica-1", "replica-2", "replica-3");
+
+    private final Map<String, RaftNode> nodes = new LinkedHashMap<>();
+    private final Map<String, List<StateChange>> applied = new LinkedHashMap<>();
+    private final Map<String, Server> servers = new LinkedHashMap<>();
+    private final List<ManagedChannel> channels = new ArrayList<>();
+
+    @TempDir
+    Path dataDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        for (String id : IDS) create(id);
+        nodes.values().forEach(RaftNode::start);
+    }
+
+    private RaftNode create(String id) throws IOException {
+        Map<String, ManagedChannel> peers = new LinkedHashMap<>();
+        for (String peer : IDS) {
+            if (peer.equals(id)) continue;
+            // Not direct executors: replicas call each other while holding their own lock
+            ManagedChannel channel = InProcessChannelBuilder.forName("raft-" + peer).build();
+            channels.add(channel);
+            peers.put(peer, channel);
+        }
+        List<StateChange> changes = new CopyOnWriteArrayList<>();
+        applied.put(id, changes);
+        RaftNode.StateMachine machine = new RaftNode.StateMachine() {
+            @Override
+            public void apply(StateChange change) {
+                changes.add(change);
+            }
+            @Override
+            public void reset() {
+                changes.clear();
+            }
+            @Override
+            public List<StateChange> snapshot() {
+                return List.copyOf(changes);
+            }
+        };
+        RaftNode node = new RaftNode(id, peers, machine, RaftStorage.open(dataDir.resolve(id)), FAST);
+        nodes.put(id, node);
+        servers.put(id, InProcessServerBuilder.forName("raft-" + id).addService(node).build().start());
+        return node;
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodes.values().forEach(RaftNode::shutdown);
+        channels.forEach(ManagedChannel::shutdownNow);
+        servers.values().forEach(Server::shutdownNow);
+    }
+
+    private static StateChange location(String jobId) {
+        return StateChange.newBuilder()
+                .setJobLocation(JobLocation.newBuilder().setJobId(jobId).setBackendAddress("backend-1"))
+                .build();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for the replicas");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Proposes a change through whichever replica leads, trying again if leadership moves.
+     */
+    private void proposeToLeader(StateChange change) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            try {
+                awaitLeader().propose(change).get(5, TimeUnit.SECONDS);
+                return;
+            } catch (ExecutionException e) {
+                if (System.nanoTime() > deadline) throw e;
+            }
+        }
+    }
+
+    private RaftNode awaitLeader() throws InterruptedException {
+        // Looked up once per check, as leadership can move between two lookups
+        List<RaftNode> leaders = new ArrayList<>();
+        await(() -> {
+            leaders.clear();
+            nodes.values().stream().filter(RaftNode::isLeader).forEach(leaders::add);
+            return leaders.size() == 1;
+        });
+        return leaders.get(0);
+    }
+
+    private void stop(RaftNode node) {
+        node.shutdown();
+        nodes.remove(node.getId());
+        servers.remove(node.getId()).shutdownNow();
+    }
+
+    @Test
+    void testLeaderReplicatesCommittedChangesToFollowers() throws Exception {
+        RaftNode leader = awaitLeader();
+
+        leader.propose(location("job-1")).get(5, TimeUnit.SECONDS);
+
+        for (RaftNode node : nodes.values()) {
+            if (node == leader) continue;
+            await(() -> applied.get(node.getId()).equals(List.of(location("job-1"))));
+            assertEquals(leader.getId(), node.getLeaderId());
+        }
+        // The leader applied its own change when it made it
+        assertTrue(applied.get(leader.getId()).isEmpty());
+    }
+
+    @Test
+    void testNewLeaderKeepsCommittedChanges() throws Exception {
+        RaftNode oldLeader = awaitLeader();
+        oldLeader.propose(location("job-1")).get(5, TimeUnit.SECONDS);
+        long oldTerm = oldLeader.getTerm();
+
+        stop(oldLeader);
+        RaftNode leader = awaitLeader();
+        leader.propose(location("job-2")).get(5, TimeUnit.SECONDS);
+
+        assertTrue(leader.getTerm() > oldTerm);
+        for (RaftNode node : nodes.values()) {
+            if (node == leader) continue;
+            await(() -> applied.get(node.getId()).equals(List.of(location("job-1"), location("job-2"))));
+        }
+        assertEquals(List.of(location("job-1")), applied.get(leader.getId()));
+    }
+
+    @Test
+    void testRestartedReplicaKeepsItsTermAndLog() throws Exception {
+        RaftNode leader = awaitLeader();
+        leader.propose(location("job-1")).get(5, TimeUnit.SECONDS);
+        RaftNode follower = nodes.values().stream().filter(n -> n != leader).findFirst().orElseThrow();
+        await(() -> applied.get(follower.getId()).equals(List.of(location("job-1"))));
+        long term = follower.getTerm();
+
+        stop(follower);
+        // The two replicas left may hold an election of their own on a slow machine
+        proposeToLeader(location("job-2"));
+        RaftNode restarted = create(follower.getId());
+
+        // It comes back from its storage, before hearing from anyone
+        assertEquals(term, restarted.getTerm());
+        restarted.start();
+        // Entries it already had are applied again once it learns they are committed
+        await(() -> applied.get(restarted.getId()).equals(List.of(location("job-1"), location("job-2"))));
+    }
+
+    @Test
+    void testDeposedLeaderDropsChangesThatNeverCommitted() throws Exception {
+        RaftNode leader = awaitLeader();
+        leader.propose(location("job-1")).get(5, TimeUnit.SECONDS);
+        for (RaftNode node : List.copyOf(nodes.values())) {
+            if (node != leader) stop(node);
+        }
+
+        // As the frontend does, the leader applies its change before proposing it
+        applied.get(leader.getId()).add(location("job-2"));
+        CompletableFuture<Void> uncommitted = leader.propose(location("job-2"));
+        // A candidate from a later term deposes it
+        VoteRequest request = VoteRequest.newBuilder().setTerm(leader.getTerm() + 1).setCandidateId("replica-4").build();
+        leader.requestVote(request, new StreamObserver<>() {
+            @Override
+            public void onNext(VoteResponse response) {}
+            @Override
+            public void onError(Throwable t) {}
+            @Override
+            public void onCompleted() {}
+        });
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> uncommitted.get(5, TimeUnit.SECONDS));
+        assertEquals(Status.Code.UNAVAILABLE, Status.fromThrowable(e.getCause()).getCode());
+        await(() -> applied.get(leader.getId()).equals(List.of(location("job-1"))));
+    }
+
+    @Test
+    void testReplicasCatchUpFromSnapshots() throws Exception {
+        RaftNode leader = awaitLeader();
+        List<RaftNode> followers = nodes.values().stream().filter(n -> n != leader).toList();
+        RaftNode lagging = followers.get(0);
+        RaftNode current = followers.get(1);
+        stop(lagging);
+
+        List<StateChange> expected = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            StateChange change = location("job-" + i);
+            expected.add(change);
+            // As the frontend does, the leader applies its change before proposing it
+            applied.get(leader.getId()).add(change);
+            leader.propose(change).get(5, TimeUnit.SECONDS);
+        }
+        await(() -> applied.get(current.getId()).equals(expected));
+        assertTrue(leader.getSnapshotIndex() > 0);
+        await(() -> current.getSnapshotIndex() > 0);
+
+        // The leader no longer has the entries the lagging replica is missing, so it sends its snapshot
+        RaftNode restarted = create(lagging.getId());
+        restarted.start();
+        await(() -> applied.get(restarted.getId()).equals(expected));
+        assertTrue(restarted.getSnapshotIndex() > 0);
+
+        // A replica rebuilds its state from its own snapshot and the entries after it
+        stop(current);
+        RaftNode reopened = create(current.getId());
+        reopened.start();
+        await(() -> applied.get(reopened.getId()).equals(expected));
+    }
+
+    @Test
+    void testFollowerRefusesChanges() throws Exception {
+        RaftNode leader = awaitLeader();
+        RaftNode follower = nodes.values().stream().filter(n -> n != leader).findFirst().orElseThrow();
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> follower.propose(location("job-1")).get(5, TimeUnit.SECONDS));
+        assertEquals(Status.Code.UNAVAILABLE, Status.fromThrowable(e.getCause()).getCode());
+    }
+}
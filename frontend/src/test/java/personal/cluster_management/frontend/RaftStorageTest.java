@@ -0,0 +1,116 @@
+package personal.cluster_management.frontend;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import personal.cluster_management.proto.JobLocation;
+import personal.cluster_management.proto.LogEntry;
+import personal.cluster_management.proto.RaftSnapshot;
+import personal.cluster_management.proto.StateChange;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that a replica's term, vote, snapshot and log survive reopening its storage.
+ */
+class RaftStorageTest {
+
+    @TempDir
+    Path dir;
+
+    private static LogEntry entry(long term, String jobId) {
+        return LogEntry.newBuilder()
+                .setTerm(term)
+                .setChange(StateChange.newBuilder()
+                        .setJobLocation(JobLocation.newBuilder().setJobId(jobId).setBackendAddress("backend-1")))
+                .build();
+    }
+
+    @Test
+    void testNewStorageIsEmpty() throws IOException {
+        try (RaftStorage storage = RaftStorage.open(dir)) {
+            assertEquals(0, storage.getTerm());
+            assertNull(storage.getVotedFor());
+            assertTrue(storage.getEntries().isEmpty());
+        }
+    }
+
+    @Test
+    void testTermAndVoteSurviveReopening() throws IOException {
+        try (RaftStorage storage = RaftStorage.open(dir)) {
+            storage.saveState(3, "replica-2");
+        }
+        try (RaftStorage storage = RaftStorage.open(dir)) {
+            assertEquals(3, storage.getTerm());
+            assertEquals("replica-2", storage.getVotedFor());
+            storage.saveState(4, null);
+        }
+        try (RaftStorage storage = RaftStorage.open(dir)) {
+            assertEquals(4, storage.getTerm());
+            assertNull(storage.getVotedFor());
+        }
+    }
+
+    @Test
+    void testLogSurvivesAppendsAndTruncation() throws IOException {
+        try (RaftStorage storage = RaftStorage.open(dir)) {
+            storage.append(List.of(entry(1, "job-1"), entry(1, "job-2"), entry(1, "job-3")));
+            storage.truncate(2);
+            storage.append(List.of(entry(2, "job-4")));
+        }
+        try (RaftStorage storage = RaftStorage.open(dir)) {
+            assertEquals(List.of(entry(1, "job-1"), entry(2, "job-4")), storage.getEntries());
+        }
+    }
+
+    @Test
+    void testSnapshotReplacesTheEntriesItCovers() throws IOException {
+        RaftSnapshot snapshot = RaftSnapshot.newBuilder()
+                .setLastIndex(2)
+                .setLastTerm(1)
+                .addState(entry(1, "job-1").getChange())
+                .addState(entry(1, "job-2").getChange())
+                .build();
+        try (RaftStorage storage = RaftStorage.open(dir)) {
+            storage.append(List.of(entry(1, "job-1"), entry(1, "job-2"), entry(1, "job-3")));
+            storage.saveSnapshot(snapshot);
+            // Indices stay those of the whole log
+            storage.append(List.of(entry(2, "job-4")));
+            storage.truncate(5);
+        }
+        try (RaftStorage storage = RaftStorage.open(dir)) {
+            assertEquals(snapshot, storage.getSnapshot());
+            assertEquals(List.of(entry(1, "job-3"), entry(2, "job-4")), storage.getEntries());
+            storage.truncate(4);
+            storage.saveSnapshot(snapshot.toBuilder().setLastIndex(6).build());
+            storage.append(List.of(entry(2, "job-7")));
+        }
+        try (RaftStorage storage = RaftStorage.open(dir)) {
+            assertEquals(6, storage.getSnapshot().getLastIndex());
+            assertEquals(List.of(entry(2, "job-7")), storage.getEntries());
+        }
+    }
+
+    @Test
+    void testTornAppendIsDropped() throws IOException {
+        try (RaftStorage storage = RaftStorage.open(dir)) {
+            storage.append(List.of(entry(1, "job-1")));
+        }
+        // A crash partway through writing a second entry
+        byte[] second = entry(1, "job-2").toByteArray();
+        Files.write(dir.resolve("log"), new byte[]{(byte) second.length, second[0]}, StandardOpenOption.APPEND);
+
+        try (RaftStorage storage = RaftStorage.open(dir)) {
+            assertEquals(List.of(entry(1, "job-1")), storage.getEntries());
+            storage.append(List.of(entry(1, "job-3")));
+        }
+        try (RaftStorage storage = RaftStorage.open(dir)) {
+            assertEquals(List.of(entry(1, "job-1"), entry(1, "job-3")), storage.getEntries());
+        }
+    }
+}
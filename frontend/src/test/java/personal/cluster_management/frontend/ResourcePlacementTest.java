@@ -0,0 +1,213 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import personal.cluster_management.proto.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that jobs with resource requests are bin-packed onto backends by reported headroom,
+ * and that a job's request stays held until it finishes.
+ */
+class ResourcePlacementTest {
+
+    private final List<Server> servers = new ArrayList<>();
+    private final List<ManagedChannel> channels = new ArrayList<>();
+
+    /**
+     * A backend whose free RAM drops by a job's request once it has started the job.
+     */
+    private static class RamBackendService extends DistributedJobServiceGrpc.DistributedJobServiceImplBase {
+        final double totalRamGb;
+        final boolean confirmsStart;
+        final Map<String, StreamObserver<JobStatusResponse>> jobs = new LinkedHashMap<>();
+        double usedRamGb = 0;
+
+        RamBackendService(double totalRamGb, boolean confirmsStart) {
+            this.totalRamGb = totalRamGb;
+            this.confirmsStart = confirmsStart;
+        }
+
+        @Override
+        public synchronized void getStatus(ServerStatusRequest request, StreamObserver<ServerStatusResponse> responseObserver) {
+            responseObserver.onNext(ServerStatusResponse.newBuilder()
+                    .addServers(ServerInfo.newBuilder()
+                            .setCpuCores(8)
+                            .setTotalRamGb(totalRamGb)
+                            .setAvailableRamGb(totalRamGb - usedRamGb))
+                    .build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public synchronized void submitJob(JobRequest request, StreamObserver<JobStatusResponse> responseObserver) {
+            jobs.put(request.getJobId(), responseObserver);
+            if (confirmsStart) {
+                usedRamGb += request.getResources().getRamGb();
+                responseObserver.onNext(JobStatusResponse.newBuilder()
+                        .setJobId(request.getJobId())
+                        .setStatus(JobStatusResponse.Status.RUNNING)
+                        .build());
+            }
+        }
+
+        void finish(String jobId, double ramGb) {
+            StreamObserver<JobStatusResponse> observer;
+            synchronized (this) {
+                observer = jobs.remove(jobId);
+                usedRamGb -= ramGb;
+            }
+            observer.onNext(JobStatusResponse.newBuilder().setJobId(jobId).setStatus(JobStatusResponse.Status.COMPLETED_SUCCESS).build());
+            observer.onCompleted();
+        }
+
+        synchronized boolean has(String jobId) {
+            return jobs.containsKey(jobId);
+        }
+    }
+
+    /**
+     * Client-side observer that keeps the error, if any.
+     */
+    private static class ErrorObserver implements StreamObserver<JobStatusResponse> {
+        Throwable error;
+        @Override
+        public void onNext(JobStatusResponse value) {}
+        @Override
+        public void onError(Throwable t) { error = t; }
+        @Override
+        public void onCompleted() {}
+    }
+
+    private Backend start(String name, RamBackendService service) throws IOException {
+        servers.add(InProcessServerBuilder.forName(name).addService(service).directExecutor().build().start());
+        ManagedChannel channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        channels.add(channel);
+        return new Backend(name, channel);
+    }
+
+    @AfterEach
+    void tearDown() {
+        channels.forEach(ManagedChannel::shutdownNow);
+        servers.forEach(Server::shutdownNow);
+    }
+
+    private static ErrorObserver submit(JobDispatcher dispatcher, String jobId, double ramGb) {
+        ErrorObserver observer = new ErrorObserver();
+        JobRequest request = JobRequest.newBuilder()
+                .setJobId(jobId)
+                .setResources(ResourceRequest.newBuilder().setRamGb(ramGb))
+                .build();
+        dispatcher.submit(request, "alice", JobPriority.NORMAL, null, observer);
+        return observer;
+    }
+
+    @Test
+    void testJobsGoToTheTightestFit() throws IOException {
+        RamBackendService large = new RamBackendService(64, true);
+        RamBackendService small = new RamBackendService(16, true);
+        BackendPool pool = new BackendPool(List.of(start("large", large), start("small", small)));
+        JobDispatcher dispatcher = new JobDispatcher(pool);
+        new ResourceMonitor(pool, dispatcher::resourcesChanged).refresh();
+
+        submit(dispatcher, "fits-small", 12);
+        submit(dispatcher, "needs-large", 12); // Only 4 GB left on the small backend
+        submit(dispatcher, "fits-remainder", 3);
+
+        assertTrue(small.has("fits-small"));
+        assertTrue(large.has("needs-large"));
+        assertTrue(small.has("fits-remainder"));
+    }
+
+    @Test
+    void testCapacityIsReservedUntilTheBackendConfirmsTheStart() throws IOException {
+        RamBackendService silent = new RamBackendService(16, false);
+        BackendPool pool = new BackendPool(List.of(start("silent", silent)));
+        JobDispatcher dispatcher = new JobDispatcher(pool);
+        ResourceMonitor monitor = new ResourceMonitor(pool, dispatcher::resourcesChanged);
+        monitor.refresh();
+
+        submit(dispatcher, "first", 10);
+        submit(dispatcher, "second", 10);
+        // The backend still reports 16 GB free, but the first job holds 10 of them
+        monitor.refresh();
+
+        assertTrue(silent.has("first"));
+        assertFalse(silent.has("second"));
+        assertEquals(1, dispatcher.queued());
+
+        // Ending without ever starting returns the reservation
+        silent.finish("first", 0);
+        assertTrue(silent.has("second"));
+    }
+
+    @Test
+    void testStartedJobsHoldTheirRequestUntilTheyFinish() throws IOException {
+        RamBackendService backend = new RamBackendService(16, true);
+        BackendPool pool = new BackendPool(List.of(start("backend", backend)));
+        JobDispatcher dispatcher = new JobDispatcher(pool);
+        ResourceMonitor monitor = new ResourceMonitor(pool, dispatcher::resourcesChanged);
+        monitor.refresh();
+
+        submit(dispatcher, "first", 10);
+        submit(dispatcher, "second", 10);
+        assertFalse(backend.has("second"));
+
+        // The first job has not touched its memory yet, so the report shows it all free
+        synchronized (backend) {
+            backend.usedRamGb = 0;
+        }
+        monitor.refresh();
+        assertFalse(backend.has("second"));
+
+        // Finishing gives the request back without waiting for a report
+        backend.finish("first", 0);
+        assertTrue(backend.has("second"));
+    }
+
+    @Test
+    void testUsageBeyondTheRequestsCounts() throws IOException {
+        RamBackendService backend = new RamBackendService(16, true);
+        BackendPool pool = new BackendPool(List.of(start("backend", backend)));
+        JobDispatcher dispatcher = new JobDispatcher(pool);
+        ResourceMonitor monitor = new ResourceMonitor(pool, dispatcher::resourcesChanged);
+        monitor.refresh();
+
+        submit(dispatcher, "first", 2);
+        // The first job uses more than it asked for
+        synchronized (backend) {
+            backend.usedRamGb = 12;
+        }
+        monitor.refresh();
+        submit(dispatcher, "second", 8);
+
+        assertTrue(backend.has("first"));
+        assertFalse(backend.has("second"));
+    }
+
+    @Test
+    void testJobLargerThanEveryBackendIsRejected() throws IOException {
+        BackendPool pool = new BackendPool(List.of(start("small", new RamBackendService(16, true))));
+        JobDispatcher dispatcher = new JobDispatcher(pool);
+        new ResourceMonitor(pool, dispatcher::resourcesChanged).refresh();
+
+        ErrorObserver observer = submit(dispatcher, "huge", 32);
+
+        assertNotNull(observer.error);
+        assertEquals(Status.Code.FAILED_PRECONDITION, Status.fromThrowable(observer.error).getCode());
+        assertEquals(0, dispatcher.queued());
+    }
+}
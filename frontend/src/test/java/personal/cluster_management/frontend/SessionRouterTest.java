@@ -0,0 +1,157 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.ManagedChannel;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for session placement and the session routing table.
+ * Channels are never connected; only routing decisions are tested.
+ */
+class SessionRouterTest {
+
+    private final List<ManagedChannel> channels = new ArrayList<>();
+    private final List<Backend> backends = new ArrayList<>();
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private BackendPool pool;
+    private SessionRouter router;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 1; i <= 4; i++) {
+            ManagedChannel channel = InProcessChannelBuilder.forName("in-process-router-" + i).build();
+            channels.add(channel);
+            backends.add(new Backend("node-" + i + ":50051", channel));
+        }
+        pool = new BackendPool(backends, BackendPool.Settings.defaults(), clock::get);
+        router = new SessionRouter(pool);
+        router.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        router.shutdown();
+        channels.forEach(ManagedChannel::shutdownNow);
+    }
+
+    @Test
+    void testRouteIsStableAndPinned() {
+        Backend first = router.route("session-a");
+
+        assertNotNull(first);
+        assertSame(first, router.route("session-a"));
+        assertSame(first, router.lookup("session-a"));
+        assertEquals(1, router.size());
+    }
+
+    @Test
+    void testPlacementMatchesRingAcrossFrontends() {
+        // A second frontend with the same membership places sessions identically
+        SessionRouter other = new SessionRouter(pool);
+        for (int i = 0; i < 50; i++) {
+            assertSame(router.route("session-" + i), other.owner("session-" + i));
+        }
+    }
+
+    @Test
+    void testSessionsSpreadOverBackends() {
+        Map<Backend, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            counts.merge(router.route("session-" + i), 1, Integer::sum);
+        }
+
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(count > 150 && count < 350, "Unbalanced placement: " + counts);
+        }
+    }
+
+    @Test
+    void testPlacementSkipsUnavailableBackend() {
+        Backend natural = new SessionRouter(pool).owner("session-x");
+        for (int i = 0; i < 10; i++) {
+            natural.recordResult(true, 1_000);
+        }
+        pool.detectOutliers();
+        assertFalse(natural.isAvailable(clock.get()));
+
+        Backend placed = router.route("session-x");
+
+        assertNotNull(placed);
+        assertNotSame(natural, placed);
+    }
+
+    @Test
+    void testForgetOnlyRemovesMatchingOwner() {
+        Backend owner = router.route("session-a");
+        Backend other = backends.stream().filter(b -> b != owner).findFirst().orElseThrow();
+
+        router.forget("session-a", other);
+        assertSame(owner, router.lookup("session-a"));
+
+        router.forget("session-a", owner);
+        assertNull(router.lookup("session-a"));
+    }
+
+    @Test
+    void testRebalanceOnlyMovesSessionsOfDepartedBackend() {
+        Map<String, Backend> before = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+            before.put("session-" + i, router.route("session-" + i));
+        }
+        Backend removed = backends.get(0);
+        List<Backend> remaining = backends.subList(1, backends.size());
+
+        router.rebalance(remaining);
+
+        for (Map.Entry<String, Backend> entry : before.entrySet()) {
+            Backend now = router.lookup(entry.getKey());
+            if (entry.getValue() == removed) {
+                assertNotSame(removed, now);
+                assertTrue(remaining.contains(now));
+            } else {
+                assertSame(entry.getValue(), now, "Session on a surviving backend must not move");
+            }
+        }
+    }
+
+    @Test
+    void testRouterFollowsPoolMembership() {
+        Map<String, Backend> before = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            before.put("session-" + i, router.route("session-" + i));
+        }
+        Backend removed = backends.get(0);
+
+        pool.remove(removed.getAddress());
+
+        for (String session : before.keySet()) {
+            assertNotSame(removed, router.lookup(session));
+            assertNotSame(removed, router.route("new-" + session));
+        }
+    }
+
+    @Test
+    void testShutDownRouterNoLongerFollowsPoolMembership() {
+        Backend removed = backends.get(0);
+        String session = null;
+        for (int i = 0; session == null; i++) {
+            if (router.route("session-" + i) == removed) session = "session-" + i;
+        }
+
+        router.shutdown();
+        pool.remove(removed.getAddress());
+
+        assertSame(removed, router.lookup(session));
+    }
+}
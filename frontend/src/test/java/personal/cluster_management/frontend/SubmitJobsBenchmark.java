@@ -0,0 +1,135 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import personal.cluster_management.proto.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares job throughput of unary SubmitJob calls against one SubmitJobs bulk stream.
+ * Run manually: the frontend and two backends are in-process, so the numbers reflect
+ * per-call overhead rather than network cost.
+ */
+public class SubmitJobsBenchmark {
+
+    private static final int JOBS = 10_000;
+    private static final int CLIENT_BATCH = 100;
+    private static final int ROUNDS = 5;
+
+    /**
+     * A backend that accepts jobs instantly on both the unary and the bulk path.
+     */
+    private static class InstantBackendService extends DistributedJobServiceGrpc.DistributedJobServiceImplBase {
+        @Override
+        public void submitJob(JobRequest request, StreamObserver<JobStatusResponse> responseObserver) {
+            responseObserver.onNext(JobStatusResponse.newBuilder()
+                    .setJobId(request.getJobId())
+                    .setStatus(JobStatusResponse.Status.COMPLETED_SUCCESS)
+                    .build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public StreamObserver<JobBatch> submitJobs(StreamObserver<JobAck> responseObserver) {
+            return new StreamObserver<>() {
+                @Override
+                public void onNext(JobBatch batch) {
+                    for (JobRequest job : batch.getJobsList()) {
+                        responseObserver.onNext(JobAck.newBuilder().setJobId(job.getJobId()).setAccepted(true).build());
+                        // Done at once, like the unary jobs above
+                        if (batch.getReportDone()) {
+                            responseObserver.onNext(JobAck.newBuilder().setJobId(job.getJobId()).setAccepted(true).setDone(true).build());
+                        }
+                    }
+                }
+                @Override
+                public void onError(Throwable t) {}
+                @Override
+                public void onCompleted() { responseObserver.onCompleted(); }
+            };
+        }
+    }
+
+    private static long unary(DistributedJobServiceGrpc.DistributedJobServiceStub client) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(JOBS);
+        long start = System.nanoTime();
+        for (int i = 0; i < JOBS; i++) {
+            client.submitJob(JobRequest.newBuilder().setJobId("job-" + i).setCommand("true").build(),
+                    new StreamObserver<>() {
+                        @Override
+                        public void onNext(JobStatusResponse value) {}
+                        @Override
+                        public void onError(Throwable t) { done.countDown(); }
+                        @Override
+                        public void onCompleted() { done.countDown(); }
+                    });
+        }
+        if (!done.await(60, TimeUnit.SECONDS)) throw new IllegalStateException("Unary submissions timed out");
+        return System.nanoTime() - start;
+    }
+
+    private static long bulk(DistributedJobServiceGrpc.DistributedJobServiceStub client) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        long start = System.nanoTime();
+        StreamObserver<JobBatch> requests = client.submitJobs(new StreamObserver<>() {
+            @Override
+            public void onNext(JobAck value) {}
+            @Override
+            public void onError(Throwable t) { done.countDown(); }
+            @Override
+            public void onCompleted() { done.countDown(); }
+        });
+        for (int b = 0; b < JOBS / CLIENT_BATCH; b++) {
+            JobBatch.Builder batch = JobBatch.newBuilder();
+            for (int i = 0; i < CLIENT_BATCH; i++) {
+                batch.addJobs(JobRequest.newBuilder().setJobId("job-" + (b * CLIENT_BATCH + i)).setCommand("true"));
+            }
+            requests.onNext(batch.build());
+        }
+        requests.onCompleted();
+        if (!done.await(60, TimeUnit.SECONDS)) throw new IllegalStateException("Bulk submission timed out");
+        return System.nanoTime() - start;
+    }
+
+    private static String rate(long nanos) {
+        return String.format("%,.0f jobs/s", JOBS / (nanos / 1e9));
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Server> servers = new ArrayList<>();
+        List<ManagedChannel> channels = new ArrayList<>();
+        List<ManagedChannel> backendChannels = new ArrayList<>();
+        for (int i = 1; i <= 2; i++) {
+            String name = "bench-backend-" + i;
+            servers.add(InProcessServerBuilder.forName(name).addService(new InstantBackendService()).build().start());
+            backendChannels.add(InProcessChannelBuilder.forName(name).build());
+        }
+        channels.addAll(backendChannels);
+
+        FrontEndImpl frontend = new FrontEndImpl(backendChannels);
+        servers.add(InProcessServerBuilder.forName("bench-frontend").addService(frontend).build().start());
+        ManagedChannel frontendChannel = InProcessChannelBuilder.forName("bench-frontend").build();
+        channels.add(frontendChannel);
+        DistributedJobServiceGrpc.DistributedJobServiceStub client = DistributedJobServiceGrpc.newStub(frontendChannel);
+
+        // The first rounds warm up the JIT and are not reported
+        for (int round = 1; round <= ROUNDS; round++) {
+            long unaryNanos = unary(client);
+            long bulkNanos = bulk(client);
+            if (round > 2) {
+                System.out.println("Round " + round + ": unary " + rate(unaryNanos) + ", bulk " + rate(bulkNanos));
+            }
+        }
+
+        frontend.shutdown();
+        channels.forEach(ManagedChannel::shutdownNow);
+        servers.forEach(Server::shutdownNow);
+    }
+}
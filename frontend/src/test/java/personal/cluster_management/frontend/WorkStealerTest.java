@@ -0,0 +1,271 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import personal.cluster_management.proto.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that idle backends take queued jobs from the longest queues, and that no job is run twice or dropped.
+ */
+class WorkStealerTest {
+
+    private final List<Server> servers = new ArrayList<>();
+    private final List<ManagedChannel> channels = new ArrayList<>();
+
+    /**
+     * A backend with a fixed number of free slots and a queue the test fills directly. Like the
+     * agent, it starts offered jobs at once if it has a free slot and otherwise queues them
+     * silently, refuses an id it already has, and tells the submitter of a moved job where it went.
+     */
+    private static class QueueingBackendService extends DistributedJobServiceGrpc.DistributedJobServiceImplBase {
+        final List<String> queue = new ArrayList<>();
+        final Map<String, List<String>> leases = new HashMap<>();
+        // What the submitter of each job has been sent, by job id
+        final Map<String, List<JobStatusResponse>> submitters = new HashMap<>();
+        final int freeSlots;
+        final boolean acceptsJobs;
+
+        QueueingBackendService(int freeSlots, boolean acceptsJobs, String... queued) {
+            this.freeSlots = freeSlots;
+            this.acceptsJobs = acceptsJobs;
+            this.queue.addAll(List.of(queued));
+        }
+
+        @Override
+        public synchronized void getStatus(ServerStatusRequest request, StreamObserver<ServerStatusResponse> responseObserver) {
+            responseObserver.onNext(ServerStatusResponse.newBuilder()
+                    .addServers(ServerInfo.newBuilder().setFreeSlots(freeSlots).setQueuedJobs(queue.size()))
+                    .build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public synchronized void stealJobs(StealRequest request, StreamObserver<StealResponse> responseObserver) {
+            String leaseId = "lease-" + leases.size();
+            List<String> leased = new ArrayList<>();
+            StealResponse.Builder response = StealResponse.newBuilder().setLeaseId(leaseId);
+            while (response.getJobsCount() < request.getMaxJobs() && !queue.isEmpty()) {
+                String jobId = queue.remove(queue.size() - 1);
+                leased.add(jobId);
+                response.addJobs(JobRequest.newBuilder().setJobId(jobId).setCommand("true"));
+            }
+            leases.put(leaseId, leased);
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public synchronized void settleSteal(SettleStealRequest request, StreamObserver<SettleStealResponse> responseObserver) {
+            List<String> leased = leases.remove(request.getLeaseId());
+            if (leased != null) {
+                for (String jobId : leased) {
+                    if (!request.getMovedJobIdsList().contains(jobId)) {
+                        queue.add(jobId);
+                    } else {
+                        submitters.computeIfAbsent(jobId, id -> new ArrayList<>()).add(JobStatusResponse.newBuilder()
+                                .setJobId(jobId)
+                                .setStatus(JobStatusResponse.Status.MOVED)
+                                .setMessage("Moved to " + request.getMovedTo())
+                                .build());
+                    }
+                }
+            }
+            responseObserver.onNext(SettleStealResponse.newBuilder().setSettled(leased != null).build());
+            responseObserver.onCompleted();
+        }
+
+        /**
+         * Puts the jobs of every unsettled lease back, as an expired lease does.
+         */
+        synchronized void expireLeases() {
+            leases.values().forEach(queue::addAll);
+            leases.clear();
+        }
+
+        @Override
+        public synchronized void submitJob(JobRequest request, StreamObserver<JobStatusResponse> responseObserver) {
+            if (!acceptsJobs) {
+                responseObserver.onError(Status.RESOURCE_EXHAUSTED.withDescription("Job queue is full").asRuntimeException());
+            } else if (queue.contains(request.getJobId())) {
+                responseObserver.onError(Status.ALREADY_EXISTS.withDescription("Already queued").asRuntimeException());
+            } else {
+                queue.add(request.getJobId());
+                if (freeSlots > 0) {
+                    responseObserver.onNext(JobStatusResponse.newBuilder()
+                            .setJobId(request.getJobId())
+                            .setStatus(JobStatusResponse.Status.RUNNING)
+                            .build());
+                }
+            }
+        }
+    }
+
+    private Backend start(String name, QueueingBackendService service) throws IOException {
+        servers.add(InProcessServerBuilder.forName(name).addService(service).directExecutor().build().start());
+        ManagedChannel channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        channels.add(channel);
+        return new Backend(name, channel);
+    }
+
+    @AfterEach
+    void tearDown() {
+        channels.forEach(ManagedChannel::shutdownNow);
+        servers.forEach(Server::shutdownNow);
+    }
+
+    @Test
+    void testIdleBackendTakesNewestJobsFromLongestQueue() throws IOException {
+        QueueingBackendService busy = new QueueingBackendService(0, true, "j1", "j2", "j3", "j4", "j5", "j6");
+        QueueingBackendService lessBusy = new QueueingBackendService(0, true, "k1");
+        QueueingBackendService idle = new QueueingBackendService(4, true);
+        BackendPool pool = new BackendPool(List.of(start("busy", busy), start("less-busy", lessBusy), start("idle", idle)));
+        JobLocations locations = new JobLocations();
+        WorkStealer stealer = new WorkStealer(pool, locations);
+
+        int moved = stealer.rebalance();
+
+        // Half of the longest queue, which is within the thief's four free slots
+        assertEquals(3, moved);
+        assertEquals(List.of("j1", "j2", "j3"), busy.queue);
+        assertEquals(List.of("j6", "j5", "j4"), idle.queue);
+        assertEquals(List.of("k1"), lessBusy.queue);
+        assertEquals("idle", locations.find("j6"));
+    }
+
+    @Test
+    void testSubmitterIsToldWhereTheJobMoved() throws IOException {
+        QueueingBackendService busy = new QueueingBackendService(0, true, "j1", "j2");
+        QueueingBackendService idle = new QueueingBackendService(1, true);
+        BackendPool pool = new BackendPool(List.of(start("busy", busy), start("idle", idle)));
+        WorkStealer stealer = new WorkStealer(pool, new JobLocations());
+
+        assertEquals(1, stealer.rebalance());
+
+        List<JobStatusResponse> received = busy.submitters.get("j2");
+        assertEquals(1, received.size());
+        assertEquals(JobStatusResponse.Status.MOVED, received.get(0).getStatus());
+        assertEquals("Moved to idle", received.get(0).getMessage());
+        assertFalse(busy.submitters.containsKey("j1"));
+    }
+
+    @Test
+    void testUnansweredOfferIsRepeatedUntilTheThiefHasTheJob() throws IOException {
+        QueueingBackendService busy = new QueueingBackendService(0, true, "j1", "j2");
+        // Advertises a free slot, but only queues the job: it answers nothing until the repeated offer
+        QueueingBackendService slow = new QueueingBackendService(0, true) {
+            @Override
+            public synchronized void getStatus(ServerStatusRequest request, StreamObserver<ServerStatusResponse> responseObserver) {
+                responseObserver.onNext(ServerStatusResponse.newBuilder()
+                        .addServers(ServerInfo.newBuilder().setFreeSlots(1).setQueuedJobs(queue.size()))
+                        .build());
+                responseObserver.onCompleted();
+            }
+        };
+        BackendPool pool = new BackendPool(List.of(start("busy", busy), start("slow", slow)));
+        JobLocations locations = new JobLocations();
+        WorkStealer stealer = new WorkStealer(pool, locations, 50);
+
+        // The repeated offer is refused as ALREADY_EXISTS, which means the thief has it
+        assertEquals(1, stealer.rebalance());
+
+        assertEquals(List.of("j1"), busy.queue);
+        assertEquals(List.of("j2"), slow.queue);
+        assertEquals("slow", locations.find("j2"));
+        StringBuilder metrics = new StringBuilder();
+        stealer.writeMetrics(metrics);
+        assertTrue(metrics.toString().contains("frontend_work_steal_moved_total 1"));
+        assertTrue(metrics.toString().contains("frontend_work_steal_unanswered_total 0"));
+    }
+
+    @Test
+    void testJobsTheThiefNeverAnswersForGoBack() throws IOException {
+        QueueingBackendService busy = new QueueingBackendService(0, true, "j1", "j2", "j3", "j4");
+        List<ServerCallStreamObserver<JobStatusResponse>> offers = new ArrayList<>();
+        QueueingBackendService silent = new QueueingBackendService(2, true) {
+            @Override
+            public synchronized void submitJob(JobRequest request, StreamObserver<JobStatusResponse> responseObserver) {
+                offers.add((ServerCallStreamObserver<JobStatusResponse>) responseObserver);
+            }
+        };
+        BackendPool pool = new BackendPool(List.of(start("busy", busy), start("silent", silent)));
+        WorkStealer stealer = new WorkStealer(pool, new JobLocations(), 50);
+
+        assertEquals(0, stealer.rebalance());
+
+        assertEquals(List.of("j1", "j2", "j4", "j3"), busy.queue);
+        assertTrue(busy.submitters.isEmpty());
+        // Three offers of each job, all cancelled so none of them can still start
+        assertEquals(6, offers.size());
+        for (ServerCallStreamObserver<JobStatusResponse> offer : offers) {
+            assertTrue(offer.isCancelled());
+        }
+        StringBuilder metrics = new StringBuilder();
+        stealer.writeMetrics(metrics);
+        assertTrue(metrics.toString().contains("frontend_work_steal_moved_total 0"));
+        assertTrue(metrics.toString().contains("frontend_work_steal_returned_total 2"));
+        assertTrue(metrics.toString().contains("frontend_work_steal_unanswered_total 2"));
+    }
+
+    @Test
+    void testRefusedJobsAreGivenBack() throws IOException {
+        QueueingBackendService busy = new QueueingBackendService(0, true, "j1", "j2");
+        QueueingBackendService full = new QueueingBackendService(2, false);
+        BackendPool pool = new BackendPool(List.of(start("busy", busy), start("full", full)));
+        WorkStealer stealer = new WorkStealer(pool, new JobLocations());
+
+        assertEquals(0, stealer.rebalance());
+
+        assertEquals(List.of("j1", "j2"), busy.queue);
+        assertTrue(full.queue.isEmpty());
+        StringBuilder metrics = new StringBuilder();
+        stealer.writeMetrics(metrics);
+        assertTrue(metrics.toString().contains("frontend_work_steal_returned_total 1"));
+        assertTrue(metrics.toString().contains("frontend_work_steal_unanswered_total 0"));
+    }
+
+    @Test
+    void testLostStealReplyLeavesTheJobsLeasedOnTheVictim() throws IOException {
+        QueueingBackendService busy = new QueueingBackendService(0, true, "j1", "j2") {
+            @Override
+            public synchronized void stealJobs(StealRequest request, StreamObserver<StealResponse> responseObserver) {
+                // Leases the jobs, but the reply never arrives
+                super.stealJobs(request, new StreamObserver<>() {
+                    @Override
+                    public void onNext(StealResponse value) {}
+                    @Override
+                    public void onError(Throwable t) {}
+                    @Override
+                    public void onCompleted() {
+                        responseObserver.onError(Status.UNAVAILABLE.withDescription("Reply lost").asRuntimeException());
+                    }
+                });
+            }
+        };
+        QueueingBackendService idle = new QueueingBackendService(2, true);
+        BackendPool pool = new BackendPool(List.of(start("busy", busy), start("idle", idle)));
+        WorkStealer stealer = new WorkStealer(pool, new JobLocations());
+
+        assertEquals(0, stealer.rebalance());
+        assertEquals(List.of("j1"), busy.queue);
+        assertTrue(idle.queue.isEmpty());
+
+        // The job was only leased, so it comes back when the lease runs out
+        busy.expireLeases();
+        assertEquals(List.of("j1", "j2"), busy.queue);
+    }
+}
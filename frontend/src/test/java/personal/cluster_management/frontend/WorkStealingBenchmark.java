@@ -0,0 +1,195 @@
+package personal.cluster_management.frontend;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import personal.cluster_management.proto.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the makespan of a skewed synthetic workload with and without work stealing.
+ * Run manually. Nodes are simulated in-process: a job's command is "sleep MILLIS", and each
+ * node runs as many jobs at once as it has slots. Most jobs start out queued on one node,
+ * as happens when a bulk submission lands while the other nodes are down or full.
+ */
+public class WorkStealingBenchmark {
+
+    private static final int NODES = 4;
+    private static final int SLOTS = 2;
+    private static final int JOBS = 240;
+    private static final int SKEWED_SHARE = 90; // Percent of jobs placed on the first node
+    private static final long STEAL_INTERVAL_MILLIS = 20;
+
+    /**
+     * A queued job on a simulated node.
+     */
+    private record SimulatedJob(JobRequest request, Runnable body) implements Runnable {
+        @Override
+        public void run() { body.run(); }
+    }
+
+    /**
+     * A node that "runs" jobs by sleeping, with the same queue and steal semantics as the agent.
+     */
+    private static class SimulatedNode extends DistributedJobServiceGrpc.DistributedJobServiceImplBase {
+        private final ThreadPoolExecutor executor = new ThreadPoolExecutor(SLOTS, SLOTS, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        private final AtomicInteger busy = new AtomicInteger();
+        private final AtomicInteger leaseIds = new AtomicInteger();
+        private final Map<String, List<SimulatedJob>> leases = new ConcurrentHashMap<>();
+        private final Map<String, Integer> runs;
+        private final CountDownLatch finished;
+
+        SimulatedNode(Map<String, Integer> runs, CountDownLatch finished) {
+            this.runs = runs;
+            this.finished = finished;
+        }
+
+        /**
+         * @param status Receives the job's status like the agent's SubmitJob stream, or null.
+         */
+        void accept(JobRequest job, StreamObserver<JobStatusResponse> status) {
+            long millis = Long.parseLong(job.getCommand().substring("sleep ".length()));
+            executor.execute(new SimulatedJob(job, () -> {
+                busy.incrementAndGet();
+                runs.merge(job.getJobId(), 1, Integer::sum);
+                if (status != null) status.onNext(status(job, JobStatusResponse.Status.RUNNING));
+                try {
+                    Thread.sleep(millis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                busy.decrementAndGet();
+                finished.countDown();
+                if (status != null) {
+                    status.onNext(status(job, JobStatusResponse.Status.COMPLETED_SUCCESS));
+                    status.onCompleted();
+                }
+            }));
+        }
+
+        private static JobStatusResponse status(JobRequest job, JobStatusResponse.Status status) {
+            return JobStatusResponse.newBuilder().setJobId(job.getJobId()).setStatus(status).build();
+        }
+
+        @Override
+        public void submitJob(JobRequest request, StreamObserver<JobStatusResponse> responseObserver) {
+            accept(request, responseObserver);
+        }
+
+        @Override
+        public void getStatus(ServerStatusRequest request, StreamObserver<ServerStatusResponse> responseObserver) {
+            responseObserver.onNext(ServerStatusResponse.newBuilder()
+                    .addServers(ServerInfo.newBuilder()
+                            .setFreeSlots(Math.max(0, SLOTS - busy.get()))
+                            .setQueuedJobs(executor.getQueue().size()))
+                    .build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void stealJobs(StealRequest request, StreamObserver<StealResponse> responseObserver) {
+            String leaseId = "lease-" + leaseIds.incrementAndGet();
+            List<SimulatedJob> leased = new ArrayList<>();
+            StealResponse.Builder response = StealResponse.newBuilder().setLeaseId(leaseId);
+            Object[] queued = executor.getQueue().toArray();
+            for (int i = queued.length - 1; i >= 0 && response.getJobsCount() < request.getMaxJobs(); i--) {
+                if (executor.remove((Runnable) queued[i])) {
+                    leased.add((SimulatedJob) queued[i]);
+                    response.addJobs(((SimulatedJob) queued[i]).request());
+                }
+            }
+            leases.put(leaseId, leased);
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void settleSteal(SettleStealRequest request, StreamObserver<SettleStealResponse> responseObserver) {
+            List<SimulatedJob> leased = leases.remove(request.getLeaseId());
+            if (leased != null) {
+                for (SimulatedJob job : leased) {
+                    if (!request.getMovedJobIdsList().contains(job.request().getJobId())) executor.execute(job);
+                }
+            }
+            responseObserver.onNext(SettleStealResponse.newBuilder().setSettled(leased != null).build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public StreamObserver<JobBatch> submitJobs(StreamObserver<JobAck> responseObserver) {
+            return new StreamObserver<>() {
+                @Override
+                public void onNext(JobBatch batch) {
+                    for (JobRequest job : batch.getJobsList()) {
+                        accept(job, null);
+                        responseObserver.onNext(JobAck.newBuilder().setJobId(job.getJobId()).setAccepted(true).build());
+                    }
+                }
+                @Override
+                public void onError(Throwable t) {}
+                @Override
+                public void onCompleted() { responseObserver.onCompleted(); }
+            };
+        }
+    }
+
+    private static void run(boolean stealing) throws Exception {
+        Map<String, Integer> runs = new ConcurrentHashMap<>();
+        CountDownLatch finished = new CountDownLatch(JOBS);
+        List<Server> servers = new ArrayList<>();
+        List<ManagedChannel> channels = new ArrayList<>();
+        List<SimulatedNode> nodes = new ArrayList<>();
+        List<Backend> backends = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            SimulatedNode node = new SimulatedNode(runs, finished);
+            String name = "steal-bench-" + i;
+            servers.add(InProcessServerBuilder.forName(name).addService(node).directExecutor().build().start());
+            ManagedChannel channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+            channels.add(channel);
+            nodes.add(node);
+            backends.add(new Backend(name, channel));
+        }
+        WorkStealer stealer = new WorkStealer(new BackendPool(backends), new JobLocations());
+
+        // The same workload every run: 10-40 ms jobs, mostly queued on the first node
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        for (int i = 0; i < JOBS; i++) {
+            JobRequest job = JobRequest.newBuilder().setJobId("job-" + i).setCommand("sleep " + (10 + random.nextInt(31))).build();
+            int node = random.nextInt(100) < SKEWED_SHARE ? 0 : 1 + random.nextInt(NODES - 1);
+            nodes.get(node).accept(job, null);
+        }
+        if (stealing) stealer.start(STEAL_INTERVAL_MILLIS);
+        finished.await(1, TimeUnit.MINUTES);
+        long makespanMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        stealer.shutdown();
+
+        long duplicates = runs.values().stream().filter(n -> n > 1).count();
+        System.out.printf("%-12s makespan %5d ms, moved %3d jobs, ran %d distinct jobs, %d more than once%n",
+                stealing ? "stealing" : "no stealing", makespanMillis, stealer.movedJobs(), runs.size(), duplicates);
+
+        channels.forEach(ManagedChannel::shutdownNow);
+        servers.forEach(Server::shutdownNow);
+        nodes.forEach(n -> n.executor.shutdownNow());
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.println(NODES + " nodes x " + SLOTS + " slots, " + JOBS + " jobs, " + SKEWED_SHARE + "% placed on one node");
+        for (int round = 0; round < 3; round++) {
+            run(false);
+            run(true);
+        }
+    }
+}
@@ -6,7 +6,7 @@ package personal.cluster_management.server;
  */
 public class EditConfig {
 
-    static String screenWidth, screenHeight, serverPort;
+    static String screenWidth, screenHeight, serverPort, grpcPort;
 
     public static void main(String[] args) throws Exception {
         // This main method acts as the "composition root" for this tool.
@@ -25,6 +25,7 @@ public class EditConfig {
         screenWidth = confArr[0];
         screenHeight = confArr[1];
         serverPort = confArr[2];
+        grpcPort = confArr.length > 3 ? confArr[3] : null; // Not edited here, but kept
 
         while (true) {
             io.pln("Enter Screen Width \n" +
@@ -100,7 +101,7 @@ public class EditConfig {
         String userInput = io.readConsoleLine();
         if (userInput.equalsIgnoreCase("y")) {
             io.pln("\nWriting New Config ...");
-            io.writeToFile(screenWidth + "::" + screenHeight + "::" + serverPort + "::", "config");
+            io.writeToFile(screenWidth + "::" + screenHeight + "::" + serverPort + "::" + (grpcPort == null ? "" : grpcPort + "::"), "config");
             io.pln("... Done!");
         } else {
             io.pln("Abort!");
@@ -6,6 +6,8 @@ import javafx.scene.Scene;
 import javafx.scene.image.Image;
 import javafx.stage.Stage;
 
+import java.io.IOException;
+
 /**
  * The main application entry point (Composition Root).
  * This class handles JavaFX setup and dependency injection for the Monitor application.
@@ -45,6 +47,11 @@ public class Main extends Application {
         // 3. Start Application Logic
         // Start the server thread after the UI is ready
         monitorController.startServerThread();
+        try {
+            monitorController.startIngestServer();
+        } catch (IOException e) {
+            io.pln("Could not start metrics ingest: " + e.getMessage());
+        }
 
         // 4. Clean Shutdown Hook
         primaryStage.setOnCloseRequest(event -> {
@@ -0,0 +1,163 @@
+package personal.cluster_management.server;
+
+import personal.cluster_management.proto.MetricsSample;
+import personal.cluster_management.proto.Sensor;
+import personal.cluster_management.proto.SensorDictionary;
+import personal.cluster_management.proto.SensorType;
+import personal.cluster_management.proto.SystemMetrics;
+import personal.cluster_management.proto.SystemMetricsV2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns v1 and v2 metrics messages into the readings the monitor displays, keyed like the
+ * fields of the v1 line protocol (CPU_LOAD, USED_VRAM, ...).
+ *
+ * A v2 session sends its sensor dictionary once, so one decoder is kept per session. When the
+ * dictionary arrives, each gauge is bound to the sensors that feed it: loads are averaged,
+ * temperatures and fan speeds take the hottest or fastest, and memory is summed over all GPUs.
+ * A sensor for a whole part ("cpu") is preferred over its indexed pieces ("cpu/0", "cpu/1", ...).
+ * Memory is converted to the units of v1: MB for video memory and GB for RAM.
+ */
+public class MetricsDecoder {
+
+    /**
+     * Marks a line of the socket protocol that carries a base64-encoded {@link SystemMetricsV2}.
+     */
+    public static final String V2_PREFIX = "V2:";
+
+    private enum Aggregate { MEAN, MAX, SUM }
+
+    /**
+     * A displayed reading and how to compute it from the sensors of a session.
+     */
+    private record Gauge(String key, String device, SensorType type, Aggregate aggregate, String unit) {}
+
+    private static final List<Gauge> GAUGES = List.of(
+            new Gauge("CPU_LOAD", "cpu", SensorType.SENSOR_TYPE_LOAD, Aggregate.MEAN, null),
+            new Gauge("CPU_TEMP", "cpu", SensorType.SENSOR_TYPE_TEMPERATURE, Aggregate.MAX, null),
+            new Gauge("CPU_FAN", "cpu", SensorType.SENSOR_TYPE_FAN_SPEED, Aggregate.MAX, null),
+            new Gauge("GPU_LOAD", "gpu", SensorType.SENSOR_TYPE_LOAD, Aggregate.MEAN, null),
+            new Gauge("GPU_TEMP", "gpu", SensorType.SENSOR_TYPE_TEMPERATURE, Aggregate.MAX, null),
+            new Gauge("GPU_FAN", "gpu", SensorType.SENSOR_TYPE_FAN_SPEED, Aggregate.MAX, null),
+            new Gauge("USED_VRAM", "gpu", SensorType.SENSOR_TYPE_MEMORY_USED, Aggregate.SUM, "MB"),
+            new Gauge("TOTAL_VRAM", "gpu", SensorType.SENSOR_TYPE_MEMORY_TOTAL, Aggregate.SUM, "MB"),
+            new Gauge("USED_RAM", "ram", SensorType.SENSOR_TYPE_MEMORY_USED, Aggregate.SUM, "GB"),
+            new Gauge("AVAILABLE_RAM", "ram", SensorType.SENSOR_TYPE_MEMORY_AVAILABLE, Aggregate.SUM, "GB"));
+
+    /**
+     * The sensors feeding one gauge in the current session, with the factor that converts each
+     * reading to the gauge's unit.
+     */
+    private record Binding(Gauge gauge, int[] ids, double[] scales) {}
+
+    private List<Binding> bindings; // Null until the session's dictionary has arrived
+
+    /**
+     * Decodes a v1 message. Every field is present, so every reading is returned.
+     */
+    public static Map<String, Double> decode(SystemMetrics metrics) {
+        Map<String, Double> readings = new HashMap<>();
+        readings.put("CPU_LOAD", metrics.getCpuLoad());
+        readings.put("CPU_TEMP", metrics.getCpuTemp());
+        readings.put("CPU_FAN", metrics.getCpuFanSpeed());
+        readings.put("GPU_LOAD", metrics.getGpuLoad());
+        readings.put("GPU_TEMP", metrics.getGpuTemp());
+        readings.put("GPU_FAN", metrics.getGpuFanSpeed());
+        readings.put("USED_VRAM", metrics.getUsedVram());
+        readings.put("TOTAL_VRAM", metrics.getTotalVram());
+        readings.put("USED_RAM", metrics.getUsedRam());
+        readings.put("AVAILABLE_RAM", metrics.getAvailableRam());
+        return readings;
+    }
+
+    /**
+     * Decodes one message of a v2 session.
+     * @return The readings of a sample, leaving out gauges none of whose sensors could be read;
+     * null for a dictionary, which only prepares the session.
+     * @throws IllegalStateException If a sample arrives before the dictionary.
+     * @throws IllegalArgumentException If the message is empty.
+     */
+    public Map<String, Double> decode(SystemMetricsV2 message) {
+        switch (message.getPayloadCase()) {
+            case DICTIONARY -> {
+                bind(message.getDictionary());
+                return null;
+            }
+            case SAMPLE -> {
+                return readings(message.getSample());
+            }
+            default -> throw new IllegalArgumentException("Empty v2 metrics message");
+        }
+    }
+
+    private void bind(SensorDictionary dictionary) {
+        List<Binding> result = new ArrayList<>(GAUGES.size());
+        for (Gauge gauge : GAUGES) {
+            List<Sensor> whole = new ArrayList<>();
+            List<Sensor> parts = new ArrayList<>();
+            for (Sensor sensor : dictionary.getSensorsList()) {
+                if (sensor.getType() != gauge.type()) continue;
+                if (sensor.getDevice().equals(gauge.device())) {
+                    whole.add(sensor);
+                } else if (sensor.getDevice().startsWith(gauge.device() + "/")) {
+                    parts.add(sensor);
+                }
+            }
+            List<Sensor> sources = whole.isEmpty() ? parts : whole;
+            int[] ids = new int[sources.size()];
+            double[] scales = new double[sources.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = sources.get(i).getId();
+                scales[i] = gauge.unit() == null ? 1 : bytes(sources.get(i).getUnit(), gauge.unit()) / bytes(gauge.unit(), gauge.unit());
+            }
+            result.add(new Binding(gauge, ids, scales));
+        }
+        bindings = result;
+    }
+
+    private Map<String, Double> readings(MetricsSample sample) {
+        if (bindings == null) throw new IllegalStateException("Metrics sample received before the sensor dictionary");
+        Map<String, Double> readings = new HashMap<>();
+        for (Binding binding : bindings) {
+            double total = 0;
+            double max = Double.NEGATIVE_INFINITY;
+            int count = 0;
+            for (int i = 0; i < binding.ids().length; i++) {
+                int id = binding.ids()[i];
+                if (id >= sample.getValuesCount()) continue;
+                float value = sample.getValues(id);
+                if (Float.isNaN(value)) continue;
+                double scaled = value * binding.scales()[i];
+                total += scaled;
+                max = Math.max(max, scaled);
+                count++;
+            }
+            if (count == 0) continue;
+            readings.put(binding.gauge().key(), switch (binding.gauge().aggregate()) {
+                case MEAN -> total / count;
+                case MAX -> max;
+                case SUM -> total;
+            });
+        }
+        return readings;
+    }
+
+    /**
+     * @return The size of one unit in bytes. Units other than B, KB, MB, GB and TB (or their
+     * binary spellings) are taken to be the gauge's own unit.
+     */
+    private static double bytes(String unit, String fallback) {
+        return switch (unit.trim().toUpperCase()) {
+            case "B" -> 1;
+            case "KB", "KIB" -> 1024.0;
+            case "MB", "MIB" -> 1024.0 * 1024;
+            case "GB", "GIB" -> 1024.0 * 1024 * 1024;
+            case "TB", "TIB" -> 1024.0 * 1024 * 1024 * 1024;
+            default -> bytes(fallback, "B");
+        };
+    }
+}
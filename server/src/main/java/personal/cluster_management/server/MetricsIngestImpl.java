@@ -0,0 +1,67 @@
+package personal.cluster_management.server;
+
+import io.grpc.stub.StreamObserver;
+import personal.cluster_management.proto.MetricsIngestServiceGrpc;
+import personal.cluster_management.proto.MetricsReport;
+import personal.cluster_management.proto.ReportMetricsResponse;
+
+/**
+ * Takes metrics streamed by agents over gRPC and feeds them to the monitor, like the lines of the socket protocol.
+ *
+ * Each call is one session with its own {@link MetricsDecoder}, so agents sending v2 dictionaries do not
+ * disturb each other. Malformed reports are logged and skipped, as on the socket.
+ */
+public class MetricsIngestImpl extends MetricsIngestServiceGrpc.MetricsIngestServiceImplBase {
+
+    private final MonitorInterface monitor;
+    private final IOInterface io;
+
+    public MetricsIngestImpl(MonitorInterface monitor, IOInterface io) {
+        this.monitor = monitor;
+        this.io = io;
+    }
+
+    @Override
+    public StreamObserver<MetricsReport> reportMetrics(StreamObserver<ReportMetricsResponse> responseObserver) {
+        return new StreamObserver<>() {
+            private final MetricsDecoder session = new MetricsDecoder();
+            private String source;
+            private long accepted;
+
+            @Override
+            public void onNext(MetricsReport report) {
+                if (source == null) {
+                    source = report.getSource().isEmpty() ? "unknown" : report.getSource();
+                    monitor.streamOpened(source);
+                }
+                try {
+                    switch (report.getPayloadCase()) {
+                        case V1 -> {
+                            monitor.process(report.getV1());
+                            accepted++;
+                        }
+                        case V2 -> {
+                            monitor.process(report.getV2(), session);
+                            if (report.getV2().hasSample()) accepted++;
+                        }
+                        default -> io.pln("Received empty report from " + source);
+                    }
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    io.pln("Received malformed data from " + source + ": " + e.getMessage());
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                if (source != null) monitor.streamClosed(source);
+            }
+
+            @Override
+            public void onCompleted() {
+                if (source != null) monitor.streamClosed(source);
+                responseObserver.onNext(ReportMetricsResponse.newBuilder().setAccepted(accepted).build());
+                responseObserver.onCompleted();
+            }
+        };
+    }
+}
@@ -1,18 +1,34 @@
 package personal.cluster_management.server;
 
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
 import javafx.application.Platform;
 import javafx.concurrent.Task;
 import javafx.scene.layout.StackPane;
+import personal.cluster_management.proto.SystemMetrics;
+import personal.cluster_management.proto.SystemMetricsV2;
 
 import java.io.*;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Concrete implementation of the IMonitor controller interface.
  * Manages the IMonitorUI (View) and IMonitorIO (Service/IO).
+ *
+ * Socket clients are served concurrently, each on its own virtual thread, like the gRPC ingest
+ * streams. Every client's samples go to the same gauges, so with several agents connected the
+ * gauges show whichever sample arrived last.
  */
 public class Monitor implements MonitorInterface {
     
@@ -21,16 +37,23 @@ public class Monitor implements MonitorInterface {
     private final MonitorUIInterface view;
 
     private final HashMap<String, String> config = new HashMap<>();
-    private volatile boolean isConnected = false; // volatile for thread safety
     private volatile boolean isRunning = true; // Flag to control the server loop
 
     // Server components
-    private Socket socket;
     private ServerSocket serverSocket;
-    private BufferedReader is;
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    private final Thread.Builder clientThreads = Thread.ofVirtual().name("monitor-client-", 0);
+
+    // gRPC ingest, hosted alongside the socket
+    private static final int INGEST_FLOW_CONTROL_WINDOW = 64 * 1024; // Bytes an agent may send ahead of the monitor, per stream
+    private Server ingestServer;
+    private final AtomicInteger ingestStreams = new AtomicInteger();
 
     // State for max gauge values
     private double cpuLoadMaxValue = 0, gpuLoadMaxValue = 0;
+
+    // Sensor dictionary for v2 lines passed to process(String); each socket client has its own
+    private final MetricsDecoder session = new MetricsDecoder();
     
     public Monitor(IOInterface io) {
         this.io = io;
@@ -93,43 +116,20 @@ public class Monitor implements MonitorInterface {
             view.getNotConnectedPaneSubHeadingLabel().setText("IP : " + ip);
         });
 
-        // Main server loop
+        // Main server loop: each client gets its own thread, so a connected client never blocks the next one
         while (isRunning) {
             try {
-                // Wait for client connection
-                socket = serverSocket.accept();
-                io.pln("Client Connected : " + socket.getInetAddress().getCanonicalHostName());
-                isConnected = true;
-                Platform.runLater(() -> view.switchPane(MonitorPaneEnum.gauges));
-
-                is = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-
-                // Client message loop
-                while (isConnected && isRunning) {
-                    String in = is.readLine();
-                    if (in == null || in.equalsIgnoreCase("QUIT")) {
-                        isConnected = false;
-                    } else if (!in.equalsIgnoreCase("connect")) {
-                        process(in);
-                    }
-                }
-                
-                // Cleanup after client disconnect
-                io.pln("Client Disconnected!");
-                if (socket != null && !socket.isClosed()) socket.close();
-                if (is != null) is.close();
-
+                Socket socket = serverSocket.accept();
+                clients.add(socket);
+                clientThreads.start(() -> serveClient(socket));
             } catch (IOException e) {
                 if (isRunning) {
                     // Handle case where serverSocket.accept() is interrupted by close()
                     io.pln("Server accept loop interrupted: " + e.getMessage());
                 }
-            } finally {
-                isConnected = false;
-                Platform.runLater(() -> view.switchPane(MonitorPaneEnum.notConnected));
             }
         }
-        
+
         // Final server socket close when isRunning is false
         if (serverSocket != null && !serverSocket.isClosed()) {
             serverSocket.close();
@@ -137,10 +137,91 @@ public class Monitor implements MonitorInterface {
         }
     }
 
+    /**
+     * Reads one socket client until it sends QUIT, disconnects, or the server stops.
+     */
+    private void serveClient(Socket socket) {
+        io.pln("Client Connected : " + socket.getInetAddress().getCanonicalHostName());
+        Platform.runLater(() -> view.switchPane(MonitorPaneEnum.gauges));
+        try (socket) {
+            // A client that opens with the binary handshake sends length-delimited SystemMetrics instead of lines
+            InputStream raw = new BufferedInputStream(socket.getInputStream());
+            byte[] handshake = (SystemMetricsReader.BINARY_HANDSHAKE + "\n").getBytes(StandardCharsets.US_ASCII);
+            raw.mark(handshake.length);
+            boolean binary = Arrays.equals(raw.readNBytes(handshake.length), handshake);
+            if (!binary) raw.reset();
+
+            if (binary) {
+                SystemMetricsReader reader = new SystemMetricsReader(raw);
+                double[] slot = new double[SystemMetricsReader.FIELDS];
+                while (isRunning && reader.next(slot)) {
+                    show(slot);
+                }
+            } else {
+                BufferedReader is = new BufferedReader(new InputStreamReader(raw));
+                MetricsDecoder clientSession = new MetricsDecoder();
+                while (isRunning) {
+                    String in = is.readLine();
+                    if (in == null || in.equalsIgnoreCase("QUIT")) break;
+                    if (!in.equalsIgnoreCase("connect")) process(in, clientSession);
+                }
+            }
+            io.pln("Client Disconnected!");
+        } catch (IOException e) {
+            if (isRunning) io.pln("Client connection failed: " + e.getMessage());
+        } finally {
+            clients.remove(socket);
+            if (clients.isEmpty() && ingestStreams.get() == 0) {
+                Platform.runLater(() -> view.switchPane(MonitorPaneEnum.notConnected));
+            }
+        }
+    }
+
+    @Override
+    public void startIngestServer() throws IOException {
+        int port = Integer.parseInt(config.get("GRPC_PORT"));
+        // Reports are decoded on Netty's event loop, which never blocks: the gauges are updated on the FX thread.
+        // Every agent gets its own HTTP/2 stream, and the per-stream window stops a fast agent from flooding the monitor.
+        ingestServer = NettyServerBuilder.forPort(port)
+                .directExecutor()
+                .flowControlWindow(INGEST_FLOW_CONTROL_WINDOW)
+                .addService(new MetricsIngestImpl(this, io))
+                .build()
+                .start();
+        io.pln("Metrics Ingest Started on Port " + port);
+    }
+
+    @Override
+    public void streamOpened(String source) {
+        io.pln("Agent Connected : " + source);
+        ingestStreams.incrementAndGet();
+        Platform.runLater(() -> view.switchPane(MonitorPaneEnum.gauges));
+    }
+
+    @Override
+    public void streamClosed(String source) {
+        io.pln("Agent Disconnected : " + source);
+        if (ingestStreams.decrementAndGet() == 0 && clients.isEmpty()) {
+            Platform.runLater(() -> view.switchPane(MonitorPaneEnum.notConnected));
+        }
+    }
+
     double totalVRAM = -1, usedVRAM = -1, freeRAM = -1, usedRAM = -1;
 
     @Override
     public void process(String s) {
+        process(s, session);
+    }
+
+    /**
+     * Processes a line from a socket client.
+     * @param session The decoder holding the client's v2 sensor dictionary.
+     */
+    private void process(String s, MetricsDecoder session) {
+        if (s.startsWith(MetricsDecoder.V2_PREFIX)) {
+            processV2Line(s, session);
+            return;
+        }
         String[] data = s.split(",");
         
         HashMap<String, String> dataMap = new HashMap<>();
@@ -161,17 +242,51 @@ public class Monitor implements MonitorInterface {
         }
 
 
+        Map<String, Double> readings = new HashMap<>();
         for (String d : dataMap.keySet()) {
             String val = dataMap.get(d);
             if (val == null || val.isEmpty() || val.equalsIgnoreCase("N/A")) continue;
             
-            double parsedValue;
             try {
-                parsedValue = Double.parseDouble(val);
+                readings.put(d, Double.parseDouble(val));
             } catch (NumberFormatException e) {
                 io.pln("Skipping non-numeric value for " + d + ": " + val);
-                continue;
             }
+        }
+        show(readings);
+    }
+
+    @Override
+    public void process(SystemMetrics metrics) {
+        show(MetricsDecoder.decode(metrics));
+    }
+
+    @Override
+    public void process(SystemMetricsV2 message, MetricsDecoder session) {
+        Map<String, Double> readings = session.decode(message);
+        if (readings != null) show(readings);
+    }
+
+    /**
+     * Decodes a socket line carrying a base64-encoded v2 message, using the connection's dictionary.
+     */
+    private void processV2Line(String s, MetricsDecoder session) {
+        try {
+            byte[] bytes = Base64.getDecoder().decode(s.substring(MetricsDecoder.V2_PREFIX.length()).trim());
+            process(SystemMetricsV2.parseFrom(bytes), session);
+        } catch (IllegalArgumentException | IllegalStateException | InvalidProtocolBufferException e) {
+            io.pln("Received malformed data: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Updates the gauges with the readings of one sample, keyed like the fields of the v1 line protocol.
+     * Readings that are missing leave their gauges as they were. Synchronized because gRPC streams report concurrently.
+     */
+    private synchronized void show(Map<String, Double> readings) {
+        for (Map.Entry<String, Double> reading : readings.entrySet()) {
+            String d = reading.getKey();
+            double parsedValue = reading.getValue();
 
             switch (d) {
                 case "CPU_LOAD" -> {
@@ -213,6 +328,36 @@ public class Monitor implements MonitorInterface {
         }
     }
 
+    /**
+     * Updates the gauges with one binary sample, indexed like {@link SystemMetricsReader#KEYS}.
+     * A binary sample has every field, so this does what {@link #show(Map)} does with all of them,
+     * without boxing the sample and with one task on the FX thread instead of one per gauge.
+     */
+    private synchronized void show(double[] slot) {
+        double cpuLoad = slot[0], cpuTemp = slot[1], cpuFan = slot[2];
+        double gpuLoad = slot[3], gpuTemp = slot[4], gpuFan = slot[5];
+        double vramUsed = slot[6], vramTotal = slot[7], ramUsed = slot[8], ramFree = slot[9];
+        cpuLoadMaxValue = Math.max(cpuLoadMaxValue, cpuLoad);
+        gpuLoadMaxValue = Math.max(gpuLoadMaxValue, gpuLoad);
+        usedVRAM = vramUsed;
+        totalVRAM = vramTotal;
+        usedRAM = ramUsed;
+        freeRAM = ramFree;
+
+        Platform.runLater(() -> {
+            view.getCPULoadGauge().setValue(cpuLoad);
+            view.getGPULoadGauge().setValue(gpuLoad);
+            view.getCPUTempGauge().setValue(cpuTemp);
+            view.getGPUTempGauge().setValue(gpuTemp);
+            view.getCPUFanSpeedGauge().setValue(cpuFan);
+            view.getGPUFanSpeedGauge().setValue(gpuFan);
+            view.getVideoMemoryGauge().setValue((vramUsed / vramTotal) * 100);
+            view.getVideoMemorySubHeadingLabel().setText(((int) (vramUsed / 1024)) + "GB / " + ((int) (vramTotal / 1024)) + "GB");
+            view.getMemoryGauge().setValue((ramUsed / (ramUsed + ramFree)) * 100);
+            view.getMemorySubHeadingLabel().setText(((int) ramUsed) + "GB / " + ((int) (ramUsed + ramFree)) + "GB");
+        });
+    }
+
     @Override
     public void readConfig() {
         try {
@@ -221,11 +366,14 @@ public class Monitor implements MonitorInterface {
             config.put("SCREEN_WIDTH", configArray[0]);
             config.put("SCREEN_HEIGHT", configArray[1]);
             config.put("SERVER_PORT", configArray[2]);
+            // Older config files have no gRPC port: take the one after the socket's
+            config.put("GRPC_PORT", configArray.length > 3 ? configArray[3] : String.valueOf(Integer.parseInt(configArray[2]) + 1));
         } catch (Exception e) {
             io.pln("Config file not found or corrupt, creating default.");
             config.put("SCREEN_WIDTH", "1280");
             config.put("SCREEN_HEIGHT", "720");
             config.put("SERVER_PORT", "8080");
+            config.put("GRPC_PORT", "8081");
             io.writeToFile("1280::720::8080::", "config");
         }
     }
@@ -234,8 +382,8 @@ public class Monitor implements MonitorInterface {
     public void stopServer() {
         isRunning = false;
         try {
-            // Close the client socket if connected
-            if (socket != null && !socket.isClosed()) {
+            // Close the connected clients' sockets, which ends their threads
+            for (Socket socket : clients) {
                 socket.close();
             }
             // Close the server socket to interrupt the accept() call
@@ -245,5 +393,8 @@ public class Monitor implements MonitorInterface {
         } catch (IOException e) {
             io.pln("Error while closing sockets: " + e.getMessage());
         }
+        if (ingestServer != null) {
+            ingestServer.shutdownNow();
+        }
     }
 }
\ No newline at end of file
@@ -1,6 +1,10 @@
 package personal.cluster_management.server;
 
 import javafx.scene.layout.StackPane;
+import personal.cluster_management.proto.SystemMetrics;
+import personal.cluster_management.proto.SystemMetricsV2;
+
+import java.io.IOException;
 
 /**
  * Interface for the Monitor Controller.
@@ -20,17 +24,48 @@ public interface MonitorInterface {
     void startServerThread();
 
     /**
-     * The main server loop. Listens for connections and processes data.
+     * The main server loop. Listens for connections and serves each client on its own thread.
      * @throws Exception If socket errors occur.
      */
     void startServer() throws Exception;
 
+    /**
+     * Starts the gRPC server that agents stream metrics to, on the configured GRPC_PORT.
+     * @throws IOException If the port cannot be bound.
+     */
+    void startIngestServer() throws IOException;
+
+    /**
+     * Called when an agent starts streaming metrics over gRPC.
+     * @param source The name the agent reported.
+     */
+    void streamOpened(String source);
+
+    /**
+     * Called when an agent's metrics stream ends, normally or not.
+     * @param source The name the agent reported.
+     */
+    void streamClosed(String source);
+
     /**
      * Processes a raw data string received from the client.
      * @param s The data string.
      */
     void process(String s);
 
+    /**
+     * Processes a v1 protobuf metrics message.
+     * @param metrics The message.
+     */
+    void process(SystemMetrics metrics);
+
+    /**
+     * Processes one message of a v2 metrics stream.
+     * @param message A sensor dictionary or a sample.
+     * @param session The decoder holding the stream's sensor dictionary.
+     */
+    void process(SystemMetricsV2 message, MetricsDecoder session);
+
     /**
      * Reads the configuration file into the in-memory config map.
      */
@@ -38,7 +73,7 @@ public interface MonitorInterface {
 
     /**
      * Attempts to close the server socket and client socket connections gracefully.
-     * This stops the server thread running in the background.
+     * This stops the server thread running in the background, and the gRPC ingest server.
      */
     void stopServer();
 }
\ No newline at end of file
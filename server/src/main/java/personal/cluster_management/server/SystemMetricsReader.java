@@ -0,0 +1,85 @@
+package personal.cluster_management.server;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import personal.cluster_management.proto.SystemMetrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads a stream of length-delimited {@link SystemMetrics} messages (as written by
+ * {@code writeDelimitedTo}) without building a message per sample.
+ *
+ * One {@link CodedInputStream} and its buffer are kept for the life of the stream, and each message's
+ * fields are read straight into a caller-owned {@code double[]} slot indexed like the v1 line protocol
+ * (slot[0] is CPU_LOAD, slot[9] is AVAILABLE_RAM). After warm-up, reading a sample allocates nothing.
+ */
+public class SystemMetricsReader {
+
+    /**
+     * First line a socket client sends to switch its connection to length-delimited binary messages.
+     * Dash and the agent swarm still send CSV lines; this is for agents that write
+     * {@link SystemMetrics} with {@code writeDelimitedTo}, of which there are none in this repo yet.
+     */
+    public static final String BINARY_HANDSHAKE = "BINARY";
+
+    /**
+     * Number of fields of a v1 message, and so the size of a sample slot.
+     */
+    public static final int FIELDS = 10;
+
+    /**
+     * The readings keys of the slot's indexes, as used by {@link MetricsDecoder}.
+     */
+    public static final String[] KEYS = {
+            "CPU_LOAD", "CPU_TEMP", "CPU_FAN", "GPU_LOAD", "GPU_TEMP",
+            "GPU_FAN", "USED_VRAM", "TOTAL_VRAM", "USED_RAM", "AVAILABLE_RAM"};
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final CodedInputStream in;
+
+    public SystemMetricsReader(InputStream stream) {
+        this.in = CodedInputStream.newInstance(stream, BUFFER_SIZE);
+    }
+
+    /**
+     * Reads the next message into the slot. Fields the message leaves out read as 0, as they do
+     * through the generated class; unknown fields are skipped.
+     * @param slot At least {@link #FIELDS} long.
+     * @return false at the end of the stream.
+     * @throws IOException If the stream fails or a message is malformed.
+     */
+    public boolean next(double[] slot) throws IOException {
+        if (in.isAtEnd()) return false;
+        in.resetSizeCounter(); // The size limit is per message, not per stream
+        int limit = in.pushLimit(in.readRawVarint32());
+        Arrays.fill(slot, 0, FIELDS, 0);
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            int field = WireFormat.getTagFieldNumber(tag);
+            if (field >= 1 && field <= FIELDS && WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_FIXED64) {
+                slot[field - 1] = in.readDouble();
+            } else {
+                in.skipField(tag);
+            }
+        }
+        in.popLimit(limit);
+        return true;
+    }
+
+    /**
+     * @return The slot's values keyed like the readings of {@link MetricsDecoder#decode(SystemMetrics)}.
+     */
+    public static Map<String, Double> readings(double[] slot) {
+        Map<String, Double> readings = new HashMap<>();
+        for (int i = 0; i < FIELDS; i++) {
+            readings.put(KEYS[i], slot[i]);
+        }
+        return readings;
+    }
+}
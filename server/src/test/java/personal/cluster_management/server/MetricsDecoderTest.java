@@ -0,0 +1,92 @@
+package personal.cluster_management.server;
+
+import org.junit.jupiter.api.Test;
+import personal.cluster_management.proto.MetricsSample;
+import personal.cluster_management.proto.Sensor;
+import personal.cluster_management.proto.SensorDictionary;
+import personal.cluster_management.proto.SensorType;
+import personal.cluster_management.proto.SystemMetrics;
+import personal.cluster_management.proto.SystemMetricsV2;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for decoding v1 and v2 metrics messages into monitor readings.
+ */
+class MetricsDecoderTest {
+
+    private static Sensor sensor(int id, SensorType type, String unit, String device) {
+        return Sensor.newBuilder().setId(id).setName(device + " " + type).setType(type).setUnit(unit).setDevice(device).build();
+    }
+
+    private static SystemMetricsV2 dictionary(Sensor... sensors) {
+        return SystemMetricsV2.newBuilder()
+                .setDictionary(SensorDictionary.newBuilder().addAllSensors(List.of(sensors)))
+                .build();
+    }
+
+    private static SystemMetricsV2 sample(Float... values) {
+        return SystemMetricsV2.newBuilder()
+                .setSample(MetricsSample.newBuilder().setTimestampMillis(1_000).addAllValues(List.of(values)))
+                .build();
+    }
+
+    @Test
+    void testV1MessageMapsEveryField() {
+        SystemMetrics metrics = SystemMetrics.newBuilder().setCpuLoad(10.5).setUsedVram(20480).setAvailableRam(4096).build();
+
+        Map<String, Double> readings = MetricsDecoder.decode(metrics);
+
+        assertEquals(10, readings.size());
+        assertEquals(10.5, readings.get("CPU_LOAD"));
+        assertEquals(20480.0, readings.get("USED_VRAM"));
+        assertEquals(4096.0, readings.get("AVAILABLE_RAM"));
+    }
+
+    @Test
+    void testV2AggregatesCoresAndGpus() {
+        MetricsDecoder decoder = new MetricsDecoder();
+        assertNull(decoder.decode(dictionary(
+                sensor(0, SensorType.SENSOR_TYPE_LOAD, "%", "cpu/0"),
+                sensor(1, SensorType.SENSOR_TYPE_LOAD, "%", "cpu/1"),
+                sensor(2, SensorType.SENSOR_TYPE_TEMPERATURE, "C", "gpu/0"),
+                sensor(3, SensorType.SENSOR_TYPE_TEMPERATURE, "C", "gpu/1"),
+                sensor(4, SensorType.SENSOR_TYPE_MEMORY_USED, "GB", "gpu/0"),
+                sensor(5, SensorType.SENSOR_TYPE_MEMORY_USED, "MB", "gpu/1"),
+                sensor(6, SensorType.SENSOR_TYPE_MEMORY_USED, "MB", "ram"))));
+
+        Map<String, Double> readings = decoder.decode(sample(20f, 40f, 60f, 75f, 2f, 1024f, 8192f));
+
+        assertEquals(30.0, readings.get("CPU_LOAD"), 1e-9, "Loads are averaged over the cores");
+        assertEquals(75.0, readings.get("GPU_TEMP"), 1e-9, "The hottest GPU counts");
+        assertEquals(3072.0, readings.get("USED_VRAM"), 1e-9, "Video memory is summed, in MB");
+        assertEquals(8.0, readings.get("USED_RAM"), 1e-9, "RAM is reported in GB");
+        assertFalse(readings.containsKey("CPU_FAN"), "No sensor feeds the CPU fan gauge");
+    }
+
+    @Test
+    void testV2PrefersWholePartAndSkipsUnreadableSensors() {
+        MetricsDecoder decoder = new MetricsDecoder();
+        decoder.decode(dictionary(
+                sensor(0, SensorType.SENSOR_TYPE_LOAD, "%", "cpu"),
+                sensor(1, SensorType.SENSOR_TYPE_LOAD, "%", "cpu/0"),
+                sensor(2, SensorType.SENSOR_TYPE_LOAD, "%", "gpu/0"),
+                sensor(3, SensorType.SENSOR_TYPE_LOAD, "%", "gpu/1")));
+
+        Map<String, Double> readings = decoder.decode(sample(50f, 100f, Float.NaN, 80f));
+
+        assertEquals(50.0, readings.get("CPU_LOAD"), 1e-9);
+        assertEquals(80.0, readings.get("GPU_LOAD"), 1e-9);
+    }
+
+    @Test
+    void testV2SampleBeforeDictionaryIsRejected() {
+        MetricsDecoder decoder = new MetricsDecoder();
+
+        assertThrows(IllegalStateException.class, () -> decoder.decode(sample(1f)));
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode(SystemMetricsV2.getDefaultInstance()));
+    }
+}
@@ -0,0 +1,121 @@
+package personal.cluster_management.server;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import personal.cluster_management.proto.MetricsIngestServiceGrpc;
+import personal.cluster_management.proto.MetricsReport;
+import personal.cluster_management.proto.MetricsSample;
+import personal.cluster_management.proto.ReportMetricsResponse;
+import personal.cluster_management.proto.SensorDictionary;
+import personal.cluster_management.proto.SystemMetrics;
+import personal.cluster_management.proto.SystemMetricsV2;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests that metrics streamed over gRPC reach the monitor, one decoder session per stream.
+ */
+class MetricsIngestImplTest {
+
+    private MonitorInterface monitor;
+    private IOInterface io;
+    private Server server;
+    private ManagedChannel channel;
+    private MetricsIngestServiceGrpc.MetricsIngestServiceStub stub;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        monitor = mock(MonitorInterface.class);
+        io = mock(IOInterface.class);
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name).directExecutor()
+                .addService(new MetricsIngestImpl(monitor, io)).build().start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        stub = MetricsIngestServiceGrpc.newStub(channel);
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    /**
+     * Streams the reports and returns the server's response.
+     */
+    private ReportMetricsResponse report(MetricsReport... reports) throws Exception {
+        CompletableFuture<ReportMetricsResponse> response = new CompletableFuture<>();
+        StreamObserver<MetricsReport> requests = stub.reportMetrics(new StreamObserver<>() {
+            @Override
+            public void onNext(ReportMetricsResponse value) { response.complete(value); }
+            @Override
+            public void onError(Throwable t) { response.completeExceptionally(t); }
+            @Override
+            public void onCompleted() {}
+        });
+        for (MetricsReport report : reports) requests.onNext(report);
+        requests.onCompleted();
+        return response.get(5, TimeUnit.SECONDS);
+    }
+
+    private static MetricsReport v2(String source, SystemMetricsV2.Builder message) {
+        return MetricsReport.newBuilder().setSource(source).setV2(message).build();
+    }
+
+    @Test
+    void testV1ReportsAreProcessedAndCounted() throws Exception {
+        SystemMetrics metrics = SystemMetrics.newBuilder().setCpuLoad(10.5).build();
+
+        ReportMetricsResponse response = report(
+                MetricsReport.newBuilder().setSource("node-1").setV1(metrics).build(),
+                MetricsReport.newBuilder().setSource("node-1").setV1(metrics).build());
+
+        assertEquals(2, response.getAccepted());
+        verify(monitor, times(2)).process(metrics);
+        verify(monitor).streamOpened("node-1");
+        verify(monitor).streamClosed("node-1");
+    }
+
+    @Test
+    void testEachStreamHasItsOwnDecoderSession() throws Exception {
+        SystemMetricsV2.Builder dictionary = SystemMetricsV2.newBuilder().setDictionary(SensorDictionary.getDefaultInstance());
+        SystemMetricsV2.Builder sample = SystemMetricsV2.newBuilder().setSample(MetricsSample.newBuilder().addValues(1f));
+
+        ReportMetricsResponse first = report(v2("node-1", dictionary), v2("node-1", sample));
+        report(v2("node-2", sample));
+
+        assertEquals(1, first.getAccepted(), "The dictionary is not counted");
+        ArgumentCaptor<MetricsDecoder> sessions = ArgumentCaptor.forClass(MetricsDecoder.class);
+        verify(monitor, times(3)).process(any(SystemMetricsV2.class), sessions.capture());
+        assertSame(sessions.getAllValues().get(0), sessions.getAllValues().get(1));
+        assertNotSame(sessions.getAllValues().get(0), sessions.getAllValues().get(2));
+    }
+
+    @Test
+    void testMalformedReportIsLoggedAndSkipped() throws Exception {
+        doThrow(new IllegalStateException("Metrics sample received before the sensor dictionary"))
+                .when(monitor).process(any(SystemMetricsV2.class), any(MetricsDecoder.class));
+
+        ReportMetricsResponse response = report(
+                v2("node-1", SystemMetricsV2.newBuilder().setSample(MetricsSample.getDefaultInstance())),
+                MetricsReport.newBuilder().setSource("node-1").build());
+
+        assertEquals(0, response.getAccepted());
+        verify(io).pln("Received malformed data from node-1: Metrics sample received before the sensor dictionary");
+        verify(io).pln("Received empty report from node-1");
+        verify(monitor).streamClosed("node-1");
+    }
+}
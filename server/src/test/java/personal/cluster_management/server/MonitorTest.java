@@ -6,9 +6,16 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
+import personal.cluster_management.proto.MetricsSample;
+import personal.cluster_management.proto.Sensor;
+import personal.cluster_management.proto.SensorDictionary;
+import personal.cluster_management.proto.SensorType;
+import personal.cluster_management.proto.SystemMetricsV2;
+
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.Base64;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyDouble;
@@ -96,9 +103,12 @@ class MonitorTest {
         ssField.setAccessible(true);
         ssField.set(monitor, mockServerSocket);
         
-        java.lang.reflect.Field sField = Monitor.class.getDeclaredField("socket");
-        sField.setAccessible(true);
-        sField.set(monitor, mockSocket);
+        // A connected client
+        java.lang.reflect.Field clientsField = Monitor.class.getDeclaredField("clients");
+        clientsField.setAccessible(true);
+        @SuppressWarnings("unchecked")
+        java.util.Set<java.net.Socket> clients = (java.util.Set<java.net.Socket>) clientsField.get(monitor);
+        clients.add(mockSocket);
         
         // Simulate sockets being open
         when(mockServerSocket.isClosed()).thenReturn(false);
@@ -227,4 +237,24 @@ class MonitorTest {
         // Assert: Ensure the GPU_LOAD gauge was NOT updated with a value
         verify(mockView.getGPULoadGauge(), never()).setValue(99.9);
     }
+
+    @Test
+    void testProcessV2LinesUseTheSessionDictionary() {
+        SystemMetricsV2 dictionary = SystemMetricsV2.newBuilder()
+                .setDictionary(SensorDictionary.newBuilder()
+                        .addSensors(Sensor.newBuilder().setId(0).setType(SensorType.SENSOR_TYPE_LOAD).setUnit("%").setDevice("cpu/0"))
+                        .addSensors(Sensor.newBuilder().setId(1).setType(SensorType.SENSOR_TYPE_LOAD).setUnit("%").setDevice("cpu/1")))
+                .build();
+        SystemMetricsV2 sample = SystemMetricsV2.newBuilder()
+                .setSample(MetricsSample.newBuilder().setTimestampMillis(1_000).addValues(10f).addValues(30f))
+                .build();
+
+        // A v2 stream can share the socket with v1 lines
+        monitor.process("V2:" + Base64.getEncoder().encodeToString(dictionary.toByteArray()));
+        monitor.process("V2:" + Base64.getEncoder().encodeToString(sample.toByteArray()));
+
+        // Assert: The per-core loads are averaged into the CPU load gauge
+        verify(mockView.getCPULoadGauge()).setValue(20.0);
+        verify(mockView.getGPULoadGauge(), never()).setValue(anyDouble());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package personal.cluster_management.server;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnknownFieldSet;
+import org.junit.jupiter.api.Test;
+import personal.cluster_management.proto.SystemMetrics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the allocation-free decode path for length-delimited v1 messages.
+ */
+class SystemMetricsReaderTest {
+
+    private static SystemMetrics metrics(double cpuLoad) {
+        return SystemMetrics.newBuilder()
+                .setCpuLoad(cpuLoad).setCpuTemp(55.0).setCpuFanSpeed(2000).setGpuLoad(99.9).setGpuTemp(80.1)
+                .setGpuFanSpeed(3500).setUsedVram(20480).setTotalVram(32768).setUsedRam(8192).setAvailableRam(4096)
+                .build();
+    }
+
+    private static byte[] delimited(SystemMetrics... messages) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (SystemMetrics message : messages) message.writeDelimitedTo(out);
+        return out.toByteArray();
+    }
+
+    @Test
+    void testReadsTheSameReadingsAsTheGeneratedClass() throws IOException {
+        SystemMetrics full = metrics(10.5);
+        SystemMetrics sparse = SystemMetrics.newBuilder().setGpuLoad(42)
+                .setUnknownFields(UnknownFieldSet.newBuilder()
+                        .addField(42, UnknownFieldSet.Field.newBuilder().addLengthDelimited(ByteString.copyFromUtf8("newer agent")).build())
+                        .build())
+                .build();
+        SystemMetricsReader reader = new SystemMetricsReader(new ByteArrayInputStream(delimited(full, sparse)));
+        double[] slot = new double[SystemMetricsReader.FIELDS];
+
+        assertTrue(reader.next(slot));
+        assertEquals(MetricsDecoder.decode(full), SystemMetricsReader.readings(slot));
+
+        // Fields left out read as 0, and the previous message's values do not leak through
+        assertTrue(reader.next(slot));
+        Map<String, Double> readings = SystemMetricsReader.readings(slot);
+        assertEquals(MetricsDecoder.decode(sparse), readings);
+        assertEquals(0.0, readings.get("CPU_LOAD"));
+
+        assertFalse(reader.next(slot));
+    }
+
+    @Test
+    void testTruncatedMessageIsRejected() throws IOException {
+        byte[] bytes = delimited(metrics(10.5));
+        SystemMetricsReader reader = new SystemMetricsReader(new ByteArrayInputStream(bytes, 0, bytes.length - 3));
+
+        assertThrows(IOException.class, () -> reader.next(new double[SystemMetricsReader.FIELDS]));
+    }
+
+    @Test
+    void testDecodingAllocatesNothingPerSample() throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int warmup = 20_000, samples = 100_000;
+        SystemMetrics[] messages = new SystemMetrics[warmup + samples];
+        for (int i = 0; i < messages.length; i++) messages[i] = metrics(i % 100);
+        SystemMetricsReader reader = new SystemMetricsReader(new ByteArrayInputStream(delimited(messages)));
+        double[] slot = new double[SystemMetricsReader.FIELDS];
+        for (int i = 0; i < warmup; i++) reader.next(slot);
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        double sum = 0;
+        for (int i = 0; i < samples; i++) {
+            reader.next(slot);
+            sum += slot[0];
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        System.out.printf("SystemMetricsReader: %.4f bytes allocated per sample%n", (double) allocated / samples);
+        assertTrue(sum > 0);
+        // Measuring allocates a few bytes itself; anything per sample would add up to far more
+        assertTrue(allocated < samples, "Allocated " + allocated + " bytes for " + samples + " samples");
+    }
+}